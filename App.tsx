@@ -47,7 +47,19 @@ export default function App() {
       
       if (docSnap.exists()) {
         const data = docSnap.data();
-        if (data.caretaker && data.caretaker.phone) {
+        if (Array.isArray(data.caretakers) && data.caretakers.length > 0) {
+          // Families with several caretakers; every one of them is alerted at once
+          const { SettingsModule } = NativeModules;
+          if (SettingsModule) {
+            await SettingsModule.setCaretakers(
+              data.caretakers.map((caretaker: any) => ({
+                name: caretaker.name || '',
+                phone: caretaker.phone,
+              }))
+            );
+            console.log('Caretaker list loaded and broadcasted on startup:', data.caretakers.length);
+          }
+        } else if (data.caretaker && data.caretaker.phone) {
           // Broadcast caretaker settings to BackgroundService
           const { SettingsModule } = NativeModules;
           if (SettingsModule) {
@@ -0,0 +1,100 @@
+package com.evercare;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.location.Location;
+import android.location.LocationManager;
+import android.util.Log;
+import androidx.core.app.ActivityCompat;
+import androidx.core.location.LocationManagerCompat;
+import androidx.core.os.CancellationSignal;
+import androidx.core.util.Consumer;
+import com.evercare.detection.LocationFix;
+import com.evercare.detection.LocationSource;
+import java.util.concurrent.Executor;
+
+/** A {@link LocationManager} provider as a {@link LocationSource}; fixes arrive on {@code executor}. */
+class AndroidLocationSource implements LocationSource {
+
+    private static final String TAG = "AndroidLocationSource";
+
+    private final Context context;
+    private final LocationManager locationManager;
+    private final String provider;
+    private final Executor executor;
+
+    AndroidLocationSource(Context context, LocationManager locationManager, String provider, Executor executor) {
+        this.context = context;
+        this.locationManager = locationManager;
+        this.provider = provider;
+        this.executor = executor;
+    }
+
+    static boolean hasPermission(Context context) {
+        return ActivityCompat.checkSelfPermission(context, android.Manifest.permission.ACCESS_FINE_LOCATION) == PackageManager.PERMISSION_GRANTED
+                || ActivityCompat.checkSelfPermission(context, android.Manifest.permission.ACCESS_COARSE_LOCATION) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    static LocationFix toFix(Location location) {
+        return new LocationFix(location.getProvider(), location.getLatitude(), location.getLongitude(),
+                location.getAccuracy(), location.getTime(), location.getElapsedRealtimeNanos());
+    }
+
+    @Override
+    public String name() {
+        return provider;
+    }
+
+    @Override
+    public boolean isEnabled() {
+        try {
+            return hasPermission(context) && locationManager.isProviderEnabled(provider);
+        } catch (Exception e) {
+            Log.e(TAG, "Error checking provider " + provider + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public LocationFix lastKnown() {
+        if (!hasPermission(context)) {
+            return null;
+        }
+        try {
+            Location location = locationManager.getLastKnownLocation(provider);
+            return location != null ? toFix(location) : null;
+        } catch (SecurityException e) {
+            Log.w(TAG, "No permission for last known " + provider + " location");
+            return null;
+        }
+    }
+
+    @Override
+    public Request requestFix(final FixCallback callback) {
+        final CancellationSignal signal = new CancellationSignal();
+        try {
+            LocationManagerCompat.getCurrentLocation(locationManager, provider, signal, executor,
+                    new Consumer<Location>() {
+                @Override
+                public void accept(Location location) {
+                    // Null means the platform gave up on this provider
+                    if (location != null) {
+                        callback.onFix(toFix(location));
+                    }
+                }
+            });
+        } catch (SecurityException e) {
+            Log.w(TAG, "No permission to request a " + provider + " fix");
+            return null;
+        } catch (Exception e) {
+            Log.e(TAG, "Error requesting a " + provider + " fix: " + e.getMessage());
+            return null;
+        }
+        return new Request() {
+            @Override
+            public void cancel() {
+                signal.cancel();
+            }
+        };
+    }
+}
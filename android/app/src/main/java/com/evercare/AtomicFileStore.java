@@ -0,0 +1,39 @@
+package com.evercare;
+
+import androidx.core.util.AtomicFile;
+import com.evercare.detection.EscalationEngine;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/** Keeps one record (the escalation state, the accelerometer calibration) in a file replaced atomically on every save. */
+final class AtomicFileStore implements EscalationEngine.Store {
+
+    private final AtomicFile file;
+
+    AtomicFileStore(File file) {
+        this.file = new AtomicFile(file);
+    }
+
+    @Override
+    public byte[] load() throws IOException {
+        try {
+            return file.readFully();
+        } catch (FileNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void save(byte[] record) throws IOException {
+        FileOutputStream out = file.startWrite();
+        try {
+            out.write(record);
+            file.finishWrite(out);
+        } catch (IOException e) {
+            file.failWrite(out);
+            throw e;
+        }
+    }
+}
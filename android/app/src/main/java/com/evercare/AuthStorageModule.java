@@ -2,10 +2,8 @@ package com.evercare;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.content.BroadcastReceiver;
-import android.content.Intent;
-import android.content.IntentFilter;
-import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
@@ -13,73 +11,63 @@ import com.facebook.react.bridge.Promise;
 import com.facebook.react.bridge.WritableMap;
 import com.facebook.react.bridge.Arguments;
 import com.facebook.react.modules.core.DeviceEventManagerModule;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
+import com.evercare.detection.EventBus;
+import com.evercare.detection.FallReport;
+import java.io.IOException;
+import java.util.concurrent.Executor;
 
 public class AuthStorageModule extends ReactContextBaseJavaModule {
     private static final String MODULE_NAME = "AuthStorage";
     private static final String PREFS_NAME = "EverCareAuth";
-    private BroadcastReceiver fallDetectionReceiver;
     private static final String TAG = "BackgroundService";
+    private static final int FALL_REPLAY = 4;
+    private final EventBus.Subscription<FallReport> fallSubscription;
 
     public AuthStorageModule(ReactApplicationContext reactContext) {
         super(reactContext);
         android.util.Log.d(TAG, "AUTHSTORAGE: AuthStorageModule created");
-        
-        // Register broadcast receiver for fall detection
-        fallDetectionReceiver = new BroadcastReceiver() {
+
+        // Subscribe to fall events; recent ones are replayed in case they landed before the
+        // JS runtime was up. Event ids make the JS write idempotent, so a replay is harmless.
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        fallSubscription = ServiceEvents.FALLS.subscribe(new EventBus.Subscriber<FallReport>() {
             @Override
-            public void onReceive(Context context, Intent intent) {
-                android.util.Log.d(TAG, "AUTHSTORAGE: Broadcast received with action: " + intent.getAction());
-                
-                if ("com.evercare.FREE_FALL_DETECTED".equals(intent.getAction())) {
-                    android.util.Log.d(TAG, "AUTHSTORAGE: Processing fall detection broadcast");
-                    
-                    WritableMap params = Arguments.createMap();
-                    params.putDouble("acceleration", intent.getFloatExtra("acceleration", 0));
-                    params.putDouble("duration", intent.getLongExtra("duration", 0));
-                    params.putDouble("timestamp", intent.getLongExtra("timestamp", 0));
-                    
-                    android.util.Log.d(TAG, "AUTHSTORAGE: Fall data - acceleration: " + intent.getFloatExtra("acceleration", 0) + ", duration: " + intent.getLongExtra("duration", 0));
-                    
-                    // Add location data if available
-                    if (intent.hasExtra("latitude")) {
-                        params.putDouble("latitude", intent.getDoubleExtra("latitude", 0));
-                        params.putDouble("longitude", intent.getDoubleExtra("longitude", 0));
-                        params.putDouble("accuracy", intent.getFloatExtra("accuracy", 0));
-                        params.putString("provider", intent.getStringExtra("provider"));
-                        params.putDouble("locationTimestamp", intent.getLongExtra("locationTimestamp", 0));
-                        android.util.Log.d(TAG, "AUTHSTORAGE: Location data included");
-                    }
-                    
-                    android.util.Log.d(TAG, "AUTHSTORAGE: Sending event to React Native");
-                    sendEvent("FREE_FALL_DETECTED", params);
-                } else {
-                    android.util.Log.d(TAG, "AUTHSTORAGE: Ignoring broadcast with action: " + intent.getAction());
+            public void onEvent(long sequence, FallReport report) {
+                android.util.Log.d(TAG, "AUTHSTORAGE: Fall event " + sequence + " received: " + report);
+
+                WritableMap params = Arguments.createMap();
+                params.putString("eventId", report.eventId);
+                params.putDouble("acceleration", report.acceleration);
+                params.putDouble("duration", report.durationMillis);
+                params.putDouble("timestamp", report.timestampMillis);
+
+                // Add location data if available
+                if (report.hasLocation) {
+                    params.putDouble("latitude", report.latitude);
+                    params.putDouble("longitude", report.longitude);
+                    params.putDouble("accuracy", report.accuracy);
+                    params.putString("provider", report.provider);
+                    params.putDouble("locationTimestamp", report.locationTimestampMillis);
+                    params.putDouble("locationAge", report.locationAgeMillis);
                 }
+
+                sendEvent("FREE_FALL_DETECTED", params);
             }
-        };
-        
-        IntentFilter filter = new IntentFilter("com.evercare.FREE_FALL_DETECTED");
-        
-        // Register receiver with appropriate flags for Android 14+
-        try {
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-                reactContext.registerReceiver(fallDetectionReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-            } else {
-                reactContext.registerReceiver(fallDetectionReceiver, filter);
+        }, new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mainHandler.post(command);
             }
-            android.util.Log.d(TAG, "AUTHSTORAGE: Regular broadcast receiver registered");
-        } catch (Exception e) {
-            android.util.Log.e(TAG, "AUTHSTORAGE: Error registering regular receiver: " + e.getMessage());
-        }
-        
-        // Also register with LocalBroadcastManager
-        try {
-            LocalBroadcastManager.getInstance(reactContext).registerReceiver(fallDetectionReceiver, filter);
-            android.util.Log.d(TAG, "AUTHSTORAGE: Local broadcast receiver registered");
-        } catch (Exception e) {
-            android.util.Log.e(TAG, "AUTHSTORAGE: Error registering local receiver: " + e.getMessage());
-        }
+        }, FALL_REPLAY);
+
+        // Detection runs in its own process; the client republishes its falls on the bus above
+        DetectionClient.get(reactContext).connect();
+    }
+
+    @Override
+    public void invalidate() {
+        fallSubscription.close();
+        super.invalidate();
     }
 
     @Override
@@ -95,6 +83,7 @@ public class AuthStorageModule extends ReactContextBaseJavaModule {
             SharedPreferences.Editor editor = prefs.edit();
             editor.putString("userId", userId);
             editor.apply();
+            shareUserId(userId);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("STORAGE_ERROR", e.getMessage());
@@ -109,12 +98,26 @@ public class AuthStorageModule extends ReactContextBaseJavaModule {
             SharedPreferences.Editor editor = prefs.edit();
             editor.remove("userId");
             editor.apply();
+            shareUserId(null);
             promise.resolve(true);
         } catch (Exception e) {
             promise.reject("STORAGE_ERROR", e.getMessage());
         }
     }
 
+    /**
+     * Hands the user id to the detection process, which uploads falls without a JS runtime. The
+     * native store covers a detection process started before the next sign-in.
+     */
+    private void shareUserId(String userId) {
+        try {
+            NativeSettings.get(getReactApplicationContext()).put(NativeSettings.USER_ID, userId);
+        } catch (IOException e) {
+            android.util.Log.e(TAG, "AUTHSTORAGE: Error persisting user id: " + e.getMessage());
+        }
+        DetectionClient.get(getReactApplicationContext()).setUserId(userId);
+    }
+
     private void sendEvent(String eventName, WritableMap params) {
         getReactApplicationContext()
             .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
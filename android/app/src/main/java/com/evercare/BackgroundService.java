@@ -2,6 +2,7 @@ package com.evercare;
 
 import android.app.Service;
 import android.content.Intent;
+import android.os.Bundle;
 import android.os.IBinder;
 import android.util.Log;
 import android.content.Context;
@@ -11,9 +12,7 @@ import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
 import android.app.NotificationChannel;
 import android.app.NotificationManager;
-import androidx.core.app.NotificationCompat;
 import android.os.Build;
-import android.app.PendingIntent;
 import android.os.Vibrator;
 import com.google.firebase.firestore.FirebaseFirestore;
 import com.google.firebase.auth.FirebaseAuth;
@@ -23,59 +22,243 @@ import java.util.Map;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
+import java.util.TimeZone;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
-import android.content.pm.PackageManager;
-import androidx.core.app.ActivityCompat;
 import android.content.SharedPreferences;
 import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import android.app.Notification;
+import android.app.PendingIntent;
+import android.content.pm.ServiceInfo;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.ServiceCompat;
 import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
-import androidx.localbroadcastmanager.content.LocalBroadcastManager;
 import android.content.BroadcastReceiver;
 import android.content.IntentFilter;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.os.Process;
+import android.os.SystemClock;
+import com.evercare.detection.AccelerometerCalibrator;
+import com.evercare.detection.Caretaker;
+import com.evercare.detection.CaretakerFanOut;
+import com.evercare.detection.DetectionMetrics;
+import com.evercare.detection.DetectorCheckpoint;
+import com.evercare.detection.EscalationEngine;
+import com.evercare.detection.EscalationLadders;
+import com.evercare.detection.EventBus;
+import com.evercare.detection.FallDetector;
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallClassifier;
+import com.evercare.detection.FallEvent;
+import com.evercare.detection.FallModel;
+import com.evercare.detection.FallModelCodec;
+import com.evercare.detection.FallIncidentCoalescer;
+import com.evercare.detection.FixedRateResampler;
+import com.evercare.detection.InactivityMonitor;
+import com.evercare.detection.SampleSink;
+import com.evercare.detection.WindowFeatureExtractor;
+import com.evercare.detection.WindowFeatures;
+import com.evercare.detection.FallReport;
+import com.evercare.detection.LatencyHistogram;
+import com.evercare.detection.LatencySummary;
+import com.evercare.detection.LocationFix;
+import com.evercare.detection.LocationResolver;
+import com.evercare.detection.LocationSource;
+import com.evercare.detection.MotionContextCapture;
+import com.evercare.detection.MotionTrace;
+import com.evercare.detection.MotionTraceCodec;
+import com.evercare.detection.OutboxEntry;
+import com.evercare.detection.SensorBatchProcessor;
+import com.evercare.detection.SensorFrameRing;
+import com.evercare.detection.SensorTraceRecorder;
+import android.util.Base64;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class BackgroundService extends Service implements SensorEventListener{
 
     private static final String TAG = "BackgroundService";
     private static final String CHANNEL_ID = "FREE_FALL_CHANNEL";
     private static final int NOTIFICATION_ID = 1234;
+    // Ongoing notification that keeps this service in the foreground while it monitors
+    private static final String MONITORING_CHANNEL_ID = "FALL_DETECTION_CHANNEL";
+    private static final int MONITORING_NOTIFICATION_ID = 1001;
 
     private SensorManager sensorManager;
     private Sensor accelerometer;
     private NotificationManager notificationManager;
     private FirebaseFirestore db;
     private FirebaseAuth mAuth;
+    private FallEventUploader fallEventUploader;
     private LocationManager locationManager;
-    private Location lastKnownLocation;
-    private String caretakerPhone = null;
+    // Idle: passive fixes only. At fall time GPS and network race for a fresh fix
+    private static final long LOCATION_DEADLINE_NANOS = 10000000000L;
+    private static final float LOCATION_GOOD_ACCURACY_METERS = 30f;
+    private static final long PASSIVE_LOCATION_INTERVAL_MS = 60000;
+    private LocationResolver locationResolver;
+    // Everyone told about a fall, in calling order; replaced wholesale by the settings broadcast
+    private volatile List<Caretaker> caretakers = Collections.emptyList();
+    private static final long CARETAKER_FAN_OUT_TIMEOUT_NANOS = 20000000000L; // per recipient
+    private ExecutorService caretakerSendExecutor;
+    private CaretakerFanOut caretakerFanOut;
     private BroadcastReceiver settingsReceiver;
 
-    private static final float FREE_FALL_THRESHOLD = 2.0f; // m/s²
-    private static final long FREE_FALL_TIME_THRESHOLD = 50; // milliseconds
     private static final long AUTO_CALL_DELAY = 120000; // 2 minutes in milliseconds
+    // Escalation ladders after a fall or a check-in (see EscalationLadders); persisted and driven
+    // by exact alarms so they carry on if this process dies
+    private static final long NEXT_CARETAKER_DELAY = 60000;
+    private static final long EMERGENCY_ESCALATION_DELAY = 180000;
+    private static final String EMERGENCY_NUMBER = "101";
+    private static final String ESCALATION_FILE = "escalation.bin";
+    private EscalationEngine escalation;
 
-    
-    private long freeFallStartTime = 0;
-    private boolean inFreeFall = false;
-    private boolean fallEventProcessed = false;
-    
-    // Auto-call timer variables
-    private Handler autoCallHandler;
-    private Runnable autoCallRunnable;
-    private Runnable countdownUpdateRunnable;
-    private BroadcastReceiver notificationInteractionReceiver;
-    private long autoCallStartTime;
+    // Accelerometer delivery: ~50 Hz (same rate as SENSOR_DELAY_GAME), batched in the hardware
+    // FIFO while nothing is happening so the application processor can stay asleep
+    private static final int SAMPLING_PERIOD_US = 20000;
+    private static final int MAX_REPORT_LATENCY_US = 5000000; // 5 seconds
+    private static final int BATCH_CAPACITY = 512;
+    private static final long BATCH_FRESHNESS_NANOS = 40000000L; // two sample periods
+    private static final long REALTIME_HOLD_NANOS = 10000000000L; // 10 seconds
+
+    // Detection state lives in the pure-Java detector; this service only feeds it samples
+    private FallDetector fallDetector;
+    private SensorBatchProcessor batchProcessor;
+    private boolean batchingSupported = false;
+
+    // Detector state mapped from a file so a restarted process resumes mid-candidate. Saved on
+    // the sensor thread whenever the phase or candidate count changes
+    private static final String CHECKPOINT_FILE = "detector.checkpoint";
+    private DetectorCheckpoint checkpoint;
+    private FallDetector.Phase checkpointedPhase;
+    private long checkpointedCandidates;
+    private boolean firstSampleSeen = false;
+
+    // Sensor callbacks and all detector state are confined to this thread so a busy main
+    // thread (React Native UI, module init) can't delay detection
+    private HandlerThread sensorThread;
+    private Handler sensorHandler;
+    private Handler mainHandler;
+    // Falls detected on the sensor thread, waiting to be handled on the main thread
+    private final ConcurrentLinkedQueue<FallEvent> pendingFalls = new ConcurrentLinkedQueue<>();
+    // Falls waiting for their location fix and motion trace before they're recorded, or for their
+    // incident to close before its aggregates are; main thread only
+    private final Map<FallEvent, PendingFallRecord> pendingRecords = new IdentityHashMap<>();
+    // Detections within this long of the previous one extend its incident (one alert, one
+    // countdown, one record) instead of starting over; main thread only
+    private static final long INCIDENT_WINDOW_NANOS = 30000000000L;
+    private FallIncidentCoalescer incidentCoalescer;
+
+    // Raw motion from 10 s before onset to 3 s after detection goes with each fall record. The
+    // ring also has to cover onset-to-detection and one sensor batch: 2048 samples is ~41 s at 50 Hz
+    private static final int MOTION_CAPTURE_CAPACITY = 2048;
+    private static final long MOTION_PRE_NANOS = 10000000000L;
+    private static final long MOTION_POST_NANOS = 3000000000L;
+    // Well inside the outbox's record limit
+    private static final int MAX_MOTION_TRACE_CHARS = 32 * 1024;
+    private MotionContextCapture motionCapture;
+
+    // Sensor-thread metrics, logged once a minute and pulled on demand by DiagnosticsModule
+    private static final long METRICS_LOG_INTERVAL_NANOS = 60000000000L;
+    private final DetectionMetrics metrics = new DetectionMetrics(SAMPLING_PERIOD_US * 1000L);
+    private long metricsLogStartNanos = 0;
+    // Fall onset to alert notification posted; main thread only
+    private final LatencyHistogram alertLatency = new LatencyHistogram();
+
+    // The service runs in its own process (":detection", no React Native). UI-process clients
+    // bind to it (see DetectionClient); main thread only
+    private static final int IPC_FALL_REPLAY = 4;
+    private Messenger ipcMessenger;
+    private final Map<Messenger, EventBus.Subscription<FallReport>> ipcClients = new HashMap<>();
+    private Executor mainExecutor;
+
+    // Resident memory of this process, sampled once a minute and tracked as a regression metric
+    private static final long RSS_SAMPLE_INTERVAL_MS = 60000;
+    private long rssBytes = -1;
+    private long peakRssBytes = -1;
+
+    // Debug builds record the raw accelerometer stream so detector changes can be replayed
+    // offline against real data (see the detection module's replayTraces task)
+    private static final boolean RECORD_SENSOR_TRACES = BuildConfig.DEBUG;
+    private static final long TRACE_FILE_BYTES = 16L * 1024 * 1024; // ~4.5 hours at 50 Hz
+    private static final int TRACE_MAX_FILES = 12;
+    private SensorTraceRecorder traceRecorder;
+
+    // Frames for the UI's live motion view, written only while it is open. The mapping is
+    // created on the main thread; the producer is only touched on the sensor thread
+    private MappedByteBuffer liveMotionBuffer;
+    private SensorFrameRing.Producer liveMotion;
+
+    // Motion features over a sliding window of the resampled stream, for detectors beyond the
+    // threshold one; 2 s windows every 0.5 s, band power over the range of walking and handling
+    private static final int FEATURE_WINDOW_SAMPLES = 100;
+    private static final int FEATURE_HOP_SAMPLES = 25;
+    private static final double FEATURE_BAND_LOW_HZ = 0.5;
+    private static final double FEATURE_BAND_HIGH_HZ = 3.0;
+    private WindowFeatureExtractor featureExtractor;
+    // Sensor thread only
+    private final float[] latestFeatures = new float[WindowFeatures.COUNT];
+    private boolean latestFeaturesValid = false;
+
+    // Optional model that has the final say on the threshold detector's falls. Without the asset
+    // (or with a broken one) every detected fall goes through, as before
+    private static final String FALL_MODEL_ASSET = "fall-model.ecfm";
+    // 16 s of windows, well past the detector's stillness check
+    private static final int FALL_MODEL_HISTORY_WINDOWS = 32;
+    private FallClassifier fallClassifier;
+
+    // Per-device offset and scale of the accelerometer, learned while the phone lies still and
+    // applied between the resampler and the detector. Sensor thread only, apart from the restore
+    // in onCreate; saved on the main thread when it moves
+    private static final String CALIBRATION_FILE = "accelerometer-calibration.bin";
+    private AccelerometerCalibrator calibrator;
+    private AtomicFileStore calibrationStore;
+
+    // Movement after a fall and through the day, from the feature windows. A long lie brings the
+    // next escalation step forward, getting up gives the person more time to answer, and a long
+    // daytime stillness raises a check-in alert with its own caretaker-only ladder
+    // (EscalationLadders.checkIn), which never calls emergency services
+    private static final int DAYTIME_START_HOUR = 8;
+    private static final int DAYTIME_END_HOUR = 21;
+    private static final long RECOVERY_GRACE_DELAY = 120000;
+    private InactivityMonitor inactivityMonitor;
+
+    private FallAlertNotifier alertNotifier;
 
     
     @Override
     public void onCreate() {
         super.onCreate();
-        Log.d(TAG, "Service created");
+        Log.d(TAG, "Service created in process " + Process.myPid());
+        StartupTimings.serviceCreatedNanos = SystemClock.elapsedRealtimeNanos();
+
+        // Caretaker settings come from the native store, so the service is armed with the right
+        // number straight after boot; React Native only pushes later changes
+        long settingsStartNanos = SystemClock.elapsedRealtimeNanos();
+        caretakers = NativeSettings.caretakers(NativeSettings.get(this));
+        StartupTimings.settingsLoadNanos = SystemClock.elapsedRealtimeNanos() - settingsStartNanos;
+        Log.i(TAG, "Loaded caretaker settings in " + StartupTimings.settingsLoadNanos / 1000 + "us, will use "
+                + (caretakers.isEmpty() ? "emergency services (101)" : ("caretakers: " + caretakers)));
         
         // Initialize sensor manager
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
@@ -84,31 +267,180 @@ public class BackgroundService extends Service implements SensorEventListener{
         // Initialize notification manager and create channel
         notificationManager = (NotificationManager) getSystemService(Context.NOTIFICATION_SERVICE);
         createNotificationChannel();
+        createMonitoringNotificationChannel();
+        alertNotifier = new FallAlertNotifier(this, notificationManager, CHANNEL_ID, NOTIFICATION_ID);
         
         // Initialize Firebase
         db = FirebaseFirestore.getInstance();
         mAuth = FirebaseAuth.getInstance();
+
+        // Fall events are journaled and uploaded natively, so they reach Firestore even without JS
+        fallEventUploader = new FallEventUploader(this, db, mAuth);
+        fallEventUploader.start();
+
+        // One thread per recipient while a fan-out is running, none in between
+        caretakerSendExecutor = Executors.newCachedThreadPool();
+        caretakerFanOut = new CaretakerFanOut(new FirestoreCaretakerSender(db, fallEventUploader),
+                caretakerSendExecutor, CARETAKER_FAN_OUT_TIMEOUT_NANOS);
         
-        // Initialize location manager
-        locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
-        requestLocationUpdates();
-        
-        // Initialize caretaker phone to null - will be set via broadcast from React Native
-        caretakerPhone = null;
+        alertNotifier.prepare(primaryCaretakerPhone());
         
         // Register broadcast receiver for settings updates
         registerSettingsReceiver();
         
-        // Initialize auto-call handler
-        autoCallHandler = new Handler(Looper.getMainLooper());
+        mainHandler = new Handler(Looper.getMainLooper());
+        mainExecutor = new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                mainHandler.post(command);
+            }
+        };
+        ipcMessenger = new Messenger(new Handler(Looper.getMainLooper()) {
+            @Override
+            public void handleMessage(Message message) {
+                onIpcMessage(message);
+            }
+        });
+        mainHandler.post(rssSampler);
+        incidentCoalescer = new FallIncidentCoalescer(INCIDENT_WINDOW_NANOS, incidentListener);
+
+        // Initialize location manager
+        locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
+        initLocation();
+
+        sensorThread = new HandlerThread("FallDetectionSensor", Process.THREAD_PRIORITY_URGENT_DISPLAY);
+        sensorThread.start();
+        sensorHandler = new Handler(sensorThread.getLooper());
+
+        if (RECORD_SENSOR_TRACES) {
+            traceRecorder = new SensorTraceRecorder(new File(getFilesDir(), "sensor-traces"), TRACE_FILE_BYTES,
+                    TRACE_MAX_FILES, new SensorTraceRecorder.Clock() {
+                @Override
+                public long currentTimeMillis() {
+                    return System.currentTimeMillis();
+                }
+            });
+            Log.d(TAG, "Recording sensor traces to " + new File(getFilesDir(), "sensor-traces"));
+        }
         
-        // Register notification interaction receiver
-        registerNotificationInteractionReceiver();
+        escalation = new EscalationEngine(new EscalationEngine.Clock() {
+            @Override
+            public long currentTimeMillis() {
+                return System.currentTimeMillis();
+            }
+        }, new EscalationAlarms(this), new AtomicFileStore(new File(getNoBackupFilesDir(), ESCALATION_FILE)),
+                escalationListener);
+        try {
+            // Carries on an escalation this process was running when it died; may call straight away
+            EscalationEngine.Escalation restored = escalation.restore();
+            if (restored != null && restored.status() == EscalationEngine.Status.ACTIVE) {
+                Log.w(TAG, "Resumed escalation " + restored);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot restore escalation: " + e.getMessage());
+        }
+
+        motionCapture = new MotionContextCapture(MOTION_CAPTURE_CAPACITY, MOTION_PRE_NANOS, MOTION_POST_NANOS);
+        FallDetectorConfig detectorConfig = new FallDetectorConfig();
+        fallClassifier = loadFallClassifier();
+        final FallClassifier classifier = fallClassifier;
+        inactivityMonitor = new InactivityMonitor(detectorConfig, new InactivityMonitor.Daytime() {
+            @Override
+            public boolean isDaytime(long sensorNanos) {
+                // Sensor timestamps share the elapsedRealtime clock; the zone is looked up each
+                // time (twice a second) so travel and DST changes apply without a restart
+                long wall = System.currentTimeMillis() - (SystemClock.elapsedRealtimeNanos() - sensorNanos) / 1000000L;
+                long hour = (wall + TimeZone.getDefault().getOffset(wall)) / 3600000L % 24;
+                return hour >= DAYTIME_START_HOUR && hour < DAYTIME_END_HOUR;
+            }
+        }, inactivityListener);
+        final InactivityMonitor inactivity = inactivityMonitor;
+        fallDetector = new FallDetector(detectorConfig, new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(final FallEvent event) {
+                if (classifier != null && !classifier.confirms(event)) {
+                    Log.i(TAG, "Fall model rejected detection at " + event.onsetNanos + " (p="
+                            + classifier.maxProbability(event.onsetNanos, event.impactNanos) + ")");
+                    return;
+                }
+                inactivity.onFall(event);
+                // Runs on the sensor thread; notification and call handling belong on the main thread
+                pendingFalls.offer(event);
+                mainHandler.post(pendingFallsDrainer);
+                motionCapture.capture(event.onsetNanos, event.detectedNanos, new MotionContextCapture.Callback() {
+                    @Override
+                    public void onCaptured(final MotionTrace trace) {
+                        // Posted after the drainer above, so the record already exists
+                        mainHandler.post(new Runnable() {
+                            @Override
+                            public void run() {
+                                onMotionTraceCaptured(event, trace);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+
+        restoreCheckpoint();
+
+        // The detector sees a fixed 50 Hz grid interpolated on sensor timestamps, however the OEM
+        // delivers, corrected for this device's offset and scale; stalls longer than the
+        // interpolation limit are logged, not bridged
+        featureExtractor = new WindowFeatureExtractor(FEATURE_WINDOW_SAMPLES, FEATURE_HOP_SAMPLES,
+                detectorConfig.samplePeriodNanos, FEATURE_BAND_LOW_HZ, FEATURE_BAND_HIGH_HZ,
+                new WindowFeatureExtractor.Listener() {
+            @Override
+            public void onWindow(WindowFeatures features) {
+                features.copyTo(latestFeatures);
+                latestFeaturesValid = true;
+                if (classifier != null) {
+                    classifier.onWindow(features);
+                }
+                inactivity.onWindow(features);
+            }
+        });
+        final WindowFeatureExtractor extractor = featureExtractor;
+        calibrator = new AccelerometerCalibrator(detectorConfig, new SampleSink() {
+            @Override
+            public void onSample(long timestampNanos, float x, float y, float z) {
+                fallDetector.onSample(timestampNanos, x, y, z);
+                extractor.onSample(timestampNanos, x, y, z);
+            }
+        }, new AccelerometerCalibrator.Listener() {
+            @Override
+            public void onCalibrationChanged(AccelerometerCalibrator changed) {
+                saveCalibration(changed);
+            }
+        });
+        restoreCalibration();
+        FixedRateResampler resampler = new FixedRateResampler(detectorConfig, calibrator,
+                new FixedRateResampler.GapListener() {
+            @Override
+            public void onGap(long fromNanos, long toNanos) {
+                Log.w(TAG, "Accelerometer gap of " + (toNanos - fromNanos) / 1000000 + "ms");
+            }
+        });
+        batchProcessor = new SensorBatchProcessor(resampler, fallDetector, BATCH_CAPACITY, BATCH_FRESHNESS_NANOS,
+                REALTIME_HOLD_NANOS, new SensorBatchProcessor.LatencyModeListener() {
+            @Override
+            public void onRealtimeModeChanged(boolean realtime) {
+                Log.i(TAG, realtime ? "Free fall candidate - switching accelerometer to real-time delivery"
+                        : "No candidate - switching accelerometer back to batched delivery");
+                if (batchingSupported) {
+                    registerAccelerometer(realtime ? 0 : MAX_REPORT_LATENCY_US);
+                }
+            }
+        });
 
         if (accelerometer != null) {
-            // Register for accelerometer updates
-            sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
-            Log.d(TAG, "Accelerometer registered successfully");
+            // Batch in the sensor hub when it has a FIFO, otherwise deliver every sample as before
+            batchingSupported = accelerometer.getFifoMaxEventCount() > 0;
+            Log.d(TAG, "Accelerometer FIFO size: " + accelerometer.getFifoMaxEventCount());
+            registerAccelerometer(batchingSupported ? MAX_REPORT_LATENCY_US : 0);
+            StartupTimings.armedNanos = SystemClock.elapsedRealtimeNanos();
+            Log.i(TAG, "Armed " + (StartupTimings.armedNanos - StartupTimings.serviceCreatedNanos) / 1000000
+                    + "ms after service creation");
         } else {
             Log.e(TAG, "Accelerometer not available on this device");
         }
@@ -118,119 +450,550 @@ public class BackgroundService extends Service implements SensorEventListener{
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
         Log.d("FallDetection","Service Started");
+        // Started with startForegroundService(), so this has to happen straight away
+        startMonitoringForeground();
+        String action = intent != null ? intent.getAction() : null;
+        if (EscalationAlarms.ACTION_ESCALATION_ALARM.equals(action)) {
+            try {
+                escalation.onAlarm();
+            } catch (IOException e) {
+                Log.e(TAG, "Error persisting escalation step: " + e.getMessage());
+            }
+        } else if (FallAlertNotifier.ACTION_OK.equals(action) || FallAlertNotifier.ACTION_DISMISSED.equals(action)) {
+            onAlertAnswered(action);
+        }
+        if (intent != null && intent.hasExtra(BootReceiver.EXTRA_BOOT_RECEIVED_NANOS)) {
+            StartupTimings.bootReceivedNanos = intent.getLongExtra(BootReceiver.EXTRA_BOOT_RECEIVED_NANOS, 0);
+            Log.i(TAG, "Time to armed after boot: " + StartupTimings.bootToArmedNanos() / 1000000 + "ms");
+        }
         return START_STICKY;
     }
 
     @Override
     public void onSensorChanged(SensorEvent event) {
         if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
-            float x = event.values[0];
-            float y = event.values[1];
-            float z = event.values[2];
-            
-            // Calculate total acceleration magnitude
-            float acceleration = (float) Math.sqrt(x * x + y * y + z * z);
-            
-            // Check for free fall (acceleration significantly less than gravity)
-            if (acceleration < FREE_FALL_THRESHOLD) {
-                if (!inFreeFall) {
-                    // Start of potential free fall
-                    freeFallStartTime = System.currentTimeMillis();
-                    
-                    inFreeFall = true;
-                    Log.d(TAG, "Potential free fall detected, acceleration: " + acceleration);
+            long receivedNanos = SystemClock.elapsedRealtimeNanos();
+            long startNanos = System.nanoTime();
+            boolean realtime = batchProcessor.isRealtime() || !batchingSupported;
+
+            if (traceRecorder != null) {
+                traceRecorder.onSample(event.timestamp, event.values[0], event.values[1], event.values[2]);
+            }
+
+            // Ahead of the detector, so a capture requested mid-batch already sees the whole batch
+            motionCapture.onSample(event.timestamp, event.values[0], event.values[1], event.values[2]);
+            if (liveMotion != null) {
+                liveMotion.onSample(event.timestamp, event.values[0], event.values[1], event.values[2]);
+            }
+            batchProcessor.add(event.timestamp, event.values[0], event.values[1], event.values[2], receivedNanos);
+            if (!firstSampleSeen) {
+                onFirstSample(event.timestamp, receivedNanos);
+            }
+            checkpointIfChanged(event.timestamp);
+
+            metrics.onSample(event.timestamp, System.nanoTime() - startNanos);
+            if (realtime) {
+                // Batched samples are late on purpose, so only real-time delivery says anything about jitter
+                metrics.onDelivery(receivedNanos - event.timestamp);
+            }
+            logMetricsIfDue(receivedNanos);
+        }
+    }
+
+    private void checkpointIfChanged(long timestampNanos) {
+        if (checkpoint == null) {
+            return;
+        }
+        checkpoint.heartbeat(timestampNanos);
+        if (fallDetector.phase() != checkpointedPhase || fallDetector.freeFallCandidates() != checkpointedCandidates) {
+            checkpoint.save();
+            checkpointedPhase = fallDetector.phase();
+            checkpointedCandidates = fallDetector.freeFallCandidates();
+        }
+    }
+
+    private void onFirstSample(long timestampNanos, long receivedNanos) {
+        firstSampleSeen = true;
+        StartupTimings.firstSampleNanos = receivedNanos;
+        long previousHeartbeat = checkpoint != null ? checkpoint.previousHeartbeatNanos() : Long.MIN_VALUE;
+        // A heartbeat from the future means the device rebooted since; sensor time started over
+        if (previousHeartbeat != Long.MIN_VALUE && previousHeartbeat <= timestampNanos) {
+            StartupTimings.resumeGapNanos = timestampNanos - previousHeartbeat;
+        }
+        Log.i(TAG, "First sample " + (receivedNanos - StartupTimings.processStartNanos) / 1000000
+                + "ms after process start" + (StartupTimings.resumeGapNanos >= 0
+                ? ", detection was down for " + StartupTimings.resumeGapNanos / 1000000 + "ms" : ""));
+    }
+
+    private void restoreCheckpoint() {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        try {
+            MappedByteBuffer mapping = mapCheckpoint(DetectorCheckpoint.bytesFor(fallDetector));
+            checkpoint = DetectorCheckpoint.attach(mapping, fallDetector);
+            boolean restored = checkpoint.restore();
+            checkpointedPhase = fallDetector.phase();
+            checkpointedCandidates = fallDetector.freeFallCandidates();
+            StartupTimings.checkpointRestoreNanos = SystemClock.elapsedRealtimeNanos() - startNanos;
+            Log.i(TAG, (restored ? "Restored detector checkpoint (" + fallDetector.phase() + ", "
+                    + fallDetector.confirmedFalls() + " falls so far)" : "No detector checkpoint to restore")
+                    + " in " + StartupTimings.checkpointRestoreNanos / 1000 + "us");
+        } catch (IOException e) {
+            // Detection works without it; a restart just starts from idle
+            Log.e(TAG, "Cannot map detector checkpoint: " + e.getMessage());
+        }
+    }
+
+    private MappedByteBuffer mapCheckpoint(int size) throws IOException {
+        File file = new File(getNoBackupFilesDir(), CHECKPOINT_FILE);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            return raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+    }
+
+    private void restoreCalibration() {
+        calibrationStore = new AtomicFileStore(new File(getNoBackupFilesDir(), CALIBRATION_FILE));
+        try {
+            byte[] record = calibrationStore.load();
+            if (record != null) {
+                calibrator.restore(record);
+                Log.i(TAG, "Restored " + calibrator);
+            }
+        } catch (IOException e) {
+            // Starts again from no correction; the next still periods rebuild it
+            Log.e(TAG, "Cannot restore accelerometer calibration: " + e.getMessage());
+        }
+    }
+
+    // Sensor thread: the record is taken here, the write happens on the main thread
+    private void saveCalibration(AccelerometerCalibrator changed) {
+        final byte[] record;
+        try {
+            record = changed.encode();
+        } catch (IOException e) {
+            Log.e(TAG, "Cannot encode accelerometer calibration: " + e.getMessage());
+            return;
+        }
+        final String summary = changed.toString();
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    calibrationStore.save(record);
+                    Log.i(TAG, "Saved " + summary);
+                } catch (IOException e) {
+                    Log.e(TAG, "Cannot save accelerometer calibration: " + e.getMessage());
                 }
-                
-                // Check if free fall has lasted long enough and hasn't been processed yet
-                long freeFallDuration = System.currentTimeMillis() - freeFallStartTime;
-                if (freeFallDuration >= FREE_FALL_TIME_THRESHOLD && !fallEventProcessed) {
-                    fallEventProcessed = true; // Mark as processed to prevent duplicates
-                    onFreeFallDetected(acceleration, freeFallDuration);
+            }
+        });
+    }
+
+    private FallClassifier loadFallClassifier() {
+        try (InputStream in = getAssets().open(FALL_MODEL_ASSET)) {
+            FallModel model = FallModelCodec.read(in);
+            Log.i(TAG, "Loaded fall model " + model.getClass().getSimpleName() + ", threshold " + model.threshold());
+            return new FallClassifier(model, FALL_MODEL_HISTORY_WINDOWS);
+        } catch (FileNotFoundException e) {
+            Log.i(TAG, "No fall model asset; using the threshold detector alone");
+        } catch (IOException | IllegalArgumentException e) {
+            Log.e(TAG, "Cannot load fall model, using the threshold detector alone: " + e.getMessage());
+        }
+        return null;
+    }
+
+    private void logMetricsIfDue(long nowNanos) {
+        if (metricsLogStartNanos == 0) {
+            metricsLogStartNanos = nowNanos;
+            return;
+        }
+        if (nowNanos - metricsLogStartNanos < METRICS_LOG_INTERVAL_NANOS) {
+            return;
+        }
+        Log.i(TAG, "Detection metrics: " + metrics.snapshot(fallDetector) + ", " + batchProcessor.resampler()
+                + ", " + calibrator + ", " + inactivityMonitor
+                + (fallClassifier == null ? "" : ", model confirmed " + fallClassifier.confirmedFalls()
+                + " rejected " + fallClassifier.rejectedFalls() + " of " + fallClassifier.windowsScored() + " windows"));
+        metricsLogStartNanos = nowNanos;
+    }
+
+    private void onIpcMessage(Message message) {
+        switch (message.what) {
+            case DetectionIpc.MSG_REGISTER_CLIENT:
+                registerIpcClient(message.replyTo);
+                break;
+            case DetectionIpc.MSG_UNREGISTER_CLIENT:
+                dropIpcClient(message.replyTo);
+                break;
+            case DetectionIpc.MSG_GET_METRICS:
+                sendMetrics(message.replyTo, message.arg1);
+                break;
+            case DetectionIpc.MSG_SET_LIVE_MOTION:
+                setLiveMotion(message.arg1 != 0);
+                break;
+            case DetectionIpc.MSG_SET_USER_ID:
+                fallEventUploader.setUserId(message.getData().getString(DetectionIpc.KEY_USER_ID));
+                break;
+            default:
+                Log.w(TAG, "Unknown IPC message " + message.what);
+        }
+    }
+
+    private void setLiveMotion(boolean enabled) {
+        SensorFrameRing.Producer producer = null;
+        if (enabled) {
+            try {
+                if (liveMotionBuffer == null) {
+                    liveMotionBuffer = DetectionIpc.mapLiveMotionRing(this, true);
                 }
-            } else {
-                // Reset free fall detection
-                if (inFreeFall) {
-                    Log.d(TAG, "Free fall ended, acceleration returned to: " + acceleration);
+                producer = SensorFrameRing.producer(liveMotionBuffer, DetectionIpc.LIVE_MOTION_CAPACITY);
+            } catch (IOException e) {
+                Log.e(TAG, "Cannot map live motion ring: " + e.getMessage());
+                return;
+            }
+        }
+        final SensorFrameRing.Producer next = producer;
+        sensorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                liveMotion = next;
+            }
+        });
+        Log.d(TAG, "Live motion " + (enabled ? "started" : "stopped"));
+    }
+
+    private void registerIpcClient(final Messenger client) {
+        if (client == null || ipcClients.containsKey(client)) {
+            return;
+        }
+        Log.d(TAG, "UI client registered, " + (ipcClients.size() + 1) + " connected");
+        // Recent falls are replayed so a UI process that started after them still sees them
+        ipcClients.put(client, ServiceEvents.FALLS.subscribe(new EventBus.Subscriber<FallReport>() {
+            @Override
+            public void onEvent(long sequence, FallReport report) {
+                Message message = Message.obtain(null, DetectionIpc.MSG_FALL);
+                message.setData(DetectionIpc.toBundle(report));
+                try {
+                    client.send(message);
+                } catch (RemoteException e) {
+                    Log.w(TAG, "UI client gone, dropping it");
+                    dropIpcClient(client);
                 }
-                inFreeFall = false;
-                fallEventProcessed = false; // Reset for next fall detection
-                freeFallStartTime = 0;
             }
+        }, mainExecutor, IPC_FALL_REPLAY));
+    }
+
+    private void dropIpcClient(Messenger client) {
+        EventBus.Subscription<FallReport> subscription = ipcClients.remove(client);
+        if (subscription != null) {
+            subscription.close();
+        }
+    }
+
+    /** Replies with the diagnostics payload. Sensor-side values are copied on the sensor thread. */
+    private void sendMetrics(final Messenger client, final int requestId) {
+        if (client == null) {
+            return;
         }
+        sensorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final DetectionMetrics.Snapshot snapshot = metrics.snapshot(fallDetector);
+                final float[] features = latestFeaturesValid ? latestFeatures.clone() : null;
+                mainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        Message reply = Message.obtain(null, DetectionIpc.MSG_METRICS, requestId, 0);
+                        reply.setData(DetectionIpc.metricsBundle(snapshot, new LatencySummary(alertLatency),
+                                new LatencySummary(alertNotifier.headsUpLatency()), processBundle(), features));
+                        try {
+                            client.send(reply);
+                        } catch (RemoteException e) {
+                            Log.w(TAG, "Cannot deliver metrics: " + e.getMessage());
+                        }
+                    }
+                });
+            }
+        });
+    }
+
+    private Bundle processBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("pid", Process.myPid());
+        bundle.putDouble("rssBytes", rssBytes);
+        bundle.putDouble("peakRssBytes", peakRssBytes);
+        bundle.putDouble("uptimeMs", (SystemClock.elapsedRealtimeNanos() - StartupTimings.serviceCreatedNanos) / 1e6);
+        return bundle;
     }
 
-    private void onFreeFallDetected(float acceleration, long duration) {
-        Log.w(TAG, "FREE FALL DETECTED! Duration: " + duration + "ms, Acceleration: " + acceleration);
+    private final Runnable rssSampler = new Runnable() {
+        @Override
+        public void run() {
+            rssBytes = ProcessMemory.residentBytes();
+            peakRssBytes = Math.max(peakRssBytes, rssBytes);
+            // Stable format so performance runs can pick it out of logcat
+            Log.i(TAG, "Detection process RSS: " + rssBytes / 1024 + " kB (peak " + peakRssBytes / 1024 + " kB)");
+            mainHandler.postDelayed(this, RSS_SAMPLE_INTERVAL_MS);
+        }
+    };
 
+    private final Runnable pendingFallsDrainer = new Runnable() {
+        @Override
+        public void run() {
+            FallEvent event;
+            while ((event = pendingFalls.poll()) != null) {
+                onFreeFallDetected(event);
+            }
+        }
+    };
 
-        // Show notification immediately
-        showFreeFallNotification(acceleration, duration);
+    private void registerAccelerometer(int maxReportLatencyUs) {
+        // The report latency of an existing registration can't be changed, so register afresh
+        sensorManager.unregisterListener(this, accelerometer);
+        boolean registered = sensorManager.registerListener(this, accelerometer, SAMPLING_PERIOD_US,
+                maxReportLatencyUs, sensorHandler);
+        if (registered) {
+            Log.d(TAG, "Accelerometer registered successfully, max report latency: " + maxReportLatencyUs + "us");
+        } else {
+            Log.e(TAG, "Failed to register accelerometer");
+        }
+    }
 
-        // Start 2-minute auto-call timer
-        startAutoCallTimer();
+    private void onFreeFallDetected(FallEvent event) {
+        incidentCoalescer.offer(event);
+        mainHandler.removeCallbacks(incidentCloser);
+        mainHandler.postDelayed(incidentCloser, INCIDENT_WINDOW_NANOS / 1000000L);
+    }
+
+    // Closes the open incident once a whole window has passed without another detection
+    private final Runnable incidentCloser = new Runnable() {
+        @Override
+        public void run() {
+            incidentCoalescer.advance(SystemClock.elapsedRealtimeNanos());
+            FallIncidentCoalescer.Incident open = incidentCoalescer.openIncident();
+            if (open != null) {
+                long remainingNanos = open.last().detectedNanos + INCIDENT_WINDOW_NANOS - SystemClock.elapsedRealtimeNanos();
+                mainHandler.postDelayed(this, Math.max(1, remainingNanos / 1000000L + 1));
+            }
+        }
+    };
+
+    private final FallIncidentCoalescer.Listener incidentListener = new FallIncidentCoalescer.Listener() {
+        @Override
+        public void onIncidentStarted(FallIncidentCoalescer.Incident incident) {
+            startIncident(incident);
+        }
+
+        @Override
+        public void onIncidentExtended(FallIncidentCoalescer.Incident incident, FallEvent event) {
+            // Same incident: the alert and its countdown keep running from the first detection
+            Log.w(TAG, "Another fall within the incident window, now " + incident.count() + " detections: " + event);
+        }
+
+        @Override
+        public void onIncidentClosed(FallIncidentCoalescer.Incident incident) {
+            Log.i(TAG, "Fall incident closed: " + incident);
+            PendingFallRecord record = pendingRecords.get(incident.first);
+            if (record != null) {
+                record.incidentClosed = true;
+                recordIfComplete(incident.first, record);
+            }
+        }
+    };
+
+    private void startIncident(FallIncidentCoalescer.Incident incident) {
+        FallEvent event = incident.first;
+        // Keep reporting the free-fall segment as before; impact and stillness are in the log
+        float acceleration = event.minAcceleration;
+        long duration = event.freeFallDurationMillis();
+        Log.w(TAG, "FALL DETECTED! " + event);
+
+        // A fall outranks a check-in about stillness; its ladder never reaches emergency services
+        if (escalation.isActive() && EscalationLadders.isCheckIn(escalation.current().incidentId)) {
+            Log.i(TAG, "Fall during a check-in, replacing it: " + escalation.current());
+            try {
+                escalation.cancel();
+            } catch (IOException e) {
+                Log.e(TAG, "Error persisting escalation cancel: " + e.getMessage());
+            }
+        }
+
+        // Show the prebuilt alert immediately; its chronometer counts down to the first call
+        long callDeadline = escalation.isActive() ? escalation.current().nextDueMillis()
+                : System.currentTimeMillis() + AUTO_CALL_DELAY;
+        alertNotifier.show(event.detectedNanos, callDeadline);
+        // Sensor timestamps share the elapsedRealtime clock
+        alertLatency.record(SystemClock.elapsedRealtimeNanos() - event.onsetNanos);
+
+        // The event id doubles as the Firestore document id, so native and JS writes of the same
+        // fall land on one document
+        String eventId = UUID.randomUUID().toString();
+        startEscalation(eventId, EscalationLadders.fall(caretakers, AUTO_CALL_DELAY, NEXT_CARETAKER_DELAY,
+                EMERGENCY_NUMBER, EMERGENCY_ESCALATION_DELAY));
+        notifyCaretakers(eventId);
 
         //broadcast to app with fall data for React Native to save
-        handleFreeFallEvent(acceleration, duration);
+        handleFreeFallEvent(incident, eventId, acceleration, duration);
     }
     
-    private void handleFreeFallEvent(float acceleration, long duration) {
-        // Send broadcast with fall data for React Native to save to Firebase
-        Log.i(TAG, "Broadcasting free fall event to React Native for Firebase saving");
-        
-        Intent freeFallIntent = new Intent("com.evercare.FREE_FALL_DETECTED");
-        freeFallIntent.putExtra("acceleration", acceleration);
-        freeFallIntent.putExtra("duration", duration);
-        freeFallIntent.putExtra("timestamp", System.currentTimeMillis());
-        
-        // Add location data if available
-        if (lastKnownLocation != null) {
-            freeFallIntent.putExtra("latitude", lastKnownLocation.getLatitude());
-            freeFallIntent.putExtra("longitude", lastKnownLocation.getLongitude());
-            freeFallIntent.putExtra("accuracy", lastKnownLocation.getAccuracy());
-            freeFallIntent.putExtra("provider", lastKnownLocation.getProvider());
-            freeFallIntent.putExtra("locationTimestamp", lastKnownLocation.getTime());
+    // A fall incident that is recorded once its location fix and its motion trace are in, and whose
+    // aggregates are added to the same record once no more detections can be merged into it
+    private static final class PendingFallRecord {
+        final String eventId;
+        final long timestamp;
+        final float acceleration;
+        final long duration;
+        final FallIncidentCoalescer.Incident incident;
+        LocationResolver.Resolution location;
+        boolean motionDone = false;
+        MotionTrace motion;
+        boolean incidentClosed = false;
+        boolean recorded = false;
+
+        PendingFallRecord(String eventId, long timestamp, float acceleration, long duration,
+                          FallIncidentCoalescer.Incident incident) {
+            this.eventId = eventId;
+            this.timestamp = timestamp;
+            this.acceleration = acceleration;
+            this.duration = duration;
+            this.incident = incident;
         }
-        
-        // Send both regular broadcast and local broadcast
-        sendBroadcast(freeFallIntent);
-        
-        // Also try LocalBroadcastManager for internal app communication
-        try {
-            LocalBroadcastManager.getInstance(this).sendBroadcast(freeFallIntent);
-            Log.i(TAG, "Local broadcast also sent");
-        } catch (Exception e) {
-            Log.e(TAG, "Error sending local broadcast: " + e.getMessage());
+    }
+
+    private void handleFreeFallEvent(FallIncidentCoalescer.Incident incident, String eventId, float acceleration,
+                                     long duration) {
+        final FallEvent event = incident.first;
+        final PendingFallRecord record = new PendingFallRecord(eventId, System.currentTimeMillis(),
+                acceleration, duration, incident);
+        pendingRecords.put(event, record);
+
+        // The record waits (at most LOCATION_DEADLINE_NANOS) for a fresh fix and for the motion
+        // after detection; the alert and the auto-call timer are already running
+        locationResolver.resolve(LOCATION_DEADLINE_NANOS, new LocationResolver.Callback() {
+            @Override
+            public void onResolved(LocationResolver.Resolution resolution) {
+                Log.i(TAG, "Location for fall " + record.eventId + ": " + resolution);
+                record.location = resolution;
+                recordIfComplete(event, record);
+            }
+        });
+    }
+
+    private void onMotionTraceCaptured(FallEvent event, MotionTrace trace) {
+        PendingFallRecord record = pendingRecords.get(event);
+        if (record == null) {
+            return;
         }
+        Log.i(TAG, "Motion for fall " + record.eventId + ": " + trace);
+        record.motion = trace;
+        record.motionDone = true;
+        recordIfComplete(event, record);
     }
-    private void requestLocationUpdates() {
-        try {
-            if (ActivityCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_FINE_LOCATION) != PackageManager.PERMISSION_GRANTED && 
-                ActivityCompat.checkSelfPermission(this, android.Manifest.permission.ACCESS_COARSE_LOCATION) != PackageManager.PERMISSION_GRANTED) {
-                Log.w(TAG, "Location permissions not granted");
-                return;
+
+    private void recordIfComplete(FallEvent event, PendingFallRecord record) {
+        // Persisted as soon as it can be, so a process death while the incident is open loses nothing
+        if (!record.recorded && record.location != null && record.motionDone) {
+            record.recorded = true;
+            recordFreeFallEvent(record);
+        }
+        if (record.recorded && record.incidentClosed) {
+            pendingRecords.remove(event);
+            recordIncidentAggregates(record);
+        }
+    }
+
+    private void recordFreeFallEvent(PendingFallRecord record) {
+        String eventId = record.eventId;
+        long timestamp = record.timestamp;
+        float acceleration = record.acceleration;
+        long duration = record.duration;
+        LocationFix fix = record.location != null ? record.location.fix : null;
+        long locationAge = fix != null ? record.location.ageNanos / 1000000L : 0;
+
+        Map<String, Object> fields = new HashMap<>();
+        fields.put("acceleration", (double) acceleration);
+        fields.put("duration", duration);
+        fields.put("timestamp", timestamp);
+        if (fix != null) {
+            fields.put("latitude", fix.latitude);
+            fields.put("longitude", fix.longitude);
+            fields.put("accuracy", (double) fix.accuracyMeters);
+            if (fix.provider != null) {
+                fields.put("provider", fix.provider);
             }
-            
-            // Request location updates from both GPS and Network providers
-            if (locationManager.isProviderEnabled(LocationManager.GPS_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 30000, 10, locationListener);
-                Log.d(TAG, "GPS location updates requested");
+            fields.put("locationTimestamp", fix.timeMillis);
+            fields.put("locationAge", locationAge);
+        }
+        if (record.motion != null && record.motion.size() > 0) {
+            String motionTrace = Base64.encodeToString(MotionTraceCodec.encode(record.motion), Base64.NO_WRAP);
+            if (motionTrace.length() <= MAX_MOTION_TRACE_CHARS) {
+                fields.put("motionTrace", motionTrace);
+            } else {
+                Log.w(TAG, "Motion trace for fall " + eventId + " too large (" + motionTrace.length() + " chars), dropped");
             }
-            
-            if (locationManager.isProviderEnabled(LocationManager.NETWORK_PROVIDER)) {
-                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 30000, 10, locationListener);
-                Log.d(TAG, "Network location updates requested");
+        }
+        fallEventUploader.enqueue(new OutboxEntry(eventId, timestamp, fields));
+
+        // Hand the fall to React Native (if it's running) through the in-process bus
+        FallReport report;
+        if (fix != null) {
+            report = new FallReport(eventId, timestamp, acceleration, duration, true,
+                    fix.latitude, fix.longitude, fix.accuracyMeters, fix.provider, fix.timeMillis, locationAge);
+        } else {
+            report = new FallReport(eventId, timestamp, acceleration, duration);
+        }
+        long sequence = ServiceEvents.FALLS.publish(report);
+        Log.i(TAG, "Published free fall event " + eventId + " (seq " + sequence + ")");
+    }
+
+    // Aggregates over every detection merged into the incident, merged into the fall's document
+    // once the incident has closed
+    private void recordIncidentAggregates(PendingFallRecord record) {
+        FallIncidentCoalescer.Incident incident = record.incident;
+        Map<String, Object> fields = new HashMap<>();
+        fields.put(FallEventUploader.UPDATES_EVENT, record.eventId);
+        fields.put("incidentCount", (long) incident.count());
+        fields.put("peakAcceleration", (double) incident.peakAcceleration());
+        fields.put("totalFreeFallDuration", incident.totalFreeFallNanos() / 1000000L);
+        fields.put("incidentSpan", incident.spanNanos() / 1000000L);
+        fallEventUploader.enqueue(new OutboxEntry(record.eventId + "/incident", System.currentTimeMillis(), fields));
+    }
+    private void initLocation() {
+        List<LocationSource> sources = new ArrayList<>();
+        sources.add(new AndroidLocationSource(this, locationManager, LocationManager.GPS_PROVIDER, mainExecutor));
+        sources.add(new AndroidLocationSource(this, locationManager, LocationManager.NETWORK_PROVIDER, mainExecutor));
+        locationResolver = new LocationResolver(sources, new LocationResolver.Scheduler() {
+            @Override
+            public long elapsedNanos() {
+                return SystemClock.elapsedRealtimeNanos();
             }
-            
-            // Get last known location
-            Location gpsLocation = locationManager.getLastKnownLocation(LocationManager.GPS_PROVIDER);
-            Location networkLocation = locationManager.getLastKnownLocation(LocationManager.NETWORK_PROVIDER);
-            
-            if (gpsLocation != null) {
-                lastKnownLocation = gpsLocation;
-            } else if (networkLocation != null) {
-                lastKnownLocation = networkLocation;
+
+            @Override
+            public LocationSource.Request schedule(final Runnable task, long delayNanos) {
+                mainHandler.postDelayed(task, delayNanos / 1000000L);
+                return new LocationSource.Request() {
+                    @Override
+                    public void cancel() {
+                        mainHandler.removeCallbacks(task);
+                    }
+                };
             }
-            
+        }, LOCATION_GOOD_ACCURACY_METERS);
+
+        for (LocationSource source : sources) {
+            locationResolver.onPassiveFix(source.lastKnown());
+        }
+
+        if (!AndroidLocationSource.hasPermission(this)) {
+            Log.w(TAG, "Location permissions not granted");
+            return;
+        }
+        try {
+            // The passive provider only sees fixes other apps asked for, so it costs no power
+            locationManager.requestLocationUpdates(LocationManager.PASSIVE_PROVIDER, PASSIVE_LOCATION_INTERVAL_MS, 0,
+                    locationListener, Looper.getMainLooper());
+            Log.d(TAG, "Passive location updates requested");
         } catch (Exception e) {
             Log.e(TAG, "Error requesting location updates: " + e.getMessage());
         }
@@ -239,8 +1002,8 @@ public class BackgroundService extends Service implements SensorEventListener{
     private LocationListener locationListener = new LocationListener() {
         @Override
         public void onLocationChanged(Location location) {
-            lastKnownLocation = location;
-            Log.d(TAG, "Location updated: " + location.getLatitude() + ", " + location.getLongitude());
+            locationResolver.onPassiveFix(AndroidLocationSource.toFix(location));
+            Log.d(TAG, "Passive location updated: " + location.getLatitude() + ", " + location.getLongitude());
         }
         
         @Override
@@ -269,19 +1032,22 @@ public class BackgroundService extends Service implements SensorEventListener{
                 if ("com.evercare.REFRESH_CARETAKER_SETTINGS".equals(intent.getAction())) {
                     Log.i(TAG, "=== Processing caretaker settings refresh broadcast ===");
                     
-                    // Get caretaker phone from broadcast extras
-                    String newCaretakerPhone = intent.getStringExtra("caretakerPhone");
-                    String caretakerName = intent.getStringExtra("caretakerName");
+                    // The whole list, or a single caretaker from senders that predate the list
+                    List<Caretaker> updated;
+                    if (intent.hasExtra("caretakers")) {
+                        updated = Caretaker.decodeList(intent.getStringExtra("caretakers"));
+                    } else {
+                        String newCaretakerPhone = intent.getStringExtra("caretakerPhone");
+                        updated = (newCaretakerPhone != null && !newCaretakerPhone.trim().isEmpty())
+                                ? Collections.singletonList(new Caretaker(intent.getStringExtra("caretakerName"),
+                                        newCaretakerPhone))
+                                : Collections.<Caretaker>emptyList();
+                    }
                     
-                    Log.i(TAG, "Extracted from broadcast - Phone: " + (newCaretakerPhone != null ? newCaretakerPhone : "null"));
-                    Log.i(TAG, "Extracted from broadcast - Name: " + (caretakerName != null ? caretakerName : "null"));
-                    
-                    // Update the caretaker phone directly
-                    String oldPhone = caretakerPhone;
-                    caretakerPhone = (newCaretakerPhone != null && !newCaretakerPhone.trim().isEmpty()) ? newCaretakerPhone.trim() : null;
-                    
-                    Log.i(TAG, "Phone updated: '" + (oldPhone != null ? oldPhone : "null") + "' -> '" + (caretakerPhone != null ? caretakerPhone : "null") + "'");
-                    Log.i(TAG, "Will use " + (caretakerPhone != null ? ("caretaker: " + caretakerPhone) : "emergency services (101)") + " for fall notifications");
+                    Log.i(TAG, "Caretakers updated: " + caretakers + " -> " + updated);
+                    caretakers = updated;
+                    Log.i(TAG, "Will use " + (updated.isEmpty() ? "emergency services (101)" : ("caretakers: " + updated)) + " for fall notifications");
+                    alertNotifier.prepare(primaryCaretakerPhone());
                 } else {
                     Log.d(TAG, "Ignoring broadcast with unrecognized action: " + intent.getAction());
                 }
@@ -304,24 +1070,72 @@ public class BackgroundService extends Service implements SensorEventListener{
     
     @Override
     public IBinder onBind(Intent intent) {
-        return null;
+        return ipcMessenger.getBinder();
     }
 
     @Override
     public void onDestroy() {
         super.onDestroy();
+        for (EventBus.Subscription<FallReport> subscription : ipcClients.values()) {
+            subscription.close();
+        }
+        ipcClients.clear();
         
         // Unregister sensor listener to save battery
         if (sensorManager != null) {
             sensorManager.unregisterListener(this);
             Log.d(TAG, "Accelerometer unregistered");
         }
+        if (checkpoint != null && sensorHandler != null) {
+            // Last word on the sensor thread, so a restart resumes from exactly here
+            final DetectorCheckpoint lastCheckpoint = checkpoint;
+            sensorHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    lastCheckpoint.save();
+                }
+            });
+        }
+        if (traceRecorder != null) {
+            // The recorder belongs to the sensor thread; close it there before the thread quits
+            final SensorTraceRecorder recorder = traceRecorder;
+            sensorHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    recorder.close();
+                }
+            });
+        }
+        if (sensorThread != null) {
+            sensorThread.quitSafely();
+        }
+        if (mainHandler != null) {
+            mainHandler.removeCallbacks(pendingFallsDrainer);
+            mainHandler.removeCallbacks(rssSampler);
+        }
         
-        // Stop location updates
+        // Stop location updates; falls still waiting for a fix are recorded with what they have
         if (locationManager != null) {
             locationManager.removeUpdates(locationListener);
             Log.d(TAG, "Location updates stopped");
         }
+        if (mainHandler != null) {
+            mainHandler.removeCallbacks(incidentCloser);
+        }
+        if (incidentCoalescer != null) {
+            incidentCoalescer.close();
+        }
+        if (locationResolver != null) {
+            locationResolver.finishAll();
+        }
+        // Motion still being captured is lost with the sensor thread; record those falls without it
+        for (PendingFallRecord record : new ArrayList<>(pendingRecords.values())) {
+            if (!record.recorded) {
+                recordFreeFallEvent(record);
+            }
+            recordIncidentAggregates(record);
+        }
+        pendingRecords.clear();
         
         // Unregister settings receiver
         if (settingsReceiver != null) {
@@ -332,191 +1146,215 @@ public class BackgroundService extends Service implements SensorEventListener{
                 Log.e(TAG, "Error unregistering settings receiver: " + e.getMessage());
             }
         }
-        
-        // Unregister notification interaction receiver
-        if (notificationInteractionReceiver != null) {
-            try {
-                unregisterReceiver(notificationInteractionReceiver);
-                Log.d(TAG, "Notification interaction receiver unregistered");
-            } catch (Exception e) {
-                Log.e(TAG, "Error unregistering notification interaction receiver: " + e.getMessage());
-            }
+
+        // A running escalation is left to its alarm; it must outlive this service
+        if (caretakerSendExecutor != null) {
+            // Alerts already on their way get to finish
+            caretakerSendExecutor.shutdown();
+        }
+
+        if (fallEventUploader != null) {
+            fallEventUploader.shutdown();
         }
-        
-        // Cancel auto-call timer
-        cancelAutoCallTimer();
         
         Log.d(TAG, "Service destroyed");
     }
     
-    private void startAutoCallTimer() {
-        // Cancel any existing timer
-        cancelAutoCallTimer();
-        
-        Log.i(TAG, "Starting 2-minute auto-call timer with countdown");
-        autoCallStartTime = System.currentTimeMillis();
-        
-        // Main auto-call timer
-        autoCallRunnable = new Runnable() {
-            @Override
-            public void run() {
-                Log.w(TAG, "Auto-call timer expired - making emergency call");
-                makeEmergencyCall();
-            }
-        };
-        
-        // Countdown update timer (updates every second)
-        countdownUpdateRunnable = new Runnable() {
+    private String primaryCaretakerPhone() {
+        List<Caretaker> current = caretakers;
+        return current.isEmpty() ? null : current.get(0).phone;
+    }
+
+    /** Tells every caretaker about the fall at once, off the main thread. */
+    private void notifyCaretakers(final String incidentId) {
+        final List<Caretaker> recipients = caretakers;
+        if (recipients.isEmpty()) {
+            return;
+        }
+        final String message = "EverCare detected a possible fall at "
+                + new SimpleDateFormat("HH:mm", Locale.getDefault()).format(new Date())
+                + ". You will be called if there is no response.";
+        caretakerSendExecutor.execute(new Runnable() {
             @Override
             public void run() {
-                updateCountdownNotification();
-                if (autoCallRunnable != null) {
-                    // Schedule next update in 1 second
-                    autoCallHandler.postDelayed(countdownUpdateRunnable, 1000);
+                try {
+                    CaretakerFanOut.Report report = caretakerFanOut.dispatch(recipients, incidentId, message);
+                    Log.i(TAG, "Caretaker alerts for " + incidentId + ": " + report);
+                } catch (InterruptedException e) {
+                    Log.w(TAG, "Caretaker alerts interrupted for " + incidentId);
                 }
             }
-        };
-        
-        autoCallHandler.postDelayed(autoCallRunnable, AUTO_CALL_DELAY);
-        autoCallHandler.post(countdownUpdateRunnable); // Start countdown updates immediately
+        });
     }
-    
-    private void cancelAutoCallTimer() {
-        if (autoCallHandler != null) {
-            if (autoCallRunnable != null) {
-                autoCallHandler.removeCallbacks(autoCallRunnable);
-                autoCallRunnable = null;
+
+    private void startEscalation(String incidentId, List<EscalationEngine.Step> ladder) {
+        try {
+            if (escalation.start(incidentId, ladder)) {
+                Log.i(TAG, "Escalation started for " + incidentId + ": " + escalation.current().steps);
+            } else {
+                Log.i(TAG, "Escalation already running, continuing it: " + escalation.current());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Error persisting escalation: " + e.getMessage());
+        }
+    }
+
+    private final EscalationEngine.Listener escalationListener = new EscalationEngine.Listener() {
+        @Override
+        public void onStep(EscalationEngine.Escalation current, EscalationEngine.Step step, int index) {
+            Log.w(TAG, "Escalation step " + (index + 1) + "/" + current.steps.size() + ": calling " + step);
+            placeCall(step.target);
+            if (current.status() == EscalationEngine.Status.ACTIVE) {
+                alertNotifier.updateDeadline(current.nextDueMillis());
             }
-            if (countdownUpdateRunnable != null) {
-                autoCallHandler.removeCallbacks(countdownUpdateRunnable);
-                countdownUpdateRunnable = null;
+        }
+
+        @Override
+        public void onFinished(EscalationEngine.Escalation current) {
+            Log.i(TAG, "Escalation finished: " + current);
+            if (current.status() == EscalationEngine.Status.COMPLETED) {
+                alertNotifier.cancel();
             }
-            Log.i(TAG, "Auto-call timer and countdown cancelled");
         }
+    };
+
+    // Sensor thread; the escalation and the alert are handled on the main thread
+    private final InactivityMonitor.Listener inactivityListener = new InactivityMonitor.Listener() {
+        @Override
+        public void onLongLie(long fallNanos, final long lyingNanos) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.w(TAG, "No recovery " + lyingNanos / 1000000000L + " s after the fall - escalating now");
+                    try {
+                        escalation.expedite();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error persisting escalation: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onRecovered(long fallNanos, final long afterNanos) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    Log.i(TAG, "Movement " + afterNanos / 1000000000L + " s after the fall - giving more time to answer");
+                    try {
+                        escalation.defer(RECOVERY_GRACE_DELAY);
+                        if (escalation.isActive()) {
+                            alertNotifier.updateDeadline(escalation.current().nextDueMillis());
+                        }
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error persisting escalation: " + e.getMessage());
+                    }
+                }
+            });
+        }
+
+        @Override
+        public void onProlongedStillness(long stillSinceNanos, final long stillNanos) {
+            mainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    startInactivityAlert(stillNanos);
+                }
+            });
+        }
+    };
+
+    private void startInactivityAlert(long stillNanos) {
+        Log.w(TAG, "No movement for " + stillNanos / 60000000000L + " min during the day");
+        if (escalation.isActive()) {
+            // Already alerting; that ladder covers this too
+            return;
+        }
+        // Stillness alone can be a phone left on a table: caretakers are called, never emergency services
+        List<EscalationEngine.Step> ladder = EscalationLadders.checkIn(caretakers, AUTO_CALL_DELAY, NEXT_CARETAKER_DELAY);
+        if (ladder.isEmpty()) {
+            // Nobody to call; the notification alone asks the person to check in
+            alertNotifier.showInactivity(0);
+            return;
+        }
+        alertNotifier.showInactivity(System.currentTimeMillis() + AUTO_CALL_DELAY);
+        startEscalation(EscalationLadders.CHECK_IN_PREFIX + UUID.randomUUID(), ladder);
     }
-    
-    private void makeEmergencyCall() {
-        Log.w(TAG, "Making automatic emergency call");
-        
-        // Determine which phone number to call
-        String phoneNumber = (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) ? caretakerPhone : "101";
-        String contactType = (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) ? "caretaker" : "emergency services (101)";
-        
-        Log.i(TAG, "Auto-calling: " + phoneNumber + " (" + contactType + ")");
-        
+
+    private void placeCall(String phoneNumber) {
         try {
             Intent callIntent = new Intent(Intent.ACTION_CALL);
             callIntent.setData(android.net.Uri.parse("tel:" + phoneNumber));
             callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
             startActivity(callIntent);
-            
-            // Clear the notification after making the call
-            notificationManager.cancel(NOTIFICATION_ID);
-            
-            Log.i(TAG, "Emergency call initiated successfully");
+            Log.i(TAG, "Call to " + phoneNumber + " initiated successfully");
         } catch (Exception e) {
             Log.e(TAG, "Error making emergency call: " + e.getMessage());
         }
     }
-    
-    private void updateCountdownNotification() {
-        long currentTime = System.currentTimeMillis();
-        long elapsed = currentTime - autoCallStartTime;
-        long remaining = AUTO_CALL_DELAY - elapsed;
-        
-        if (remaining <= 0) {
-            return; // Timer has expired
-        }
-        
-        int minutes = (int) (remaining / 60000);
-        int seconds = (int) ((remaining % 60000) / 1000);
-        String countdownText = String.format("%d:%02d", minutes, seconds);
-        
-        // Determine which phone number to call for display
-        String phoneNumber = (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) ? caretakerPhone : "101";
-        String contactType = (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) ? "your caretaker" : "emergency services (101)";
-        
-        // Create the same intents as before
-        Intent callIntent = new Intent(Intent.ACTION_CALL);
-        callIntent.setData(android.net.Uri.parse("tel:" + phoneNumber));
-        callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-        PendingIntent callPendingIntent = PendingIntent.getActivity(this, 0, callIntent, 
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        
-        Intent okIntent = new Intent("com.evercare.FALL_NOTIFICATION_OK");
-        okIntent.setPackage(getPackageName());
-        PendingIntent okPendingIntent = PendingIntent.getBroadcast(this, 0, okIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        
-        Intent dismissIntent = new Intent("com.evercare.FALL_NOTIFICATION_DISMISSED");
-        dismissIntent.setPackage(getPackageName());
-        PendingIntent dismissPendingIntent = PendingIntent.getBroadcast(this, 1, dismissIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        
-        // Build updated notification with countdown (silent updates)
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setSmallIcon(android.R.drawable.stat_sys_warning)
-                .setContentTitle("Fall Detected")
-                .setContentText("Emergency call in " + countdownText + ". Tap 'I'm OK' if you're fine.")
-                .setStyle(new NotificationCompat.BigTextStyle()
-                        .bigText("Fall detected! Emergency call to " + contactType + " in " + countdownText + " unless you tap 'I'm OK'."))
-                .setPriority(NotificationCompat.PRIORITY_HIGH)
-                .setCategory(NotificationCompat.CATEGORY_ALARM)
-                .setAutoCancel(false)
-                .setContentIntent(callPendingIntent)
-                .setDeleteIntent(dismissPendingIntent)
-                .addAction(android.R.drawable.ic_menu_call, "Call Help", callPendingIntent)
-                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "I'm OK", okPendingIntent)
-                .setOnlyAlertOnce(true)
-                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-                .setOngoing(true)
-                .setShowWhen(false)
-                .setColor(android.graphics.Color.RED)
-                .setBadgeIconType(NotificationCompat.BADGE_ICON_SMALL);
-        
+
+    /** Handles the alert's "I'm OK" action and its dismissal, delivered as start commands. */
+    private void onAlertAnswered(String action) {
+        Log.i(TAG, "Notification interaction received: " + action);
         try {
-            notificationManager.notify(NOTIFICATION_ID, builder.build());
-        } catch (Exception e) {
-            Log.e(TAG, "Error updating countdown notification: " + e.getMessage());
+            escalation.cancel();
+        } catch (IOException e) {
+            Log.e(TAG, "Error persisting escalation cancel: " + e.getMessage());
         }
-    }
-    
-    private void registerNotificationInteractionReceiver() {
-        notificationInteractionReceiver = new BroadcastReceiver() {
+        // A fall after this is a new incident with its own alert
+        incidentCoalescer.close();
+        final InactivityMonitor inactivity = inactivityMonitor;
+        sensorHandler.post(new Runnable() {
             @Override
-            public void onReceive(Context context, Intent intent) {
-                String action = intent.getAction();
-                Log.i(TAG, "Notification interaction received: " + action);
-                
-                if ("com.evercare.FALL_NOTIFICATION_OK".equals(action)) {
-                    Log.i(TAG, "User indicated they are OK - cancelling auto-call timer");
-                    cancelAutoCallTimer();
-                    // Clear the notification
-                    notificationManager.cancel(NOTIFICATION_ID);
-                } else if ("com.evercare.FALL_NOTIFICATION_DISMISSED".equals(action)) {
-                    Log.i(TAG, "Fall notification was dismissed - cancelling auto-call timer");
-                    cancelAutoCallTimer();
-                }
+            public void run() {
+                inactivity.endWatch();
             }
-        };
-        
-        IntentFilter filter = new IntentFilter();
-        filter.addAction("com.evercare.FALL_NOTIFICATION_OK");
-        filter.addAction("com.evercare.FALL_NOTIFICATION_DISMISSED");
-        
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-            registerReceiver(notificationInteractionReceiver, filter, Context.RECEIVER_NOT_EXPORTED);
-        } else {
-            registerReceiver(notificationInteractionReceiver, filter);
+        });
+        if (FallAlertNotifier.ACTION_OK.equals(action)) {
+            alertNotifier.cancel();
         }
-        
-        Log.d(TAG, "Notification interaction receiver registered");
     }
     
     @Override
     public void onAccuracyChanged(Sensor sensor, int accuracy) {
         Log.d(TAG, "Sensor accuracy changed: " + accuracy);
     }
+    private void createMonitoringNotificationChannel() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            NotificationChannel channel = new NotificationChannel(MONITORING_CHANNEL_ID, "Fall Detection",
+                    NotificationManager.IMPORTANCE_LOW);
+            channel.setDescription("Continuous fall detection monitoring");
+            channel.setShowBadge(false);
+            channel.setSound(null, null);
+            channel.enableLights(false);
+            channel.enableVibration(false);
+            notificationManager.createNotificationChannel(channel);
+        }
+    }
+
+    private void startMonitoringForeground() {
+        Intent openIntent = new Intent(this, MainActivity.class);
+        PendingIntent contentIntent = PendingIntent.getActivity(this, 0, openIntent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+        Notification notification = new NotificationCompat.Builder(this, MONITORING_CHANNEL_ID)
+                .setContentTitle("EverCare Fall Detection")
+                .setContentText("Monitoring for falls in the background")
+                .setSmallIcon(android.R.drawable.stat_notify_sync)
+                .setContentIntent(contentIntent)
+                .setOngoing(true)
+                .setAutoCancel(false)
+                .setShowWhen(false)
+                .setPriority(NotificationCompat.PRIORITY_LOW)
+                .build();
+        try {
+            ServiceCompat.startForeground(this, MONITORING_NOTIFICATION_ID, notification,
+                    Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q ? ServiceInfo.FOREGROUND_SERVICE_TYPE_HEALTH : 0);
+        } catch (RuntimeException e) {
+            // E.g. started from the background on a release that doesn't allow it; keep detecting
+            Log.e(TAG, "Cannot enter the foreground: " + e.getMessage());
+        }
+    }
+
     private void createNotificationChannel() {
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
             CharSequence name = "Free Fall Detection";
@@ -536,78 +1374,5 @@ public class BackgroundService extends Service implements SensorEventListener{
             Log.d(TAG, "Notification channel created with high importance");
         }    
     }
-    private void showFreeFallNotification(float acceleration, long duration) {
-        Log.w(TAG, "Trigger Freefall Notification");
-        // Check if notifications are enabled
-        if (!notificationManager.areNotificationsEnabled()) {
-            Log.w(TAG, "Notifications are disabled for this app");
-        }
-        
-        // Determine which phone number to call
-        Log.i(TAG, "Creating fall notification - caretakerPhone value: " + (caretakerPhone != null ? caretakerPhone : "null"));
-        String phoneNumber = (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) ? caretakerPhone : "101";
-        String contactType = (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) ? "your caretaker" : "emergency services (101)";
-        Log.i(TAG, "Will call: " + phoneNumber + " (" + contactType + ")");
-        
-        // Create intent to call the appropriate number
-        Intent callIntent = new Intent(Intent.ACTION_CALL);
-        callIntent.setData(android.net.Uri.parse("tel:" + phoneNumber));
-        callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
-        PendingIntent callPendingIntent = PendingIntent.getActivity(this, 0, callIntent, 
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        
-        // Create intent for "I'm OK" action
-        Intent okIntent = new Intent("com.evercare.FALL_NOTIFICATION_OK");
-        okIntent.setPackage(getPackageName());
-        PendingIntent okPendingIntent = PendingIntent.getBroadcast(this, 0, okIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        
-        // Create intent for notification dismiss
-        Intent dismissIntent = new Intent("com.evercare.FALL_NOTIFICATION_DISMISSED");
-        dismissIntent.setPackage(getPackageName());
-        PendingIntent dismissPendingIntent = PendingIntent.getBroadcast(this, 1, dismissIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
-        
-        // Build the notification with help message and action buttons
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setSmallIcon(android.R.drawable.stat_sys_warning)
-                .setContentTitle("Fall Detected")
-                .setContentText("Emergency call in 2 minutes. Tap 'I'm OK' if you're fine.")
-                .setStyle(new NotificationCompat.BigTextStyle()
-                        .bigText("Fall detected! Emergency call to " + contactType + " in 2 minutes unless you tap 'I'm OK'."))
-                .setPriority(NotificationCompat.PRIORITY_MAX)
-                .setCategory(NotificationCompat.CATEGORY_ALARM)
-                .setAutoCancel(false)
-                .setContentIntent(callPendingIntent)
-                .setDeleteIntent(dismissPendingIntent)
-                .addAction(android.R.drawable.ic_menu_call, "Call Help", callPendingIntent)
-                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "I'm OK", okPendingIntent)
-                .setVibrate(new long[]{0, 1000, 500, 1000})
-                .setDefaults(NotificationCompat.DEFAULT_ALL)
-                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
-                .setOngoing(true)
-                .setShowWhen(true)
-                .setWhen(System.currentTimeMillis())
-                .setFullScreenIntent(callPendingIntent, true)
-                .setColor(android.graphics.Color.RED)
-                .setBadgeIconType(NotificationCompat.BADGE_ICON_SMALL);
-        
-        try {
-            // Show the notification
-            notificationManager.notify(NOTIFICATION_ID, builder.build());
-            Log.i(TAG, "Free fall notification sent to system");
-            
-            // Also try to show as heads-up notification
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                NotificationChannel channel = notificationManager.getNotificationChannel(CHANNEL_ID);
-                if (channel != null) {
-                    Log.d(TAG, "Channel importance: " + channel.getImportance());
-                    Log.d(TAG, "Notifications enabled: " + notificationManager.areNotificationsEnabled());
-                }
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error displaying notification: " + e.getMessage());
-        }
-    }
     
-} 
\ No newline at end of file
+}
@@ -3,13 +3,20 @@ package com.evercare;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
+import android.os.SystemClock;
+import androidx.core.content.ContextCompat;
 
 public class BootReceiver extends BroadcastReceiver {
+
+    static final String EXTRA_BOOT_RECEIVED_NANOS = "bootReceivedNanos";
+
     @Override
     public void onReceive(Context context, Intent intent) {
         if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) {
             Intent serviceIntent = new Intent(context, BackgroundService.class);
-            context.startService(serviceIntent);
+            // Lets the service report how long arming took after boot
+            serviceIntent.putExtra(EXTRA_BOOT_RECEIVED_NANOS, SystemClock.elapsedRealtimeNanos());
+            ContextCompat.startForegroundService(context, serviceIntent);
         }
     }
-}
\ No newline at end of file
+}
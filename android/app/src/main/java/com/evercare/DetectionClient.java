@@ -0,0 +1,210 @@
+package com.evercare;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.util.Log;
+import android.util.SparseArray;
+import com.evercare.detection.FallReport;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The UI process's connection to the detection process. Falls reported by the service are
+ * republished on this process's {@link ServiceEvents#FALLS}, so modules subscribe to that bus as
+ * if the service were local. Everything runs on the main thread.
+ */
+final class DetectionClient {
+
+    private static final String TAG = "DetectionClient";
+
+    // The service replays recent falls on every (re)connect; this filters the repeats
+    private static final int SEEN_EVENT_IDS = 32;
+    private static final long METRICS_TIMEOUT_MS = 5000;
+
+    public interface MetricsCallback {
+        /** {@code metrics} is null if the detection process didn't answer in time. */
+        void onMetrics(Bundle metrics);
+    }
+
+    private static DetectionClient instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Messenger incoming;
+    private final List<Message> outbox = new ArrayList<>();
+    private final SparseArray<MetricsCallback> metricsRequests = new SparseArray<>();
+    private final Set<String> seenEventIds = new LinkedHashSet<>();
+    private Messenger service;
+    private boolean binding = false;
+    private int nextRequestId = 1;
+    // Re-sent on every connect, since a restarted detection process starts with it off
+    private boolean liveMotion = false;
+
+    private final ServiceConnection connection = new ServiceConnection() {
+        @Override
+        public void onServiceConnected(ComponentName name, IBinder binder) {
+            Log.d(TAG, "Connected to detection process");
+            service = new Messenger(binder);
+            Message register = Message.obtain(null, DetectionIpc.MSG_REGISTER_CLIENT);
+            register.replyTo = incoming;
+            send(register);
+            if (liveMotion) {
+                send(Message.obtain(null, DetectionIpc.MSG_SET_LIVE_MOTION, 1, 0));
+            }
+            for (Message message : outbox) {
+                send(message);
+            }
+            outbox.clear();
+        }
+
+        @Override
+        public void onServiceDisconnected(ComponentName name) {
+            // The binding stays; onServiceConnected runs again once the service is restarted
+            Log.w(TAG, "Detection process went away");
+            service = null;
+        }
+    };
+
+    private DetectionClient(Context context) {
+        this.context = context.getApplicationContext();
+        this.incoming = new Messenger(new Handler(Looper.getMainLooper()) {
+            @Override
+            public void handleMessage(Message message) {
+                onMessage(message);
+            }
+        });
+    }
+
+    static DetectionClient get(Context context) {
+        synchronized (DetectionClient.class) {
+            if (instance == null) {
+                instance = new DetectionClient(context);
+            }
+            return instance;
+        }
+    }
+
+    /** Binds to the detection process if not already bound. Safe to call from any thread. */
+    void connect() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (binding) {
+                    return;
+                }
+                Intent intent = new Intent(context, BackgroundService.class);
+                binding = context.bindService(intent, connection, Context.BIND_AUTO_CREATE);
+                if (!binding) {
+                    Log.e(TAG, "Cannot bind to detection process");
+                }
+            }
+        });
+    }
+
+    /** Fetches the diagnostics payload; the callback runs on the main thread. */
+    void requestMetrics(final MetricsCallback callback) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                final int requestId = nextRequestId++;
+                metricsRequests.put(requestId, callback);
+                Message message = Message.obtain(null, DetectionIpc.MSG_GET_METRICS, requestId, 0);
+                message.replyTo = incoming;
+                sendOrQueue(message);
+                mainHandler.postDelayed(new Runnable() {
+                    @Override
+                    public void run() {
+                        MetricsCallback pending = metricsRequests.get(requestId);
+                        if (pending != null) {
+                            metricsRequests.remove(requestId);
+                            pending.onMetrics(null);
+                        }
+                    }
+                }, METRICS_TIMEOUT_MS);
+            }
+        });
+        connect();
+    }
+
+    void setUserId(final String userId) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                Message message = Message.obtain(null, DetectionIpc.MSG_SET_USER_ID);
+                Bundle data = new Bundle();
+                data.putString(DetectionIpc.KEY_USER_ID, userId);
+                message.setData(data);
+                sendOrQueue(message);
+            }
+        });
+        connect();
+    }
+
+    /** Starts or stops the detection process writing frames to the live motion ring. */
+    void setLiveMotion(final boolean enabled) {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (liveMotion == enabled) {
+                    return;
+                }
+                liveMotion = enabled;
+                if (service != null) {
+                    send(Message.obtain(null, DetectionIpc.MSG_SET_LIVE_MOTION, enabled ? 1 : 0, 0));
+                }
+            }
+        });
+        connect();
+    }
+
+    private void onMessage(Message message) {
+        switch (message.what) {
+            case DetectionIpc.MSG_FALL:
+                FallReport report = DetectionIpc.fallReportFromBundle(message.getData());
+                if (!seenEventIds.add(report.eventId)) {
+                    return;
+                }
+                if (seenEventIds.size() > SEEN_EVENT_IDS) {
+                    seenEventIds.remove(seenEventIds.iterator().next());
+                }
+                ServiceEvents.FALLS.publish(report);
+                break;
+            case DetectionIpc.MSG_METRICS:
+                MetricsCallback callback = metricsRequests.get(message.arg1);
+                if (callback != null) {
+                    metricsRequests.remove(message.arg1);
+                    callback.onMetrics(message.getData());
+                }
+                break;
+            default:
+                Log.w(TAG, "Unknown message " + message.what);
+        }
+    }
+
+    private void sendOrQueue(Message message) {
+        if (service == null) {
+            outbox.add(message);
+        } else {
+            send(message);
+        }
+    }
+
+    private void send(Message message) {
+        try {
+            service.send(message);
+        } catch (RemoteException e) {
+            Log.w(TAG, "Detection process unreachable: " + e.getMessage());
+        }
+    }
+}
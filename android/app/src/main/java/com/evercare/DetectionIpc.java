@@ -0,0 +1,148 @@
+package com.evercare;
+
+import android.content.Context;
+import android.os.Bundle;
+import com.evercare.detection.DetectionMetrics;
+import com.evercare.detection.FallReport;
+import com.evercare.detection.LatencySummary;
+import com.evercare.detection.SensorFrameRing;
+import com.evercare.detection.WindowFeatures;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Message protocol between the UI process and the detection process (BackgroundService runs in
+ * ":detection" so it survives the React Native process being killed). Messages travel over a
+ * {@link android.os.Messenger}; payloads are flat Bundles.
+ */
+final class DetectionIpc {
+
+    // UI -> detection. replyTo is the client's Messenger
+    static final int MSG_REGISTER_CLIENT = 1;
+    static final int MSG_UNREGISTER_CLIENT = 2;
+    // arg1 is a request id echoed back in MSG_METRICS
+    static final int MSG_GET_METRICS = 3;
+    static final int MSG_SET_USER_ID = 4;
+    // arg1 is 1 to start writing sensor frames to the live motion ring, 0 to stop
+    static final int MSG_SET_LIVE_MOTION = 5;
+
+    // Detection -> UI
+    static final int MSG_FALL = 10;
+    static final int MSG_METRICS = 11;
+
+    static final String KEY_USER_ID = "userId";
+
+    // Sensor frames for the live motion view go through a file both processes map, not messages
+    private static final String LIVE_MOTION_RING = "live-motion.ring";
+    static final int LIVE_MOTION_CAPACITY = 1024;
+
+    private DetectionIpc() {
+    }
+
+    /**
+     * Maps the live motion ring. The detection process maps it writable and formats it (see
+     * {@link SensorFrameRing#producer}); the UI process maps it read-only and fails until then.
+     */
+    static MappedByteBuffer mapLiveMotionRing(Context context, boolean writable) throws IOException {
+        File file = new File(context.getNoBackupFilesDir(), LIVE_MOTION_RING);
+        try (RandomAccessFile raf = new RandomAccessFile(file, writable ? "rw" : "r")) {
+            long size = writable ? SensorFrameRing.bytesFor(LIVE_MOTION_CAPACITY) : raf.length();
+            if (writable) {
+                raf.setLength(size);
+            }
+            // The mapping stays valid after the file is closed
+            return raf.getChannel().map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    0, size);
+        }
+    }
+
+    static Bundle toBundle(FallReport report) {
+        Bundle bundle = new Bundle();
+        bundle.putString("eventId", report.eventId);
+        bundle.putLong("timestamp", report.timestampMillis);
+        bundle.putFloat("acceleration", report.acceleration);
+        bundle.putLong("duration", report.durationMillis);
+        if (report.hasLocation) {
+            bundle.putDouble("latitude", report.latitude);
+            bundle.putDouble("longitude", report.longitude);
+            bundle.putFloat("accuracy", report.accuracy);
+            bundle.putString("provider", report.provider);
+            bundle.putLong("locationTimestamp", report.locationTimestampMillis);
+            bundle.putLong("locationAge", report.locationAgeMillis);
+        }
+        return bundle;
+    }
+
+    static FallReport fallReportFromBundle(Bundle bundle) {
+        String eventId = bundle.getString("eventId");
+        long timestamp = bundle.getLong("timestamp");
+        float acceleration = bundle.getFloat("acceleration");
+        long duration = bundle.getLong("duration");
+        if (!bundle.containsKey("latitude")) {
+            return new FallReport(eventId, timestamp, acceleration, duration);
+        }
+        return new FallReport(eventId, timestamp, acceleration, duration, true,
+                bundle.getDouble("latitude"), bundle.getDouble("longitude"), bundle.getFloat("accuracy"),
+                bundle.getString("provider"), bundle.getLong("locationTimestamp"), bundle.getLong("locationAge"));
+    }
+
+    /**
+     * The diagnostics payload, shaped the way DiagnosticsModule hands it to JS. Everything is a
+     * double so it converts to a JS object as is.
+     */
+    static Bundle metricsBundle(DetectionMetrics.Snapshot metrics, LatencySummary alertLatency,
+                                LatencySummary headsUpLatency, Bundle process, float[] features) {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("samples", metrics.samples);
+        bundle.putDouble("droppedSamples", metrics.droppedSamples);
+        bundle.putDouble("samplesPerSecond", metrics.samplesPerSecond);
+        bundle.putDouble("samplesLastSecond", metrics.samplesLastSecond);
+        bundle.putDouble("freeFallCandidates", metrics.freeFallCandidates);
+        bundle.putDouble("confirmedFalls", metrics.confirmedFalls);
+        bundle.putBundle("processingTime", toBundle(metrics.processingTime));
+        bundle.putBundle("deliveryLatency", toBundle(metrics.deliveryLatency));
+        bundle.putBundle("sampleGap", toBundle(metrics.sampleGap));
+        bundle.putBundle("sampleJitter", toBundle(metrics.sampleJitter));
+        bundle.putBundle("fallToNotification", toBundle(alertLatency));
+        bundle.putBundle("detectionToHeadsUp", toBundle(headsUpLatency));
+        bundle.putBundle("startup", startupBundle());
+        bundle.putBundle("process", process);
+        if (features != null) {
+            // Latest motion window, keyed by feature name
+            Bundle window = new Bundle();
+            for (int i = 0; i < WindowFeatures.COUNT; i++) {
+                window.putDouble(WindowFeatures.name(i), features[i]);
+            }
+            bundle.putBundle("features", window);
+        }
+        return bundle;
+    }
+
+    // -1 where the service wasn't started from boot, hasn't had a sample or had nothing to resume
+    private static Bundle startupBundle() {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("bootToArmedMs", StartupTimings.bootToArmedNanos() >= 0 ? StartupTimings.bootToArmedNanos() / 1e6 : -1);
+        bundle.putDouble("createdToArmedMs", StartupTimings.armedNanos > 0
+                ? (StartupTimings.armedNanos - StartupTimings.serviceCreatedNanos) / 1e6 : -1);
+        bundle.putDouble("settingsLoadMs", StartupTimings.settingsLoadNanos / 1e6);
+        bundle.putDouble("processStartToFirstSampleMs", StartupTimings.processStartToFirstSampleNanos() >= 0
+                ? StartupTimings.processStartToFirstSampleNanos() / 1e6 : -1);
+        bundle.putDouble("checkpointRestoreMs", StartupTimings.checkpointRestoreNanos / 1e6);
+        bundle.putDouble("resumeGapMs", StartupTimings.resumeGapNanos >= 0 ? StartupTimings.resumeGapNanos / 1e6 : -1);
+        return bundle;
+    }
+
+    // Durations go to JS in milliseconds
+    private static Bundle toBundle(LatencySummary summary) {
+        Bundle bundle = new Bundle();
+        bundle.putDouble("count", summary.count);
+        bundle.putDouble("meanMs", summary.meanNanos / 1e6);
+        bundle.putDouble("p50Ms", summary.p50Nanos / 1e6);
+        bundle.putDouble("p99Ms", summary.p99Nanos / 1e6);
+        bundle.putDouble("maxMs", summary.maxNanos / 1e6);
+        return bundle;
+    }
+}
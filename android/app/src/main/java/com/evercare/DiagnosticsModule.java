@@ -0,0 +1,43 @@
+package com.evercare;
+
+import android.os.Bundle;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import android.util.Log;
+
+public class DiagnosticsModule extends ReactContextBaseJavaModule {
+
+    private static final String TAG = "DiagnosticsModule";
+
+    public DiagnosticsModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return "DiagnosticsModule";
+    }
+
+    @ReactMethod
+    public void getDetectionMetrics(final Promise promise) {
+        // The service runs in the detection process; the payload is built there (see DetectionIpc)
+        DetectionClient.get(getReactApplicationContext()).requestMetrics(new DetectionClient.MetricsCallback() {
+            @Override
+            public void onMetrics(Bundle metrics) {
+                if (metrics == null) {
+                    promise.reject("SERVICE_NOT_RUNNING", "Fall detection service is not responding");
+                    return;
+                }
+                try {
+                    promise.resolve(Arguments.fromBundle(metrics));
+                } catch (Exception e) {
+                    Log.e(TAG, "Error converting detection metrics: " + e.getMessage());
+                    promise.reject("METRICS_ERROR", e.getMessage());
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,54 @@
+package com.evercare;
+
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.util.Log;
+import com.evercare.detection.EscalationEngine;
+
+/**
+ * Wakes the escalation engine with an exact alarm that starts BackgroundService with
+ * {@link #ACTION_ESCALATION_ALARM}, so a step still fires if the detection process has died.
+ */
+final class EscalationAlarms implements EscalationEngine.AlarmScheduler {
+
+    private static final String TAG = "EscalationAlarms";
+
+    static final String ACTION_ESCALATION_ALARM = "com.evercare.ESCALATION_ALARM";
+
+    private final Context context;
+    private final AlarmManager alarmManager;
+
+    EscalationAlarms(Context context) {
+        this.context = context.getApplicationContext();
+        this.alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    @Override
+    public void schedule(long atMillis) {
+        PendingIntent operation = operation();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S && !alarmManager.canScheduleExactAlarms()) {
+            // Still fires in Doze, just not to the second
+            Log.w(TAG, "Exact alarms not allowed, escalation may run late");
+            alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, atMillis, operation);
+            return;
+        }
+        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, atMillis, operation);
+    }
+
+    @Override
+    public void cancel() {
+        alarmManager.cancel(operation());
+    }
+
+    private PendingIntent operation() {
+        Intent intent = new Intent(context, BackgroundService.class).setAction(ACTION_ESCALATION_ALARM);
+        int flags = PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            return PendingIntent.getForegroundService(context, 0, intent, flags);
+        }
+        return PendingIntent.getService(context, 0, intent, flags);
+    }
+}
@@ -0,0 +1,187 @@
+package com.evercare;
+
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.core.app.NotificationCompat;
+import com.evercare.detection.LatencyHistogram;
+
+/**
+ * Posts the fall alert notification.
+ *
+ * Everything that depends only on the caretaker settings (the call/OK/dismiss PendingIntents,
+ * the texts and the builder) is prepared ahead of time in {@link #prepare}, so raising an alert is
+ * one build and one notify. The countdown to the auto-call is a system-drawn chronometer
+ * counting down to the call deadline, so nothing is re-posted while it runs. Moving that deadline
+ * re-posts the alert silently: only {@link #show} and {@link #showInactivity} sound, vibrate and
+ * raise the full-screen intent.
+ */
+class FallAlertNotifier {
+
+    private static final String TAG = "FallAlertNotifier";
+
+    static final String ACTION_OK = "com.evercare.FALL_NOTIFICATION_OK";
+    static final String ACTION_DISMISSED = "com.evercare.FALL_NOTIFICATION_DISMISSED";
+
+    private final Context context;
+    private final NotificationManager notificationManager;
+    private final String channelId;
+    private final int notificationId;
+
+    private NotificationCompat.Builder builder;
+    private PendingIntent callPendingIntent;
+    private String contactType;
+    // Whether the builder carries the inactivity texts rather than the fall ones
+    private boolean inactivityTexts = false;
+    private int posts = 0;
+
+    // Detection (sensor timestamp of the confirming sample) to notify() returning; main thread only
+    private final LatencyHistogram headsUpLatency = new LatencyHistogram();
+
+    FallAlertNotifier(Context context, NotificationManager notificationManager, String channelId, int notificationId) {
+        this.context = context;
+        this.notificationManager = notificationManager;
+        this.channelId = channelId;
+        this.notificationId = notificationId;
+    }
+
+    /** Rebuilds the alert for the given caretaker number; null means emergency services. */
+    void prepare(String caretakerPhone) {
+        boolean hasCaretaker = caretakerPhone != null && !caretakerPhone.trim().isEmpty();
+        String phoneNumber = hasCaretaker ? caretakerPhone.trim() : "101";
+        contactType = hasCaretaker ? "your caretaker" : "emergency services (101)";
+
+        Intent callIntent = new Intent(Intent.ACTION_CALL);
+        callIntent.setData(android.net.Uri.parse("tel:" + phoneNumber));
+        callIntent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        callPendingIntent = PendingIntent.getActivity(context, 0, callIntent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        // Delivered to the service itself, so answering the alert reaches the escalation even if
+        // the detection process was restarted since the alert went up
+        Intent okIntent = new Intent(context, BackgroundService.class).setAction(ACTION_OK);
+        PendingIntent okPendingIntent = PendingIntent.getService(context, 0, okIntent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        Intent dismissIntent = new Intent(context, BackgroundService.class).setAction(ACTION_DISMISSED);
+        PendingIntent dismissPendingIntent = PendingIntent.getService(context, 1, dismissIntent,
+            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+
+        builder = new NotificationCompat.Builder(context, channelId)
+                .setSmallIcon(android.R.drawable.stat_sys_warning)
+                .setPriority(NotificationCompat.PRIORITY_MAX)
+                .setCategory(NotificationCompat.CATEGORY_ALARM)
+                .setAutoCancel(false)
+                .setContentIntent(callPendingIntent)
+                .setDeleteIntent(dismissPendingIntent)
+                .addAction(android.R.drawable.ic_menu_call, "Call Help", callPendingIntent)
+                .addAction(android.R.drawable.ic_menu_close_clear_cancel, "I'm OK", okPendingIntent)
+                .setVibrate(new long[]{0, 1000, 500, 1000})
+                .setDefaults(NotificationCompat.DEFAULT_ALL)
+                .setVisibility(NotificationCompat.VISIBILITY_PUBLIC)
+                .setOngoing(true)
+                .setShowWhen(true)
+                .setUsesChronometer(true)
+                .setChronometerCountDown(true)
+                .setFullScreenIntent(callPendingIntent, true)
+                .setColor(android.graphics.Color.RED)
+                .setBadgeIconType(NotificationCompat.BADGE_ICON_SMALL);
+        setFallTexts();
+        Log.d(TAG, "Alert prepared for " + phoneNumber + " (" + contactType + ")");
+    }
+
+    /**
+     * Posts the alert with a countdown to {@code callDeadlineMillis} (wall clock).
+     * {@code detectedNanos} is on the elapsedRealtime clock, like sensor timestamps.
+     */
+    void show(long detectedNanos, long callDeadlineMillis) {
+        if (builder == null) {
+            prepare(null);
+        }
+        if (inactivityTexts) {
+            setFallTexts();
+        }
+        post(detectedNanos, callDeadlineMillis);
+    }
+
+    /**
+     * Posts the same alert worded as a check-in after a long time without movement instead of a
+     * fall, counting down to the caretaker call at {@code callDeadlineMillis}, or without a
+     * countdown if it is 0 because nobody will be called. Stillness alone never opens the call
+     * screen by itself.
+     */
+    void showInactivity(long callDeadlineMillis) {
+        if (builder == null) {
+            prepare(null);
+        }
+        boolean countdown = callDeadlineMillis > 0;
+        builder.setContentTitle("Are you OK?")
+                .setContentText("No movement for a long time. Tap 'I'm OK' if you're fine.")
+                .setStyle(new NotificationCompat.BigTextStyle()
+                        .bigText(countdown
+                                ? "No movement for a long time. Call to your caretaker when the countdown ends unless you tap 'I'm OK'."
+                                : "No movement for a long time. Tap 'I'm OK' to let us know you're fine."))
+                .setUsesChronometer(countdown)
+                .setFullScreenIntent(null, false);
+        inactivityTexts = true;
+        // Nothing to measure heads-up latency from
+        post(-1, countdown ? callDeadlineMillis : System.currentTimeMillis());
+    }
+
+    private void setFallTexts() {
+        builder.setContentTitle("Fall Detected")
+                .setContentText("Emergency call when the countdown ends. Tap 'I'm OK' if you're fine.")
+                .setStyle(new NotificationCompat.BigTextStyle()
+                        .bigText("Fall detected! Emergency call to " + contactType + " when the countdown ends unless you tap 'I'm OK'."))
+                .setUsesChronometer(true)
+                .setFullScreenIntent(callPendingIntent, true);
+        inactivityTexts = false;
+    }
+
+    private void post(long detectedNanos, long callDeadlineMillis) {
+        if (!notificationManager.areNotificationsEnabled()) {
+            Log.w(TAG, "Notifications are disabled for this app");
+        }
+        try {
+            notificationManager.notify(notificationId,
+                    builder.setOnlyAlertOnce(false).setWhen(callDeadlineMillis).build());
+            posts++;
+            if (detectedNanos >= 0) {
+                headsUpLatency.record(SystemClock.elapsedRealtimeNanos() - detectedNanos);
+            }
+            Log.i(TAG, "Fall alert posted");
+        } catch (Exception e) {
+            Log.e(TAG, "Error displaying notification: " + e.getMessage());
+        }
+    }
+
+    /** Moves the countdown of the posted alert to the next escalation step. */
+    void updateDeadline(long callDeadlineMillis) {
+        if (builder == null) {
+            return;
+        }
+        try {
+            // Same alert, new deadline: no second round of sound, vibration and full-screen call screen
+            notificationManager.notify(notificationId,
+                    builder.setOnlyAlertOnce(true).setWhen(callDeadlineMillis).build());
+        } catch (Exception e) {
+            Log.e(TAG, "Error updating notification: " + e.getMessage());
+        }
+    }
+
+    void cancel() {
+        notificationManager.cancel(notificationId);
+    }
+
+    /** Number of times the alert has been posted. */
+    int posts() {
+        return posts;
+    }
+
+    LatencyHistogram headsUpLatency() {
+        return headsUpLatency;
+    }
+}
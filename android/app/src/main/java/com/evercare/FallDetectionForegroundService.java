@@ -1,104 +0,0 @@
-package com.evercare;
-
-import android.app.Notification;
-import android.app.NotificationChannel;
-import android.app.NotificationManager;
-import android.app.PendingIntent;
-import android.app.Service;
-import android.content.Context;
-import android.content.Intent;
-import android.content.pm.ServiceInfo;
-import android.os.Build;
-import android.os.IBinder;
-import android.util.Log;
-import androidx.core.app.NotificationCompat;
-import androidx.core.app.ServiceCompat;
-
-public class FallDetectionForegroundService extends Service {
-
-    private static final String TAG = "FallDetectionForegroundService";
-    private static final String CHANNEL_ID = "FALL_DETECTION_CHANNEL";
-    private static final int NOTIFICATION_ID = 1001;
-
-    @Override
-    public void onCreate() {
-        super.onCreate();
-        Log.d(TAG, "Foreground service created");
-        createNotificationChannel();
-    }
-
-    @Override
-    public int onStartCommand(Intent intent, int flags, int startId) {
-        Log.d(TAG, "Foreground service started");
-        
-        // Create the notification
-        Notification notification = createNotification();
-        
-        // Start as foreground service with health service type
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
-            ServiceCompat.startForeground(this, NOTIFICATION_ID, notification, ServiceInfo.FOREGROUND_SERVICE_TYPE_HEALTH);
-        } else {
-            startForeground(NOTIFICATION_ID, notification);
-        }
-        
-        return START_STICKY; // Service will be restarted if killed
-    }
-
-    @Override
-    public IBinder onBind(Intent intent) {
-        return null; // Not a bound service
-    }
-
-    @Override
-    public void onDestroy() {
-        super.onDestroy();
-        Log.d(TAG, "Foreground service destroyed");
-    }
-
-    private void createNotificationChannel() {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            CharSequence name = "Fall Detection";
-            String description = "Continuous fall detection monitoring";
-            int importance = NotificationManager.IMPORTANCE_LOW;
-            NotificationChannel channel = new NotificationChannel(CHANNEL_ID, name, importance);
-            channel.setDescription(description);
-            channel.setShowBadge(false);
-            channel.setSound(null, null);
-            channel.enableLights(false);
-            channel.enableVibration(false);
-            
-            NotificationManager notificationManager = getSystemService(NotificationManager.class);
-            notificationManager.createNotificationChannel(channel);
-            
-            Log.d(TAG, "Notification channel created");
-        }
-    }
-
-    private Notification createNotification() {
-        // Intent to open the app when notification is tapped
-        Intent notificationIntent = new Intent(this, MainActivity.class);
-        PendingIntent pendingIntent = PendingIntent.getActivity(
-            this, 0, notificationIntent, 
-            PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE
-        );
-
-        // Build the notification
-        NotificationCompat.Builder builder = new NotificationCompat.Builder(this, CHANNEL_ID)
-                .setContentTitle("EverCare Fall Detection")
-                .setContentText("Monitoring for falls in the background")
-                .setSmallIcon(android.R.drawable.stat_notify_sync)
-                .setContentIntent(pendingIntent)
-                .setOngoing(true) // Cannot be dismissed
-                .setAutoCancel(false)
-                .setShowWhen(false);
-
-        // Set priority based on Android version
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            builder.setChannelId(CHANNEL_ID);
-        } else {
-            builder.setPriority(NotificationCompat.PRIORITY_LOW);
-        }
-
-        return builder.build();
-    }
-}
\ No newline at end of file
@@ -0,0 +1,269 @@
+package com.evercare;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import com.evercare.detection.FallEventOutbox;
+import com.evercare.detection.OutboxEntry;
+import com.evercare.detection.RetryBackoff;
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+import com.google.firebase.firestore.WriteBatch;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Delivers fall events to Firestore from native code, independently of the JS runtime.
+ *
+ * Events go into a {@link FallEventOutbox} journal first, then are drained in {@link WriteBatch}
+ * commits to users/{uid}/falls/{eventId}. The event id is the document id, so an entry that is
+ * committed but not yet acknowledged when the process dies is simply written again. An entry
+ * with an {@link #UPDATES_EVENT} field is a later update: its fields are merged into that event's
+ * document instead. Failed commits are retried with exponential backoff. All journal and
+ * Firestore work runs on one background thread.
+ */
+class FallEventUploader {
+
+    private static final String TAG = "FallEventUploader";
+    private static final String JOURNAL_NAME = "fall-outbox.journal";
+    private static final String AUTH_PREFS_NAME = "EverCareAuth";
+    private static final int MAX_BATCH = 100;
+    private static final long RETRY_INITIAL_MILLIS = 5000;
+    private static final long RETRY_MAX_MILLIS = 15 * 60 * 1000;
+
+    /** Field naming the event whose document an update entry is merged into. */
+    static final String UPDATES_EVENT = "updatesEvent";
+
+    private final Context context;
+    private final FirebaseFirestore db;
+    private final FirebaseAuth auth;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final RetryBackoff backoff = new RetryBackoff(RETRY_INITIAL_MILLIS, RETRY_MAX_MILLIS, new Random());
+
+    // Only touched on the executor thread
+    private FallEventOutbox outbox;
+    private boolean commitInFlight = false;
+    private boolean retryScheduled = false;
+
+    // Signed-in user as last reported by the UI process; this process has no JS and its own
+    // SharedPreferences cache, so the value arrives over IPC and is kept in the native store
+    private volatile String userId;
+
+    FallEventUploader(Context context, FirebaseFirestore db, FirebaseAuth auth) {
+        this.context = context.getApplicationContext();
+        this.db = db;
+        this.auth = auth;
+        this.userId = NativeSettings.get(context).get(NativeSettings.USER_ID);
+    }
+
+    /** Called when the user signs in or out in the UI process; null means signed out. */
+    void setUserId(String userId) {
+        this.userId = userId;
+        Log.d(TAG, "User id " + (userId != null ? "set" : "cleared"));
+        if (userId != null) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            });
+        }
+    }
+
+    /** Opens the journal and starts delivering anything left over from a previous run. */
+    void start() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    outbox = FallEventOutbox.open(new File(context.getFilesDir(), JOURNAL_NAME));
+                    if (outbox.recoveredBytesDropped() > 0) {
+                        Log.w(TAG, "Recovered outbox journal, dropped " + outbox.recoveredBytesDropped() + " torn bytes");
+                    }
+                    Log.i(TAG, "Outbox opened with " + outbox.pendingCount() + " pending fall events");
+                } catch (IOException e) {
+                    Log.e(TAG, "Error opening fall event outbox: " + e.getMessage());
+                    return;
+                }
+                drain();
+            }
+        });
+    }
+
+    void enqueue(final OutboxEntry entry) {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (outbox == null) {
+                    Log.e(TAG, "Outbox unavailable, fall event " + entry.id + " not persisted");
+                    return;
+                }
+                try {
+                    outbox.append(entry);
+                    Log.i(TAG, "Fall event " + entry.id + " persisted to outbox");
+                } catch (IOException e) {
+                    Log.e(TAG, "Error persisting fall event " + entry.id + ": " + e.getMessage());
+                }
+                drain();
+            }
+        });
+    }
+
+    void shutdown() {
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (outbox != null) {
+                    try {
+                        outbox.close();
+                    } catch (IOException e) {
+                        Log.e(TAG, "Error closing outbox: " + e.getMessage());
+                    }
+                }
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void drain() {
+        if (outbox == null || commitInFlight || retryScheduled) {
+            return;
+        }
+        final List<OutboxEntry> batch = outbox.pending(MAX_BATCH);
+        if (batch.isEmpty()) {
+            return;
+        }
+        String userId = resolveUserId();
+        if (userId == null) {
+            Log.w(TAG, "No signed-in user yet, holding " + batch.size() + " fall events");
+            scheduleRetry();
+            return;
+        }
+
+        WriteBatch writeBatch = db.batch();
+        final List<String> ids = new ArrayList<>(batch.size());
+        for (OutboxEntry entry : batch) {
+            // Merged so the JS write of the same event doesn't erase fields only the native record has
+            Object updates = entry.fields.get(UPDATES_EVENT);
+            String documentId = updates != null ? (String) updates : entry.id;
+            Map<String, Object> document = updates != null ? toUpdate(entry) : toDocument(entry, userId);
+            writeBatch.set(db.collection("users").document(userId).collection("falls").document(documentId),
+                    document, SetOptions.merge());
+            ids.add(entry.id);
+        }
+
+        commitInFlight = true;
+        writeBatch.commit().addOnCompleteListener(executor, new OnCompleteListener<Void>() {
+            @Override
+            public void onComplete(Task<Void> task) {
+                commitInFlight = false;
+                if (!task.isSuccessful()) {
+                    Log.e(TAG, "Fall event batch commit failed: "
+                            + (task.getException() != null ? task.getException().getMessage() : "unknown error"));
+                    scheduleRetry();
+                    return;
+                }
+                try {
+                    outbox.acknowledge(ids);
+                    Log.i(TAG, "Committed " + ids.size() + " fall events to Firestore");
+                } catch (IOException e) {
+                    // The documents are written; replaying them later just overwrites the same ids
+                    Log.e(TAG, "Error acknowledging fall events: " + e.getMessage());
+                }
+                backoff.reset();
+                drain();
+            }
+        });
+    }
+
+    private void scheduleRetry() {
+        long delay = backoff.nextDelayMillis();
+        retryScheduled = true;
+        Log.i(TAG, "Retrying fall event upload in " + delay + "ms (attempt " + backoff.failures() + ")");
+        executor.schedule(new Runnable() {
+            @Override
+            public void run() {
+                retryScheduled = false;
+                drain();
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    String resolveUserId() {
+        FirebaseUser user = auth.getCurrentUser();
+        if (user != null) {
+            return user.getUid();
+        }
+        if (userId != null) {
+            return userId;
+        }
+        // Set by AuthStorageModule when the user signs in on the JS side
+        SharedPreferences prefs = context.getSharedPreferences(AUTH_PREFS_NAME, Context.MODE_PRIVATE);
+        return prefs.getString("userId", null);
+    }
+
+    /** Same document shape services/FallDetectionService.tsx writes. */
+    private static Map<String, Object> toDocument(OutboxEntry entry, String userId) {
+        Map<String, Object> fields = entry.fields;
+        long timestamp = fields.containsKey("timestamp") ? (Long) fields.get("timestamp") : entry.createdAtMillis;
+
+        Map<String, Object> document = new HashMap<>();
+        document.put("timestamp", new Date(timestamp));
+        document.put("readableTimestamp", isoTimestamp(timestamp));
+        document.put("acceleration", fields.get("acceleration"));
+        document.put("duration", fields.get("duration"));
+        document.put("deviceInfo", "Android native");
+        document.put("userId", userId);
+        document.put("eventId", entry.id);
+
+        if (fields.containsKey("latitude") && fields.containsKey("longitude")) {
+            Map<String, Object> location = new HashMap<>();
+            location.put("latitude", fields.get("latitude"));
+            location.put("longitude", fields.get("longitude"));
+            location.put("accuracy", fields.get("accuracy"));
+            location.put("provider", fields.get("provider"));
+            Object locationTimestamp = fields.get("locationTimestamp");
+            location.put("locationTimestamp", new Date(locationTimestamp != null ? (Long) locationTimestamp : timestamp));
+            if (fields.containsKey("locationAge")) {
+                location.put("locationAge", fields.get("locationAge"));
+            }
+            document.put("location", location);
+        } else {
+            document.put("location", null);
+        }
+        if (fields.containsKey("motionTrace")) {
+            // Base64 of MotionTraceCodec output: raw accelerometer samples around the fall
+            document.put("motionTrace", fields.get("motionTrace"));
+        }
+        return document;
+    }
+
+    /** Fields of an update entry, without the field that names the document. */
+    private static Map<String, Object> toUpdate(OutboxEntry entry) {
+        Map<String, Object> document = new HashMap<>(entry.fields);
+        document.remove(UPDATES_EVENT);
+        return document;
+    }
+
+    private static String isoTimestamp(long millis) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(new Date(millis));
+    }
+}
@@ -0,0 +1,44 @@
+package com.evercare;
+
+import com.evercare.detection.Caretaker;
+import com.evercare.detection.CaretakerFanOut;
+import com.google.android.gms.tasks.Tasks;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Sends a caretaker alert as a data message: one document per recipient in
+ * users/{uid}/caretakerAlerts, which the backend turns into a push notification or SMS. The send
+ * returns once Firestore has acknowledged the write. The document id is derived from the incident
+ * and the recipient, so sending the same alert again never notifies anyone twice.
+ */
+class FirestoreCaretakerSender implements CaretakerFanOut.Sender {
+
+    private final FirebaseFirestore db;
+    private final FallEventUploader uploader;
+
+    FirestoreCaretakerSender(FirebaseFirestore db, FallEventUploader uploader) {
+        this.db = db;
+        this.uploader = uploader;
+    }
+
+    @Override
+    public void send(Caretaker recipient, String incidentId, String message) throws Exception {
+        String userId = uploader.resolveUserId();
+        if (userId == null) {
+            throw new IllegalStateException("no signed-in user");
+        }
+        Map<String, Object> alert = new HashMap<>();
+        alert.put("incidentId", incidentId);
+        alert.put("caretakerName", recipient.name);
+        alert.put("caretakerPhone", recipient.phone);
+        alert.put("message", message);
+        alert.put("createdAt", FieldValue.serverTimestamp());
+        String documentId = incidentId + "_" + recipient.phone.replaceAll("[^0-9+]", "");
+        // Blocks this fan-out thread; the fan-out interrupts it if the recipient times out
+        Tasks.await(db.collection("users").document(userId).collection("caretakerAlerts").document(documentId)
+                .set(alert));
+    }
+}
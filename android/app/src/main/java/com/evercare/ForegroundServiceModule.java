@@ -1,7 +1,7 @@
 package com.evercare;
 
 import android.content.Intent;
-import android.os.Build;
+import androidx.core.content.ContextCompat;
 import android.util.Log;
 import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
@@ -25,13 +25,9 @@ public class ForegroundServiceModule extends ReactContextBaseJavaModule {
     public void startForegroundService(Promise promise) {
         try {
             ReactApplicationContext context = getReactApplicationContext();
-            Intent serviceIntent = new Intent(context, FallDetectionForegroundService.class);
-            
-            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-                context.startForegroundService(serviceIntent);
-            } else {
-                context.startService(serviceIntent);
-            }
+            // BackgroundService is the foreground host; it puts up its own ongoing notification
+            Intent serviceIntent = new Intent(context, BackgroundService.class);
+            ContextCompat.startForegroundService(context, serviceIntent);
             
             Log.d(TAG, "Foreground service started from React Native");
             promise.resolve("Foreground service started successfully");
@@ -45,7 +41,7 @@ public class ForegroundServiceModule extends ReactContextBaseJavaModule {
     public void stopForegroundService(Promise promise) {
         try {
             ReactApplicationContext context = getReactApplicationContext();
-            Intent serviceIntent = new Intent(context, FallDetectionForegroundService.class);
+            Intent serviceIntent = new Intent(context, BackgroundService.class);
             boolean result = context.stopService(serviceIntent);
             
             Log.d(TAG, "Foreground service stop requested from React Native");
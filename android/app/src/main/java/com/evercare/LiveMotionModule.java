@@ -0,0 +1,134 @@
+package com.evercare;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import com.evercare.detection.SensorFrameRing;
+import com.facebook.react.bridge.Arguments;
+import com.facebook.react.bridge.ReactApplicationContext;
+import com.facebook.react.bridge.ReactContextBaseJavaModule;
+import com.facebook.react.bridge.ReactMethod;
+import com.facebook.react.bridge.WritableArray;
+import com.facebook.react.bridge.WritableMap;
+import com.facebook.react.modules.core.DeviceEventManagerModule;
+import java.io.IOException;
+
+/**
+ * Streams live accelerometer frames to JS for the motion view. The detection process writes
+ * every sample into a shared {@link SensorFrameRing}; this module drains it at display rate and
+ * emits one LIVE_MOTION_FRAMES event per batch, so the bridge carries ~15 events a second
+ * whatever the sensor rate is.
+ */
+public class LiveMotionModule extends ReactContextBaseJavaModule {
+
+    private static final String TAG = "LiveMotionModule";
+    private static final long POLL_INTERVAL_MS = 66;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final long[] timestamps = new long[DetectionIpc.LIVE_MOTION_CAPACITY];
+    private final float[] xs = new float[DetectionIpc.LIVE_MOTION_CAPACITY];
+    private final float[] ys = new float[DetectionIpc.LIVE_MOTION_CAPACITY];
+    private final float[] zs = new float[DetectionIpc.LIVE_MOTION_CAPACITY];
+
+    // Main thread only
+    private SensorFrameRing.Consumer consumer;
+    private boolean running = false;
+
+    private final Runnable poller = new Runnable() {
+        @Override
+        public void run() {
+            if (!running) {
+                return;
+            }
+            drain();
+            mainHandler.postDelayed(this, POLL_INTERVAL_MS);
+        }
+    };
+
+    public LiveMotionModule(ReactApplicationContext reactContext) {
+        super(reactContext);
+    }
+
+    @Override
+    public String getName() {
+        return "LiveMotion";
+    }
+
+    @ReactMethod
+    public void start() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (running) {
+                    return;
+                }
+                running = true;
+                DetectionClient.get(getReactApplicationContext()).setLiveMotion(true);
+                mainHandler.post(poller);
+                Log.d(TAG, "Live motion started");
+            }
+        });
+    }
+
+    @ReactMethod
+    public void stop() {
+        mainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                stopOnMainThread();
+            }
+        });
+    }
+
+    @Override
+    public void invalidate() {
+        stop();
+        super.invalidate();
+    }
+
+    private void stopOnMainThread() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        mainHandler.removeCallbacks(poller);
+        DetectionClient.get(getReactApplicationContext()).setLiveMotion(false);
+        Log.d(TAG, "Live motion stopped" + (consumer != null ? ", " + consumer.dropped() + " frames dropped" : ""));
+    }
+
+    private void drain() {
+        if (consumer == null) {
+            try {
+                consumer = SensorFrameRing.consumer(DetectionIpc.mapLiveMotionRing(getReactApplicationContext(), false));
+            } catch (IOException e) {
+                // The detection process hasn't created the ring yet; try again next tick
+                return;
+            }
+        }
+        int count = consumer.poll(timestamps, xs, ys, zs, timestamps.length);
+        if (count == 0 || !getReactApplicationContext().hasActiveReactInstance()) {
+            return;
+        }
+
+        WritableArray t = Arguments.createArray();
+        WritableArray x = Arguments.createArray();
+        WritableArray y = Arguments.createArray();
+        WritableArray z = Arguments.createArray();
+        for (int i = 0; i < count; i++) {
+            // Sensor timestamps are elapsedRealtime nanos; milliseconds are plenty for drawing
+            t.pushDouble(timestamps[i] / 1e6);
+            x.pushDouble(xs[i]);
+            y.pushDouble(ys[i]);
+            z.pushDouble(zs[i]);
+        }
+        WritableMap params = Arguments.createMap();
+        params.putArray("timestamps", t);
+        params.putArray("x", x);
+        params.putArray("y", y);
+        params.putArray("z", z);
+        params.putDouble("dropped", consumer.dropped());
+        getReactApplicationContext()
+            .getJSModule(DeviceEventManagerModule.RCTDeviceEventEmitter.class)
+            .emit("LIVE_MOTION_FRAMES", params);
+    }
+}
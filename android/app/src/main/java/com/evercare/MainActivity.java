@@ -7,6 +7,7 @@ import com.facebook.react.defaults.DefaultReactActivityDelegate;
 
 import android.content.Intent;
 import android.os.Bundle;
+import androidx.core.content.ContextCompat;
 
 public class MainActivity extends ReactActivity {
     
@@ -21,7 +22,7 @@ public class MainActivity extends ReactActivity {
     
     private void startBackgroundService() {
         Intent serviceIntent = new Intent(this, BackgroundService.class);
-        startService(serviceIntent);
+        ContextCompat.startForegroundService(this, serviceIntent);
     }
 
     /**
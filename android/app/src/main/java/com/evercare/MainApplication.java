@@ -1,6 +1,7 @@
 package com.evercare;
 
 import android.app.Application;
+import android.os.Build;
 import com.facebook.react.PackageList;
 import com.facebook.react.ReactApplication;
 import com.facebook.react.ReactHost;
@@ -11,11 +12,17 @@ import com.facebook.react.defaults.DefaultReactHost;
 import com.facebook.react.defaults.DefaultReactNativeHost;
 import com.facebook.react.soloader.OpenSourceMergedSoMapping;
 import com.facebook.soloader.SoLoader;
+import com.google.firebase.FirebaseApp;
 
+import java.io.BufferedReader;
+import java.io.FileReader;
 import java.util.List;
 
 public class MainApplication extends Application implements ReactApplication {
 
+    // Matches android:process on the detection components in AndroidManifest.xml
+    private static final String DETECTION_PROCESS_SUFFIX = ":detection";
+
     private final ReactNativeHost mReactNativeHost = new DefaultReactNativeHost(this) {
         @Override
         public boolean getUseDeveloperSupport() {
@@ -30,6 +37,8 @@ public class MainApplication extends Application implements ReactApplication {
             packages.add(new AuthStoragePackage());
             packages.add(new ForegroundServicePackage());
             packages.add(new SettingsPackage());
+            packages.add(new DiagnosticsPackage());
+            packages.add(new LiveMotionPackage());
             return packages;
         }
 
@@ -66,6 +75,12 @@ public class MainApplication extends Application implements ReactApplication {
     @Override
     public void onCreate() {
         super.onCreate();
+        if (isDetectionProcess()) {
+            // BackgroundService and BootReceiver run here. Keep React Native out of this process;
+            // Firebase's init provider only runs in the main process, so set it up by hand.
+            FirebaseApp.initializeApp(this);
+            return;
+        }
         try {
             SoLoader.init(this, OpenSourceMergedSoMapping.INSTANCE);
         } catch (java.io.IOException e) {
@@ -76,4 +91,20 @@ public class MainApplication extends Application implements ReactApplication {
             DefaultNewArchitectureEntryPoint.load();
         }
     }
+
+    private boolean isDetectionProcess() {
+        return currentProcessName().endsWith(DETECTION_PROCESS_SUFFIX);
+    }
+
+    private static String currentProcessName() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            return Application.getProcessName();
+        }
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/cmdline"))) {
+            String line = reader.readLine();
+            return line != null ? line.trim() : "";
+        } catch (java.io.IOException e) {
+            return "";
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package com.evercare;
+
+import android.content.Context;
+import android.util.Log;
+import com.evercare.detection.Caretaker;
+import com.evercare.detection.SettingsStore;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The process-wide native settings store. The service reads it synchronously at startup, so it
+ * is armed with the caretaker number before React Native has run at all.
+ */
+final class NativeSettings {
+
+    private static final String TAG = "NativeSettings";
+
+    static final String CARETAKER_PHONE = "caretakerPhone";
+    static final String CARETAKER_NAME = "caretakerName";
+    // Every caretaker in calling order, as Caretaker.encodeList; the two keys above mirror the first
+    static final String CARETAKERS = "caretakers";
+    static final String USER_ID = "userId";
+
+    private static SettingsStore store;
+
+    private NativeSettings() {
+    }
+
+    static synchronized SettingsStore get(Context context) {
+        if (store == null) {
+            store = SettingsStore.open(new File(context.getApplicationContext().getFilesDir(), "native-settings.bin"));
+            if (store.recoveredFromCorruption()) {
+                Log.w(TAG, "Native settings file was unreadable, starting empty");
+            }
+        }
+        return store;
+    }
+
+    /** The stored caretakers; settings written before there was a list give a list of one. */
+    static List<Caretaker> caretakers(SettingsStore settings) {
+        String list = settings.get(CARETAKERS);
+        if (list != null) {
+            return Caretaker.decodeList(list);
+        }
+        String phone = settings.get(CARETAKER_PHONE);
+        if (phone == null || phone.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        return Collections.singletonList(new Caretaker(settings.get(CARETAKER_NAME), phone));
+    }
+}
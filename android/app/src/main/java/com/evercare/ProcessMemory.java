@@ -0,0 +1,29 @@
+package com.evercare;
+
+import android.system.Os;
+import android.system.OsConstants;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/** Resident set size of the current process, read from /proc. */
+final class ProcessMemory {
+
+    private ProcessMemory() {
+    }
+
+    /** Current RSS in bytes, or -1 if it can't be read. */
+    static long residentBytes() {
+        // statm: size resident shared text lib data dt, in pages
+        try (BufferedReader reader = new BufferedReader(new FileReader("/proc/self/statm"))) {
+            String line = reader.readLine();
+            if (line == null) {
+                return -1;
+            }
+            String[] fields = line.trim().split("\\s+");
+            return Long.parseLong(fields[1]) * Os.sysconf(OsConstants._SC_PAGESIZE);
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+}
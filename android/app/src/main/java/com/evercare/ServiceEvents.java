@@ -0,0 +1,23 @@
+package com.evercare;
+
+import com.evercare.detection.EventBus;
+import com.evercare.detection.FallReport;
+
+/**
+ * Process-wide event buses between the native service and the React Native modules. These
+ * replace the intent broadcasts the service used to send, which went out twice (global and local)
+ * and were received twice.
+ *
+ * Each process has its own copy. In the detection process the service publishes and its IPC
+ * clients subscribe; in the UI process {@link DetectionClient} republishes what it receives.
+ */
+public final class ServiceEvents {
+
+    // Enough to cover falls that land while the JS runtime is still starting up
+    private static final int FALL_REPLAY_CAPACITY = 8;
+
+    public static final EventBus<FallReport> FALLS = new EventBus<>(FALL_REPLAY_CAPACITY);
+
+    private ServiceEvents() {
+    }
+}
@@ -4,8 +4,16 @@ import com.facebook.react.bridge.ReactApplicationContext;
 import com.facebook.react.bridge.ReactContextBaseJavaModule;
 import com.facebook.react.bridge.ReactMethod;
 import com.facebook.react.bridge.Promise;
+import com.facebook.react.bridge.ReadableArray;
+import com.facebook.react.bridge.ReadableMap;
+import com.evercare.detection.Caretaker;
 import android.content.Intent;
 import android.util.Log;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class SettingsModule extends ReactContextBaseJavaModule {
 
@@ -28,18 +36,12 @@ public class SettingsModule extends ReactContextBaseJavaModule {
             Log.i(TAG, "=== SettingsModule.refreshCaretakerSettings called ===");
             Log.i(TAG, "Phone: " + (caretakerPhone != null ? caretakerPhone : "null"));
             Log.i(TAG, "Name: " + (caretakerName != null ? caretakerName : "null"));
-            
-            // Send broadcast to refresh caretaker phone in BackgroundService
-            Intent refreshIntent = new Intent("com.evercare.REFRESH_CARETAKER_SETTINGS");
-            refreshIntent.putExtra("caretakerPhone", caretakerPhone);
-            refreshIntent.putExtra("caretakerName", caretakerName);
-            // Set package to make it internal to our app
-            refreshIntent.setPackage(reactContext.getPackageName());
-            
-            Log.i(TAG, "Sending broadcast with action: " + refreshIntent.getAction());
-            Log.i(TAG, "Broadcast package: " + refreshIntent.getPackage());
-            reactContext.sendBroadcast(refreshIntent);
-            Log.i(TAG, "Broadcast sent successfully");
+
+            List<Caretaker> caretakers = new ArrayList<>();
+            if (caretakerPhone != null && !caretakerPhone.trim().isEmpty()) {
+                caretakers.add(new Caretaker(caretakerName, caretakerPhone));
+            }
+            applyCaretakers(caretakers);
             
             String resultMessage = "Settings refresh broadcast sent with phone: " + (caretakerPhone != null ? caretakerPhone : "null");
             Log.i(TAG, "Resolving promise with: " + resultMessage);
@@ -50,4 +52,57 @@ public class SettingsModule extends ReactContextBaseJavaModule {
             promise.reject("REFRESH_ERROR", e.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /** Replaces the caretaker list; each entry is {name, phone}, in the order they are called. */
+    @ReactMethod
+    public void setCaretakers(ReadableArray entries, Promise promise) {
+        try {
+            List<Caretaker> caretakers = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                ReadableMap entry = entries.getMap(i);
+                String phone = entry != null && entry.hasKey("phone") ? entry.getString("phone") : null;
+                if (phone == null || phone.trim().isEmpty()) {
+                    continue;
+                }
+                caretakers.add(new Caretaker(entry.hasKey("name") ? entry.getString("name") : null, phone));
+            }
+            Log.i(TAG, "Setting " + caretakers.size() + " caretakers: " + caretakers);
+            applyCaretakers(caretakers);
+            promise.resolve(caretakers.size());
+        } catch (Exception e) {
+            Log.e(TAG, "Error setting caretakers: " + e.getMessage());
+            promise.reject("REFRESH_ERROR", e.getMessage());
+        }
+    }
+
+    private void applyCaretakers(List<Caretaker> caretakers) {
+        Caretaker first = caretakers.isEmpty() ? null : caretakers.get(0);
+        String encoded = Caretaker.encodeList(caretakers);
+
+        // Write through to the native store first, so the service starts with these settings
+        // after a reboot or process restart without waiting for JS
+        Map<String, String> settings = new HashMap<>();
+        settings.put(NativeSettings.CARETAKERS, encoded);
+        settings.put(NativeSettings.CARETAKER_PHONE, first != null ? first.phone : null);
+        settings.put(NativeSettings.CARETAKER_NAME, first != null ? first.name : null);
+        try {
+            NativeSettings.get(reactContext).putAll(settings);
+            Log.i(TAG, "Caretaker settings persisted");
+        } catch (IOException e) {
+            // The running service still gets the broadcast below
+            Log.e(TAG, "Error persisting caretaker settings: " + e.getMessage());
+        }
+
+        // Send broadcast to refresh the caretakers in BackgroundService
+        Intent refreshIntent = new Intent("com.evercare.REFRESH_CARETAKER_SETTINGS");
+        refreshIntent.putExtra("caretakers", encoded);
+        refreshIntent.putExtra("caretakerPhone", first != null ? first.phone : null);
+        refreshIntent.putExtra("caretakerName", first != null ? first.name : null);
+        // Set package to make it internal to our app
+        refreshIntent.setPackage(reactContext.getPackageName());
+
+        Log.i(TAG, "Sending broadcast with action: " + refreshIntent.getAction());
+        reactContext.sendBroadcast(refreshIntent);
+        Log.i(TAG, "Broadcast sent successfully");
+    }
+}
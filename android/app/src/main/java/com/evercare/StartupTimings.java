@@ -0,0 +1,42 @@
+package com.evercare;
+
+import android.os.Process;
+
+/**
+ * When the detection service got armed, on the elapsedRealtime clock. Written by
+ * BackgroundService and read by DiagnosticsModule; zero means it hasn't happened.
+ */
+final class StartupTimings {
+
+    // When BootReceiver started the service, if it did
+    static volatile long bootReceivedNanos;
+    static volatile long serviceCreatedNanos;
+    // Time spent loading the native settings store
+    static volatile long settingsLoadNanos;
+    // Settings loaded and accelerometer registered
+    static volatile long armedNanos;
+    // When this (detection) process was forked, and when its first accelerometer sample arrived
+    static final long processStartNanos = Process.getStartElapsedRealtime() * 1000000L;
+    static volatile long firstSampleNanos;
+    // Time spent mapping and restoring the detector checkpoint
+    static volatile long checkpointRestoreNanos;
+    // Sensor time between the previous process's last sample and this one's first, or -1 if
+    // there was no previous process to resume from
+    static volatile long resumeGapNanos = -1;
+
+    private StartupTimings() {
+    }
+
+    /** Process start to first sample, or -1 before the first sample. */
+    static long processStartToFirstSampleNanos() {
+        long first = firstSampleNanos;
+        return first > 0 ? first - processStartNanos : -1;
+    }
+
+    /** Boot receiver to armed, or -1 if the service wasn't started from boot. */
+    static long bootToArmedNanos() {
+        long boot = bootReceivedNanos;
+        long armed = armedNanos;
+        return boot > 0 && armed > 0 ? armed - boot : -1;
+    }
+}
@@ -0,0 +1,124 @@
+package com.evercare;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.app.Application;
+import android.app.Notification;
+import android.app.NotificationManager;
+import android.content.Context;
+import android.os.SystemClock;
+import java.util.concurrent.TimeUnit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.shadows.ShadowNotificationManager;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 34)
+public class FallAlertNotifierTest {
+
+    private static final String CHANNEL_ID = "FREE_FALL_CHANNEL";
+    private static final int NOTIFICATION_ID = 1234;
+    private static final long AUTO_CALL_DELAY = 120000;
+
+    private NotificationManager notificationManager;
+    private FallAlertNotifier notifier;
+
+    @Before
+    public void setUp() {
+        Application app = RuntimeEnvironment.getApplication();
+        notificationManager = (NotificationManager) app.getSystemService(Context.NOTIFICATION_SERVICE);
+        notifier = new FallAlertNotifier(app, notificationManager, CHANNEL_ID, NOTIFICATION_ID);
+        notifier.prepare("+15550100");
+    }
+
+    @Test
+    public void alertIsPostedOnceForTheWholeCountdown() {
+        long deadline = System.currentTimeMillis() + AUTO_CALL_DELAY;
+        notifier.show(SystemClock.elapsedRealtimeNanos(), deadline);
+
+        // Run out the full countdown; the chronometer must not need any re-posts
+        ShadowLooper.idleMainLooper(AUTO_CALL_DELAY, TimeUnit.MILLISECONDS);
+
+        assertEquals(1, notifier.posts());
+        ShadowNotificationManager shadow = shadowOf(notificationManager);
+        assertEquals(1, shadow.size());
+        Notification notification = shadow.getNotification(NOTIFICATION_ID);
+        assertEquals(deadline, notification.when);
+        assertTrue(notification.extras.getBoolean(Notification.EXTRA_SHOW_CHRONOMETER));
+        assertTrue(notification.extras.getBoolean(Notification.EXTRA_CHRONOMETER_COUNT_DOWN));
+        assertEquals(1, notifier.headsUpLatency().count());
+    }
+
+    @Test
+    public void settingsChangeRebuildsWithoutPosting() {
+        notifier.prepare(null);
+        notifier.prepare("+15550199");
+        assertEquals(0, notifier.posts());
+        assertEquals(0, shadowOf(notificationManager).size());
+    }
+
+    @Test
+    public void eachAlertIsOneNotifyCall() {
+        notifier.show(SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis() + AUTO_CALL_DELAY);
+        notifier.cancel();
+        notifier.show(SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis() + AUTO_CALL_DELAY);
+
+        assertEquals(2, notifier.posts());
+        assertEquals(1, shadowOf(notificationManager).size());
+        assertEquals(2, notifier.headsUpLatency().count());
+    }
+
+    @Test
+    public void movingTheDeadlineDoesNotAlertAgain() {
+        long deadline = System.currentTimeMillis() + AUTO_CALL_DELAY;
+        notifier.show(SystemClock.elapsedRealtimeNanos(), deadline);
+        ShadowNotificationManager shadow = shadowOf(notificationManager);
+        assertFalse(onlyAlertsOnce(shadow.getNotification(NOTIFICATION_ID)));
+
+        // Next escalation step, then a deferral
+        notifier.updateDeadline(deadline + 60000);
+        notifier.updateDeadline(deadline + 180000);
+        Notification updated = shadow.getNotification(NOTIFICATION_ID);
+        assertEquals(deadline + 180000, updated.when);
+        assertTrue(onlyAlertsOnce(updated));
+        assertEquals(1, notifier.posts());
+
+        // A new alert sounds again
+        notifier.cancel();
+        notifier.showInactivity(deadline);
+        assertFalse(onlyAlertsOnce(shadow.getNotification(NOTIFICATION_ID)));
+    }
+
+    @Test
+    public void checkInNeverOpensTheCallScreenByItself() {
+        ShadowNotificationManager shadow = shadowOf(notificationManager);
+        notifier.showInactivity(System.currentTimeMillis() + AUTO_CALL_DELAY);
+        Notification checkIn = shadow.getNotification(NOTIFICATION_ID);
+        assertNull(checkIn.fullScreenIntent);
+        assertTrue(checkIn.extras.getBoolean(Notification.EXTRA_SHOW_CHRONOMETER));
+
+        // Nobody to call: no countdown either
+        notifier.showInactivity(0);
+        assertFalse(shadow.getNotification(NOTIFICATION_ID).extras.getBoolean(Notification.EXTRA_SHOW_CHRONOMETER));
+
+        // A fall afterwards gets its call screen and countdown back
+        notifier.show(SystemClock.elapsedRealtimeNanos(), System.currentTimeMillis() + AUTO_CALL_DELAY);
+        Notification fall = shadow.getNotification(NOTIFICATION_ID);
+        assertNotNull(fall.fullScreenIntent);
+        assertTrue(fall.extras.getBoolean(Notification.EXTRA_SHOW_CHRONOMETER));
+    }
+
+    private static boolean onlyAlertsOnce(Notification notification) {
+        return (notification.flags & Notification.FLAG_ONLY_ALERT_ONCE) != 0;
+    }
+}
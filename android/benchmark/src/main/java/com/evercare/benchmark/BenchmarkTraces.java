@@ -0,0 +1,66 @@
+package com.evercare.benchmark;
+
+import java.util.Random;
+
+/**
+ * Synthetic 50 Hz accelerometer traces that drive the detector down different code paths.
+ * Each trace is a repeating pattern of x/y/z samples; timestamps are generated by the caller.
+ */
+public final class BenchmarkTraces {
+
+    static final long PERIOD_NANOS = 20_000_000L;
+    static final int LENGTH = 1 << 14;
+    private static final float GRAVITY = 9.81f;
+
+    /** Which detector path a trace exercises. */
+    public enum Kind {
+        /** Device resting with sensor noise; the detector stays idle. */
+        STEADY,
+        /** Repeated free-fall segments that end without an impact. */
+        FREE_FALL,
+        /** Complete falls: free fall, impact, then lying still until confirmed. */
+        IMPACT
+    }
+
+    final float[] x = new float[LENGTH];
+    final float[] y = new float[LENGTH];
+    final float[] z = new float[LENGTH];
+
+    BenchmarkTraces(Kind kind) {
+        Random random = new Random(42);
+        for (int i = 0; i < LENGTH; i++) {
+            x[i] = noise(random);
+            y[i] = noise(random);
+            z[i] = GRAVITY + noise(random);
+        }
+        switch (kind) {
+            case STEADY:
+                break;
+            case FREE_FALL:
+                // 300 ms of free fall every 2 s
+                for (int start = 0; start + 15 < LENGTH; start += 100) {
+                    fill(start, 15, 0.3f);
+                }
+                break;
+            case IMPACT:
+                // A full fall every 6 s: free fall, impact spike, then still
+                for (int start = 0; start + 20 < LENGTH; start += 300) {
+                    fill(start, 15, 0.3f);
+                    fill(start + 15, 2, 30f);
+                }
+                break;
+        }
+    }
+
+    private void fill(int start, int count, float magnitude) {
+        for (int i = start; i < start + count; i++) {
+            x[i] = 0f;
+            y[i] = 0f;
+            z[i] = magnitude;
+        }
+    }
+
+    private static float noise(Random random) {
+        return (float) (random.nextGaussian() * 0.05);
+    }
+}
@@ -0,0 +1,75 @@
+package com.evercare.benchmark;
+
+import com.evercare.detection.FallDetector;
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallEvent;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Cost of one accelerometer sample through {@link FallDetector#onSample}, i.e. what
+ * {@code BackgroundService.onSensorChanged} pays per event. Each invocation feeds a block of
+ * samples so timer overhead doesn't dominate; scores are per sample.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FallDetectorBenchmark {
+
+    private static final int BLOCK = 1024;
+
+    @Param({"STEADY", "FREE_FALL", "IMPACT"})
+    public BenchmarkTraces.Kind trace;
+
+    private BenchmarkTraces samples;
+    private FallDetector detector;
+    private int cursor;
+    private long timestampNanos;
+    private int falls;
+
+    @Setup
+    public void setUp() {
+        samples = new BenchmarkTraces(trace);
+        detector = new FallDetector(new FallDetectorConfig(), new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                falls++;
+            }
+        });
+        cursor = 0;
+        timestampNanos = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public void onSample(Blackhole blackhole) {
+        float[] x = samples.x;
+        float[] y = samples.y;
+        float[] z = samples.z;
+        int i = cursor;
+        long t = timestampNanos;
+        for (int n = 0; n < BLOCK; n++) {
+            detector.onSample(t, x[i], y[i], z[i]);
+            t += BenchmarkTraces.PERIOD_NANOS;
+            i = (i + 1) & (BenchmarkTraces.LENGTH - 1);
+        }
+        cursor = i;
+        timestampNanos = t;
+        blackhole.consume(falls);
+    }
+}
@@ -0,0 +1,134 @@
+package com.evercare.benchmark;
+
+import com.evercare.detection.FallModel;
+import com.evercare.detection.LogisticFallModel;
+import com.evercare.detection.TreeEnsembleFallModel;
+import com.evercare.detection.WindowFeatureExtractor;
+import com.evercare.detection.WindowFeatures;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of scoring one feature window with each kind of {@link FallModel}. The windows are
+ * extracted once from the IMPACT trace, so the score is inference alone, per window.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class FallModelBenchmark {
+
+    private static final int BLOCK = 256;
+
+    /** Which model kind to score with. */
+    public enum Kind {
+        LOGISTIC,
+        /** 50 trees of depth 4, about the size a gradient-boosted export would have. */
+        TREES
+    }
+
+    @Param({"LOGISTIC", "TREES"})
+    public Kind model;
+
+    private FallModel fallModel;
+    private float[] windows;
+    private int windowCount;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        BenchmarkTraces samples = new BenchmarkTraces(BenchmarkTraces.Kind.IMPACT);
+        final List<float[]> extracted = new ArrayList<>();
+        WindowFeatureExtractor extractor = new WindowFeatureExtractor(100, 25, BenchmarkTraces.PERIOD_NANOS, 0.5, 3.0,
+                new WindowFeatureExtractor.Listener() {
+                    @Override
+                    public void onWindow(WindowFeatures features) {
+                        float[] copy = new float[WindowFeatures.COUNT];
+                        features.copyTo(copy);
+                        extracted.add(copy);
+                    }
+                });
+        for (int i = 0; i < BenchmarkTraces.LENGTH; i++) {
+            extractor.onSample(i * BenchmarkTraces.PERIOD_NANOS, samples.x[i], samples.y[i], samples.z[i]);
+        }
+        windowCount = extracted.size();
+        windows = new float[windowCount * WindowFeatures.COUNT];
+        for (int w = 0; w < windowCount; w++) {
+            System.arraycopy(extracted.get(w), 0, windows, w * WindowFeatures.COUNT, WindowFeatures.COUNT);
+        }
+        fallModel = model == Kind.LOGISTIC ? logistic() : trees(50, 4);
+        cursor = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public float probability() {
+        float acc = 0;
+        int w = cursor;
+        for (int n = 0; n < BLOCK; n++) {
+            acc += fallModel.probability(windows, w * WindowFeatures.COUNT);
+            w = w + 1 == windowCount ? 0 : w + 1;
+        }
+        cursor = w;
+        return acc;
+    }
+
+    private static FallModel logistic() {
+        Random random = new Random(7);
+        float[] means = new float[WindowFeatures.COUNT];
+        float[] scales = new float[WindowFeatures.COUNT];
+        float[] weights = new float[WindowFeatures.COUNT];
+        for (int i = 0; i < WindowFeatures.COUNT; i++) {
+            means[i] = random.nextFloat() * 10;
+            scales[i] = 1 + random.nextFloat() * 5;
+            weights[i] = (float) random.nextGaussian();
+        }
+        return new LogisticFallModel(means, scales, weights, -1f, 0.5f);
+    }
+
+    /** Complete random trees, nodes numbered breadth-first within each tree. */
+    private static FallModel trees(int count, int depth) {
+        Random random = new Random(7);
+        int perTree = (1 << (depth + 1)) - 1;
+        int internal = (1 << depth) - 1;
+        int[] roots = new int[count];
+        short[] features = new short[count * perTree];
+        float[] thresholds = new float[count * perTree];
+        int[] left = new int[count * perTree];
+        int[] right = new int[count * perTree];
+        for (int t = 0; t < count; t++) {
+            int base = t * perTree;
+            roots[t] = base;
+            for (int i = 0; i < perTree; i++) {
+                if (i < internal) {
+                    features[base + i] = (short) random.nextInt(WindowFeatures.COUNT);
+                    thresholds[base + i] = random.nextFloat() * 20;
+                    left[base + i] = base + 2 * i + 1;
+                    right[base + i] = base + 2 * i + 2;
+                } else {
+                    features[base + i] = -1;
+                    thresholds[base + i] = (float) random.nextGaussian() * 0.1f;
+                    left[base + i] = -1;
+                    right[base + i] = -1;
+                }
+            }
+        }
+        return new TreeEnsembleFallModel(WindowFeatures.COUNT, 0f, roots, features, thresholds, left, right, 0.5f);
+    }
+}
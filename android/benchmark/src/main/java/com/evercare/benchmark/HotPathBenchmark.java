@@ -0,0 +1,168 @@
+package com.evercare.benchmark;
+
+import com.evercare.detection.AccelerometerCalibrator;
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FixedRateResampler;
+import com.evercare.detection.SampleSink;
+import com.evercare.detection.SlidingWindowStats;
+import com.evercare.detection.WindowFeatureExtractor;
+import com.evercare.detection.WindowFeatures;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * The individual building blocks of the per-sample path, measured in isolation so a
+ * regression in {@link FallDetectorBenchmark} can be traced to its cause. Scores are per sample.
+ * The stages that run in front of and beside the detector (resampling, calibration, feature
+ * extraction) hand their output to a sink that only sums it, so their own cost is what is scored.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+@State(Scope.Thread)
+public class HotPathBenchmark {
+
+    private static final int BLOCK = 1024;
+
+    @Param({"STEADY", "IMPACT"})
+    public BenchmarkTraces.Kind trace;
+
+    /** Keeps the output of a stage alive without doing any work of its own. */
+    private static final class Sum implements SampleSink, WindowFeatureExtractor.Listener {
+        float value;
+
+        @Override
+        public void onSample(long timestampNanos, float x, float y, float z) {
+            value += z;
+        }
+
+        @Override
+        public void onWindow(WindowFeatures features) {
+            value += features.get(WindowFeatures.BAND_POWER);
+        }
+    }
+
+    private BenchmarkTraces samples;
+    // Delivery jitter for the resampler, up to 5 ms either way of the nominal period
+    private final long[] jitterNanos = new long[BenchmarkTraces.LENGTH];
+    private SlidingWindowStats window;
+    private final Sum sum = new Sum();
+    private FixedRateResampler resampler;
+    private AccelerometerCalibrator calibrator;
+    private WindowFeatureExtractor extractor;
+    private int cursor;
+    private long timestampNanos;
+
+    @Setup
+    public void setUp() {
+        samples = new BenchmarkTraces(trace);
+        Random random = new Random(42);
+        for (int i = 0; i < BenchmarkTraces.LENGTH; i++) {
+            jitterNanos[i] = (random.nextInt(11) - 5) * 1_000_000L;
+        }
+        window = new SlidingWindowStats(1_500_000_000L, 512);
+        FallDetectorConfig config = new FallDetectorConfig();
+        resampler = new FixedRateResampler(config, sum, null);
+        calibrator = new AccelerometerCalibrator(config, sum, null);
+        extractor = new WindowFeatureExtractor(100, 25, BenchmarkTraces.PERIOD_NANOS, 0.5, 3.0, sum);
+        cursor = 0;
+        timestampNanos = 0;
+    }
+
+    /** The magnitude computation at the top of every sample. */
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public float magnitude() {
+        float[] x = samples.x;
+        float[] y = samples.y;
+        float[] z = samples.z;
+        float acc = 0;
+        int i = cursor;
+        for (int n = 0; n < BLOCK; n++) {
+            acc += (float) Math.sqrt(x[i] * x[i] + y[i] * y[i] + z[i] * z[i]);
+            i = (i + 1) & (BenchmarkTraces.LENGTH - 1);
+        }
+        cursor = i;
+        return acc;
+    }
+
+    /** The sliding mean/variance window the stillness phase relies on. */
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public void slidingWindow(Blackhole blackhole) {
+        float[] z = samples.z;
+        int i = cursor;
+        long t = timestampNanos;
+        for (int n = 0; n < BLOCK; n++) {
+            window.add(t, z[i]);
+            t += BenchmarkTraces.PERIOD_NANOS;
+            i = (i + 1) & (BenchmarkTraces.LENGTH - 1);
+        }
+        cursor = i;
+        timestampNanos = t;
+        blackhole.consume(window.variance());
+    }
+
+    /** Putting jittered delivery onto the fixed 50 Hz grid, ahead of everything else. */
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public float resample() {
+        int i = cursor;
+        long t = timestampNanos;
+        for (int n = 0; n < BLOCK; n++) {
+            t += BenchmarkTraces.PERIOD_NANOS;
+            resampler.onSample(t + jitterNanos[i], samples.x[i], samples.y[i], samples.z[i]);
+            i = (i + 1) & (BenchmarkTraces.LENGTH - 1);
+        }
+        cursor = i;
+        timestampNanos = t;
+        return sum.value;
+    }
+
+    /** Online bias and scale correction, including the fits still periods trigger. */
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public float calibrate() {
+        int i = cursor;
+        long t = timestampNanos;
+        for (int n = 0; n < BLOCK; n++) {
+            calibrator.onSample(t, samples.x[i], samples.y[i], samples.z[i]);
+            t += BenchmarkTraces.PERIOD_NANOS;
+            i = (i + 1) & (BenchmarkTraces.LENGTH - 1);
+        }
+        cursor = i;
+        timestampNanos = t;
+        return sum.value;
+    }
+
+    /** The feature windows the fall model and the inactivity monitor read, amortised per sample. */
+    @Benchmark
+    @OperationsPerInvocation(BLOCK)
+    public float extractFeatures() {
+        int i = cursor;
+        long t = timestampNanos;
+        for (int n = 0; n < BLOCK; n++) {
+            extractor.onSample(t, samples.x[i], samples.y[i], samples.z[i]);
+            t += BenchmarkTraces.PERIOD_NANOS;
+            i = (i + 1) & (BenchmarkTraces.LENGTH - 1);
+        }
+        cursor = i;
+        timestampNanos = t;
+        return sum.value;
+    }
+}
@@ -0,0 +1,442 @@
+package com.evercare.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Corrects per-axis offset and scale errors of the accelerometer, learned from the live stream,
+ * before the samples reach the detector.
+ *
+ * Cheap accelerometers read gravity as anything from about 9.3 to 10.3 m/s² and report a few
+ * tenths of a m/s² in free fall, which moves the detector's fixed thresholds. Each corrected
+ * sample is {@code (raw - bias) * scale} per axis. The estimate comes from the phone lying still:
+ * the stream is cut into blocks of {@code blockNanos}, and a block in which no axis varies by
+ * more than {@code maxStillStdDev} is a reading of gravity in one orientation. Still readings are
+ * averaged into one of 26 orientation buckets (the faces, edges and corners of a cube), so a phone
+ * that spends the night on its back does not outweigh the few minutes it spent on its side. After
+ * each still block the six parameters are refitted so that every bucket reads {@link #GRAVITY},
+ * by a few Gauss-Newton steps held towards no correction. The hold keeps axes that have not been
+ * seen in enough orientations close to uncorrected, and fits that land outside plausible limits
+ * are discarded.
+ *
+ * The per-sample cost is the correction and three running sums; fitting happens at most once per
+ * block. Allocates nothing after construction except in {@link #encode}. The estimate is
+ * persisted with {@link #encode} and {@link #restore}; the {@link Listener} says when it has
+ * moved enough to be worth saving. Like the detector, use it from a single thread.
+ *
+ * <pre>
+ * int magic 'ECAC', byte version, boolean calibrated, 3 x float bias, 3 x float scale,
+ * 26 x (int blocks, 3 x float mean), int crc32(everything before it)
+ * </pre>
+ */
+public final class AccelerometerCalibrator implements SampleSink {
+
+    /** Standard gravity, what a calibrated accelerometer reads at rest. */
+    public static final float GRAVITY = 9.80665f;
+
+    private static final int MAGIC = 0x43414345; // "ECAC" read as a little-endian int
+    private static final byte VERSION = 1;
+
+    private static final int BUCKETS = 27; // 3 x 3 x 3; the centre one is never used
+    private static final int CENTRE_BUCKET = 13;
+    /** Blocks averaged per bucket before older ones start to fade out, so slow drift is followed. */
+    private static final int MAX_BLOCKS_PER_BUCKET = 32;
+    private static final int MIN_BLOCK_SAMPLES = 10;
+    private static final int FIT_ITERATIONS = 3;
+    // Hold towards no correction, relative to a squared residual of 1 (m/s²)² per bucket
+    private static final double BIAS_HOLD = 0.002;
+    private static final double SCALE_HOLD = 0.2;
+    private static final float MAX_BIAS = 2.0f;
+    private static final float MIN_SCALE = 0.8f;
+    private static final float MAX_SCALE = 1.2f;
+    /** Change worth telling the listener about. */
+    private static final float REPORT_BIAS_CHANGE = 0.01f;
+    private static final float REPORT_SCALE_CHANGE = 0.001f;
+
+    public interface Listener {
+        /** The estimate moved noticeably or covers a new orientation; a good time to persist it. */
+        void onCalibrationChanged(AccelerometerCalibrator calibrator);
+    }
+
+    private final long blockNanos;
+    private final float maxStillVariance;
+    private final SampleSink downstream;
+    private final Listener listener;
+
+    private boolean calibrated = false;
+    private final float[] bias = new float[3];
+    private final float[] scale = {1f, 1f, 1f};
+    private final float[] reportedBias = new float[3];
+    private final float[] reportedScale = {1f, 1f, 1f};
+
+    // Current block, summed relative to its first sample to keep the variance exact
+    private long blockStartNanos;
+    private long previousNanos;
+    private int blockSamples = 0;
+    private float originX;
+    private float originY;
+    private float originZ;
+    private double sumX;
+    private double sumY;
+    private double sumZ;
+    private double sumSquaresX;
+    private double sumSquaresY;
+    private double sumSquaresZ;
+
+    private final int[] bucketBlocks = new int[BUCKETS];
+    private final float[] bucketMeans = new float[BUCKETS * 3];
+
+    // Fit scratch: 6 x 7 augmented normal equations
+    private final double[] normal = new double[6 * 7];
+    private final double[] parameters = new double[6];
+    private final double[] gradient = new double[6];
+    private final double[] jacobian = new double[6];
+
+    private long stillBlocks = 0;
+    private long fits = 0;
+    private long rejectedFits = 0;
+
+    public AccelerometerCalibrator(long blockNanos, float maxStillStdDev, SampleSink downstream, Listener listener) {
+        if (blockNanos <= 0) {
+            throw new IllegalArgumentException("block must be positive: " + blockNanos);
+        }
+        this.blockNanos = blockNanos;
+        this.maxStillVariance = maxStillStdDev * maxStillStdDev;
+        this.downstream = downstream;
+        this.listener = listener;
+    }
+
+    /** Calibrator with the block length and stillness limit from {@code config}. */
+    public AccelerometerCalibrator(FallDetectorConfig config, SampleSink downstream, Listener listener) {
+        this(config.calibrationBlockNanos, config.calibrationMaxStillStdDev, downstream, listener);
+    }
+
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        observe(timestampNanos, x, y, z);
+        downstream.onSample(timestampNanos,
+                (x - bias[0]) * scale[0], (y - bias[1]) * scale[1], (z - bias[2]) * scale[2]);
+    }
+
+    private void observe(long timestampNanos, float x, float y, float z) {
+        // A stall inside a block leaves too little to judge it by
+        if (blockSamples > 0 && timestampNanos - previousNanos > blockNanos / 4) {
+            blockSamples = 0;
+        }
+        previousNanos = timestampNanos;
+        if (blockSamples == 0) {
+            blockStartNanos = timestampNanos;
+            originX = x;
+            originY = y;
+            originZ = z;
+            sumX = sumY = sumZ = 0;
+            sumSquaresX = sumSquaresY = sumSquaresZ = 0;
+        }
+        double dx = x - originX;
+        double dy = y - originY;
+        double dz = z - originZ;
+        sumX += dx;
+        sumY += dy;
+        sumZ += dz;
+        sumSquaresX += dx * dx;
+        sumSquaresY += dy * dy;
+        sumSquaresZ += dz * dz;
+        blockSamples++;
+        if (timestampNanos - blockStartNanos >= blockNanos) {
+            endBlock();
+            blockSamples = 0;
+        }
+    }
+
+    private void endBlock() {
+        if (blockSamples < MIN_BLOCK_SAMPLES) {
+            return;
+        }
+        int n = blockSamples;
+        double meanX = sumX / n;
+        double meanY = sumY / n;
+        double meanZ = sumZ / n;
+        if (sumSquaresX / n - meanX * meanX > maxStillVariance
+                || sumSquaresY / n - meanY * meanY > maxStillVariance
+                || sumSquaresZ / n - meanZ * meanZ > maxStillVariance) {
+            return;
+        }
+        float gx = (float) (originX + meanX);
+        float gy = (float) (originY + meanY);
+        float gz = (float) (originZ + meanZ);
+        float magnitude = (float) Math.sqrt(gx * gx + gy * gy + gz * gz);
+        // Steady pushes (a car braking, a lift) are not gravity alone
+        if (magnitude < 0.7f * GRAVITY || magnitude > 1.3f * GRAVITY) {
+            return;
+        }
+        stillBlocks++;
+
+        int bucket = bucket(gx / magnitude) * 9 + bucket(gy / magnitude) * 3 + bucket(gz / magnitude);
+        boolean newOrientation = bucketBlocks[bucket] == 0;
+        int blocks = Math.min(bucketBlocks[bucket] + 1, MAX_BLOCKS_PER_BUCKET);
+        bucketBlocks[bucket] = blocks;
+        bucketMeans[bucket * 3] += (gx - bucketMeans[bucket * 3]) / blocks;
+        bucketMeans[bucket * 3 + 1] += (gy - bucketMeans[bucket * 3 + 1]) / blocks;
+        bucketMeans[bucket * 3 + 2] += (gz - bucketMeans[bucket * 3 + 2]) / blocks;
+
+        fit();
+        if (listener != null && calibrated && (newOrientation || movedSinceReport())) {
+            System.arraycopy(bias, 0, reportedBias, 0, 3);
+            System.arraycopy(scale, 0, reportedScale, 0, 3);
+            listener.onCalibrationChanged(this);
+        }
+    }
+
+    /** -1, 0 or 1 for one component of a unit vector; a component under 0.5 is treated as flat. */
+    private static int bucket(float component) {
+        return component > 0.5f ? 2 : component < -0.5f ? 0 : 1;
+    }
+
+    private boolean movedSinceReport() {
+        for (int i = 0; i < 3; i++) {
+            if (Math.abs(bias[i] - reportedBias[i]) > REPORT_BIAS_CHANGE
+                    || Math.abs(scale[i] - reportedScale[i]) > REPORT_SCALE_CHANGE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Minimises sum over buckets of (|(mean - bias) * scale| - g)², plus the hold towards
+     * bias 0 and scale 1, starting from the current estimate.
+     */
+    private void fit() {
+        for (int i = 0; i < 3; i++) {
+            parameters[i] = bias[i];
+            parameters[3 + i] = scale[i];
+        }
+        for (int iteration = 0; iteration < FIT_ITERATIONS; iteration++) {
+            Arrays.fill(normal, 0);
+            Arrays.fill(gradient, 0);
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (bucketBlocks[bucket] == 0 || bucket == CENTRE_BUCKET) {
+                    continue;
+                }
+                double cx = (bucketMeans[bucket * 3] - parameters[0]) * parameters[3];
+                double cy = (bucketMeans[bucket * 3 + 1] - parameters[1]) * parameters[4];
+                double cz = (bucketMeans[bucket * 3 + 2] - parameters[2]) * parameters[5];
+                double length = Math.sqrt(cx * cx + cy * cy + cz * cz);
+                double residual = length - GRAVITY;
+                // Row of the Jacobian: d residual / d bias, then d residual / d scale
+                jacobian[0] = -parameters[3] * cx / length;
+                jacobian[1] = -parameters[4] * cy / length;
+                jacobian[2] = -parameters[5] * cz / length;
+                jacobian[3] = (bucketMeans[bucket * 3] - parameters[0]) * cx / length;
+                jacobian[4] = (bucketMeans[bucket * 3 + 1] - parameters[1]) * cy / length;
+                jacobian[5] = (bucketMeans[bucket * 3 + 2] - parameters[2]) * cz / length;
+                for (int r = 0; r < 6; r++) {
+                    gradient[r] += jacobian[r] * residual;
+                    for (int c = 0; c < 6; c++) {
+                        normal[r * 7 + c] += jacobian[r] * jacobian[c];
+                    }
+                }
+            }
+            for (int i = 0; i < 6; i++) {
+                double hold = i < 3 ? BIAS_HOLD : SCALE_HOLD;
+                normal[i * 7 + i] += hold;
+                gradient[i] += hold * (parameters[i] - (i < 3 ? 0 : 1));
+            }
+            for (int i = 0; i < 6; i++) {
+                normal[i * 7 + 6] = -gradient[i];
+            }
+            if (!solve()) {
+                rejectedFits++;
+                return;
+            }
+            for (int i = 0; i < 6; i++) {
+                parameters[i] += normal[i * 7 + 6];
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            if (!(Math.abs(parameters[i]) <= MAX_BIAS)
+                    || !(parameters[3 + i] >= MIN_SCALE && parameters[3 + i] <= MAX_SCALE)) {
+                rejectedFits++;
+                return;
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            bias[i] = (float) parameters[i];
+            scale[i] = (float) parameters[3 + i];
+        }
+        calibrated = true;
+        fits++;
+    }
+
+    /** Gaussian elimination with partial pivoting; the solution ends up in column 6. */
+    private boolean solve() {
+        for (int col = 0; col < 6; col++) {
+            int pivot = col;
+            for (int r = col + 1; r < 6; r++) {
+                if (Math.abs(normal[r * 7 + col]) > Math.abs(normal[pivot * 7 + col])) {
+                    pivot = r;
+                }
+            }
+            if (Math.abs(normal[pivot * 7 + col]) < 1e-12) {
+                return false;
+            }
+            if (pivot != col) {
+                for (int c = 0; c < 7; c++) {
+                    double swap = normal[col * 7 + c];
+                    normal[col * 7 + c] = normal[pivot * 7 + c];
+                    normal[pivot * 7 + c] = swap;
+                }
+            }
+            for (int r = 0; r < 6; r++) {
+                if (r == col) {
+                    continue;
+                }
+                double factor = normal[r * 7 + col] / normal[col * 7 + col];
+                for (int c = col; c < 7; c++) {
+                    normal[r * 7 + c] -= factor * normal[col * 7 + c];
+                }
+            }
+        }
+        for (int r = 0; r < 6; r++) {
+            normal[r * 7 + 6] /= normal[r * 7 + r];
+        }
+        return true;
+    }
+
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeBoolean(calibrated);
+        for (int i = 0; i < 3; i++) {
+            out.writeFloat(bias[i]);
+        }
+        for (int i = 0; i < 3; i++) {
+            out.writeFloat(scale[i]);
+        }
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (bucket == CENTRE_BUCKET) {
+                continue;
+            }
+            out.writeInt(bucketBlocks[bucket]);
+            for (int i = 0; i < 3; i++) {
+                out.writeFloat(bucketMeans[bucket * 3 + i]);
+            }
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Replaces the estimate and the still readings with ones saved by {@link #encode}. */
+    public void restore(byte[] record) throws IOException {
+        if (record.length < 4) {
+            throw new IOException("Calibration record too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        in.skipBytes(record.length - 4);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new IOException("Calibration record checksum mismatch");
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(record, 0, record.length - 4));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a calibration record");
+        }
+        boolean restoredCalibrated = in.readBoolean();
+        float[] restoredBias = new float[3];
+        float[] restoredScale = new float[3];
+        for (int i = 0; i < 3; i++) {
+            restoredBias[i] = in.readFloat();
+        }
+        for (int i = 0; i < 3; i++) {
+            restoredScale[i] = in.readFloat();
+            if (!(Math.abs(restoredBias[i]) <= MAX_BIAS && restoredScale[i] >= MIN_SCALE
+                    && restoredScale[i] <= MAX_SCALE)) {
+                throw new IOException("Calibration out of range");
+            }
+        }
+        int[] blocks = new int[BUCKETS];
+        float[] means = new float[BUCKETS * 3];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            if (bucket == CENTRE_BUCKET) {
+                continue;
+            }
+            blocks[bucket] = in.readInt();
+            if (blocks[bucket] < 0 || blocks[bucket] > MAX_BLOCKS_PER_BUCKET) {
+                throw new IOException("Corrupt calibration record");
+            }
+            for (int i = 0; i < 3; i++) {
+                means[bucket * 3 + i] = in.readFloat();
+            }
+        }
+
+        calibrated = restoredCalibrated;
+        System.arraycopy(restoredBias, 0, bias, 0, 3);
+        System.arraycopy(restoredScale, 0, scale, 0, 3);
+        System.arraycopy(restoredBias, 0, reportedBias, 0, 3);
+        System.arraycopy(restoredScale, 0, reportedScale, 0, 3);
+        System.arraycopy(blocks, 0, bucketBlocks, 0, BUCKETS);
+        System.arraycopy(means, 0, bucketMeans, 0, means.length);
+        blockSamples = 0;
+    }
+
+    /** Whether a fit has been accepted; before that samples pass through unchanged. */
+    public boolean calibrated() {
+        return calibrated;
+    }
+
+    /** Offset subtracted from axis 0 (x), 1 (y) or 2 (z), in m/s². */
+    public float bias(int axis) {
+        return bias[axis];
+    }
+
+    /** Factor applied to axis 0 (x), 1 (y) or 2 (z) after the offset is removed. */
+    public float scale(int axis) {
+        return scale[axis];
+    }
+
+    /** Number of the 26 orientations with at least one still reading. */
+    public int orientations() {
+        int count = 0;
+        for (int blocks : bucketBlocks) {
+            if (blocks > 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long stillBlocks() {
+        return stillBlocks;
+    }
+
+    public long fits() {
+        return fits;
+    }
+
+    public long rejectedFits() {
+        return rejectedFits;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US,
+                "AccelerometerCalibrator{calibrated=%b, bias=[%.3f, %.3f, %.3f], scale=[%.4f, %.4f, %.4f], "
+                        + "orientations=%d, stillBlocks=%d, fits=%d, rejectedFits=%d}",
+                calibrated, bias[0], bias[1], bias[2], scale[0], scale[1], scale[2], orientations(), stillBlocks,
+                fits, rejectedFits);
+    }
+}
@@ -0,0 +1,63 @@
+package com.evercare.detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Someone who is told about a fall and called during the escalation.
+ *
+ * A caretaker list is stored as one {@link SettingsStore} value and passed between processes as
+ * one string: a line per caretaker, phone number and name separated by a tab, in the order they
+ * are called.
+ */
+public final class Caretaker {
+
+    public final String name;
+    public final String phone;
+
+    public Caretaker(String name, String phone) {
+        if (phone == null || phone.trim().isEmpty()) {
+            throw new IllegalArgumentException("a caretaker needs a phone number");
+        }
+        this.name = name != null ? name.trim() : "";
+        this.phone = phone.trim();
+    }
+
+    public static String encodeList(List<Caretaker> caretakers) {
+        StringBuilder out = new StringBuilder();
+        for (Caretaker caretaker : caretakers) {
+            if (out.length() > 0) {
+                out.append('\n');
+            }
+            out.append(clean(caretaker.phone)).append('\t').append(clean(caretaker.name));
+        }
+        return out.toString();
+    }
+
+    /** Parses {@link #encodeList} output; null or blank is an empty list, lines without a number are skipped. */
+    public static List<Caretaker> decodeList(String encoded) {
+        if (encoded == null || encoded.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Caretaker> caretakers = new ArrayList<>();
+        for (String line : encoded.split("\n")) {
+            int tab = line.indexOf('\t');
+            String phone = tab >= 0 ? line.substring(0, tab) : line;
+            if (phone.trim().isEmpty()) {
+                continue;
+            }
+            caretakers.add(new Caretaker(tab >= 0 ? line.substring(tab + 1) : "", phone));
+        }
+        return Collections.unmodifiableList(caretakers);
+    }
+
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public String toString() {
+        return name.isEmpty() ? phone : name + " (" + phone + ")";
+    }
+}
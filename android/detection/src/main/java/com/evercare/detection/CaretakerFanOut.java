@@ -0,0 +1,148 @@
+package com.evercare.detection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Tells every caretaker about a fall at once.
+ *
+ * Each recipient gets its own task on the executor, so one slow or unreachable recipient never
+ * holds up the others. A recipient whose send has not finished within {@code timeoutNanos} of
+ * the dispatch is reported as timed out and its task is interrupted. The executor needs a thread
+ * per recipient for the sends to overlap; a cached pool is the usual choice.
+ *
+ * How a message travels (SMS, push, a data message for a backend to route) is up to the
+ * {@link Sender}.
+ */
+public final class CaretakerFanOut {
+
+    public interface Sender {
+        /** Delivers {@code message} to {@code recipient}; blocks until done, throws if it failed. */
+        void send(Caretaker recipient, String incidentId, String message) throws Exception;
+    }
+
+    public enum Outcome {
+        DELIVERED,
+        FAILED,
+        TIMED_OUT
+    }
+
+    public static final class Delivery {
+        public final Caretaker recipient;
+        public final Outcome outcome;
+        /** From the dispatch to the send returning or failing; the timeout for a timed-out send. */
+        public final long latencyNanos;
+        /** Why the send failed, or null. */
+        public final String error;
+
+        Delivery(Caretaker recipient, Outcome outcome, long latencyNanos, String error) {
+            this.recipient = recipient;
+            this.outcome = outcome;
+            this.latencyNanos = latencyNanos;
+            this.error = error;
+        }
+
+        @Override
+        public String toString() {
+            return recipient + " " + outcome + " in " + latencyNanos / 1_000_000L + "ms"
+                    + (error != null ? " (" + error + ")" : "");
+        }
+    }
+
+    public static final class Report {
+        /** One per recipient, in the order they were given. */
+        public final List<Delivery> deliveries;
+        /** From the dispatch until every recipient had an outcome. */
+        public final long totalNanos;
+
+        Report(List<Delivery> deliveries, long totalNanos) {
+            this.deliveries = deliveries;
+            this.totalNanos = totalNanos;
+        }
+
+        public int count(Outcome outcome) {
+            int count = 0;
+            for (Delivery delivery : deliveries) {
+                if (delivery.outcome == outcome) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public String toString() {
+            return "FanOut{" + count(Outcome.DELIVERED) + "/" + deliveries.size() + " delivered in "
+                    + totalNanos / 1_000_000L + "ms, " + deliveries + "}";
+        }
+    }
+
+    private final Sender sender;
+    private final ExecutorService executor;
+    private final long timeoutNanos;
+
+    public CaretakerFanOut(Sender sender, ExecutorService executor, long timeoutNanos) {
+        if (timeoutNanos <= 0) {
+            throw new IllegalArgumentException("timeout must be positive: " + timeoutNanos);
+        }
+        this.sender = sender;
+        this.executor = executor;
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Sends {@code message} to every recipient concurrently and waits until each one has
+     * delivered, failed or timed out. Never takes much longer than the timeout.
+     */
+    public Report dispatch(List<Caretaker> recipients, final String incidentId, final String message)
+            throws InterruptedException {
+        final long startNanos = System.nanoTime();
+        List<Future<Delivery>> futures = new ArrayList<>(recipients.size());
+        for (final Caretaker recipient : recipients) {
+            futures.add(executor.submit(new Callable<Delivery>() {
+                @Override
+                public Delivery call() {
+                    try {
+                        sender.send(recipient, incidentId, message);
+                        return new Delivery(recipient, Outcome.DELIVERED, System.nanoTime() - startNanos, null);
+                    } catch (Exception e) {
+                        return new Delivery(recipient, Outcome.FAILED, System.nanoTime() - startNanos,
+                                String.valueOf(e.getMessage()));
+                    }
+                }
+            }));
+        }
+
+        // Every send started together, so they all share one deadline
+        long deadlineNanos = startNanos + timeoutNanos;
+        List<Delivery> deliveries = new ArrayList<>(recipients.size());
+        try {
+            for (int i = 0; i < futures.size(); i++) {
+                Future<Delivery> future = futures.get(i);
+                try {
+                    deliveries.add(future.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS));
+                } catch (TimeoutException e) {
+                    future.cancel(true);
+                    deliveries.add(new Delivery(recipients.get(i), Outcome.TIMED_OUT, timeoutNanos, null));
+                } catch (ExecutionException e) {
+                    // The task catches everything the sender throws, so this is an Error
+                    deliveries.add(new Delivery(recipients.get(i), Outcome.FAILED, System.nanoTime() - startNanos,
+                            String.valueOf(e.getCause())));
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Future<Delivery> future : futures) {
+                future.cancel(true);
+            }
+            throw e;
+        }
+        return new Report(Collections.unmodifiableList(deliveries), System.nanoTime() - startNanos);
+    }
+}
@@ -0,0 +1,123 @@
+package com.evercare.detection;
+
+/**
+ * Always-on counters and histograms for the sensor thread.
+ *
+ * Recording is allocation-free and costs a few arithmetic operations per sample. Like the
+ * detector, an instance is confined to the sensor thread: record and call {@link #snapshot}
+ * from that thread only, then hand the immutable {@link Snapshot} to whoever asked.
+ */
+public final class DetectionMetrics {
+
+    private static final long ONE_SECOND_NANOS = 1_000_000_000L;
+
+    private final long expectedPeriodNanos;
+
+    private final LatencyHistogram processingTime = new LatencyHistogram();
+    private final LatencyHistogram deliveryLatency = new LatencyHistogram();
+    private final LatencyHistogram sampleGap = new LatencyHistogram();
+    private final LatencyHistogram sampleJitter = new LatencyHistogram();
+
+    private long samples = 0;
+    private long droppedSamples = 0;
+    private long firstTimestampNanos = 0;
+    private long lastTimestampNanos = 0;
+    private long lastGapNanos = -1;
+
+    private long rateWindowStartNanos = 0;
+    private long rateWindowSamples = 0;
+    private long lastSecondSamples = 0;
+
+    /**
+     * @param expectedPeriodNanos sampling period the sensor was registered with; gaps longer than
+     *                            1.5 periods count the missing samples as dropped
+     */
+    public DetectionMetrics(long expectedPeriodNanos) {
+        this.expectedPeriodNanos = expectedPeriodNanos;
+    }
+
+    /** Records one sensor sample and how long the sensor thread spent on it. */
+    public void onSample(long timestampNanos, long processingNanos) {
+        processingTime.record(processingNanos);
+
+        if (samples == 0) {
+            firstTimestampNanos = timestampNanos;
+            rateWindowStartNanos = timestampNanos;
+        } else {
+            long gap = timestampNanos - lastTimestampNanos;
+            sampleGap.record(gap);
+            if (lastGapNanos >= 0) {
+                sampleJitter.record(Math.abs(gap - lastGapNanos));
+            }
+            lastGapNanos = gap;
+            if (gap * 2 > expectedPeriodNanos * 3) {
+                droppedSamples += (gap + expectedPeriodNanos / 2) / expectedPeriodNanos - 1;
+            }
+        }
+        lastTimestampNanos = timestampNanos;
+        samples++;
+
+        if (timestampNanos - rateWindowStartNanos >= ONE_SECOND_NANOS) {
+            lastSecondSamples = rateWindowSamples;
+            rateWindowSamples = 0;
+            rateWindowStartNanos = timestampNanos;
+        }
+        rateWindowSamples++;
+    }
+
+    /** Records how late a sample arrived, for real-time delivery only. */
+    public void onDelivery(long latencyNanos) {
+        deliveryLatency.record(latencyNanos);
+    }
+
+    public long samples() {
+        return samples;
+    }
+
+    /** Copies the current values. Allocates, so call it on demand rather than per sample. */
+    public Snapshot snapshot(FallDetector detector) {
+        return new Snapshot(this, detector);
+    }
+
+    /** Point-in-time copy of the metrics. */
+    public static final class Snapshot {
+        public final long samples;
+        public final long droppedSamples;
+        /** Samples in the most recent complete second of sensor time. */
+        public final long samplesLastSecond;
+        /** Average rate since the first sample. */
+        public final double samplesPerSecond;
+        public final LatencySummary processingTime;
+        public final LatencySummary deliveryLatency;
+        public final LatencySummary sampleGap;
+        public final LatencySummary sampleJitter;
+        public final long freeFallCandidates;
+        public final long confirmedFalls;
+
+        private Snapshot(DetectionMetrics metrics, FallDetector detector) {
+            samples = metrics.samples;
+            droppedSamples = metrics.droppedSamples;
+            samplesLastSecond = metrics.lastSecondSamples;
+            long span = metrics.lastTimestampNanos - metrics.firstTimestampNanos;
+            samplesPerSecond = span <= 0 ? 0 : (metrics.samples - 1) * (double) ONE_SECOND_NANOS / span;
+            processingTime = new LatencySummary(metrics.processingTime);
+            deliveryLatency = new LatencySummary(metrics.deliveryLatency);
+            sampleGap = new LatencySummary(metrics.sampleGap);
+            sampleJitter = new LatencySummary(metrics.sampleJitter);
+            freeFallCandidates = detector == null ? 0 : detector.freeFallCandidates();
+            confirmedFalls = detector == null ? 0 : detector.confirmedFalls();
+        }
+
+        @Override
+        public String toString() {
+            return "samples=" + samples + " dropped=" + droppedSamples
+                    + " rate=" + String.format(java.util.Locale.US, "%.1f", samplesPerSecond) + "/s"
+                    + " lastSecond=" + samplesLastSecond
+                    + " candidates=" + freeFallCandidates + " falls=" + confirmedFalls
+                    + "\n  processing: " + processingTime
+                    + "\n  delivery:   " + deliveryLatency
+                    + "\n  gap:        " + sampleGap
+                    + "\n  jitter:     " + sampleJitter;
+        }
+    }
+}
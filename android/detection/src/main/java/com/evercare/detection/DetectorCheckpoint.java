@@ -0,0 +1,168 @@
+package com.evercare.detection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.zip.CRC32;
+
+/**
+ * Checkpoint of a {@link FallDetector} kept in a memory-mapped buffer, so a detection process
+ * that is killed and restarted carries on with the candidate it was evaluating and keeps its
+ * counters.
+ *
+ * Writing to the mapping costs a memory copy, with no write call or fsync per change. It still
+ * survives the process dying, because the kernel keeps the dirty pages. It is not meant to
+ * survive a reboot, since sensor timestamps start over then anyway.
+ *
+ * State is written to two slots in turn. A slot's generation is cleared before its state is
+ * rewritten and set again last, so a process killed mid-write leaves the other slot to restore
+ * from. A heartbeat holding the latest sample timestamp is updated on every sample, which lets
+ * the next process measure how long detection was down.
+ *
+ * <pre>
+ * header  int magic 'ECDC', int version, int slotStateBytes, int padding, long heartbeatNanos
+ * slot    long generation, int length, int crc32(state), state
+ * </pre>
+ */
+public final class DetectorCheckpoint {
+
+    private static final int MAGIC = 0x43444345; // "ECDC" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int HEARTBEAT_OFFSET = 16;
+    private static final int HEADER_BYTES = 24;
+    private static final int SLOT_HEADER_BYTES = 16;
+
+    private final ByteBuffer buffer;
+    private final FallDetector detector;
+    private final int slotStateBytes;
+    private final byte[] scratch;
+    private final CRC32 crc = new CRC32();
+    private final long previousHeartbeatNanos;
+    private long generation;
+
+    private DetectorCheckpoint(ByteBuffer buffer, FallDetector detector, int slotStateBytes,
+                               long previousHeartbeatNanos) {
+        this.buffer = buffer;
+        this.detector = detector;
+        this.slotStateBytes = slotStateBytes;
+        this.scratch = new byte[slotStateBytes];
+        this.previousHeartbeatNanos = previousHeartbeatNanos;
+        this.generation = Math.max(slotGeneration(0), slotGeneration(1));
+    }
+
+    /** Size of the buffer needed to checkpoint {@code detector}. */
+    public static int bytesFor(FallDetector detector) {
+        return HEADER_BYTES + 2 * (SLOT_HEADER_BYTES + detector.maxStateBytes());
+    }
+
+    /**
+     * Attaches to the checkpoint in {@code buffer}, formatting it if it holds none or was written
+     * for a detector with a different state size. Nothing is restored until {@link #restore}.
+     */
+    public static DetectorCheckpoint attach(ByteBuffer buffer, FallDetector detector) {
+        ByteBuffer checkpoint = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int slotStateBytes = detector.maxStateBytes();
+        if (checkpoint.capacity() < bytesFor(detector)) {
+            throw new IllegalArgumentException("buffer of " + checkpoint.capacity() + " bytes cannot hold "
+                    + bytesFor(detector) + " bytes of checkpoint");
+        }
+        long previousHeartbeat = Long.MIN_VALUE;
+        if (checkpoint.getInt(0) == MAGIC && checkpoint.getInt(4) == VERSION && checkpoint.getInt(8) == slotStateBytes) {
+            previousHeartbeat = checkpoint.getLong(HEARTBEAT_OFFSET);
+        } else {
+            checkpoint.putLong(HEARTBEAT_OFFSET, Long.MIN_VALUE);
+            checkpoint.putLong(slotOffset(0, slotStateBytes), 0);
+            checkpoint.putLong(slotOffset(1, slotStateBytes), 0);
+            checkpoint.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, slotStateBytes).putInt(12, 0);
+        }
+        return new DetectorCheckpoint(checkpoint, detector, slotStateBytes, previousHeartbeat);
+    }
+
+    /**
+     * Timestamp of the last sample the previous process saw, or {@code Long.MIN_VALUE} if there
+     * was no checkpoint.
+     */
+    public long previousHeartbeatNanos() {
+        return previousHeartbeatNanos;
+    }
+
+    /**
+     * Loads the newest intact slot into the detector. Returns false, leaving the detector as it
+     * was, if there is none.
+     */
+    public boolean restore() {
+        int newest = -1;
+        long newestGeneration = 0;
+        for (int slot = 0; slot < 2; slot++) {
+            long slotGeneration = slotGeneration(slot);
+            if (slotGeneration > newestGeneration && readSlot(slot) >= 0) {
+                newest = slot;
+                newestGeneration = slotGeneration;
+            }
+        }
+        if (newest < 0) {
+            return false;
+        }
+        int length = readSlot(newest);
+        try {
+            detector.readState(ByteBuffer.wrap(scratch, 0, length).order(ByteOrder.LITTLE_ENDIAN));
+        } catch (RuntimeException e) {
+            // Checksummed but unreadable, e.g. written by an incompatible build
+            detector.reset();
+            return false;
+        }
+        return true;
+    }
+
+    /** Records the latest sample timestamp. Cheap enough to call for every sample. */
+    public void heartbeat(long timestampNanos) {
+        buffer.putLong(HEARTBEAT_OFFSET, timestampNanos);
+    }
+
+    /** Writes the detector's current state over the older slot. */
+    public void save() {
+        ByteBuffer state = ByteBuffer.wrap(scratch).order(ByteOrder.LITTLE_ENDIAN);
+        detector.writeState(state);
+        int length = state.position();
+        crc.reset();
+        crc.update(scratch, 0, length);
+
+        long next = generation + 1;
+        int offset = slotOffset((int) (next & 1), slotStateBytes);
+        buffer.putLong(offset, 0);
+        buffer.putInt(offset + 8, length);
+        buffer.putInt(offset + 12, (int) crc.getValue());
+        for (int i = 0; i < length; i++) {
+            buffer.put(offset + SLOT_HEADER_BYTES + i, scratch[i]);
+        }
+        buffer.putLong(offset, next);
+        generation = next;
+    }
+
+    /** Number of saves so far, across processes. */
+    public long generation() {
+        return generation;
+    }
+
+    private long slotGeneration(int slot) {
+        return buffer.getLong(slotOffset(slot, slotStateBytes));
+    }
+
+    /** Copies the slot's state into {@link #scratch}; returns its length, or -1 if it is torn. */
+    private int readSlot(int slot) {
+        int offset = slotOffset(slot, slotStateBytes);
+        int length = buffer.getInt(offset + 8);
+        if (length <= 0 || length > slotStateBytes) {
+            return -1;
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(offset + SLOT_HEADER_BYTES + i);
+        }
+        crc.reset();
+        crc.update(scratch, 0, length);
+        return (int) crc.getValue() == buffer.getInt(offset + 12) ? length : -1;
+    }
+
+    private static int slotOffset(int slot, int slotStateBytes) {
+        return HEADER_BYTES + slot * (SLOT_HEADER_BYTES + slotStateBytes);
+    }
+}
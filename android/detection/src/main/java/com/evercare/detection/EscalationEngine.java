@@ -0,0 +1,331 @@
+package com.evercare.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * Runs an escalation ladder after a fall: call the first caretaker, then the next, then
+ * emergency services, each step after its own delay, until someone acknowledges.
+ *
+ * The engine keeps no timers of its own. It persists its state through a {@link Store} on every
+ * change and asks an {@link AlarmScheduler} to wake it at the next step's due time. A process
+ * that dies mid-escalation therefore picks up where it left off: the alarm starts it again and
+ * {@link #restore} reloads the state. Each alarm fires at most one step. The next step's delay
+ * counts from when the previous one actually fired, so a late wake-up never triggers two calls
+ * at once. Acknowledge and cancel only change the state, cancel the alarm and write a record of
+ * fixed size.
+ *
+ * Times come from a {@link Clock} in wall-clock milliseconds, so a state saved before a reboot
+ * is still meaningful after it. Not thread-safe; use it from one thread.
+ *
+ * <pre>
+ * int magic 'ECES', byte version, UTF incidentId, byte status, int nextStep,
+ * long startedMillis, long nextDueMillis, int stepCount, stepCount x (UTF label, UTF target,
+ * long delayMillis), int crc32(everything before it)
+ * </pre>
+ */
+public final class EscalationEngine {
+
+    private static final int MAGIC = 0x53454345; // "ECES" read as a little-endian int
+    private static final byte VERSION = 1;
+
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    /** Wakes the engine by calling {@link #onAlarm}, even if the process has to be started for it. */
+    public interface AlarmScheduler {
+        /** Replaces any alarm set before. */
+        void schedule(long atMillis);
+
+        void cancel();
+    }
+
+    /** Persistent storage for one escalation record. */
+    public interface Store {
+        /** The last record saved, or null if there is none. */
+        byte[] load() throws IOException;
+
+        void save(byte[] record) throws IOException;
+    }
+
+    public interface Listener {
+        /** A step is due; {@code index} counts from 0. */
+        void onStep(Escalation escalation, Step step, int index);
+
+        /** The escalation stopped: every step ran, or it was acknowledged or cancelled. */
+        void onFinished(Escalation escalation);
+    }
+
+    public enum Status {
+        ACTIVE,
+        ACKNOWLEDGED,
+        CANCELLED,
+        COMPLETED
+    }
+
+    public static final class Step {
+        /** Who this step reaches, e.g. "caretaker" or "emergency services". */
+        public final String label;
+        /** What to call. */
+        public final String target;
+        /** Wait after the previous step fired, or after the start for the first step. */
+        public final long delayMillis;
+
+        public Step(String label, String target, long delayMillis) {
+            if (delayMillis < 0) {
+                throw new IllegalArgumentException("delay must not be negative: " + delayMillis);
+            }
+            this.label = label;
+            this.target = target;
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public String toString() {
+            return label + " (" + target + ") after " + delayMillis + "ms";
+        }
+    }
+
+    public static final class Escalation {
+        public final String incidentId;
+        public final List<Step> steps;
+        public final long startedMillis;
+        private Status status;
+        private int nextStep;
+        private long nextDueMillis;
+
+        Escalation(String incidentId, List<Step> steps, long startedMillis, Status status, int nextStep,
+                   long nextDueMillis) {
+            this.incidentId = incidentId;
+            this.steps = steps;
+            this.startedMillis = startedMillis;
+            this.status = status;
+            this.nextStep = nextStep;
+            this.nextDueMillis = nextDueMillis;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        /** Index of the step that fires next; equals {@code steps.size()} once all have fired. */
+        public int nextStep() {
+            return nextStep;
+        }
+
+        /** When the next step is due; meaningless unless {@link #status} is ACTIVE. */
+        public long nextDueMillis() {
+            return nextDueMillis;
+        }
+
+        @Override
+        public String toString() {
+            return "Escalation{incident=" + incidentId + ", status=" + status + ", nextStep=" + nextStep
+                    + "/" + steps.size() + ", nextDueMillis=" + nextDueMillis + "}";
+        }
+    }
+
+    private final Clock clock;
+    private final AlarmScheduler alarms;
+    private final Store store;
+    private final Listener listener;
+    private Escalation current;
+
+    public EscalationEngine(Clock clock, AlarmScheduler alarms, Store store, Listener listener) {
+        this.clock = clock;
+        this.alarms = alarms;
+        this.store = store;
+        this.listener = listener;
+    }
+
+    /**
+     * Reloads the persisted escalation after a process start. An active one is re-armed; a step
+     * that fell due while the process was dead fires now. Returns the escalation, or null.
+     */
+    public Escalation restore() throws IOException {
+        byte[] record = store.load();
+        current = record != null ? decode(record) : null;
+        if (current != null && current.status == Status.ACTIVE) {
+            if (clock.currentTimeMillis() >= current.nextDueMillis) {
+                onAlarm();
+            } else {
+                alarms.schedule(current.nextDueMillis);
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Starts a ladder for {@code incidentId}. Does nothing and returns false while another
+     * escalation is active; that one is further along and keeps running.
+     */
+    public boolean start(String incidentId, List<Step> steps) throws IOException {
+        if (steps.isEmpty()) {
+            throw new IllegalArgumentException("an escalation needs at least one step");
+        }
+        if (isActive()) {
+            return false;
+        }
+        long now = clock.currentTimeMillis();
+        current = new Escalation(incidentId, Collections.unmodifiableList(new ArrayList<>(steps)), now,
+                Status.ACTIVE, 0, now + steps.get(0).delayMillis);
+        persist();
+        alarms.schedule(current.nextDueMillis);
+        return true;
+    }
+
+    /** Someone responded; no further steps run. */
+    public void acknowledge() throws IOException {
+        finish(Status.ACKNOWLEDGED);
+    }
+
+    /** Called off, e.g. the user is fine; no further steps run. */
+    public void cancel() throws IOException {
+        finish(Status.CANCELLED);
+    }
+
+    /** The situation got worse (e.g. no movement since the fall): the next step fires now. */
+    public void expedite() throws IOException {
+        if (!isActive()) {
+            return;
+        }
+        current.nextDueMillis = Math.min(current.nextDueMillis, clock.currentTimeMillis());
+        onAlarm();
+    }
+
+    /**
+     * The situation eased (e.g. the person got up): the next step waits at least
+     * {@code delayMillis} from now. Never brings a step forward.
+     */
+    public void defer(long delayMillis) throws IOException {
+        if (!isActive()) {
+            return;
+        }
+        long due = clock.currentTimeMillis() + delayMillis;
+        if (due <= current.nextDueMillis) {
+            return;
+        }
+        current.nextDueMillis = due;
+        persist();
+        alarms.schedule(due);
+    }
+
+    /** Fires the next step if it is due and arms the alarm for the one after. */
+    public void onAlarm() throws IOException {
+        if (!isActive()) {
+            return;
+        }
+        long now = clock.currentTimeMillis();
+        if (now < current.nextDueMillis) {
+            // Early or stale wake-up
+            alarms.schedule(current.nextDueMillis);
+            return;
+        }
+        int index = current.nextStep;
+        Step step = current.steps.get(index);
+        current.nextStep = index + 1;
+        boolean last = current.nextStep == current.steps.size();
+        if (last) {
+            current.status = Status.COMPLETED;
+        } else {
+            current.nextDueMillis = now + current.steps.get(current.nextStep).delayMillis;
+        }
+        // Persisted before the step runs, so a crash while calling never repeats the call
+        persist();
+        if (!last) {
+            alarms.schedule(current.nextDueMillis);
+        }
+        listener.onStep(current, step, index);
+        if (last) {
+            listener.onFinished(current);
+        }
+    }
+
+    public boolean isActive() {
+        return current != null && current.status == Status.ACTIVE;
+    }
+
+    /** The current or most recent escalation, or null. */
+    public Escalation current() {
+        return current;
+    }
+
+    private void finish(Status status) throws IOException {
+        if (!isActive()) {
+            return;
+        }
+        current.status = status;
+        alarms.cancel();
+        persist();
+        listener.onFinished(current);
+    }
+
+    private void persist() throws IOException {
+        store.save(encode(current));
+    }
+
+    static byte[] encode(Escalation escalation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeUTF(escalation.incidentId);
+        out.writeByte(escalation.status.ordinal());
+        out.writeInt(escalation.nextStep);
+        out.writeLong(escalation.startedMillis);
+        out.writeLong(escalation.nextDueMillis);
+        out.writeInt(escalation.steps.size());
+        for (Step step : escalation.steps) {
+            out.writeUTF(step.label);
+            out.writeUTF(step.target);
+            out.writeLong(step.delayMillis);
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    static Escalation decode(byte[] record) throws IOException {
+        if (record.length < 4) {
+            throw new IOException("Escalation record too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        in.skipBytes(record.length - 4);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new IOException("Escalation record checksum mismatch");
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(record, 0, record.length - 4));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not an escalation record");
+        }
+        String incidentId = in.readUTF();
+        int status = in.readByte();
+        int nextStep = in.readInt();
+        long startedMillis = in.readLong();
+        long nextDueMillis = in.readLong();
+        int count = in.readInt();
+        if (status < 0 || status >= Status.values().length || count <= 0 || nextStep < 0 || nextStep > count) {
+            throw new IOException("Corrupt escalation record");
+        }
+        List<Step> steps = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            steps.add(new Step(in.readUTF(), in.readUTF(), in.readLong()));
+        }
+        return new Escalation(incidentId, Collections.unmodifiableList(steps), startedMillis,
+                Status.values()[status], nextStep, nextDueMillis);
+    }
+}
@@ -0,0 +1,56 @@
+package com.evercare.detection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The ladders the service hands to the {@link EscalationEngine}.
+ *
+ * A fall calls each caretaker in turn and ends with emergency services. A check-in after
+ * prolonged stillness only ever calls caretakers: the {@link InactivityMonitor} cannot tell a
+ * still person from a phone left on a table, so stillness alone never dials emergency services.
+ * Check-in incidents carry {@link #CHECK_IN_PREFIX}, so a fall during one can tell it apart from a
+ * fall escalation even after a restart.
+ */
+public final class EscalationLadders {
+
+    /** Start of the incident id of every check-in escalation. */
+    public static final String CHECK_IN_PREFIX = "check-in-";
+
+    private EscalationLadders() {
+    }
+
+    /**
+     * Each caretaker in turn, then emergency services; or emergency services alone without
+     * caretakers. The first call waits {@code firstDelayMillis} from the start.
+     */
+    public static List<EscalationEngine.Step> fall(List<Caretaker> caretakers, long firstDelayMillis,
+                                                   long nextCaretakerDelayMillis, String emergencyNumber,
+                                                   long emergencyDelayMillis) {
+        List<EscalationEngine.Step> steps = caretakerSteps(caretakers, firstDelayMillis, nextCaretakerDelayMillis);
+        steps.add(new EscalationEngine.Step("emergency services", emergencyNumber,
+                caretakers.isEmpty() ? firstDelayMillis : emergencyDelayMillis));
+        return steps;
+    }
+
+    /** Each caretaker in turn and nothing after; empty without caretakers. */
+    public static List<EscalationEngine.Step> checkIn(List<Caretaker> caretakers, long firstDelayMillis,
+                                                      long nextCaretakerDelayMillis) {
+        return caretakerSteps(caretakers, firstDelayMillis, nextCaretakerDelayMillis);
+    }
+
+    public static boolean isCheckIn(String incidentId) {
+        return incidentId.startsWith(CHECK_IN_PREFIX);
+    }
+
+    private static List<EscalationEngine.Step> caretakerSteps(List<Caretaker> caretakers, long firstDelayMillis,
+                                                              long nextCaretakerDelayMillis) {
+        List<EscalationEngine.Step> steps = new ArrayList<>(caretakers.size() + 1);
+        for (int i = 0; i < caretakers.size(); i++) {
+            Caretaker caretaker = caretakers.get(i);
+            steps.add(new EscalationEngine.Step("caretaker " + caretaker, caretaker.phone,
+                    i == 0 ? firstDelayMillis : nextCaretakerDelayMillis));
+        }
+        return steps;
+    }
+}
@@ -0,0 +1,170 @@
+package com.evercare.detection;
+
+import java.io.Closeable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Typed in-process event bus with a bounded replay ring.
+ *
+ * Every published event gets the next sequence number (starting at 1) and is stored in a ring
+ * of the last {@code capacity} events. Publishing is lock-free: one atomic increment, one slot
+ * write, and a wake-up for each subscriber that isn't already scheduled. Publishers never run
+ * subscriber code.
+ *
+ * Each subscription has its own cursor and is drained on the executor it was registered with.
+ * A sequence number is claimed by compare-and-set before delivery, so each subscriber sees each
+ * event at most once. A subscriber that falls more than {@code capacity} events behind skips the
+ * overwritten ones and they are counted in {@link Subscription#missedEvents()}. New subscribers
+ * can ask for the most recent events to be replayed. Use a serial executor (a Handler or a
+ * single thread) if delivery order matters.
+ */
+public final class EventBus<E> {
+
+    public interface Subscriber<E> {
+        void onEvent(long sequence, E event);
+    }
+
+    private static final class Slot<E> {
+        final long sequence;
+        final E event;
+
+        Slot(long sequence, E event) {
+            this.sequence = sequence;
+            this.event = event;
+        }
+    }
+
+    private final int capacity;
+    private final int mask;
+    private final AtomicReferenceArray<Slot<E>> ring;
+    private final AtomicLong published = new AtomicLong(0);
+    private final CopyOnWriteArrayList<Subscription<E>> subscriptions = new CopyOnWriteArrayList<>();
+
+    public EventBus(int minCapacity) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + minCapacity);
+        }
+        int size = Integer.highestOneBit(minCapacity);
+        if (size < minCapacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.ring = new AtomicReferenceArray<>(size);
+    }
+
+    /** Publishes an event and returns its sequence number. Safe to call from any thread. */
+    public long publish(E event) {
+        long sequence = published.incrementAndGet();
+        ring.set((int) (sequence & mask), new Slot<>(sequence, event));
+        for (Subscription<E> subscription : subscriptions) {
+            subscription.signal();
+        }
+        return sequence;
+    }
+
+    /**
+     * Registers a subscriber. The last {@code replay} events still in the ring are delivered
+     * first, then everything published afterwards.
+     */
+    public Subscription<E> subscribe(Subscriber<E> subscriber, Executor executor, int replay) {
+        long latest = published.get();
+        long start = Math.max(0, latest - Math.min(Math.max(replay, 0), capacity));
+        Subscription<E> subscription = new Subscription<>(this, subscriber, executor, start);
+        subscriptions.add(subscription);
+        subscription.signal();
+        return subscription;
+    }
+
+    /** Sequence number of the latest published event, or 0 if nothing has been published. */
+    public long lastSequence() {
+        return published.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    /** A registered subscriber. Closing it stops delivery. */
+    public static final class Subscription<E> implements Closeable {
+
+        private final EventBus<E> bus;
+        private final Subscriber<E> subscriber;
+        private final Executor executor;
+        private final AtomicLong cursor;
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+        private final AtomicLong missed = new AtomicLong(0);
+        private volatile boolean closed = false;
+
+        private final Runnable drainTask = new Runnable() {
+            @Override
+            public void run() {
+                drain();
+            }
+        };
+
+        Subscription(EventBus<E> bus, Subscriber<E> subscriber, Executor executor, long startAfter) {
+            this.bus = bus;
+            this.subscriber = subscriber;
+            this.executor = executor;
+            this.cursor = new AtomicLong(startAfter);
+        }
+
+        /** Sequence number of the last event handed to this subscriber. */
+        public long lastDelivered() {
+            return cursor.get();
+        }
+
+        /** Events overwritten before this subscriber got to them. */
+        public long missedEvents() {
+            return missed.get();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            bus.subscriptions.remove(this);
+        }
+
+        void signal() {
+            if (!closed && scheduled.compareAndSet(false, true)) {
+                executor.execute(drainTask);
+            }
+        }
+
+        private void drain() {
+            // Cleared first: a publish that lands while we drain schedules another pass
+            scheduled.set(false);
+            while (!closed) {
+                long current = cursor.get();
+                long next = current + 1;
+                if (next > bus.published.get()) {
+                    return;
+                }
+                Slot<E> slot = bus.ring.get((int) (next & bus.mask));
+                if (slot == null || slot.sequence < next) {
+                    // Sequence claimed but not written yet; its publisher will signal again
+                    return;
+                }
+                if (slot.sequence > next) {
+                    long oldest = Math.max(next, bus.published.get() - bus.capacity + 1);
+                    if (cursor.compareAndSet(current, oldest - 1)) {
+                        missed.addAndGet(oldest - next);
+                    }
+                    continue;
+                }
+                if (cursor.compareAndSet(current, next)) {
+                    subscriber.onEvent(next, slot.event);
+                }
+            }
+        }
+    }
+}
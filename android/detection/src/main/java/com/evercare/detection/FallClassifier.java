@@ -0,0 +1,98 @@
+package com.evercare.detection;
+
+/**
+ * Scores every feature window with a {@link FallModel} and decides whether a fall confirmed by
+ * the {@link FallDetector} looks like one to the model.
+ *
+ * The threshold detector stays the trigger: it is cheap and catches the free fall, impact and
+ * stillness sequence. The model then has the final say. It looks at the windows around the free
+ * fall and impact and confirms the fall if any of them scores at or above the model's threshold.
+ * Scores are kept for the last {@code historyWindows} windows, which must reach back past the
+ * detector's confirmation delay. A fall with no scored window around it (the extractor had just
+ * started) is confirmed, so a missing model input never hides a fall.
+ *
+ * Allocates nothing after construction. Use it on the sensor thread, like the extractor.
+ */
+public final class FallClassifier implements WindowFeatureExtractor.Listener {
+
+    private final FallModel model;
+    private final float[] features = new float[WindowFeatures.COUNT];
+    private final long[] windowStarts;
+    private final long[] windowEnds;
+    private final float[] probabilities;
+    private int next;
+    private int size;
+    private long windowsScored;
+    private long confirmed;
+    private long rejected;
+
+    public FallClassifier(FallModel model, int historyWindows) {
+        if (model.featureCount() != WindowFeatures.COUNT) {
+            throw new IllegalArgumentException("model reads " + model.featureCount() + " features, windows have "
+                    + WindowFeatures.COUNT);
+        }
+        if (historyWindows <= 0) {
+            throw new IllegalArgumentException("history must hold at least one window: " + historyWindows);
+        }
+        this.model = model;
+        this.windowStarts = new long[historyWindows];
+        this.windowEnds = new long[historyWindows];
+        this.probabilities = new float[historyWindows];
+    }
+
+    @Override
+    public void onWindow(WindowFeatures window) {
+        window.copyTo(features);
+        windowStarts[next] = window.startNanos();
+        windowEnds[next] = window.endNanos();
+        probabilities[next] = model.probability(features, 0);
+        next = (next + 1) % probabilities.length;
+        size = Math.min(size + 1, probabilities.length);
+        windowsScored++;
+    }
+
+    /** Highest probability of a window overlapping [fromNanos, toNanos], or NaN if none does. */
+    public float maxProbability(long fromNanos, long toNanos) {
+        float max = Float.NaN;
+        for (int i = 0; i < size; i++) {
+            if (windowEnds[i] >= fromNanos && windowStarts[i] <= toNanos
+                    && (Float.isNaN(max) || probabilities[i] > max)) {
+                max = probabilities[i];
+            }
+        }
+        return max;
+    }
+
+    /** Whether the model agrees {@code event} is a fall, judged on the windows from onset to impact. */
+    public boolean confirms(FallEvent event) {
+        float probability = maxProbability(event.onsetNanos, event.impactNanos);
+        boolean fall = Float.isNaN(probability) || probability >= model.threshold();
+        if (fall) {
+            confirmed++;
+        } else {
+            rejected++;
+        }
+        return fall;
+    }
+
+    /** Probability of the most recent window, or NaN before the first one. */
+    public float lastProbability() {
+        return size == 0 ? Float.NaN : probabilities[(next + probabilities.length - 1) % probabilities.length];
+    }
+
+    public FallModel model() {
+        return model;
+    }
+
+    public long windowsScored() {
+        return windowsScored;
+    }
+
+    public long confirmedFalls() {
+        return confirmed;
+    }
+
+    public long rejectedFalls() {
+        return rejected;
+    }
+}
@@ -0,0 +1,251 @@
+package com.evercare.detection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Multi-phase fall detector driven by raw accelerometer samples.
+ *
+ * A fall is only reported once three phases have been confirmed in order:
+ * <ol>
+ *   <li>free fall: the magnitude stays under {@code freeFallThreshold} for at least
+ *       {@code freeFallMinDurationNanos};</li>
+ *   <li>impact: within {@code impactWindowNanos} of the free fall ending the magnitude reaches
+ *       {@code impactThreshold}; the peak is tracked for {@code settleNanos} afterwards;</li>
+ *   <li>stillness: a full {@code stillnessWindowNanos} window after settling has a magnitude
+ *       variance of at most {@code stillnessMaxVariance}, found within
+ *       {@code stillnessTimeoutNanos} of the impact.</li>
+ * </ol>
+ * A candidate that misses a phase is dropped and the detector goes back to idle. A phone
+ * dropped onto a sofa, for example, never produces the impact peak.
+ *
+ * The detector is single-threaded: {@link #onSample} must always be called from the same
+ * thread, and listener callbacks run synchronously on that thread. Each sample costs O(1) and
+ * allocates nothing; only a confirmed fall allocates its {@link FallEvent}.
+ */
+public final class FallDetector implements SampleSink {
+
+    private static final int STATE_HEADER_BYTES = 1 + 8 * 6 + 4 * 2;
+
+    public interface Listener {
+        void onFallDetected(FallEvent event);
+    }
+
+    public enum Phase {
+        IDLE,
+        FREE_FALL,
+        AWAIT_IMPACT,
+        SETTLING,
+        AWAIT_STILLNESS
+    }
+
+    private final float freeFallThreshold;
+    private final long freeFallMinDurationNanos;
+    private final float impactThreshold;
+    private final long impactWindowNanos;
+    private final long settleNanos;
+    private final long stillnessWindowNanos;
+    private final float stillnessMaxVariance;
+    private final long stillnessTimeoutNanos;
+    private final long maxSampleGapNanos;
+    private final SlidingWindowStats stillness;
+    private final Listener listener;
+
+    private Phase phase = Phase.IDLE;
+    private long freeFallStartNanos = 0;
+    private long freeFallEndNanos = 0;
+    private float freeFallMinMagnitude = Float.MAX_VALUE;
+    private long impactNanos = 0;
+    private float impactPeakMagnitude = 0;
+    private long lastSampleNanos = Long.MIN_VALUE;
+
+    // Lifetime counters for diagnostics
+    private long freeFallCandidates = 0;
+    private long confirmedFalls = 0;
+
+    public FallDetector(FallDetectorConfig config, Listener listener) {
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.freeFallThreshold = config.freeFallThreshold;
+        this.freeFallMinDurationNanos = config.freeFallMinDurationNanos;
+        this.impactThreshold = config.impactThreshold;
+        this.impactWindowNanos = config.impactWindowNanos;
+        this.settleNanos = config.settleNanos;
+        this.stillnessWindowNanos = config.stillnessWindowNanos;
+        this.stillnessMaxVariance = config.stillnessMaxVariance;
+        this.stillnessTimeoutNanos = config.stillnessTimeoutNanos;
+        this.maxSampleGapNanos = config.maxSampleGapNanos;
+        this.stillness = new SlidingWindowStats(config.stillnessWindowNanos, config.windowCapacity);
+        this.listener = listener;
+    }
+
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        if (phase != Phase.IDLE && timestampNanos - lastSampleNanos > maxSampleGapNanos) {
+            phase = Phase.IDLE;
+        }
+        lastSampleNanos = timestampNanos;
+        stillness.add(timestampNanos, magnitude);
+
+        switch (phase) {
+            case IDLE:
+                if (magnitude < freeFallThreshold) {
+                    phase = Phase.FREE_FALL;
+                    freeFallStartNanos = timestampNanos;
+                    freeFallMinMagnitude = magnitude;
+                }
+                break;
+
+            case FREE_FALL:
+                if (magnitude < freeFallThreshold) {
+                    if (magnitude < freeFallMinMagnitude) {
+                        freeFallMinMagnitude = magnitude;
+                    }
+                    break;
+                }
+                if (timestampNanos - freeFallStartNanos < freeFallMinDurationNanos) {
+                    phase = Phase.IDLE;
+                    break;
+                }
+                phase = Phase.AWAIT_IMPACT;
+                freeFallEndNanos = timestampNanos;
+                freeFallCandidates++;
+                // The sample that ends free fall is often the impact itself
+                checkImpact(timestampNanos, magnitude);
+                break;
+
+            case AWAIT_IMPACT:
+                checkImpact(timestampNanos, magnitude);
+                break;
+
+            case SETTLING:
+                if (magnitude > impactPeakMagnitude) {
+                    impactPeakMagnitude = magnitude;
+                }
+                if (timestampNanos - impactNanos >= settleNanos) {
+                    phase = Phase.AWAIT_STILLNESS;
+                }
+                break;
+
+            case AWAIT_STILLNESS:
+                checkStillness(timestampNanos);
+                break;
+        }
+    }
+
+    private void checkImpact(long timestampNanos, float magnitude) {
+        if (magnitude >= impactThreshold) {
+            phase = Phase.SETTLING;
+            impactNanos = timestampNanos;
+            impactPeakMagnitude = magnitude;
+        } else if (timestampNanos - freeFallEndNanos > impactWindowNanos) {
+            phase = Phase.IDLE;
+        }
+    }
+
+    private void checkStillness(long timestampNanos) {
+        // Only judge once the window holds nothing but post-settle samples
+        if (timestampNanos - (impactNanos + settleNanos) >= stillnessWindowNanos) {
+            float variance = stillness.variance();
+            if (variance <= stillnessMaxVariance) {
+                phase = Phase.IDLE;
+                confirmedFalls++;
+                listener.onFallDetected(new FallEvent(freeFallStartNanos, freeFallEndNanos - freeFallStartNanos,
+                        freeFallMinMagnitude, impactNanos, impactPeakMagnitude, variance, timestampNanos));
+                return;
+            }
+        }
+        if (timestampNanos - impactNanos > stillnessTimeoutNanos) {
+            phase = Phase.IDLE;
+        }
+    }
+
+    public Phase phase() {
+        return phase;
+    }
+
+    public boolean isInFreeFall() {
+        return phase == Phase.FREE_FALL;
+    }
+
+    /**
+     * Whether the detector is part-way through evaluating a possible fall. Callers that trade
+     * latency for power use this to switch back to real-time delivery.
+     */
+    public boolean hasCandidate() {
+        return phase != Phase.IDLE;
+    }
+
+    /** Free-fall segments long enough to start looking for an impact. */
+    public long freeFallCandidates() {
+        return freeFallCandidates;
+    }
+
+    public long confirmedFalls() {
+        return confirmedFalls;
+    }
+
+    /** Sensor timestamp of the last sample seen, or {@code Long.MIN_VALUE} before the first. */
+    public long lastSampleNanos() {
+        return lastSampleNanos;
+    }
+
+    /** Bytes {@link #writeState} needs at most. */
+    public int maxStateBytes() {
+        return STATE_HEADER_BYTES + stillness.maxStateBytes();
+    }
+
+    /**
+     * Writes the phase, the candidate being evaluated and the lifetime counters, so a restarted
+     * process can carry on where this one stopped. The stillness window is included while a
+     * candidate needs it.
+     */
+    public void writeState(ByteBuffer out) {
+        out.put((byte) phase.ordinal());
+        out.putLong(lastSampleNanos);
+        out.putLong(freeFallStartNanos);
+        out.putLong(freeFallEndNanos);
+        out.putFloat(freeFallMinMagnitude);
+        out.putLong(impactNanos);
+        out.putFloat(impactPeakMagnitude);
+        out.putLong(freeFallCandidates);
+        out.putLong(confirmedFalls);
+        if (phase == Phase.SETTLING || phase == Phase.AWAIT_STILLNESS) {
+            stillness.writeTo(out);
+        } else {
+            out.putInt(0);
+        }
+    }
+
+    /** Restores state written by {@link #writeState}, replacing the current state. */
+    public void readState(ByteBuffer in) {
+        int ordinal = in.get();
+        Phase[] phases = Phase.values();
+        if (ordinal < 0 || ordinal >= phases.length) {
+            throw new IllegalArgumentException("corrupt detector state: phase " + ordinal);
+        }
+        reset();
+        phase = phases[ordinal];
+        lastSampleNanos = in.getLong();
+        freeFallStartNanos = in.getLong();
+        freeFallEndNanos = in.getLong();
+        freeFallMinMagnitude = in.getFloat();
+        impactNanos = in.getLong();
+        impactPeakMagnitude = in.getFloat();
+        freeFallCandidates = in.getLong();
+        confirmedFalls = in.getLong();
+        stillness.readFrom(in);
+    }
+
+    public void reset() {
+        phase = Phase.IDLE;
+        freeFallStartNanos = 0;
+        freeFallEndNanos = 0;
+        freeFallMinMagnitude = Float.MAX_VALUE;
+        impactNanos = 0;
+        impactPeakMagnitude = 0;
+        lastSampleNanos = Long.MIN_VALUE;
+        stillness.clear();
+    }
+}
@@ -0,0 +1,123 @@
+package com.evercare.detection;
+
+/**
+ * Tunable parameters for {@link FallDetector}. Values are copied when a detector is created,
+ * so changing a config afterwards does not affect detectors already running.
+ *
+ * All magnitudes are in m/s², all durations in nanoseconds of sensor time.
+ */
+public final class FallDetectorConfig {
+
+    /** Magnitude below which the device is considered to be falling freely. */
+    public float freeFallThreshold = 2.0f;
+
+    /** How long the magnitude must stay under {@link #freeFallThreshold} to count as free fall. */
+    public long freeFallMinDurationNanos = 50_000_000L;
+
+    /** Magnitude an impact must reach to count as hitting the ground (about 2 g). */
+    public float impactThreshold = 20.0f;
+
+    /** How long after free fall ends the impact must arrive. */
+    public long impactWindowNanos = 500_000_000L;
+
+    /** Time after the impact during which bouncing is ignored and the impact peak is tracked. */
+    public long settleNanos = 500_000_000L;
+
+    /** Length of the window that must show low-variance stillness after the impact. */
+    public long stillnessWindowNanos = 1_500_000_000L;
+
+    /** Highest magnitude variance, in (m/s²)², that still counts as lying still. */
+    public float stillnessMaxVariance = 1.0f;
+
+    /** How long after the impact a still window may start before the candidate is dropped. */
+    public long stillnessTimeoutNanos = 5_000_000_000L;
+
+    /**
+     * Longest gap between consecutive samples a candidate survives. Longer gaps (the sensor
+     * stalled, or the process died and resumed from a checkpoint) drop it, since the phases can't
+     * be judged on missing data.
+     */
+    public long maxSampleGapNanos = 1_000_000_000L;
+
+    /**
+     * Output period of the {@link FixedRateResampler} in front of the detector (50 Hz). It matches
+     * the rate the accelerometer is requested at; a grid much slower than delivery would step over
+     * short impact peaks.
+     */
+    public long samplePeriodNanos = 20_000_000L;
+
+    /** Longest gap between input samples the resampler interpolates across. */
+    public long maxInterpolationGapNanos = 100_000_000L;
+
+    /** Length of the blocks the {@link AccelerometerCalibrator} judges stillness over. */
+    public long calibrationBlockNanos = 1_000_000_000L;
+
+    /**
+     * Largest per-axis standard deviation, in m/s², of a block that counts as lying still. Above
+     * the noise of a phone on a table, below the tremor of one held in the hand.
+     */
+    public float calibrationMaxStillStdDev = 0.08f;
+
+    /**
+     * Magnitude variance, in (m/s²)², of a feature window above which the {@link InactivityMonitor}
+     * counts the person as moving. Breathing and tremor stay well under it; getting up does not.
+     */
+    public float inactivityActiveVariance = 0.25f;
+
+    /** Movement after a fall that counts as having got up. */
+    public long recoveryActiveNanos = 10_000_000_000L;
+
+    /** Time after a fall without recovery that counts as a long lie. */
+    public long longLieNanos = 60_000_000_000L;
+
+    /** Daytime stillness long enough to ask whether the person is all right (3 h). */
+    public long prolongedStillnessNanos = 3 * 3_600_000_000_000L;
+
+    /** Sample capacity of the stillness window; should cover the window at the highest rate used. */
+    public int windowCapacity = 512;
+
+    public FallDetectorConfig copy() {
+        FallDetectorConfig copy = new FallDetectorConfig();
+        copy.freeFallThreshold = freeFallThreshold;
+        copy.freeFallMinDurationNanos = freeFallMinDurationNanos;
+        copy.impactThreshold = impactThreshold;
+        copy.impactWindowNanos = impactWindowNanos;
+        copy.settleNanos = settleNanos;
+        copy.stillnessWindowNanos = stillnessWindowNanos;
+        copy.stillnessMaxVariance = stillnessMaxVariance;
+        copy.stillnessTimeoutNanos = stillnessTimeoutNanos;
+        copy.maxSampleGapNanos = maxSampleGapNanos;
+        copy.samplePeriodNanos = samplePeriodNanos;
+        copy.maxInterpolationGapNanos = maxInterpolationGapNanos;
+        copy.calibrationBlockNanos = calibrationBlockNanos;
+        copy.calibrationMaxStillStdDev = calibrationMaxStillStdDev;
+        copy.inactivityActiveVariance = inactivityActiveVariance;
+        copy.recoveryActiveNanos = recoveryActiveNanos;
+        copy.longLieNanos = longLieNanos;
+        copy.prolongedStillnessNanos = prolongedStillnessNanos;
+        copy.windowCapacity = windowCapacity;
+        return copy;
+    }
+
+    @Override
+    public String toString() {
+        return "FallDetectorConfig{freeFallThreshold=" + freeFallThreshold
+                + ", freeFallMinDurationNanos=" + freeFallMinDurationNanos
+                + ", impactThreshold=" + impactThreshold
+                + ", impactWindowNanos=" + impactWindowNanos
+                + ", settleNanos=" + settleNanos
+                + ", stillnessWindowNanos=" + stillnessWindowNanos
+                + ", stillnessMaxVariance=" + stillnessMaxVariance
+                + ", stillnessTimeoutNanos=" + stillnessTimeoutNanos
+                + ", maxSampleGapNanos=" + maxSampleGapNanos
+                + ", samplePeriodNanos=" + samplePeriodNanos
+                + ", maxInterpolationGapNanos=" + maxInterpolationGapNanos
+                + ", calibrationBlockNanos=" + calibrationBlockNanos
+                + ", calibrationMaxStillStdDev=" + calibrationMaxStillStdDev
+                + ", inactivityActiveVariance=" + inactivityActiveVariance
+                + ", recoveryActiveNanos=" + recoveryActiveNanos
+                + ", longLieNanos=" + longLieNanos
+                + ", prolongedStillnessNanos=" + prolongedStillnessNanos
+                + ", windowCapacity=" + windowCapacity + "}";
+    }
+}
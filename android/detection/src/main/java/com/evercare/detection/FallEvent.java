@@ -0,0 +1,53 @@
+package com.evercare.detection;
+
+/**
+ * A fall confirmed by {@link FallDetector}: free fall, then an impact, then stillness.
+ * Timestamps are in the same clock as the samples fed to the detector (on Android,
+ * {@code SensorEvent.timestamp}); magnitudes are in m/s².
+ */
+public final class FallEvent {
+
+    /** Start of the free-fall segment. */
+    public final long onsetNanos;
+    public final long freeFallDurationNanos;
+    /** Lowest magnitude seen during free fall. */
+    public final float minAcceleration;
+    /** First sample at or above the impact threshold. */
+    public final long impactNanos;
+    /** Highest magnitude seen between the impact and the end of the settle period. */
+    public final float peakAcceleration;
+    /** Magnitude variance of the still window that confirmed the fall. */
+    public final float stillnessVariance;
+    /** Sample that confirmed the fall. */
+    public final long detectedNanos;
+
+    public FallEvent(long onsetNanos, long freeFallDurationNanos, float minAcceleration, long impactNanos,
+                     float peakAcceleration, float stillnessVariance, long detectedNanos) {
+        this.onsetNanos = onsetNanos;
+        this.freeFallDurationNanos = freeFallDurationNanos;
+        this.minAcceleration = minAcceleration;
+        this.impactNanos = impactNanos;
+        this.peakAcceleration = peakAcceleration;
+        this.stillnessVariance = stillnessVariance;
+        this.detectedNanos = detectedNanos;
+    }
+
+    public long freeFallDurationMillis() {
+        return freeFallDurationNanos / 1_000_000L;
+    }
+
+    /** Time from free-fall onset to confirmation. */
+    public long detectionDelayNanos() {
+        return detectedNanos - onsetNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "FallEvent{onsetNanos=" + onsetNanos
+                + ", freeFallDurationMillis=" + freeFallDurationMillis()
+                + ", minAcceleration=" + minAcceleration
+                + ", peakAcceleration=" + peakAcceleration
+                + ", stillnessVariance=" + stillnessVariance
+                + ", detectionDelayMillis=" + detectionDelayNanos() / 1_000_000L + "}";
+    }
+}
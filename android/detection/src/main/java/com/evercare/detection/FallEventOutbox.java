@@ -0,0 +1,369 @@
+package com.evercare.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only journal of events that still have to reach the backend.
+ *
+ * Every change is a checksummed record appended to one file and forced to disk before the call
+ * returns: {@link #append} writes the entry, {@link #acknowledge} writes its id once the upload
+ * has been committed. On open the journal is replayed to rebuild the pending set. A record torn
+ * by a crash mid-write fails its length or checksum check; it and everything after it are cut
+ * off, so the journal is always left in a state that can be appended to again. A write that fails
+ * while the process lives on is cut off the same way before the error is rethrown, so later
+ * records never land behind torn bytes.
+ *
+ * Once enough entries have been acknowledged the journal is compacted by writing the pending
+ * entries to a temporary file and renaming it over the original.
+ *
+ * <pre>
+ * header  int magic 'ECOB', short version
+ * record  byte type (1 = append, 2 = ack), int payloadLength, int crc32(payload), payload
+ * </pre>
+ */
+public final class FallEventOutbox implements Closeable {
+
+    /** Gets the channel the journal is read and written through; tests substitute one that fails. */
+    interface ChannelOpener {
+        FileChannel open(RandomAccessFile raf) throws IOException;
+    }
+
+    private static final ChannelOpener FILE_CHANNEL = new ChannelOpener() {
+        @Override
+        public FileChannel open(RandomAccessFile raf) {
+            return raf.getChannel();
+        }
+    };
+
+    private static final int MAGIC = 0x424F4345; // "ECOB" read as a little-endian int
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 6;
+    private static final int RECORD_HEADER_BYTES = 9;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+    private static final int COMPACT_AFTER_ACKS = 64;
+
+    private static final byte TYPE_APPEND = 1;
+    private static final byte TYPE_ACK = 2;
+
+    private static final byte VALUE_STRING = 1;
+    private static final byte VALUE_LONG = 2;
+    private static final byte VALUE_DOUBLE = 3;
+    private static final byte VALUE_BOOLEAN = 4;
+
+    private final File file;
+    private final ChannelOpener opener;
+    private final Map<String, OutboxEntry> pending = new LinkedHashMap<>();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private int acksSinceCompaction = 0;
+    private long recoveredBytesDropped = 0;
+
+    private FallEventOutbox(File file, ChannelOpener opener) {
+        this.file = file;
+        this.opener = opener;
+    }
+
+    /** Opens the journal at {@code file}, creating it if needed and recovering from a torn tail. */
+    public static FallEventOutbox open(File file) throws IOException {
+        return open(file, FILE_CHANNEL);
+    }
+
+    static FallEventOutbox open(File file, ChannelOpener opener) throws IOException {
+        FallEventOutbox outbox = new FallEventOutbox(file, opener);
+        outbox.load();
+        return outbox;
+    }
+
+    public synchronized void append(OutboxEntry entry) throws IOException {
+        if (pending.containsKey(entry.id)) {
+            return;
+        }
+        long start = channel.position();
+        try {
+            writeRecord(TYPE_APPEND, encodeEntry(entry));
+            channel.force(false);
+        } catch (IOException e) {
+            rollBack(start, e);
+            throw e;
+        }
+        pending.put(entry.id, entry);
+    }
+
+    /** Marks entries as delivered. Unknown ids are ignored. */
+    public synchronized void acknowledge(Collection<String> ids) throws IOException {
+        List<String> known = new ArrayList<>();
+        for (String id : ids) {
+            if (pending.containsKey(id) && !known.contains(id)) {
+                known.add(id);
+            }
+        }
+        if (!known.isEmpty()) {
+            long start = channel.position();
+            try {
+                for (String id : known) {
+                    writeRecord(TYPE_ACK, encodeId(id));
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                // None of the batch counts as acknowledged; the entries stay pending
+                rollBack(start, e);
+                throw e;
+            }
+            for (String id : known) {
+                pending.remove(id);
+            }
+            acksSinceCompaction += known.size();
+        }
+        if (acksSinceCompaction >= COMPACT_AFTER_ACKS || (pending.isEmpty() && acksSinceCompaction > 0)) {
+            compact();
+        }
+    }
+
+    /** Up to {@code max} pending entries, oldest first. */
+    public synchronized List<OutboxEntry> pending(int max) {
+        List<OutboxEntry> result = new ArrayList<>(Math.min(max, pending.size()));
+        for (OutboxEntry entry : pending.values()) {
+            if (result.size() == max) {
+                break;
+            }
+            result.add(entry);
+        }
+        return result;
+    }
+
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    /** Bytes of torn or corrupt data discarded when the journal was opened. */
+    public synchronized long recoveredBytesDropped() {
+        return recoveredBytesDropped;
+    }
+
+    public synchronized long sizeBytes() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        raf.close();
+    }
+
+    synchronized void compact() throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            FileChannel outChannel = out.getChannel();
+            writeHeader(outChannel);
+            for (OutboxEntry entry : pending.values()) {
+                writeRecord(outChannel, TYPE_APPEND, encodeEntry(entry));
+            }
+            outChannel.force(true);
+        }
+        raf.close();
+        boolean replaced = temp.renameTo(file);
+        openChannel();
+        channel.position(channel.size());
+        if (!replaced) {
+            // The original journal is untouched and still valid; try again after the next ack
+            temp.delete();
+            throw new IOException("Cannot replace " + file + " with compacted journal");
+        }
+        acksSinceCompaction = 0;
+    }
+
+    private void load() throws IOException {
+        openChannel();
+        long size = channel.size();
+        if (size < HEADER_BYTES) {
+            // New file, or a crash before the header made it to disk
+            channel.truncate(0);
+            writeHeader(channel);
+            channel.force(true);
+            recoveredBytesDropped = size;
+            return;
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+            raf.close();
+            throw new IOException("Not an outbox journal: " + file);
+        }
+
+        long position = HEADER_BYTES;
+        ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        while (position + RECORD_HEADER_BYTES <= size) {
+            recordHeader.clear();
+            readFully(recordHeader, position);
+            recordHeader.flip();
+            byte type = recordHeader.get();
+            int length = recordHeader.getInt();
+            int crc = recordHeader.getInt();
+            if ((type != TYPE_APPEND && type != TYPE_ACK) || length < 0 || length > MAX_PAYLOAD_BYTES
+                    || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + RECORD_HEADER_BYTES);
+            byte[] bytes = payload.array();
+            if (crc32(bytes) != crc) {
+                break;
+            }
+            if (type == TYPE_APPEND) {
+                OutboxEntry entry = decodeEntry(bytes);
+                pending.put(entry.id, entry);
+            } else {
+                pending.remove(decodeId(bytes));
+                acksSinceCompaction++;
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+
+        if (position < size) {
+            recoveredBytesDropped = size - position;
+            channel.truncate(position);
+            channel.force(true);
+        }
+        channel.position(position);
+    }
+
+    private void openChannel() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = opener.open(raf);
+    }
+
+    /** Cuts off whatever part of a failed write reached the file, so the next record follows intact ones. */
+    private void rollBack(long position, IOException cause) {
+        try {
+            channel.truncate(position);
+            channel.position(position);
+        } catch (IOException e) {
+            cause.addSuppressed(e);
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private void writeRecord(byte type, byte[] payload) throws IOException {
+        writeRecord(channel, type, payload);
+    }
+
+    private static void writeHeader(FileChannel target) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putShort(VERSION).flip();
+        while (header.hasRemaining()) {
+            target.write(header);
+        }
+    }
+
+    private static void writeRecord(FileChannel target, byte type, byte[] payload) throws IOException {
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            throw new IOException("Outbox record too large: " + payload.length + " bytes");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        record.put(type).putInt(payload.length).putInt(crc32(payload)).put(payload).flip();
+        while (record.hasRemaining()) {
+            target.write(record);
+        }
+    }
+
+    private static int crc32(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encodeId(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(id);
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static String decodeId(byte[] payload) throws IOException {
+        return new DataInputStream(new ByteArrayInputStream(payload)).readUTF();
+    }
+
+    private static byte[] encodeEntry(OutboxEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeUTF(entry.id);
+        out.writeLong(entry.createdAtMillis);
+        out.writeInt(entry.fields.size());
+        for (Map.Entry<String, Object> field : entry.fields.entrySet()) {
+            out.writeUTF(field.getKey());
+            Object value = field.getValue();
+            if (value instanceof String) {
+                out.writeByte(VALUE_STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof Long) {
+                out.writeByte(VALUE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Double) {
+                out.writeByte(VALUE_DOUBLE);
+                out.writeDouble((Double) value);
+            } else {
+                out.writeByte(VALUE_BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static OutboxEntry decodeEntry(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        String id = in.readUTF();
+        long createdAtMillis = in.readLong();
+        int count = in.readInt();
+        Map<String, Object> fields = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String name = in.readUTF();
+            byte type = in.readByte();
+            switch (type) {
+                case VALUE_STRING:
+                    fields.put(name, in.readUTF());
+                    break;
+                case VALUE_LONG:
+                    fields.put(name, in.readLong());
+                    break;
+                case VALUE_DOUBLE:
+                    fields.put(name, in.readDouble());
+                    break;
+                case VALUE_BOOLEAN:
+                    fields.put(name, in.readBoolean());
+                    break;
+                default:
+                    throw new IOException("Unknown value type " + type + " for field " + name);
+            }
+        }
+        return new OutboxEntry(id, createdAtMillis, fields);
+    }
+}
@@ -0,0 +1,141 @@
+package com.evercare.detection;
+
+/**
+ * Merges fall detections that follow each other closely into one incident.
+ *
+ * A tumble down several stairs or a phone bouncing across the floor can confirm more than one
+ * fall. A detection whose onset is within {@code windowNanos} of the previous detection extends
+ * the open incident instead of starting a new one, so the alert, its countdown and the stored
+ * record stay with the first detection. An incident closes once no detection has arrived for a
+ * whole window ({@link #advance}), or when the caller closes it, e.g. because the user answered
+ * the alert.
+ *
+ * Not thread-safe; use it from one thread. Times are on the detector's sample clock.
+ */
+public final class FallIncidentCoalescer {
+
+    public interface Listener {
+        /** First detection of a new incident; this is where the alert goes up. */
+        void onIncidentStarted(Incident incident);
+
+        /** A later detection merged into the open incident. */
+        void onIncidentExtended(Incident incident, FallEvent event);
+
+        /** No more detections will be merged into {@code incident}. */
+        void onIncidentClosed(Incident incident);
+    }
+
+    /** One or more detections merged together, with their aggregate statistics. */
+    public static final class Incident {
+        public final FallEvent first;
+        private FallEvent last;
+        private int count = 1;
+        private float peakAcceleration;
+        private float minAcceleration;
+        private long totalFreeFallNanos;
+
+        Incident(FallEvent first) {
+            this.first = first;
+            this.last = first;
+            this.peakAcceleration = first.peakAcceleration;
+            this.minAcceleration = first.minAcceleration;
+            this.totalFreeFallNanos = first.freeFallDurationNanos;
+        }
+
+        void add(FallEvent event) {
+            last = event;
+            count++;
+            peakAcceleration = Math.max(peakAcceleration, event.peakAcceleration);
+            minAcceleration = Math.min(minAcceleration, event.minAcceleration);
+            totalFreeFallNanos += event.freeFallDurationNanos;
+        }
+
+        public FallEvent last() {
+            return last;
+        }
+
+        /** Number of detections merged into this incident. */
+        public int count() {
+            return count;
+        }
+
+        /** Highest impact peak of any detection. */
+        public float peakAcceleration() {
+            return peakAcceleration;
+        }
+
+        /** Lowest free-fall magnitude of any detection. */
+        public float minAcceleration() {
+            return minAcceleration;
+        }
+
+        /** Free-fall time summed over all detections. */
+        public long totalFreeFallNanos() {
+            return totalFreeFallNanos;
+        }
+
+        /** First onset to last confirmation. */
+        public long spanNanos() {
+            return last.detectedNanos - first.onsetNanos;
+        }
+
+        @Override
+        public String toString() {
+            return "Incident{count=" + count
+                    + ", spanMillis=" + spanNanos() / 1_000_000L
+                    + ", totalFreeFallMillis=" + totalFreeFallNanos / 1_000_000L
+                    + ", minAcceleration=" + minAcceleration
+                    + ", peakAcceleration=" + peakAcceleration + "}";
+        }
+    }
+
+    private final long windowNanos;
+    private final Listener listener;
+    private Incident open;
+
+    public FallIncidentCoalescer(long windowNanos, Listener listener) {
+        if (windowNanos < 0) {
+            throw new IllegalArgumentException("window must not be negative: " + windowNanos);
+        }
+        if (listener == null) {
+            throw new IllegalArgumentException("listener must not be null");
+        }
+        this.windowNanos = windowNanos;
+        this.listener = listener;
+    }
+
+    public void offer(FallEvent event) {
+        if (open != null && event.onsetNanos - open.last.detectedNanos <= windowNanos) {
+            open.add(event);
+            listener.onIncidentExtended(open, event);
+            return;
+        }
+        close();
+        open = new Incident(event);
+        listener.onIncidentStarted(open);
+    }
+
+    /** Closes the open incident if nothing has been merged into it for a whole window by {@code nowNanos}. */
+    public void advance(long nowNanos) {
+        if (open != null && nowNanos - open.last.detectedNanos > windowNanos) {
+            close();
+        }
+    }
+
+    /** Closes the open incident, if any, so the next detection starts a new one. */
+    public void close() {
+        Incident closing = open;
+        if (closing != null) {
+            open = null;
+            listener.onIncidentClosed(closing);
+        }
+    }
+
+    public Incident openIncident() {
+        return open;
+    }
+
+    public long windowNanos() {
+        return windowNanos;
+    }
+}
@@ -0,0 +1,19 @@
+package com.evercare.detection;
+
+/**
+ * A trained model that scores a window of motion features as fall or not.
+ *
+ * Implementations evaluate a flat float array without allocating, so a model can run on the
+ * sensor thread for every window. Models are immutable and loaded with {@link FallModelCodec}.
+ */
+public interface FallModel {
+
+    /** Number of features the model reads, starting at {@code offset}. */
+    int featureCount();
+
+    /** Probability, from 0 to 1, that the features at {@code offset} belong to a fall. */
+    float probability(float[] features, int offset);
+
+    /** Probability at or above which a window counts as a fall. */
+    float threshold();
+}
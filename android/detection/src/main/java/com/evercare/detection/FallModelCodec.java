@@ -0,0 +1,157 @@
+package com.evercare.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.CRC32;
+
+/**
+ * Binary format of a {@link FallModel}, small enough to ship as an app asset and read in one go
+ * at service start.
+ *
+ * <pre>
+ * int magic 'ECFM', byte version, byte kind, int featureCount, float threshold, body,
+ * int crc32(everything before it)
+ * kind 1 (logistic)  float bias, featureCount x (float mean, float scale, float weight)
+ * kind 2 (trees)     float baseScore, int treeCount, int nodeCount, treeCount x int root,
+ *                    nodeCount x (short feature, float thresholdOrLeafValue, int left, int right)
+ * </pre>
+ */
+public final class FallModelCodec {
+
+    private static final int MAGIC = 0x4d464345; // "ECFM" read as a little-endian int
+    private static final byte VERSION = 1;
+    private static final byte KIND_LOGISTIC = 1;
+    private static final byte KIND_TREES = 2;
+    private static final int MAX_BYTES = 4 * 1024 * 1024;
+
+    private FallModelCodec() {
+    }
+
+    public static byte[] encode(FallModel model) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        if (model instanceof LogisticFallModel) {
+            LogisticFallModel logistic = (LogisticFallModel) model;
+            out.writeByte(KIND_LOGISTIC);
+            out.writeInt(logistic.featureCount());
+            out.writeFloat(logistic.threshold());
+            out.writeFloat(logistic.bias());
+            for (int i = 0; i < logistic.featureCount(); i++) {
+                out.writeFloat(logistic.mean(i));
+                out.writeFloat(logistic.scale(i));
+                out.writeFloat(logistic.weight(i));
+            }
+        } else if (model instanceof TreeEnsembleFallModel) {
+            TreeEnsembleFallModel trees = (TreeEnsembleFallModel) model;
+            out.writeByte(KIND_TREES);
+            out.writeInt(trees.featureCount());
+            out.writeFloat(trees.threshold());
+            out.writeFloat(trees.baseScore());
+            out.writeInt(trees.roots().length);
+            out.writeInt(trees.nodeFeatures().length);
+            for (int root : trees.roots()) {
+                out.writeInt(root);
+            }
+            for (int i = 0; i < trees.nodeFeatures().length; i++) {
+                out.writeShort(trees.nodeFeatures()[i]);
+                out.writeFloat(trees.nodeThresholds()[i]);
+                out.writeInt(trees.leftChildren()[i]);
+                out.writeInt(trees.rightChildren()[i]);
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode " + model.getClass().getName());
+        }
+        out.flush();
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray(), 0, bytes.size());
+        out.writeInt((int) crc.getValue());
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /** Reads a whole model from {@code in}; does not close it. */
+    public static FallModel read(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            bytes.write(buffer, 0, n);
+            if (bytes.size() > MAX_BYTES) {
+                throw new IOException("Model larger than " + MAX_BYTES + " bytes");
+            }
+        }
+        return decode(bytes.toByteArray());
+    }
+
+    public static FallModel decode(byte[] record) throws IOException {
+        if (record.length < 4) {
+            throw new IOException("Model too short");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record, 0, record.length - 4);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        in.skipBytes(record.length - 4);
+        if (in.readInt() != (int) crc.getValue()) {
+            throw new IOException("Model checksum mismatch");
+        }
+
+        in = new DataInputStream(new ByteArrayInputStream(record, 0, record.length - 4));
+        if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+            throw new IOException("Not a fall model");
+        }
+        byte kind = in.readByte();
+        int featureCount = in.readInt();
+        float threshold = in.readFloat();
+        if (featureCount <= 0 || featureCount > 1024) {
+            throw new IOException("Bad feature count " + featureCount);
+        }
+        try {
+            if (kind == KIND_LOGISTIC) {
+                float bias = in.readFloat();
+                float[] means = new float[featureCount];
+                float[] scales = new float[featureCount];
+                float[] weights = new float[featureCount];
+                for (int i = 0; i < featureCount; i++) {
+                    means[i] = in.readFloat();
+                    scales[i] = in.readFloat();
+                    weights[i] = in.readFloat();
+                }
+                return new LogisticFallModel(means, scales, weights, bias, threshold);
+            }
+            if (kind == KIND_TREES) {
+                float baseScore = in.readFloat();
+                int treeCount = in.readInt();
+                int nodeCount = in.readInt();
+                // Each node takes 14 bytes, so the counts can't be larger than the record
+                if (treeCount <= 0 || nodeCount <= 0 || (long) treeCount * 4 + (long) nodeCount * 14 > record.length) {
+                    throw new IOException("Bad tree counts " + treeCount + "/" + nodeCount);
+                }
+                int[] roots = new int[treeCount];
+                for (int i = 0; i < treeCount; i++) {
+                    roots[i] = in.readInt();
+                }
+                short[] features = new short[nodeCount];
+                float[] thresholds = new float[nodeCount];
+                int[] left = new int[nodeCount];
+                int[] right = new int[nodeCount];
+                for (int i = 0; i < nodeCount; i++) {
+                    features[i] = in.readShort();
+                    thresholds[i] = in.readFloat();
+                    left[i] = in.readInt();
+                    right[i] = in.readInt();
+                }
+                return new TreeEnsembleFallModel(featureCount, baseScore, roots, features, thresholds, left, right,
+                        threshold);
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid model: " + e.getMessage(), e);
+        }
+        throw new IOException("Unknown model kind " + kind);
+    }
+}
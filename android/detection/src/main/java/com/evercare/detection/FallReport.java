@@ -0,0 +1,50 @@
+package com.evercare.detection;
+
+/**
+ * A detected fall as reported to the rest of the app: what the service used to put in the
+ * {@code FREE_FALL_DETECTED} broadcast. Location fields are only meaningful when
+ * {@link #hasLocation} is true.
+ */
+public final class FallReport {
+
+    public final String eventId;
+    public final long timestampMillis;
+    public final float acceleration;
+    public final long durationMillis;
+
+    public final boolean hasLocation;
+    public final double latitude;
+    public final double longitude;
+    public final float accuracy;
+    public final String provider;
+    public final long locationTimestampMillis;
+    /** How old the fix was when the fall was recorded. */
+    public final long locationAgeMillis;
+
+    public FallReport(String eventId, long timestampMillis, float acceleration, long durationMillis) {
+        this(eventId, timestampMillis, acceleration, durationMillis, false, 0, 0, 0, null, 0, 0);
+    }
+
+    public FallReport(String eventId, long timestampMillis, float acceleration, long durationMillis,
+                      boolean hasLocation, double latitude, double longitude, float accuracy, String provider,
+                      long locationTimestampMillis, long locationAgeMillis) {
+        this.eventId = eventId;
+        this.timestampMillis = timestampMillis;
+        this.acceleration = acceleration;
+        this.durationMillis = durationMillis;
+        this.hasLocation = hasLocation;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracy = accuracy;
+        this.provider = provider;
+        this.locationTimestampMillis = locationTimestampMillis;
+        this.locationAgeMillis = locationAgeMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "FallReport{eventId=" + eventId + ", timestampMillis=" + timestampMillis
+                + ", acceleration=" + acceleration + ", durationMillis=" + durationMillis
+                + (hasLocation ? ", location=" + latitude + "," + longitude + " ±" + accuracy + "m, age " + locationAgeMillis + "ms" : "") + "}";
+    }
+}
@@ -0,0 +1,140 @@
+package com.evercare.detection;
+
+/**
+ * First stage of the detection pipeline: turns the irregular accelerometer stream into one
+ * sample every {@code periodNanos} of sensor time.
+ *
+ * Sensor delivery at a nominal rate drifts and jitters by device, so durations counted in
+ * samples, or measured between samples that happen to straddle a threshold, vary with the
+ * hardware rather than with the motion. Each output sample is linearly interpolated between the
+ * two input samples around its grid time, using the sensor timestamps only. Output lags the
+ * input by less than one period.
+ *
+ * Two input samples further apart than {@code maxGapNanos} are not bridged: the gap is reported
+ * and the grid starts again at the sample after it, so downstream stages see the gap as it is
+ * instead of a made-up straight line. Samples whose timestamp does not move forward are dropped.
+ *
+ * Allocates nothing after construction. Like the detector, use it from a single thread.
+ */
+public final class FixedRateResampler implements SampleSink {
+
+    public interface GapListener {
+        /** No input between {@code fromNanos} and {@code toNanos}; nothing was emitted in between. */
+        void onGap(long fromNanos, long toNanos);
+    }
+
+    private final long periodNanos;
+    private final long maxGapNanos;
+    private final SampleSink downstream;
+    private final GapListener gapListener;
+
+    private boolean started = false;
+    private long previousNanos;
+    private float previousX;
+    private float previousY;
+    private float previousZ;
+    private long nextOutputNanos;
+
+    private long inputSamples = 0;
+    private long outputSamples = 0;
+    private long droppedSamples = 0;
+    private long gaps = 0;
+
+    public FixedRateResampler(long periodNanos, long maxGapNanos, SampleSink downstream, GapListener gapListener) {
+        if (periodNanos <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + periodNanos);
+        }
+        if (maxGapNanos < periodNanos) {
+            throw new IllegalArgumentException("max gap " + maxGapNanos + " is shorter than the period " + periodNanos);
+        }
+        this.periodNanos = periodNanos;
+        this.maxGapNanos = maxGapNanos;
+        this.downstream = downstream;
+        this.gapListener = gapListener;
+    }
+
+    /** Resampler with the period and gap limit from {@code config}. */
+    public FixedRateResampler(FallDetectorConfig config, SampleSink downstream, GapListener gapListener) {
+        this(config.samplePeriodNanos, config.maxInterpolationGapNanos, downstream, gapListener);
+    }
+
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        inputSamples++;
+        if (started && timestampNanos <= previousNanos) {
+            droppedSamples++;
+            return;
+        }
+        if (started && timestampNanos - previousNanos > maxGapNanos) {
+            gaps++;
+            if (gapListener != null) {
+                gapListener.onGap(previousNanos, timestampNanos);
+            }
+            started = false;
+        }
+        if (!started) {
+            // The grid is anchored at the first sample after a start or a gap
+            started = true;
+            emit(timestampNanos, x, y, z);
+            nextOutputNanos = timestampNanos + periodNanos;
+        } else {
+            long spanNanos = timestampNanos - previousNanos;
+            while (nextOutputNanos < timestampNanos) {
+                double f = (double) (nextOutputNanos - previousNanos) / spanNanos;
+                emit(nextOutputNanos,
+                        (float) (previousX + (x - (double) previousX) * f),
+                        (float) (previousY + (y - (double) previousY) * f),
+                        (float) (previousZ + (z - (double) previousZ) * f));
+                nextOutputNanos += periodNanos;
+            }
+            if (nextOutputNanos == timestampNanos) {
+                emit(timestampNanos, x, y, z);
+                nextOutputNanos += periodNanos;
+            }
+        }
+        previousNanos = timestampNanos;
+        previousX = x;
+        previousY = y;
+        previousZ = z;
+    }
+
+    /** Forgets the previous sample, so the next one starts a new grid without counting a gap. */
+    public void reset() {
+        started = false;
+    }
+
+    private void emit(long timestampNanos, float x, float y, float z) {
+        outputSamples++;
+        downstream.onSample(timestampNanos, x, y, z);
+    }
+
+    public long periodNanos() {
+        return periodNanos;
+    }
+
+    public long inputSamples() {
+        return inputSamples;
+    }
+
+    public long outputSamples() {
+        return outputSamples;
+    }
+
+    /** Samples dropped because their timestamp did not move forward. */
+    public long droppedSamples() {
+        return droppedSamples;
+    }
+
+    public long gaps() {
+        return gaps;
+    }
+
+    @Override
+    public String toString() {
+        return "FixedRateResampler{periodNanos=" + periodNanos
+                + ", in=" + inputSamples
+                + ", out=" + outputSamples
+                + ", dropped=" + droppedSamples
+                + ", gaps=" + gaps + "}";
+    }
+}
@@ -0,0 +1,171 @@
+package com.evercare.detection;
+
+/**
+ * Watches how much the person moves, from the motion energy of each feature window, and raises
+ * what a fall alert alone cannot tell: whether the person got up after a fall, is still on the
+ * floor, or has not moved for unusually long at a time they would normally be up.
+ *
+ * A window whose magnitude variance is above {@code activeVariance} counts as movement; each
+ * window stands for the time since the previous one, so the monitor adds nothing per sample on
+ * top of the {@link WindowFeatureExtractor} it listens to.
+ *
+ * After {@link #onFall}, the windows that start after the detection are watched. Movement adding
+ * up to {@code recoveryActiveNanos} reports a recovery and ends the watch; reaching
+ * {@code longLieNanos} after the detection without it reports a long lie, once, and keeps
+ * watching in case the person gets up later. Outside a watch, stillness that adds up to
+ * {@code prolongedStillnessNanos} of {@link Daytime} reports prolonged stillness once per still
+ * period; night-time stillness does not count, so sleeping in does not raise it.
+ *
+ * The monitor cannot tell a still person from a phone left on a table; its reports are meant to
+ * move an alert along or ask the person to check in, not to conclude on their own. Allocates
+ * nothing. Use it on the sensor thread, like the extractor.
+ */
+public final class InactivityMonitor implements WindowFeatureExtractor.Listener {
+
+    /**
+     * Whether stillness at {@code sensorNanos}, on the sensor's clock, is unusual. Called once per
+     * window, close to real time; keep it cheap.
+     */
+    public interface Daytime {
+        boolean isDaytime(long sensorNanos);
+    }
+
+    public interface Listener {
+        /** No recovery {@code lyingNanos} after the fall detected at {@code fallNanos}. */
+        void onLongLie(long fallNanos, long lyingNanos);
+
+        /** Enough movement after the fall detected at {@code fallNanos}; the watch is over. */
+        void onRecovered(long fallNanos, long afterNanos);
+
+        /** No movement since {@code stillSinceNanos}, {@code stillNanos} ago, most of it in daytime. */
+        void onProlongedStillness(long stillSinceNanos, long stillNanos);
+    }
+
+    private final float activeVariance;
+    private final long recoveryActiveNanos;
+    private final long longLieNanos;
+    private final long prolongedStillnessNanos;
+    private final Daytime daytime;
+    private final Listener listener;
+
+    private boolean started = false;
+    private long previousEndNanos;
+    private long stillSinceNanos;
+    private long daytimeStillNanos = 0;
+    private boolean stillnessReported = false;
+
+    private boolean watching = false;
+    private long fallNanos;
+    private long activeSinceFallNanos;
+    private boolean longLieReported;
+
+    private long longLies = 0;
+    private long recoveries = 0;
+    private long prolongedStillness = 0;
+
+    public InactivityMonitor(float activeVariance, long recoveryActiveNanos, long longLieNanos,
+                             long prolongedStillnessNanos, Daytime daytime, Listener listener) {
+        if (recoveryActiveNanos <= 0 || longLieNanos <= 0 || prolongedStillnessNanos <= 0) {
+            throw new IllegalArgumentException("durations must be positive");
+        }
+        this.activeVariance = activeVariance;
+        this.recoveryActiveNanos = recoveryActiveNanos;
+        this.longLieNanos = longLieNanos;
+        this.prolongedStillnessNanos = prolongedStillnessNanos;
+        this.daytime = daytime;
+        this.listener = listener;
+    }
+
+    /** Monitor with the thresholds from {@code config}. */
+    public InactivityMonitor(FallDetectorConfig config, Daytime daytime, Listener listener) {
+        this(config.inactivityActiveVariance, config.recoveryActiveNanos, config.longLieNanos,
+                config.prolongedStillnessNanos, daytime, listener);
+    }
+
+    /** Starts watching the person after {@code event}; a later fall starts the watch again. */
+    public void onFall(FallEvent event) {
+        watching = true;
+        fallNanos = event.detectedNanos;
+        activeSinceFallNanos = 0;
+        longLieReported = false;
+    }
+
+    /** Stops watching, e.g. the person answered the alert. */
+    public void endWatch() {
+        watching = false;
+    }
+
+    @Override
+    public void onWindow(WindowFeatures window) {
+        long end = window.endNanos();
+        // Time this window adds; after a gap, no more than the window itself covers
+        long step = started ? Math.max(0, Math.min(end - previousEndNanos, end - window.startNanos())) : 0;
+        if (!started) {
+            started = true;
+            stillSinceNanos = window.startNanos();
+        }
+        previousEndNanos = end;
+
+        boolean active = window.get(WindowFeatures.MAGNITUDE_VARIANCE) > activeVariance;
+        if (active) {
+            stillSinceNanos = end;
+            daytimeStillNanos = 0;
+            stillnessReported = false;
+        } else if (daytime.isDaytime(end)) {
+            daytimeStillNanos += step;
+        }
+
+        if (watching) {
+            // Windows reaching back before the detection still hold the impact
+            if (active && window.startNanos() >= fallNanos) {
+                activeSinceFallNanos += step;
+            }
+            if (activeSinceFallNanos >= recoveryActiveNanos) {
+                watching = false;
+                recoveries++;
+                listener.onRecovered(fallNanos, end - fallNanos);
+            } else if (!longLieReported && end - fallNanos >= longLieNanos) {
+                longLieReported = true;
+                longLies++;
+                listener.onLongLie(fallNanos, end - fallNanos);
+            }
+            // The fall alert already covers stillness during the watch
+            return;
+        }
+        if (!stillnessReported && daytimeStillNanos >= prolongedStillnessNanos) {
+            stillnessReported = true;
+            prolongedStillness++;
+            listener.onProlongedStillness(stillSinceNanos, end - stillSinceNanos);
+        }
+    }
+
+    public boolean watching() {
+        return watching;
+    }
+
+    /** Still time counted towards prolonged stillness so far. */
+    public long daytimeStillNanos() {
+        return daytimeStillNanos;
+    }
+
+    public long longLies() {
+        return longLies;
+    }
+
+    public long recoveries() {
+        return recoveries;
+    }
+
+    public long prolongedStillnessAlerts() {
+        return prolongedStillness;
+    }
+
+    @Override
+    public String toString() {
+        return "InactivityMonitor{watching=" + watching
+                + ", daytimeStillSeconds=" + daytimeStillNanos / 1_000_000_000L
+                + ", longLies=" + longLies
+                + ", recoveries=" + recoveries
+                + ", prolongedStillness=" + prolongedStillness + "}";
+    }
+}
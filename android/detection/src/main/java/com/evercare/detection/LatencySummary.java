@@ -0,0 +1,25 @@
+package com.evercare.detection;
+
+/** Immutable summary of a {@link LatencyHistogram}, safe to hand to other threads. */
+public final class LatencySummary {
+
+    public final long count;
+    public final long meanNanos;
+    public final long p50Nanos;
+    public final long p99Nanos;
+    public final long maxNanos;
+
+    public LatencySummary(LatencyHistogram histogram) {
+        this.count = histogram.count();
+        this.meanNanos = histogram.mean();
+        this.p50Nanos = histogram.percentile(0.5);
+        this.p99Nanos = histogram.percentile(0.99);
+        this.maxNanos = histogram.max();
+    }
+
+    @Override
+    public String toString() {
+        return "count=" + count + " mean=" + meanNanos + "ns p50=" + p50Nanos
+                + "ns p99=" + p99Nanos + "ns max=" + maxNanos + "ns";
+    }
+}
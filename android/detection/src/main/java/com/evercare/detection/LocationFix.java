@@ -0,0 +1,34 @@
+package com.evercare.detection;
+
+/**
+ * A position fix. {@code elapsedNanos} is on the elapsedRealtime clock (like sensor timestamps)
+ * and is what ages are measured against; {@code timeMillis} is the provider's wall-clock time.
+ */
+public final class LocationFix {
+
+    public final String provider;
+    public final double latitude;
+    public final double longitude;
+    public final float accuracyMeters;
+    public final long timeMillis;
+    public final long elapsedNanos;
+
+    public LocationFix(String provider, double latitude, double longitude, float accuracyMeters, long timeMillis,
+                       long elapsedNanos) {
+        this.provider = provider;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.accuracyMeters = accuracyMeters;
+        this.timeMillis = timeMillis;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public long ageNanos(long nowElapsedNanos) {
+        return nowElapsedNanos - elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return "LocationFix{" + provider + " " + latitude + "," + longitude + " ±" + accuracyMeters + "m}";
+    }
+}
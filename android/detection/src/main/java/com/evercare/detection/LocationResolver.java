@@ -0,0 +1,207 @@
+package com.evercare.detection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Finds the best available position for a fall.
+ *
+ * While idle it only remembers fixes handed to {@link #onPassiveFix} (a passive subscription
+ * costs nothing by itself). {@link #resolve} asks every enabled source for a fresh fix at once
+ * and keeps the best one. It finishes as soon as a fix is accurate enough, or when the deadline
+ * passes, falling back to the best cached fix. Outstanding requests are cancelled either way.
+ * Not thread-safe: sources and the scheduler must call back on the resolving thread.
+ */
+public final class LocationResolver {
+
+    // A fix this much newer wins regardless of accuracy, as in the platform's guidance
+    private static final long SIGNIFICANTLY_NEWER_NANOS = 120_000_000_000L;
+    private static final float SIGNIFICANTLY_LESS_ACCURATE_METERS = 200f;
+
+    public interface Scheduler {
+        long elapsedNanos();
+
+        LocationSource.Request schedule(Runnable task, long delayNanos);
+    }
+
+    public interface Callback {
+        void onResolved(Resolution resolution);
+    }
+
+    /** The outcome of one {@link #resolve} call. {@code fix} is null if no position is known. */
+    public static final class Resolution {
+        public final LocationFix fix;
+        public final long ageNanos;
+        /** True if the fix arrived during the race rather than from a cache. */
+        public final boolean fresh;
+        public final long waitedNanos;
+
+        Resolution(LocationFix fix, long ageNanos, boolean fresh, long waitedNanos) {
+            this.fix = fix;
+            this.ageNanos = ageNanos;
+            this.fresh = fresh;
+            this.waitedNanos = waitedNanos;
+        }
+
+        @Override
+        public String toString() {
+            if (fix == null) {
+                return "Resolution{no fix, waited " + waitedNanos / 1_000_000 + "ms}";
+            }
+            return "Resolution{" + fix + ", age " + ageNanos / 1_000_000 + "ms, "
+                    + (fresh ? "fresh" : "cached") + ", waited " + waitedNanos / 1_000_000 + "ms}";
+        }
+    }
+
+    private final List<LocationSource> sources;
+    private final Scheduler scheduler;
+    private final float goodAccuracyMeters;
+    private final List<Race> races = new ArrayList<>();
+    private LocationFix cached;
+
+    public LocationResolver(List<LocationSource> sources, Scheduler scheduler, float goodAccuracyMeters) {
+        this.sources = new ArrayList<>(sources);
+        this.scheduler = scheduler;
+        this.goodAccuracyMeters = goodAccuracyMeters;
+    }
+
+    public void onPassiveFix(LocationFix fix) {
+        if (isBetter(fix, cached)) {
+            cached = fix;
+        }
+    }
+
+    /** The best fix seen so far, from any source. */
+    public LocationFix cached() {
+        return cached;
+    }
+
+    public void resolve(long timeoutNanos, Callback callback) {
+        Race race = new Race(callback);
+        races.add(race);
+        race.start(timeoutNanos);
+    }
+
+    /** Finishes every outstanding race now with whatever it has. */
+    public void finishAll() {
+        for (Race race : new ArrayList<>(races)) {
+            race.finish();
+        }
+    }
+
+    int outstanding() {
+        return races.size();
+    }
+
+    /** Whether {@code candidate} should replace {@code current}. */
+    static boolean isBetter(LocationFix candidate, LocationFix current) {
+        if (candidate == null) {
+            return false;
+        }
+        if (current == null) {
+            return true;
+        }
+        long newerBy = candidate.elapsedNanos - current.elapsedNanos;
+        if (newerBy > SIGNIFICANTLY_NEWER_NANOS) {
+            return true;
+        }
+        if (newerBy < -SIGNIFICANTLY_NEWER_NANOS) {
+            return false;
+        }
+        float lessAccurateBy = candidate.accuracyMeters - current.accuracyMeters;
+        if (lessAccurateBy < 0) {
+            return true;
+        }
+        boolean newer = newerBy > 0;
+        if (newer && lessAccurateBy == 0) {
+            return true;
+        }
+        return newer && lessAccurateBy <= SIGNIFICANTLY_LESS_ACCURATE_METERS
+                && candidate.provider != null && candidate.provider.equals(current.provider);
+    }
+
+    private final class Race implements LocationSource.FixCallback, Runnable {
+
+        private final Callback callback;
+        private final List<LocationSource.Request> requests = new ArrayList<>();
+        private LocationSource.Request timeout;
+        private LocationFix best;
+        private long startedNanos;
+        private boolean done = false;
+
+        Race(Callback callback) {
+            this.callback = callback;
+        }
+
+        void start(long timeoutNanos) {
+            startedNanos = scheduler.elapsedNanos();
+            for (LocationSource source : sources) {
+                if (done) {
+                    // A source answered synchronously with a good enough fix
+                    return;
+                }
+                if (!source.isEnabled()) {
+                    continue;
+                }
+                LocationSource.Request request = source.requestFix(this);
+                if (request != null) {
+                    requests.add(request);
+                }
+            }
+            if (done) {
+                return;
+            }
+            if (requests.isEmpty()) {
+                finish();
+                return;
+            }
+            timeout = scheduler.schedule(this, timeoutNanos);
+        }
+
+        @Override
+        public void onFix(LocationFix fix) {
+            if (done) {
+                return;
+            }
+            onPassiveFix(fix);
+            if (isBetter(fix, best)) {
+                best = fix;
+            }
+            if (best.accuracyMeters <= goodAccuracyMeters) {
+                finish();
+            }
+        }
+
+        // Deadline
+        @Override
+        public void run() {
+            timeout = null;
+            finish();
+        }
+
+        void finish() {
+            if (done) {
+                return;
+            }
+            done = true;
+            races.remove(this);
+            for (LocationSource.Request request : requests) {
+                request.cancel();
+            }
+            if (timeout != null) {
+                timeout.cancel();
+            }
+
+            long now = scheduler.elapsedNanos();
+            LocationFix fix = best;
+            boolean fresh = fix != null;
+            if (fix == null) {
+                for (LocationSource source : sources) {
+                    onPassiveFix(source.lastKnown());
+                }
+                fix = cached;
+            }
+            callback.onResolved(new Resolution(fix, fix != null ? fix.ageNanos(now) : 0, fresh, now - startedNanos));
+        }
+    }
+}
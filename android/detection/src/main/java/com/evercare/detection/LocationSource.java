@@ -0,0 +1,31 @@
+package com.evercare.detection;
+
+/**
+ * One location provider as seen by {@link LocationResolver}. Implementations deliver fixes on the
+ * resolver's thread.
+ */
+public interface LocationSource {
+
+    interface FixCallback {
+        void onFix(LocationFix fix);
+    }
+
+    /** An outstanding request or scheduled task. */
+    interface Request {
+        void cancel();
+    }
+
+    String name();
+
+    /** Whether the provider is switched on and the app may use it. */
+    boolean isEnabled();
+
+    /** The provider's cached fix, or null. */
+    LocationFix lastKnown();
+
+    /**
+     * Asks for one fresh fix. Returns null if the request couldn't be started. The callback may
+     * never run if the provider can't get a fix.
+     */
+    Request requestFix(FixCallback callback);
+}
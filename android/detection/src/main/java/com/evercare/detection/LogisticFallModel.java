@@ -0,0 +1,66 @@
+package com.evercare.detection;
+
+/**
+ * Logistic regression over standardised features:
+ * {@code sigmoid(bias + sum(weight[i] * (x[i] - mean[i]) / scale[i]))}.
+ */
+public final class LogisticFallModel implements FallModel {
+
+    private final float[] means;
+    private final float[] inverseScales;
+    private final float[] weights;
+    private final float bias;
+    private final float threshold;
+
+    public LogisticFallModel(float[] means, float[] scales, float[] weights, float bias, float threshold) {
+        if (means.length != scales.length || means.length != weights.length || means.length == 0) {
+            throw new IllegalArgumentException("means, scales and weights must have the same non-zero length");
+        }
+        this.means = means.clone();
+        this.inverseScales = new float[scales.length];
+        for (int i = 0; i < scales.length; i++) {
+            if (!(scales[i] > 0)) {
+                throw new IllegalArgumentException("scale " + i + " must be positive: " + scales[i]);
+            }
+            inverseScales[i] = 1f / scales[i];
+        }
+        this.weights = weights.clone();
+        this.bias = bias;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public int featureCount() {
+        return weights.length;
+    }
+
+    @Override
+    public float probability(float[] features, int offset) {
+        float z = bias;
+        for (int i = 0; i < weights.length; i++) {
+            z += weights[i] * (features[offset + i] - means[i]) * inverseScales[i];
+        }
+        return (float) (1 / (1 + Math.exp(-z)));
+    }
+
+    @Override
+    public float threshold() {
+        return threshold;
+    }
+
+    public float mean(int feature) {
+        return means[feature];
+    }
+
+    public float scale(int feature) {
+        return 1f / inverseScales[feature];
+    }
+
+    public float weight(int feature) {
+        return weights[feature];
+    }
+
+    public float bias() {
+        return bias;
+    }
+}
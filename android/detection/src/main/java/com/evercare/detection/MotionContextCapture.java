@@ -0,0 +1,108 @@
+package com.evercare.detection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the recent raw accelerometer stream so each fall can carry the motion around it.
+ *
+ * Every sample goes into a primitive ring. {@link #capture} asks for the window from
+ * {@code preNanos} before the onset to {@code postNanos} after detection. The window is copied out
+ * on the sampling thread once the samples past its end have arrived, so sampling never pauses.
+ * Size the ring for the pre window, the time from onset to detection, the post window, and one
+ * sensor batch. If the ring was too small, the start of the window is cut off.
+ * Single-threaded, like {@link FallDetector}.
+ */
+public final class MotionContextCapture implements SampleSink {
+
+    public interface Callback {
+        void onCaptured(MotionTrace trace);
+    }
+
+    private static final class Pending {
+        final long anchorNanos;
+        final long fromNanos;
+        final long toNanos;
+        final Callback callback;
+
+        Pending(long anchorNanos, long fromNanos, long toNanos, Callback callback) {
+            this.anchorNanos = anchorNanos;
+            this.fromNanos = fromNanos;
+            this.toNanos = toNanos;
+            this.callback = callback;
+        }
+    }
+
+    private final SampleRingBuffer ring;
+    private final long preNanos;
+    private final long postNanos;
+    private final List<Pending> pending = new ArrayList<>();
+
+    public MotionContextCapture(int capacity, long preNanos, long postNanos) {
+        this.ring = new SampleRingBuffer(capacity);
+        this.preNanos = preNanos;
+        this.postNanos = postNanos;
+    }
+
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        // Magnitude isn't needed for the trace
+        ring.push(timestampNanos, x, y, z, 0f);
+        if (!pending.isEmpty()) {
+            completeDue(timestampNanos);
+        }
+    }
+
+    /** Captures the window around a fall with the given onset and detection times. */
+    public void capture(long onsetNanos, long detectedNanos, Callback callback) {
+        pending.add(new Pending(onsetNanos, onsetNanos - preNanos, detectedNanos + postNanos, callback));
+        if (ring.size() > 0) {
+            completeDue(ring.timestampAt(ring.size() - 1));
+        }
+    }
+
+    /** Completes every outstanding capture now with the samples it has. */
+    public void flush() {
+        completeDue(Long.MAX_VALUE);
+    }
+
+    public int pendingCaptures() {
+        return pending.size();
+    }
+
+    private void completeDue(long newestNanos) {
+        for (int i = 0; i < pending.size(); ) {
+            Pending request = pending.get(i);
+            if (newestNanos >= request.toNanos) {
+                pending.remove(i);
+                request.callback.onCaptured(snapshot(request));
+            } else {
+                i++;
+            }
+        }
+    }
+
+    private MotionTrace snapshot(Pending request) {
+        int size = ring.size();
+        int first = 0;
+        while (first < size && ring.timestampAt(first) < request.fromNanos) {
+            first++;
+        }
+        int end = first;
+        while (end < size && ring.timestampAt(end) <= request.toNanos) {
+            end++;
+        }
+        int count = end - first;
+        long[] timestamps = new long[count];
+        float[] x = new float[count];
+        float[] y = new float[count];
+        float[] z = new float[count];
+        for (int i = 0; i < count; i++) {
+            timestamps[i] = ring.timestampAt(first + i);
+            x[i] = ring.xAt(first + i);
+            y[i] = ring.yAt(first + i);
+            z[i] = ring.zAt(first + i);
+        }
+        return new MotionTrace(request.anchorNanos, timestamps, x, y, z);
+    }
+}
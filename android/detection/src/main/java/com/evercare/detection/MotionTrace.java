@@ -0,0 +1,40 @@
+package com.evercare.detection;
+
+/**
+ * Raw accelerometer samples around a fall. Timestamps are on the sensor clock; {@code anchorNanos}
+ * is the fall onset on the same clock, so {@code timestampsNanos[i] - anchorNanos} is the time
+ * relative to the onset.
+ */
+public final class MotionTrace {
+
+    public final long anchorNanos;
+    public final long[] timestampsNanos;
+    public final float[] x;
+    public final float[] y;
+    public final float[] z;
+
+    public MotionTrace(long anchorNanos, long[] timestampsNanos, float[] x, float[] y, float[] z) {
+        if (x.length != timestampsNanos.length || y.length != timestampsNanos.length
+                || z.length != timestampsNanos.length) {
+            throw new IllegalArgumentException("sample arrays differ in length");
+        }
+        this.anchorNanos = anchorNanos;
+        this.timestampsNanos = timestampsNanos;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public int size() {
+        return timestampsNanos.length;
+    }
+
+    @Override
+    public String toString() {
+        if (size() == 0) {
+            return "MotionTrace{empty}";
+        }
+        return "MotionTrace{" + size() + " samples, " + (timestampsNanos[0] - anchorNanos) / 1_000_000 + "ms to "
+                + (timestampsNanos[size() - 1] - anchorNanos) / 1_000_000 + "ms around onset}";
+    }
+}
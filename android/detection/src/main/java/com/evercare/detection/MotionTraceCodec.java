@@ -0,0 +1,178 @@
+package com.evercare.detection;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Compact encoding for {@link MotionTrace}s attached to fall records.
+ *
+ * Axis values are quantized to {@link #RESOLUTION} m/s² and stored as zigzag varint deltas from
+ * the previous sample. Timestamps are quantized to microseconds relative to the anchor and stored
+ * as delta-of-delta, which is zero or close to it at a steady sample rate. At 50 Hz a sample
+ * usually takes four or five bytes, so a 15 s trace is a few KB.
+ *
+ * Layout: version byte, resolution (float, little-endian), anchor (varlong, nanos), sample count
+ * (varint), then per sample the time delta-of-delta followed by the x, y and z deltas.
+ */
+public final class MotionTraceCodec {
+
+    public static final int VERSION = 1;
+    /** Quantization step in m/s², well below accelerometer noise. */
+    public static final float RESOLUTION = 0.01f;
+
+    private static final long TIME_UNIT_NANOS = 1000;
+
+    private MotionTraceCodec() {
+    }
+
+    public static byte[] encode(MotionTrace trace) {
+        int count = trace.size();
+        Output out = new Output(16 + count * 6);
+        out.writeByte(VERSION);
+        int resolutionBits = Float.floatToIntBits(RESOLUTION);
+        for (int i = 0; i < 4; i++) {
+            out.writeByte(resolutionBits >>> (8 * i));
+        }
+        out.writeVarLong(trace.anchorNanos);
+        out.writeVarLong(count);
+
+        long previousTicks = 0;
+        long previousDelta = 0;
+        int px = 0;
+        int py = 0;
+        int pz = 0;
+        for (int i = 0; i < count; i++) {
+            long ticks = Math.round((trace.timestampsNanos[i] - trace.anchorNanos) / (double) TIME_UNIT_NANOS);
+            long delta = ticks - previousTicks;
+            out.writeVarLong(zigzag(i == 0 ? ticks : delta - previousDelta));
+            previousDelta = i == 0 ? 0 : delta;
+            previousTicks = ticks;
+
+            int qx = quantize(trace.x[i]);
+            int qy = quantize(trace.y[i]);
+            int qz = quantize(trace.z[i]);
+            out.writeVarLong(zigzag(qx - px));
+            out.writeVarLong(zigzag(qy - py));
+            out.writeVarLong(zigzag(qz - pz));
+            px = qx;
+            py = qy;
+            pz = qz;
+        }
+        return out.toByteArray();
+    }
+
+    public static MotionTrace decode(byte[] data) throws IOException {
+        Input in = new Input(data);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported motion trace version " + version);
+        }
+        int resolutionBits = 0;
+        for (int i = 0; i < 4; i++) {
+            resolutionBits |= in.readByte() << (8 * i);
+        }
+        float resolution = Float.intBitsToFloat(resolutionBits);
+        long anchor = in.readVarLong();
+        long count = in.readVarLong();
+        // Every sample takes at least four bytes
+        if (count < 0 || count > (data.length - in.position) / 4) {
+            throw new IOException("Corrupt motion trace: " + count + " samples in " + data.length + " bytes");
+        }
+
+        int n = (int) count;
+        long[] timestamps = new long[n];
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] z = new float[n];
+        long ticks = 0;
+        long delta = 0;
+        int qx = 0;
+        int qy = 0;
+        int qz = 0;
+        for (int i = 0; i < n; i++) {
+            long value = unzigzag(in.readVarLong());
+            if (i == 0) {
+                ticks = value;
+            } else {
+                delta += value;
+                ticks += delta;
+            }
+            timestamps[i] = anchor + ticks * TIME_UNIT_NANOS;
+            qx += (int) unzigzag(in.readVarLong());
+            qy += (int) unzigzag(in.readVarLong());
+            qz += (int) unzigzag(in.readVarLong());
+            x[i] = qx * resolution;
+            y[i] = qy * resolution;
+            z[i] = qz * resolution;
+        }
+        return new MotionTrace(anchor, timestamps, x, y, z);
+    }
+
+    private static int quantize(float value) {
+        return Math.round(value / RESOLUTION);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static final class Output {
+        private byte[] buffer;
+        private int size = 0;
+
+        Output(int initialCapacity) {
+            buffer = new byte[initialCapacity];
+        }
+
+        void writeByte(int value) {
+            if (size == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            writeByte((int) value);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
+    private static final class Input {
+        private final byte[] data;
+        private int position = 0;
+
+        Input(byte[] data) {
+            this.data = data;
+        }
+
+        int readByte() throws IOException {
+            if (position >= data.length) {
+                throw new IOException("Truncated motion trace");
+            }
+            return data[position++] & 0xFF;
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Corrupt motion trace: varint too long");
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.evercare.detection;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One record waiting in the {@link FallEventOutbox}. The id is assigned once, when the event is
+ * first recorded, and is used as the remote document id so replaying an entry is idempotent.
+ *
+ * Field values are limited to {@code String}, {@code Long}, {@code Double} and {@code Boolean}.
+ */
+public final class OutboxEntry {
+
+    public final String id;
+    public final long createdAtMillis;
+    public final Map<String, Object> fields;
+
+    public OutboxEntry(String id, long createdAtMillis, Map<String, Object> fields) {
+        if (id == null || id.isEmpty()) {
+            throw new IllegalArgumentException("id must not be empty");
+        }
+        for (Map.Entry<String, Object> field : fields.entrySet()) {
+            Object value = field.getValue();
+            if (!(value instanceof String || value instanceof Long || value instanceof Double
+                    || value instanceof Boolean)) {
+                throw new IllegalArgumentException("Unsupported value for " + field.getKey() + ": " + value);
+            }
+        }
+        this.id = id;
+        this.createdAtMillis = createdAtMillis;
+        this.fields = Collections.unmodifiableMap(new LinkedHashMap<>(fields));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof OutboxEntry)) {
+            return false;
+        }
+        OutboxEntry other = (OutboxEntry) o;
+        return id.equals(other.id) && createdAtMillis == other.createdAtMillis && fields.equals(other.fields);
+    }
+
+    @Override
+    public int hashCode() {
+        return id.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "OutboxEntry{id=" + id + ", createdAtMillis=" + createdAtMillis + ", fields=" + fields + "}";
+    }
+}
@@ -0,0 +1,42 @@
+package com.evercare.detection;
+
+import java.util.Random;
+
+/**
+ * Exponential backoff with equal jitter: the n-th consecutive failure waits a random time between
+ * half and all of {@code min(maxMillis, initialMillis * 2^(n-1))}. Keeping the lower half means
+ * a failing upload never retries straight away, while clients that failed together still spread out.
+ */
+public final class RetryBackoff {
+
+    private final long initialMillis;
+    private final long maxMillis;
+    private final Random random;
+    private int failures = 0;
+
+    public RetryBackoff(long initialMillis, long maxMillis, Random random) {
+        this.initialMillis = initialMillis;
+        this.maxMillis = maxMillis;
+        this.random = random;
+    }
+
+    /** Records a failure and returns how long to wait before the next attempt. */
+    public long nextDelayMillis() {
+        failures++;
+        long ceiling = initialMillis;
+        for (int i = 1; i < failures && ceiling < maxMillis; i++) {
+            ceiling *= 2;
+        }
+        ceiling = Math.min(ceiling, maxMillis);
+        long half = ceiling / 2;
+        return half + (long) (random.nextDouble() * (ceiling - half));
+    }
+
+    public void reset() {
+        failures = 0;
+    }
+
+    public int failures() {
+        return failures;
+    }
+}
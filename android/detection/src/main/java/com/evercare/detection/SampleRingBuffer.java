@@ -0,0 +1,91 @@
+package com.evercare.detection;
+
+/**
+ * Fixed-capacity ring buffer of accelerometer samples backed by primitive arrays.
+ *
+ * Pushing a sample never allocates; once the buffer is full the oldest sample is overwritten.
+ * Samples are addressed by age, where index 0 is the oldest retained sample and
+ * {@code size() - 1} is the newest.
+ */
+public final class SampleRingBuffer {
+
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+    private final float[] magnitudes;
+    private final int mask;
+
+    private long written = 0;
+
+    public SampleRingBuffer(int minCapacity) {
+        if (minCapacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + minCapacity);
+        }
+        int capacity = Integer.highestOneBit(minCapacity);
+        if (capacity < minCapacity) {
+            capacity <<= 1;
+        }
+        timestamps = new long[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        zs = new float[capacity];
+        magnitudes = new float[capacity];
+        mask = capacity - 1;
+    }
+
+    public void push(long timestampNanos, float x, float y, float z, float magnitude) {
+        int slot = (int) (written & mask);
+        timestamps[slot] = timestampNanos;
+        xs[slot] = x;
+        ys[slot] = y;
+        zs[slot] = z;
+        magnitudes[slot] = magnitude;
+        written++;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public int size() {
+        return (int) Math.min(written, mask + 1);
+    }
+
+    /** Total number of samples ever pushed, including overwritten ones. */
+    public long written() {
+        return written;
+    }
+
+    public void clear() {
+        written = 0;
+    }
+
+    public long timestampAt(int index) {
+        return timestamps[slot(index)];
+    }
+
+    public float xAt(int index) {
+        return xs[slot(index)];
+    }
+
+    public float yAt(int index) {
+        return ys[slot(index)];
+    }
+
+    public float zAt(int index) {
+        return zs[slot(index)];
+    }
+
+    public float magnitudeAt(int index) {
+        return magnitudes[slot(index)];
+    }
+
+    private int slot(int index) {
+        int size = size();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + " outside [0, " + size + ")");
+        }
+        return (int) ((written - size + index) & mask);
+    }
+}
@@ -0,0 +1,13 @@
+package com.evercare.detection;
+
+/** Consumer of raw accelerometer samples: a detector, a pipeline stage or a recorder. */
+public interface SampleSink {
+
+    /**
+     * @param timestampNanos sensor timestamp of the sample
+     * @param x acceleration along x, in m/s²
+     * @param y acceleration along y, in m/s²
+     * @param z acceleration along z, in m/s²
+     */
+    void onSample(long timestampNanos, float x, float y, float z);
+}
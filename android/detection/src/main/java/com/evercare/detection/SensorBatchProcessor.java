@@ -0,0 +1,118 @@
+package com.evercare.detection;
+
+/**
+ * Feeds batched sensor samples into a {@link FallDetector}, through the
+ * {@link FixedRateResampler} that leads the pipeline.
+ *
+ * When the accelerometer is registered with a max report latency the hardware FIFO delivers
+ * samples in bursts, all with their original sensor timestamps. Samples are collected here and
+ * run through the detector in one tight loop once the burst is complete, which is detected by a
+ * sample whose timestamp is close to the current time or by the buffer filling up.
+ *
+ * As soon as the detector reports a candidate the processor asks for real-time delivery, and it
+ * only goes back to batching after no candidate has been seen for {@code realtimeHoldNanos} of
+ * sensor time. Like the detector, this class must be used from a single thread.
+ */
+public final class SensorBatchProcessor {
+
+    public interface LatencyModeListener {
+        void onRealtimeModeChanged(boolean realtime);
+    }
+
+    private final FallDetector detector;
+    private final FixedRateResampler resampler;
+    private final long freshnessNanos;
+    private final long realtimeHoldNanos;
+    private final LatencyModeListener listener;
+
+    private final long[] timestamps;
+    private final float[] xs;
+    private final float[] ys;
+    private final float[] zs;
+    private int count = 0;
+
+    private boolean realtime = false;
+    private long lastCandidateNanos = Long.MIN_VALUE;
+    private long batchesProcessed = 0;
+
+    /** {@code resampler} must feed {@code detector}. */
+    public SensorBatchProcessor(FixedRateResampler resampler, FallDetector detector, int capacity,
+                                long freshnessNanos, long realtimeHoldNanos, LatencyModeListener listener) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.resampler = resampler;
+        this.detector = detector;
+        this.freshnessNanos = freshnessNanos;
+        this.realtimeHoldNanos = realtimeHoldNanos;
+        this.listener = listener;
+        this.timestamps = new long[capacity];
+        this.xs = new float[capacity];
+        this.ys = new float[capacity];
+        this.zs = new float[capacity];
+    }
+
+    /**
+     * Queues one sample. {@code nowNanos} must be on the same clock as the sample timestamps
+     * (on Android, {@code SystemClock.elapsedRealtimeNanos()}).
+     */
+    public void add(long timestampNanos, float x, float y, float z, long nowNanos) {
+        timestamps[count] = timestampNanos;
+        xs[count] = x;
+        ys[count] = y;
+        zs[count] = z;
+        count++;
+
+        if (realtime || count == timestamps.length || nowNanos - timestampNanos <= freshnessNanos) {
+            flush();
+        }
+    }
+
+    /** Runs every queued sample through the detector. */
+    public void flush() {
+        if (count == 0) {
+            return;
+        }
+        process(timestamps, xs, ys, zs, count);
+        count = 0;
+    }
+
+    /** Runs {@code length} samples from the given arrays through the detector in order. */
+    public void process(long[] t, float[] x, float[] y, float[] z, int length) {
+        for (int i = 0; i < length; i++) {
+            resampler.onSample(t[i], x[i], y[i], z[i]);
+            if (detector.hasCandidate()) {
+                lastCandidateNanos = t[i];
+            }
+        }
+        batchesProcessed++;
+
+        if (length > 0) {
+            long newest = t[length - 1];
+            boolean wantRealtime = lastCandidateNanos != Long.MIN_VALUE
+                    && newest - lastCandidateNanos < realtimeHoldNanos;
+            if (wantRealtime != realtime) {
+                realtime = wantRealtime;
+                if (listener != null) {
+                    listener.onRealtimeModeChanged(realtime);
+                }
+            }
+        }
+    }
+
+    public FixedRateResampler resampler() {
+        return resampler;
+    }
+
+    public boolean isRealtime() {
+        return realtime;
+    }
+
+    public int pending() {
+        return count;
+    }
+
+    public long batchesProcessed() {
+        return batchesProcessed;
+    }
+}
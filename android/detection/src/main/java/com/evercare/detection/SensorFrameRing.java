@@ -0,0 +1,245 @@
+package com.evercare.detection;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Single-producer/single-consumer ring of accelerometer frames laid out in a {@link ByteBuffer},
+ * so both ends can sit in different processes over one shared mapping.
+ *
+ * The producer never waits: it overwrites the oldest slot and then advances the write sequence
+ * in the header. The consumer keeps its own read sequence. When it falls more than a ring behind,
+ * it skips to the oldest frame still held and counts the skipped frames as dropped. Each slot
+ * carries its sequence number at both ends. A frame is only accepted if both stamps match the
+ * sequence the consumer expects, so a slot the producer is overwriting mid-read counts as
+ * dropped and is never returned torn.
+ *
+ * The two ends only share bytes, so nothing in the Java memory model orders them. The producer
+ * puts a release fence between the leading stamp, the frame, the trailing stamp and the write
+ * sequence, and the consumer puts acquire fences between reading them in reverse. Without that, a
+ * weakly ordered CPU such as ARM could let the stamps become visible before the frame they
+ * guard. The fences come from {@link VarHandle} where the runtime has it (Android API 33 and
+ * up). Older runtimes get a volatile write on the producer side and a volatile read on the
+ * consumer side instead, which ART compiles to the same hardware barriers.
+ *
+ * <pre>
+ * header  int magic 'ECFR', int version, int capacity, int slotBytes, padding to 64,
+ *         long writeSequence, padding to 128
+ * slot    long sequence, long timestampNanos, float x, float y, float z, int sequence
+ * </pre>
+ */
+public final class SensorFrameRing {
+
+    private static final int MAGIC = 0x52464345; // "ECFR" read as a little-endian int
+    private static final int VERSION = 1;
+    private static final int WRITE_SEQUENCE_OFFSET = 64;
+    private static final int HEADER_BYTES = 128;
+    private static final int SLOT_BYTES = 32;
+
+    private SensorFrameRing() {
+    }
+
+    /** Size of the buffer needed for a ring of {@code capacity} frames. */
+    public static int bytesFor(int capacity) {
+        return HEADER_BYTES + checkCapacity(capacity) * SLOT_BYTES;
+    }
+
+    /**
+     * Formats {@code buffer} as an empty ring and returns its producer. Consumers already attached
+     * to the buffer resynchronise on their next poll.
+     */
+    public static Producer producer(ByteBuffer buffer, int capacity) {
+        ByteBuffer ring = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (ring.capacity() < bytesFor(capacity)) {
+            throw new IllegalArgumentException("buffer of " + ring.capacity() + " bytes cannot hold "
+                    + capacity + " frames");
+        }
+        ring.putLong(WRITE_SEQUENCE_OFFSET, 0);
+        ring.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, capacity).putInt(12, SLOT_BYTES);
+        return new Producer(ring, capacity);
+    }
+
+    /**
+     * Attaches to a ring formatted by {@link #producer}. Reading starts at the newest frame, so
+     * nothing written before the call is returned.
+     */
+    public static Consumer consumer(ByteBuffer buffer) throws IOException {
+        ByteBuffer ring = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (ring.capacity() < HEADER_BYTES || ring.getInt(0) != MAGIC) {
+            throw new IOException("Not a sensor frame ring");
+        }
+        if (ring.getInt(4) != VERSION || ring.getInt(12) != SLOT_BYTES) {
+            throw new IOException("Unsupported sensor frame ring version " + ring.getInt(4));
+        }
+        int capacity = ring.getInt(8);
+        if (capacity <= 0 || ring.capacity() < bytesFor(capacity)) {
+            throw new IOException("Sensor frame ring header is corrupt");
+        }
+        return new Consumer(ring, capacity);
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        return capacity;
+    }
+
+    private static int slotOffset(long sequence, int capacity) {
+        return HEADER_BYTES + (int) (sequence % capacity) * SLOT_BYTES;
+    }
+
+    /**
+     * Memory fences: {@link VarHandle}'s where the runtime has them, otherwise a volatile access
+     * that ART backs with a barrier. Kept in their own class so a runtime without
+     * {@link VarHandle} only fails to link this one, not the ring.
+     */
+    private static final class Fences {
+
+        private static final boolean AVAILABLE = available();
+        // Only ever accessed for the barrier that comes with it
+        private static volatile int barrier;
+
+        private static boolean available() {
+            try {
+                VarHandle.class.getMethod("releaseFence");
+                VarHandle.class.getMethod("acquireFence");
+                return true;
+            } catch (Throwable e) {
+                return false;
+            }
+        }
+
+        /** Earlier loads and stores before any later store. */
+        static void release() {
+            if (AVAILABLE) {
+                VarHandle.releaseFence();
+            } else {
+                barrier = 0;
+            }
+        }
+
+        /** Earlier loads before any later load or store. */
+        static void acquire() {
+            if (AVAILABLE) {
+                VarHandle.acquireFence();
+            } else {
+                int ignored = barrier;
+            }
+        }
+    }
+
+    /** Writing end. Not thread-safe; call it from the sensor thread only. */
+    public static final class Producer implements SampleSink {
+
+        private final ByteBuffer ring;
+        private final int capacity;
+        private long written = 0;
+
+        private Producer(ByteBuffer ring, int capacity) {
+            this.ring = ring;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public void onSample(long timestampNanos, float x, float y, float z) {
+            long sequence = written;
+            int offset = slotOffset(sequence, capacity);
+            // Leading stamp first and trailing stamp last; see Consumer.poll for the read side
+            ring.putLong(offset, sequence);
+            Fences.release();
+            ring.putLong(offset + 8, timestampNanos);
+            ring.putFloat(offset + 16, x);
+            ring.putFloat(offset + 20, y);
+            ring.putFloat(offset + 24, z);
+            Fences.release();
+            ring.putInt(offset + 28, (int) sequence);
+            written = sequence + 1;
+            Fences.release();
+            ring.putLong(WRITE_SEQUENCE_OFFSET, written);
+        }
+
+        public long written() {
+            return written;
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+    }
+
+    /** Reading end. Not thread-safe; one consumer per ring. */
+    public static final class Consumer {
+
+        private final ByteBuffer ring;
+        private final int capacity;
+        private long next;
+        private long dropped = 0;
+
+        private Consumer(ByteBuffer ring, int capacity) {
+            this.ring = ring;
+            this.capacity = capacity;
+            this.next = ring.getLong(WRITE_SEQUENCE_OFFSET);
+        }
+
+        /**
+         * Copies up to {@code max} frames, oldest first, into the arrays starting at index 0, and
+         * returns how many were copied. Never waits for the producer.
+         */
+        public int poll(long[] timestamps, float[] xs, float[] ys, float[] zs, int max) {
+            long written = ring.getLong(WRITE_SEQUENCE_OFFSET);
+            Fences.acquire();
+            if (written < next) {
+                // The producer started over (its process restarted); carry on from its new position
+                next = written;
+                return 0;
+            }
+            if (written - next > capacity) {
+                dropped += written - next - capacity;
+                next = written - capacity;
+            }
+            int count = 0;
+            while (next < written && count < max) {
+                long sequence = next++;
+                int offset = slotOffset(sequence, capacity);
+                // Reverse of the producer's order: a complete write ends with the trailing stamp, and
+                // an overwrite starts with the leading one
+                int trailing = ring.getInt(offset + 28);
+                Fences.acquire();
+                long timestamp = ring.getLong(offset + 8);
+                float x = ring.getFloat(offset + 16);
+                float y = ring.getFloat(offset + 20);
+                float z = ring.getFloat(offset + 24);
+                Fences.acquire();
+                long leading = ring.getLong(offset);
+                if (leading != sequence || trailing != (int) sequence) {
+                    // Overwritten while we were reading it
+                    dropped++;
+                    continue;
+                }
+                timestamps[count] = timestamp;
+                xs[count] = x;
+                ys[count] = y;
+                zs[count] = z;
+                count++;
+            }
+            return count;
+        }
+
+        /** Frames written but never returned because the consumer fell behind. */
+        public long dropped() {
+            return dropped;
+        }
+
+        /** Frames written and not yet polled, including any that will be dropped. */
+        public long backlog() {
+            return Math.max(0, ring.getLong(WRITE_SEQUENCE_OFFSET) - next);
+        }
+
+        public int capacity() {
+            return capacity;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.evercare.detection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Binary layout of recorded accelerometer traces ({@code .ectr} files).
+ *
+ * <pre>
+ * header (16 bytes, little-endian)
+ *   int   magic            'ECTR'
+ *   short version          1
+ *   short recordBytes      20
+ *   long  startEpochMillis wall-clock time the recording started
+ * records (20 bytes each, little-endian)
+ *   long  timestampNanos   sensor timestamp
+ *   float x, y, z          acceleration in m/s²
+ * </pre>
+ *
+ * A file cut short by a crash simply ends at the last complete record.
+ */
+public final class SensorTraceFormat {
+
+    public static final int MAGIC = 0x52544345; // "ECTR" read as a little-endian int
+    public static final short VERSION = 1;
+    public static final int HEADER_BYTES = 16;
+    public static final int RECORD_BYTES = 20;
+    public static final String FILE_EXTENSION = ".ectr";
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private SensorTraceFormat() {
+    }
+
+    static void writeHeader(ByteBuffer buffer, long startEpochMillis) {
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) RECORD_BYTES);
+        buffer.putLong(startEpochMillis);
+    }
+
+    /** Validates the header at the buffer's position and returns the recording start time. */
+    static long readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES) {
+            throw new IOException("Trace too short for header: " + buffer.remaining() + " bytes");
+        }
+        int magic = buffer.getInt();
+        if (magic != MAGIC) {
+            throw new IOException("Not a sensor trace, bad magic: 0x" + Integer.toHexString(magic));
+        }
+        short version = buffer.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version: " + version);
+        }
+        short recordBytes = buffer.getShort();
+        if (recordBytes != RECORD_BYTES) {
+            throw new IOException("Unexpected record size: " + recordBytes);
+        }
+        return buffer.getLong();
+    }
+}
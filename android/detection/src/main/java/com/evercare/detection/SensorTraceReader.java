@@ -0,0 +1,82 @@
+package com.evercare.detection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Memory-maps a trace file written in {@link SensorTraceFormat} and streams its samples.
+ *
+ * Files larger than a single mapping are mapped in segments. A trailing partial record, left
+ * behind when a recording was interrupted, is ignored.
+ */
+public final class SensorTraceReader implements Closeable {
+
+    // Largest whole number of records that fits in one mapping
+    private static final long MAX_SEGMENT_BYTES =
+            (Integer.MAX_VALUE / SensorTraceFormat.RECORD_BYTES) * (long) SensorTraceFormat.RECORD_BYTES;
+
+    private final File file;
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private final long startEpochMillis;
+    private final long sampleCount;
+
+    public SensorTraceReader(File file) throws IOException {
+        this.file = file;
+        this.raf = new RandomAccessFile(file, "r");
+        this.channel = raf.getChannel();
+        try {
+            long size = channel.size();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    Math.min(size, SensorTraceFormat.HEADER_BYTES));
+            header.order(SensorTraceFormat.BYTE_ORDER);
+            this.startEpochMillis = SensorTraceFormat.readHeader(header);
+            this.sampleCount = (size - SensorTraceFormat.HEADER_BYTES) / SensorTraceFormat.RECORD_BYTES;
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public long startEpochMillis() {
+        return startEpochMillis;
+    }
+
+    public long sampleCount() {
+        return sampleCount;
+    }
+
+    /** Streams every sample, in file order, to {@code sink}. Returns the number of samples read. */
+    public long replay(SampleSink sink) throws IOException {
+        long position = SensorTraceFormat.HEADER_BYTES;
+        long remaining = sampleCount * SensorTraceFormat.RECORD_BYTES;
+        while (remaining > 0) {
+            long length = Math.min(remaining, MAX_SEGMENT_BYTES);
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            segment.order(SensorTraceFormat.BYTE_ORDER);
+            while (segment.hasRemaining()) {
+                long timestampNanos = segment.getLong();
+                float x = segment.getFloat();
+                float y = segment.getFloat();
+                float z = segment.getFloat();
+                sink.onSample(timestampNanos, x, y, z);
+            }
+            position += length;
+            remaining -= length;
+        }
+        return sampleCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        raf.close();
+    }
+}
@@ -0,0 +1,100 @@
+package com.evercare.detection;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Records the live sample stream into a directory of rolling trace files.
+ *
+ * A new file is started whenever the current one reaches {@code maxFileBytes}, and the oldest
+ * files are deleted so the directory never holds more than {@code maxFiles} traces. Recording
+ * errors are reported through {@link #lastError()} rather than thrown, so a full disk can never
+ * break detection.
+ */
+public final class SensorTraceRecorder implements SampleSink {
+
+    private final File directory;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Clock clock;
+
+    private SensorTraceWriter writer;
+    private IOException lastError;
+
+    /** Wall-clock source, used to stamp and name trace files. */
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    public SensorTraceRecorder(File directory, long maxFileBytes, int maxFiles, Clock clock) {
+        this.directory = directory;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.clock = clock;
+    }
+
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        try {
+            if (writer == null || writer.sizeBytes() + SensorTraceFormat.RECORD_BYTES > maxFileBytes) {
+                roll();
+            }
+            writer.append(timestampNanos, x, y, z);
+        } catch (IOException e) {
+            lastError = e;
+            closeQuietly();
+        }
+    }
+
+    public IOException lastError() {
+        return lastError;
+    }
+
+    public File currentFile() {
+        return writer == null ? null : writer.file();
+    }
+
+    public void close() {
+        closeQuietly();
+    }
+
+    private void roll() throws IOException {
+        closeQuietly();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create trace directory " + directory);
+        }
+        long now = clock.currentTimeMillis();
+        String name = "trace-" + new SimpleDateFormat("yyyyMMdd-HHmmss-SSS", Locale.US).format(new Date(now))
+                + SensorTraceFormat.FILE_EXTENSION;
+        writer = new SensorTraceWriter(new File(directory, name), now);
+        pruneOldFiles();
+    }
+
+    private void pruneOldFiles() {
+        File[] traces = directory.listFiles((dir, name) -> name.endsWith(SensorTraceFormat.FILE_EXTENSION));
+        if (traces == null || traces.length <= maxFiles) {
+            return;
+        }
+        // Names sort chronologically
+        Arrays.sort(traces);
+        for (int i = 0; i < traces.length - maxFiles; i++) {
+            traces[i].delete();
+        }
+    }
+
+    private void closeQuietly() {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            lastError = e;
+        }
+        writer = null;
+    }
+}
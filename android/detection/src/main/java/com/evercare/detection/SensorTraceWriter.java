@@ -0,0 +1,94 @@
+package com.evercare.detection;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Appends accelerometer samples to a trace file in {@link SensorTraceFormat}.
+ *
+ * Samples are staged in a preallocated direct buffer and written out when it fills up, so
+ * {@link #append} does not allocate and only touches the disk once every few thousand samples.
+ */
+public final class SensorTraceWriter implements SampleSink, Closeable {
+
+    private static final int BUFFER_RECORDS = 4096;
+
+    private final File file;
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private long samplesWritten = 0;
+    private IOException failure;
+
+    public SensorTraceWriter(File file, long startEpochMillis) throws IOException {
+        this.file = file;
+        this.channel = new FileOutputStream(file).getChannel();
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * SensorTraceFormat.RECORD_BYTES)
+                .order(SensorTraceFormat.BYTE_ORDER);
+        SensorTraceFormat.writeHeader(buffer, startEpochMillis);
+    }
+
+    public void append(long timestampNanos, float x, float y, float z) throws IOException {
+        if (buffer.remaining() < SensorTraceFormat.RECORD_BYTES) {
+            flush();
+        }
+        buffer.putLong(timestampNanos);
+        buffer.putFloat(x);
+        buffer.putFloat(y);
+        buffer.putFloat(z);
+        samplesWritten++;
+    }
+
+    /**
+     * {@link SampleSink} entry point. The first I/O error is kept and later samples are dropped;
+     * check {@link #failure()} to find out whether recording is still working.
+     */
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        if (failure != null) {
+            return;
+        }
+        try {
+            append(timestampNanos, x, y, z);
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    public File file() {
+        return file;
+    }
+
+    public long samplesWritten() {
+        return samplesWritten;
+    }
+
+    /** Bytes this trace takes on disk once flushed. */
+    public long sizeBytes() {
+        return SensorTraceFormat.HEADER_BYTES + samplesWritten * SensorTraceFormat.RECORD_BYTES;
+    }
+
+    public IOException failure() {
+        return failure;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.evercare.detection;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Small persistent string settings the detection service needs before anything else is up.
+ *
+ * The whole store is one checksummed file that is read in a single call, so loading it costs
+ * about as much as opening the file. Reads come from an immutable snapshot and never block. Each
+ * write encodes the full store to a temporary file, forces it to disk and renames it over the
+ * original. A crash leaves either the old or the new settings, never a mix. A missing, foreign
+ * or corrupt file loads as empty, so a fall is never held up by a bad settings file.
+ *
+ * <pre>
+ * int magic 'ECST', short version, int payloadLength, int crc32(payload), payload
+ * payload  int count, then count x (UTF key, UTF value)
+ * </pre>
+ */
+public final class SettingsStore {
+
+    private static final int MAGIC = 0x54534345; // "ECST" read as a little-endian int
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 14;
+    private static final int MAX_PAYLOAD_BYTES = 64 * 1024;
+
+    private final File file;
+    private volatile Map<String, String> values;
+    private final boolean recoveredFromCorruption;
+
+    private SettingsStore(File file, Map<String, String> values, boolean recoveredFromCorruption) {
+        this.file = file;
+        this.values = values;
+        this.recoveredFromCorruption = recoveredFromCorruption;
+    }
+
+    /** Loads the store at {@code file}; never fails, an unreadable file loads as empty. */
+    public static SettingsStore open(File file) {
+        if (!file.exists()) {
+            return new SettingsStore(file, Collections.<String, String>emptyMap(), false);
+        }
+        try {
+            return new SettingsStore(file, read(file), false);
+        } catch (IOException e) {
+            return new SettingsStore(file, Collections.<String, String>emptyMap(), true);
+        }
+    }
+
+    public String get(String key) {
+        return values.get(key);
+    }
+
+    /** An immutable view of every setting. */
+    public Map<String, String> snapshot() {
+        return values;
+    }
+
+    /** True if a file existed but couldn't be read, so the store started out empty. */
+    public boolean recoveredFromCorruption() {
+        return recoveredFromCorruption;
+    }
+
+    /**
+     * Applies the given changes in one atomic write; a null value removes its key. Returns once
+     * the new settings are on disk. On failure the file and the in-memory values are unchanged.
+     */
+    public synchronized void putAll(Map<String, String> changes) throws IOException {
+        Map<String, String> updated = new LinkedHashMap<>(values);
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() == null) {
+                updated.remove(change.getKey());
+            } else {
+                updated.put(change.getKey(), change.getValue());
+            }
+        }
+        if (updated.equals(values)) {
+            return;
+        }
+        write(updated);
+        values = Collections.unmodifiableMap(updated);
+    }
+
+    public void put(String key, String value) throws IOException {
+        putAll(Collections.singletonMap(key, value));
+    }
+
+    private void write(Map<String, String> settings) throws IOException {
+        byte[] payload = encode(settings);
+        if (payload.length > MAX_PAYLOAD_BYTES) {
+            throw new IOException("Settings too large: " + payload.length + " bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + payload.length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putShort(VERSION).putInt(payload.length).putInt(crc32(payload)).put(payload).flip();
+
+        File temp = new File(file.getPath() + ".tmp");
+        try (RandomAccessFile out = new RandomAccessFile(temp, "rw")) {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    private static Map<String, String> read(File file) throws IOException {
+        byte[] bytes;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            long size = in.length();
+            if (size < HEADER_BYTES || size > HEADER_BYTES + MAX_PAYLOAD_BYTES) {
+                throw new IOException("Bad settings file size " + size);
+            }
+            bytes = new byte[(int) size];
+            in.readFully(bytes);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.getInt() != MAGIC || buffer.getShort() != VERSION) {
+            throw new IOException("Not a settings file: " + file);
+        }
+        int length = buffer.getInt();
+        int crc = buffer.getInt();
+        if (length != bytes.length - HEADER_BYTES) {
+            throw new IOException("Settings payload length mismatch");
+        }
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        if (crc32(payload) != crc) {
+            throw new IOException("Settings checksum mismatch");
+        }
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(payload));
+        int count = data.readInt();
+        Map<String, String> settings = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            String key = data.readUTF();
+            settings.put(key, data.readUTF());
+        }
+        return Collections.unmodifiableMap(settings);
+    }
+
+    private static byte[] encode(Map<String, String> settings) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(settings.size());
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            out.writeUTF(setting.getKey());
+            out.writeUTF(setting.getValue());
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static int crc32(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (int) crc.getValue();
+    }
+}
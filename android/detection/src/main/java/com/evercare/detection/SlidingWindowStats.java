@@ -0,0 +1,148 @@
+package com.evercare.detection;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Mean and variance of a scalar signal over a sliding time window, updated in O(1) amortized
+ * time per sample.
+ *
+ * Samples live in preallocated primitive arrays. Samples older than the window are evicted as
+ * new ones arrive; if the window holds more samples than the buffer capacity, the oldest are
+ * evicted early so the window never allocates. Running sums are rebuilt from the buffer once
+ * per capacity samples so floating-point drift can't accumulate.
+ */
+public final class SlidingWindowStats {
+
+    private final long windowNanos;
+    private final long[] timestamps;
+    private final float[] values;
+    private final int capacity;
+
+    private int head = 0; // index of oldest sample
+    private int size = 0;
+    private double sum = 0;
+    private double sumOfSquares = 0;
+    private int addsSinceRebuild = 0;
+
+    public SlidingWindowStats(long windowNanos, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.windowNanos = windowNanos;
+        this.capacity = capacity;
+        this.timestamps = new long[capacity];
+        this.values = new float[capacity];
+    }
+
+    public void add(long timestampNanos, float value) {
+        while (size > 0 && timestampNanos - timestamps[head] >= windowNanos) {
+            evictOldest();
+        }
+        if (size == capacity) {
+            evictOldest();
+        }
+        int tail = head + size;
+        if (tail >= capacity) {
+            tail -= capacity;
+        }
+        timestamps[tail] = timestampNanos;
+        values[tail] = value;
+        size++;
+        sum += value;
+        sumOfSquares += (double) value * value;
+
+        if (++addsSinceRebuild >= capacity) {
+            rebuildSums();
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long oldestTimestamp() {
+        return size == 0 ? Long.MIN_VALUE : timestamps[head];
+    }
+
+    public long windowNanos() {
+        return windowNanos;
+    }
+
+    public float mean() {
+        return size == 0 ? 0f : (float) (sum / size);
+    }
+
+    /** Population variance of the samples in the window. */
+    public float variance() {
+        if (size == 0) {
+            return 0f;
+        }
+        double mean = sum / size;
+        double variance = sumOfSquares / size - mean * mean;
+        return variance < 0 ? 0f : (float) variance;
+    }
+
+    /** Bytes {@link #writeTo} needs at most. */
+    public int maxStateBytes() {
+        return 4 + capacity * 12;
+    }
+
+    /** Writes the samples in the window, oldest first. */
+    public void writeTo(ByteBuffer out) {
+        out.putInt(size);
+        for (int i = 0, index = head; i < size; i++) {
+            out.putLong(timestamps[index]);
+            out.putFloat(values[index]);
+            if (++index == capacity) {
+                index = 0;
+            }
+        }
+    }
+
+    /** Replaces the window with samples written by {@link #writeTo}. */
+    public void readFrom(ByteBuffer in) {
+        clear();
+        int count = in.getInt();
+        if (count < 0 || count > in.remaining() / 12) {
+            throw new IllegalArgumentException("corrupt window state: " + count + " samples");
+        }
+        for (int i = 0; i < count; i++) {
+            add(in.getLong(), in.getFloat());
+        }
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        sum = 0;
+        sumOfSquares = 0;
+        addsSinceRebuild = 0;
+    }
+
+    private void evictOldest() {
+        float value = values[head];
+        sum -= value;
+        sumOfSquares -= (double) value * value;
+        head++;
+        if (head == capacity) {
+            head = 0;
+        }
+        size--;
+    }
+
+    private void rebuildSums() {
+        double newSum = 0;
+        double newSumOfSquares = 0;
+        for (int i = 0, index = head; i < size; i++) {
+            float value = values[index];
+            newSum += value;
+            newSumOfSquares += (double) value * value;
+            if (++index == capacity) {
+                index = 0;
+            }
+        }
+        sum = newSum;
+        sumOfSquares = newSumOfSquares;
+        addsSinceRebuild = 0;
+    }
+}
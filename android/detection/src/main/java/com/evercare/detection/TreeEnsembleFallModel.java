@@ -0,0 +1,100 @@
+package com.evercare.detection;
+
+/**
+ * A gradient-boosted ensemble of binary decision trees: the logistic of a base score plus the
+ * leaf value each tree reaches.
+ *
+ * All trees share flat node arrays. An inner node sends a sample left when
+ * {@code x[feature] < threshold} and right otherwise; a leaf has feature -1 and its value in
+ * {@code thresholds}. Children always come after their parent, so every walk ends at a leaf.
+ */
+public final class TreeEnsembleFallModel implements FallModel {
+
+    private final int featureCount;
+    private final float baseScore;
+    private final int[] roots;
+    private final short[] features;
+    private final float[] thresholds;
+    private final int[] left;
+    private final int[] right;
+    private final float threshold;
+
+    public TreeEnsembleFallModel(int featureCount, float baseScore, int[] roots, short[] features,
+                                 float[] thresholds, int[] left, int[] right, float threshold) {
+        int nodes = features.length;
+        if (thresholds.length != nodes || left.length != nodes || right.length != nodes) {
+            throw new IllegalArgumentException("node arrays must have the same length");
+        }
+        for (int root : roots) {
+            if (root < 0 || root >= nodes) {
+                throw new IllegalArgumentException("root out of range: " + root);
+            }
+        }
+        for (int i = 0; i < nodes; i++) {
+            if (features[i] == -1) {
+                continue;
+            }
+            if (features[i] < 0 || features[i] >= featureCount) {
+                throw new IllegalArgumentException("node " + i + " reads feature " + features[i]);
+            }
+            if (left[i] <= i || left[i] >= nodes || right[i] <= i || right[i] >= nodes) {
+                throw new IllegalArgumentException("node " + i + " has a child out of order");
+            }
+        }
+        this.featureCount = featureCount;
+        this.baseScore = baseScore;
+        this.roots = roots.clone();
+        this.features = features.clone();
+        this.thresholds = thresholds.clone();
+        this.left = left.clone();
+        this.right = right.clone();
+        this.threshold = threshold;
+    }
+
+    @Override
+    public int featureCount() {
+        return featureCount;
+    }
+
+    @Override
+    public float probability(float[] x, int offset) {
+        float score = baseScore;
+        for (int root : roots) {
+            int node = root;
+            while (features[node] >= 0) {
+                node = x[offset + features[node]] < thresholds[node] ? left[node] : right[node];
+            }
+            score += thresholds[node];
+        }
+        return (float) (1 / (1 + Math.exp(-score)));
+    }
+
+    @Override
+    public float threshold() {
+        return threshold;
+    }
+
+    float baseScore() {
+        return baseScore;
+    }
+
+    int[] roots() {
+        return roots;
+    }
+
+    short[] nodeFeatures() {
+        return features;
+    }
+
+    float[] nodeThresholds() {
+        return thresholds;
+    }
+
+    int[] leftChildren() {
+        return left;
+    }
+
+    int[] rightChildren() {
+        return right;
+    }
+}
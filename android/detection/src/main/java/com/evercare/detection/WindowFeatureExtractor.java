@@ -0,0 +1,279 @@
+package com.evercare.detection;
+
+/**
+ * Computes {@link WindowFeatures} over a sliding window of accelerometer samples.
+ *
+ * The window holds the last {@code windowSamples} samples and is evaluated every
+ * {@code hopSamples}, once it is full. Every feature is kept up to date as samples arrive, so
+ * each sample costs the same whatever the window length. The mean and variance use a sliding
+ * Welford update, the sums slide over preallocated ring arrays, and min and max come from
+ * monotonic deques (amortised O(1)). Band power is a sliding DFT over the bins in the band.
+ * Tilt compares the mean gravity vector of the window's first hop with that of its last.
+ *
+ * The input must be on a fixed grid of {@code samplePeriodNanos}, as the
+ * {@link FixedRateResampler} produces. A sample that is off the grid (a gap, or time going
+ * backwards) starts the window over. Allocates nothing after construction. Like the detector,
+ * use it from a single thread.
+ */
+public final class WindowFeatureExtractor implements SampleSink {
+
+    public interface Listener {
+        /** A window is complete. {@code features} is reused; copy what you need to keep. */
+        void onWindow(WindowFeatures features);
+    }
+
+    private final int windowSamples;
+    private final int hopSamples;
+    private final long samplePeriodNanos;
+    private final Listener listener;
+    private final WindowFeatures features = new WindowFeatures();
+
+    // Per-sample rings, indexed by sequence number modulo the window
+    private final long[] timestamps;
+    private final float[] magnitudes;
+    private final float[] absoluteSums;
+    private final float[] magnitudeSteps;
+
+    // Monotonic deques of sequence numbers: magnitudes decreasing for max, increasing for min
+    private final long[] maxQueue;
+    private final long[] minQueue;
+    private int maxHead;
+    private int maxSize;
+    private int minHead;
+    private int minSize;
+
+    // Mean gravity per hop-sized block, for tilt
+    private final double[] blockX;
+    private final double[] blockY;
+    private final double[] blockZ;
+    private int blockNext;
+    private double currentX;
+    private double currentY;
+    private double currentZ;
+    private int currentCount;
+
+    // Sliding DFT of the magnitude, one rotation per bin in the band
+    private final double[] binRe;
+    private final double[] binIm;
+    private final double[] rotateRe;
+    private final double[] rotateIm;
+
+    private long sequence;
+    private long lastTimestampNanos;
+    private double lastMagnitude;
+    private int count;
+    private double mean;
+    private double m2;
+    private double absoluteSum;
+    private double stepSum;
+    private long windows;
+
+    public WindowFeatureExtractor(int windowSamples, int hopSamples, long samplePeriodNanos,
+                                  double bandLowHz, double bandHighHz, Listener listener) {
+        if (windowSamples < 2) {
+            throw new IllegalArgumentException("window must hold at least 2 samples: " + windowSamples);
+        }
+        if (hopSamples <= 0 || windowSamples % hopSamples != 0) {
+            throw new IllegalArgumentException("hop " + hopSamples + " must divide the window " + windowSamples);
+        }
+        if (samplePeriodNanos <= 0) {
+            throw new IllegalArgumentException("period must be positive: " + samplePeriodNanos);
+        }
+        // Bin k of an N-sample window is at k / (N * period); stay clear of DC and Nyquist
+        double windowSeconds = windowSamples * samplePeriodNanos / 1e9;
+        int lowBin = Math.max(1, (int) Math.ceil(bandLowHz * windowSeconds));
+        int highBin = Math.min((windowSamples - 1) / 2, (int) Math.floor(bandHighHz * windowSeconds));
+        if (lowBin > highBin) {
+            throw new IllegalArgumentException("no DFT bin between " + bandLowHz + " and " + bandHighHz + " Hz");
+        }
+        this.windowSamples = windowSamples;
+        this.hopSamples = hopSamples;
+        this.samplePeriodNanos = samplePeriodNanos;
+        this.listener = listener;
+
+        timestamps = new long[windowSamples];
+        magnitudes = new float[windowSamples];
+        absoluteSums = new float[windowSamples];
+        magnitudeSteps = new float[windowSamples];
+        maxQueue = new long[windowSamples];
+        minQueue = new long[windowSamples];
+        int blocks = windowSamples / hopSamples;
+        blockX = new double[blocks];
+        blockY = new double[blocks];
+        blockZ = new double[blocks];
+
+        int bins = highBin - lowBin + 1;
+        binRe = new double[bins];
+        binIm = new double[bins];
+        rotateRe = new double[bins];
+        rotateIm = new double[bins];
+        for (int i = 0; i < bins; i++) {
+            double angle = 2 * Math.PI * (lowBin + i) / windowSamples;
+            rotateRe[i] = Math.cos(angle);
+            rotateIm[i] = Math.sin(angle);
+        }
+    }
+
+    @Override
+    public void onSample(long timestampNanos, float x, float y, float z) {
+        if (sequence > 0) {
+            long step = timestampNanos - lastTimestampNanos;
+            if (step <= 0 || step > samplePeriodNanos + samplePeriodNanos / 2) {
+                reset();
+            }
+        }
+        double magnitude = Math.sqrt((double) x * x + (double) y * y + (double) z * z);
+        double absolute = Math.abs(x) + Math.abs(y) + Math.abs(z);
+        double magnitudeStep = sequence > 0 ? Math.abs(magnitude - lastMagnitude) : 0;
+        int slot = (int) (sequence % windowSamples);
+        boolean full = count == windowSamples;
+        double leaving = full ? magnitudes[slot] : 0;
+
+        if (!full) {
+            count++;
+            double delta = magnitude - mean;
+            mean += delta / count;
+            m2 += delta * (magnitude - mean);
+        } else {
+            double delta = magnitude - leaving;
+            double newMean = mean + delta / windowSamples;
+            m2 += delta * (magnitude - newMean + leaving - mean);
+            mean = newMean;
+            absoluteSum -= absoluteSums[slot];
+            stepSum -= magnitudeSteps[slot];
+        }
+        absoluteSum += absolute;
+        stepSum += magnitudeStep;
+
+        for (int i = 0; i < binRe.length; i++) {
+            double re = binRe[i] + magnitude - leaving;
+            double im = binIm[i];
+            binRe[i] = re * rotateRe[i] - im * rotateIm[i];
+            binIm[i] = re * rotateIm[i] + im * rotateRe[i];
+        }
+
+        // Expire the sample leaving the window before its slot is overwritten
+        long oldest = sequence - windowSamples + 1;
+        if (maxSize > 0 && maxQueue[maxHead] < oldest) {
+            maxHead = (maxHead + 1) % windowSamples;
+            maxSize--;
+        }
+        if (minSize > 0 && minQueue[minHead] < oldest) {
+            minHead = (minHead + 1) % windowSamples;
+            minSize--;
+        }
+        timestamps[slot] = timestampNanos;
+        magnitudes[slot] = (float) magnitude;
+        absoluteSums[slot] = (float) absolute;
+        magnitudeSteps[slot] = (float) magnitudeStep;
+        while (maxSize > 0 && magnitudeAt(maxQueue[(maxHead + maxSize - 1) % windowSamples]) <= magnitude) {
+            maxSize--;
+        }
+        maxQueue[(maxHead + maxSize) % windowSamples] = sequence;
+        maxSize++;
+        while (minSize > 0 && magnitudeAt(minQueue[(minHead + minSize - 1) % windowSamples]) >= magnitude) {
+            minSize--;
+        }
+        minQueue[(minHead + minSize) % windowSamples] = sequence;
+        minSize++;
+
+        currentX += x;
+        currentY += y;
+        currentZ += z;
+        if (++currentCount == hopSamples) {
+            blockX[blockNext] = currentX / hopSamples;
+            blockY[blockNext] = currentY / hopSamples;
+            blockZ[blockNext] = currentZ / hopSamples;
+            blockNext = (blockNext + 1) % blockX.length;
+            currentX = 0;
+            currentY = 0;
+            currentZ = 0;
+            currentCount = 0;
+        }
+
+        sequence++;
+        lastTimestampNanos = timestampNanos;
+        lastMagnitude = magnitude;
+        if (count == windowSamples && (sequence - windowSamples) % hopSamples == 0) {
+            emit(timestampNanos);
+        }
+    }
+
+    /** Forgets every sample, e.g. after the sensor was off; the next window starts from empty. */
+    public void reset() {
+        sequence = 0;
+        count = 0;
+        mean = 0;
+        m2 = 0;
+        absoluteSum = 0;
+        stepSum = 0;
+        maxHead = 0;
+        maxSize = 0;
+        minHead = 0;
+        minSize = 0;
+        blockNext = 0;
+        currentX = 0;
+        currentY = 0;
+        currentZ = 0;
+        currentCount = 0;
+        for (int i = 0; i < binRe.length; i++) {
+            binRe[i] = 0;
+            binIm[i] = 0;
+        }
+    }
+
+    private double magnitudeAt(long sequenceNumber) {
+        return magnitudes[(int) (sequenceNumber % windowSamples)];
+    }
+
+    private void emit(long endNanos) {
+        float[] values = features.values;
+        double min = magnitudeAt(minQueue[minHead]);
+        double max = magnitudeAt(maxQueue[maxHead]);
+        values[WindowFeatures.MEAN_MAGNITUDE] = (float) mean;
+        // The sliding update can leave a rounding residue just below zero
+        values[WindowFeatures.MAGNITUDE_VARIANCE] = (float) Math.max(0, m2 / windowSamples);
+        values[WindowFeatures.MIN_MAGNITUDE] = (float) min;
+        values[WindowFeatures.MAX_MAGNITUDE] = (float) max;
+        values[WindowFeatures.PEAK_TO_PEAK] = (float) (max - min);
+        values[WindowFeatures.SIGNAL_MAGNITUDE_AREA] = (float) (absoluteSum / windowSamples);
+        values[WindowFeatures.MEAN_JERK] = (float) (stepSum / windowSamples / (samplePeriodNanos / 1e9));
+        values[WindowFeatures.TILT_CHANGE] = (float) tiltDegrees();
+        double power = 0;
+        for (int i = 0; i < binRe.length; i++) {
+            power += binRe[i] * binRe[i] + binIm[i] * binIm[i];
+        }
+        // Parseval, counting each bin's negative-frequency twin
+        values[WindowFeatures.BAND_POWER] = (float) (2 * power / ((double) windowSamples * windowSamples));
+        features.startNanos = timestamps[(int) (sequence % windowSamples)];
+        features.endNanos = endNanos;
+        windows++;
+        listener.onWindow(features);
+    }
+
+    // blockNext is the oldest block once every block has been written
+    private double tiltDegrees() {
+        int first = blockNext;
+        int last = (blockNext + blockX.length - 1) % blockX.length;
+        double dot = blockX[first] * blockX[last] + blockY[first] * blockY[last] + blockZ[first] * blockZ[last];
+        double norms = Math.sqrt(blockX[first] * blockX[first] + blockY[first] * blockY[first] + blockZ[first] * blockZ[first])
+                * Math.sqrt(blockX[last] * blockX[last] + blockY[last] * blockY[last] + blockZ[last] * blockZ[last]);
+        if (norms == 0) {
+            return 0;
+        }
+        return Math.toDegrees(Math.acos(Math.max(-1, Math.min(1, dot / norms))));
+    }
+
+    public int windowSamples() {
+        return windowSamples;
+    }
+
+    public int hopSamples() {
+        return hopSamples;
+    }
+
+    /** Windows handed to the listener so far. */
+    public long windows() {
+        return windows;
+    }
+}
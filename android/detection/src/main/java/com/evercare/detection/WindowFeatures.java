@@ -0,0 +1,74 @@
+package com.evercare.detection;
+
+/**
+ * Features of one window of accelerometer samples, as handed out by
+ * {@link WindowFeatureExtractor}. The extractor reuses one instance for every window, so a
+ * consumer that keeps values beyond its callback has to copy them ({@link #copyTo}).
+ *
+ * Magnitudes are in m/s², jerk in m/s³, tilt in degrees and band power in (m/s²)².
+ */
+public final class WindowFeatures {
+
+    /** Mean of the acceleration magnitude. */
+    public static final int MEAN_MAGNITUDE = 0;
+    /** Variance of the magnitude; high while moving, near zero lying still. */
+    public static final int MAGNITUDE_VARIANCE = 1;
+    public static final int MIN_MAGNITUDE = 2;
+    public static final int MAX_MAGNITUDE = 3;
+    /** Max minus min magnitude. */
+    public static final int PEAK_TO_PEAK = 4;
+    /** Signal magnitude area: mean of |x| + |y| + |z|. */
+    public static final int SIGNAL_MAGNITUDE_AREA = 5;
+    /** Mean absolute rate of change of the magnitude. */
+    public static final int MEAN_JERK = 6;
+    /** Angle the gravity vector turned between the start and the end of the window. */
+    public static final int TILT_CHANGE = 7;
+    /** Mean-square magnitude in the extractor's frequency band. */
+    public static final int BAND_POWER = 8;
+
+    public static final int COUNT = 9;
+
+    private static final String[] NAMES = {
+            "meanMagnitude", "magnitudeVariance", "minMagnitude", "maxMagnitude", "peakToPeak",
+            "signalMagnitudeArea", "meanJerk", "tiltChange", "bandPower"
+    };
+
+    final float[] values = new float[COUNT];
+    long startNanos;
+    long endNanos;
+
+    WindowFeatures() {
+    }
+
+    public float get(int feature) {
+        return values[feature];
+    }
+
+    /** Copies every feature into {@code out}, indexed by the constants above. */
+    public void copyTo(float[] out) {
+        System.arraycopy(values, 0, out, 0, COUNT);
+    }
+
+    /** Timestamp of the window's first sample. */
+    public long startNanos() {
+        return startNanos;
+    }
+
+    /** Timestamp of the window's last sample. */
+    public long endNanos() {
+        return endNanos;
+    }
+
+    public static String name(int feature) {
+        return NAMES[feature];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder("WindowFeatures{endNanos=").append(endNanos);
+        for (int i = 0; i < COUNT; i++) {
+            out.append(", ").append(NAMES[i]).append('=').append(values[i]);
+        }
+        return out.append('}').toString();
+    }
+}
@@ -0,0 +1,175 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Random;
+import org.junit.Test;
+
+public class AccelerometerCalibratorTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+    private static final long SECOND = 1_000_000_000L;
+    private static final float G = AccelerometerCalibrator.GRAVITY;
+
+    // A cheap sensor: reads (true acceleration / scale) + bias on each axis
+    private static final float[] BIAS = {0.35f, -0.28f, 0.42f};
+    private static final float[] SCALE = {1.04f, 0.96f, 1.03f};
+
+    /** Keeps the last corrected sample. */
+    private static final class Last implements SampleSink {
+        float x;
+        float y;
+        float z;
+
+        @Override
+        public void onSample(long timestampNanos, float x, float y, float z) {
+            this.x = x;
+            this.y = y;
+            this.z = z;
+        }
+
+        float magnitude() {
+            return (float) Math.sqrt(x * x + y * y + z * z);
+        }
+    }
+
+    private final Random random = new Random(5);
+    private final Last last = new Last();
+    private long t = 0;
+
+    private void still(SampleSink sink, long durationNanos, double ux, double uy, double uz) {
+        double norm = Math.sqrt(ux * ux + uy * uy + uz * uz);
+        double[] truth = {G * ux / norm, G * uy / norm, G * uz / norm};
+        for (long end = t + durationNanos; t < end; t += PERIOD_NANOS) {
+            sink.onSample(t, raw(truth[0], 0), raw(truth[1], 1), raw(truth[2], 2));
+        }
+    }
+
+    /** Picked up and turned over: far from still. */
+    private void handle(SampleSink sink, long durationNanos) {
+        for (long end = t + durationNanos; t < end; t += PERIOD_NANOS) {
+            double phase = 2 * Math.PI * 1.5 * t / 1e9;
+            sink.onSample(t, raw(4 * Math.sin(phase), 0), raw(3 * Math.cos(phase), 1), raw(G + 2 * Math.sin(2 * phase), 2));
+        }
+    }
+
+    private float raw(double truth, int axis) {
+        return (float) (truth / SCALE[axis] + BIAS[axis] + random.nextGaussian() * 0.02);
+    }
+
+    @Test
+    public void convergesOnBiasAndScaleFromStillPeriodsInManyOrientations() {
+        AccelerometerCalibrator calibrator = new AccelerometerCalibrator(SECOND, 0.08f, last, null);
+        double[][] orientations = {
+                {0, 0, 1}, {0, 0, -1}, {1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0},
+                {1, 1, 1}, {-1, 1, 1}, {1, -1, 1}, {1, 1, -1}, {-1, -1, 1}, {-1, 1, -1}, {1, -1, -1}, {-1, -1, -1}
+        };
+        for (double[] u : orientations) {
+            handle(calibrator, 2 * SECOND);
+            still(calibrator, 5 * SECOND, u[0], u[1], u[2]);
+        }
+
+        assertTrue(calibrator.calibrated());
+        assertEquals(14, calibrator.orientations());
+        for (int axis = 0; axis < 3; axis++) {
+            assertEquals("bias " + axis, BIAS[axis], calibrator.bias(axis), 0.03f);
+            assertEquals("scale " + axis, SCALE[axis], calibrator.scale(axis), 0.005f);
+        }
+
+        // An orientation it has not seen reads gravity
+        still(calibrator, SECOND, 1, 2, 0);
+        assertEquals(G, last.magnitude(), 0.05f);
+        // Free fall reads close to zero instead of the bias
+        calibrator.onSample(t, BIAS[0], BIAS[1], BIAS[2]);
+        assertEquals(0f, last.magnitude(), 0.05f);
+    }
+
+    @Test
+    public void phoneThatOnlyEverLiesFlatStillReadsGravityAtRest() {
+        AccelerometerCalibrator calibrator = new AccelerometerCalibrator(SECOND, 0.08f, last, null);
+        still(calibrator, 60 * SECOND, 0, 0, 1);
+        float uncorrected = (float) Math.sqrt(BIAS[0] * BIAS[0] + BIAS[1] * BIAS[1]
+                + (G / SCALE[2] + BIAS[2]) * (G / SCALE[2] + BIAS[2]));
+        assertTrue("raw reading is off by " + (uncorrected - G), Math.abs(uncorrected - G) > 0.05f);
+
+        assertTrue(calibrator.calibrated());
+        assertEquals(1, calibrator.orientations());
+        assertEquals(G, last.magnitude(), 0.02f);
+        // Axes never seen against gravity are left alone
+        assertEquals(0f, calibrator.bias(0), 0.05f);
+        assertEquals(1f, calibrator.scale(0), 0.01f);
+    }
+
+    @Test
+    public void movementNeverCalibratesAndPassesThroughUnchanged() {
+        AccelerometerCalibrator calibrator = new AccelerometerCalibrator(SECOND, 0.08f, last, null);
+        handle(calibrator, 60 * SECOND);
+        assertFalse(calibrator.calibrated());
+        assertEquals(0, calibrator.stillBlocks());
+
+        calibrator.onSample(t, 1f, 2f, 3f);
+        assertEquals(1f, last.x, 0f);
+        assertEquals(2f, last.y, 0f);
+        assertEquals(3f, last.z, 0f);
+    }
+
+    @Test
+    public void estimateSurvivesARestartAndListenerHearsOfChanges() throws IOException {
+        final int[] changes = new int[1];
+        AccelerometerCalibrator calibrator = new AccelerometerCalibrator(SECOND, 0.08f, last,
+                new AccelerometerCalibrator.Listener() {
+                    @Override
+                    public void onCalibrationChanged(AccelerometerCalibrator calibrator) {
+                        changes[0]++;
+                    }
+                });
+        still(calibrator, 10 * SECOND, 0, 0, 1);
+        handle(calibrator, 2 * SECOND);
+        still(calibrator, 10 * SECOND, 1, 0, 0);
+        assertTrue(changes[0] >= 2);
+        // Lying still in a known orientation settles; it is not reported every second
+        int settled = changes[0];
+        still(calibrator, 60 * SECOND, 1, 0, 0);
+        assertTrue(changes[0] - settled < 5);
+
+        AccelerometerCalibrator restarted = new AccelerometerCalibrator(SECOND, 0.08f, new Last(), null);
+        restarted.restore(calibrator.encode());
+        assertTrue(restarted.calibrated());
+        assertEquals(2, restarted.orientations());
+        for (int axis = 0; axis < 3; axis++) {
+            assertEquals(calibrator.bias(axis), restarted.bias(axis), 0f);
+            assertEquals(calibrator.scale(axis), restarted.scale(axis), 0f);
+        }
+
+        byte[] damaged = calibrator.encode();
+        damaged[10] ^= 0x01;
+        try {
+            restarted.restore(damaged);
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void calibrationAllocatesNothing() {
+        final AccelerometerCalibrator calibrator = new AccelerometerCalibrator(SECOND, 0.08f, last, null);
+        still(calibrator, 400 * SECOND, 0, 0, 1);
+
+        long allocated = Allocations.fewestBytes(5, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20_000; i++, t += PERIOD_NANOS) {
+                    // Still blocks alternating with handled ones, so both paths and the fit run
+                    float wobble = (i / 200) % 2 == 0 ? 0f : (i % 2) * 2f;
+                    calibrator.onSample(t, BIAS[0] + wobble, BIAS[1], G + BIAS[2]);
+                }
+            }
+        });
+        assertEquals(0L, allocated);
+        assertTrue(calibrator.fits() > 300);
+    }
+}
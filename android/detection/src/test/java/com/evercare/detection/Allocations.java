@@ -0,0 +1,37 @@
+package com.evercare.detection;
+
+import java.lang.management.ManagementFactory;
+
+/** Heap allocation by the current thread, for checking that hot paths allocate nothing. */
+final class Allocations {
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    static {
+        // The first call allocates on the calling thread
+        currentThread();
+    }
+
+    private Allocations() {
+    }
+
+    static long currentThread() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Fewest bytes the current thread allocated in any of {@code runs} runs of {@code work}. A hot
+     * path that allocates does so in every run, while a JIT tier change that charges a few hundred
+     * bytes to the thread lands in one run and not the others.
+     */
+    static long fewestBytes(int runs, Runnable work) {
+        long fewest = Long.MAX_VALUE;
+        for (int i = 0; i < runs; i++) {
+            long before = currentThread();
+            work.run();
+            fewest = Math.min(fewest, currentThread() - before);
+        }
+        return fewest;
+    }
+}
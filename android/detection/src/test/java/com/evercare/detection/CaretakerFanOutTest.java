@@ -0,0 +1,111 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Test;
+
+public class CaretakerFanOutTest {
+
+    private static final long MS = 1_000_000L;
+
+    /** Stands in for SMS or push: each phone number answers after its own delay, or fails. */
+    private static final class StandInSender implements CaretakerFanOut.Sender {
+        final Map<String, Long> delayMillis = new ConcurrentHashMap<>();
+        final Map<String, String> received = new ConcurrentHashMap<>();
+        volatile boolean interrupted;
+
+        @Override
+        public void send(Caretaker recipient, String incidentId, String message) throws Exception {
+            Long delay = delayMillis.get(recipient.phone);
+            if (delay == null) {
+                throw new IllegalStateException("unreachable");
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                interrupted = true;
+                throw e;
+            }
+            received.put(recipient.phone, incidentId + ": " + message);
+        }
+    }
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final StandInSender sender = new StandInSender();
+
+    @After
+    public void tearDown() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void everyoneIsToldAtOnceAndStragglersTimeOut() throws InterruptedException {
+        List<Caretaker> family = List.of(
+                new Caretaker("Dana", "+15550101"),
+                new Caretaker("Eli", "+15550102"),
+                new Caretaker("Noa", "+15550103"),
+                new Caretaker("Omer", "+15550104"));
+        sender.delayMillis.put("+15550101", 150L);
+        sender.delayMillis.put("+15550102", 150L);
+        sender.delayMillis.put("+15550103", 10_000L); // never answers in time
+        // +15550104 fails straight away
+
+        CaretakerFanOut fanOut = new CaretakerFanOut(sender, executor, 600 * MS);
+        CaretakerFanOut.Report report = fanOut.dispatch(family, "incident-1", "Fall detected");
+
+        List<CaretakerFanOut.Delivery> deliveries = report.deliveries;
+        assertEquals(CaretakerFanOut.Outcome.DELIVERED, deliveries.get(0).outcome);
+        assertEquals(CaretakerFanOut.Outcome.DELIVERED, deliveries.get(1).outcome);
+        assertEquals(CaretakerFanOut.Outcome.TIMED_OUT, deliveries.get(2).outcome);
+        assertEquals(CaretakerFanOut.Outcome.FAILED, deliveries.get(3).outcome);
+        assertEquals("unreachable", deliveries.get(3).error);
+        assertNull(deliveries.get(0).error);
+        assertEquals("incident-1: Fall detected", sender.received.get("+15550101"));
+
+        // Sent one after another the two deliveries alone would take 300 ms
+        assertTrue(report.toString(), deliveries.get(0).latencyNanos < 290 * MS);
+        assertTrue(report.toString(), deliveries.get(1).latencyNanos < 290 * MS);
+        // The straggler costs the timeout, not its 10 s
+        assertTrue(report.toString(), report.totalNanos >= 600 * MS);
+        assertTrue(report.toString(), report.totalNanos < 2000 * MS);
+        assertEquals(2, report.count(CaretakerFanOut.Outcome.DELIVERED));
+    }
+
+    @Test
+    public void timedOutSendIsInterrupted() throws InterruptedException {
+        sender.delayMillis.put("+15550101", 10_000L);
+        CaretakerFanOut fanOut = new CaretakerFanOut(sender, executor, 50 * MS);
+        CaretakerFanOut.Report report = fanOut.dispatch(List.of(new Caretaker("Dana", "+15550101")), "incident-1", "");
+
+        assertEquals(CaretakerFanOut.Outcome.TIMED_OUT, report.deliveries.get(0).outcome);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(sender.interrupted);
+    }
+
+    @Test
+    public void caretakerListRoundTripsThroughOneSetting() {
+        List<Caretaker> caretakers = List.of(
+                new Caretaker(" Dana\tLevi ", "+15550101"),
+                new Caretaker(null, " +15550102 "));
+        List<Caretaker> decoded = Caretaker.decodeList(Caretaker.encodeList(caretakers));
+
+        assertEquals(2, decoded.size());
+        assertEquals("Dana Levi", decoded.get(0).name);
+        assertEquals("+15550101", decoded.get(0).phone);
+        assertEquals("", decoded.get(1).name);
+        assertEquals("+15550102", decoded.get(1).phone);
+        assertTrue(Caretaker.decodeList(null).isEmpty());
+        assertTrue(Caretaker.decodeList("\n\t\n").isEmpty());
+    }
+}
@@ -0,0 +1,56 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class DetectionMetricsTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+
+    @Test
+    public void countsRateGapsAndDroppedSamples() {
+        DetectionMetrics metrics = new DetectionMetrics(PERIOD_NANOS);
+        long t = 0;
+        for (int i = 0; i < 100; i++) {
+            metrics.onSample(t, 1_000);
+            t += PERIOD_NANOS;
+        }
+        // The sensor skips four samples
+        t += 4 * PERIOD_NANOS;
+        for (int i = 0; i < 100; i++) {
+            metrics.onSample(t, 2_000);
+            t += PERIOD_NANOS;
+        }
+
+        DetectionMetrics.Snapshot snapshot = metrics.snapshot(null);
+        assertEquals(200, snapshot.samples);
+        assertEquals(4, snapshot.droppedSamples);
+        assertEquals(50, snapshot.samplesLastSecond);
+        assertEquals(199 * 1e9 / (203 * PERIOD_NANOS), snapshot.samplesPerSecond, 1e-6);
+        assertEquals(5 * PERIOD_NANOS, snapshot.sampleGap.maxNanos);
+        assertEquals(4 * PERIOD_NANOS, snapshot.sampleJitter.maxNanos);
+        assertEquals(2_000, snapshot.processingTime.maxNanos);
+        assertEquals(1_500, snapshot.processingTime.meanNanos);
+    }
+
+    @Test
+    public void snapshotIncludesDetectorCounters() {
+        FallDetector detector = new FallDetector(new FallDetectorConfig(), new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+            }
+        });
+        TraceBuilder trace = new TraceBuilder(0, PERIOD_NANOS);
+        // A sofa drop (candidate only) followed by a real fall
+        trace.rest(1_000_000_000L).hold(300_000_000L, 0.4f).hold(100_000_000L, 13f).rest(5_000_000_000L)
+                .fall(300_000_000L, 30f, 5_000_000_000L)
+                .feed(detector);
+
+        DetectionMetrics.Snapshot snapshot = new DetectionMetrics(PERIOD_NANOS).snapshot(detector);
+        assertEquals(2, snapshot.freeFallCandidates);
+        assertEquals(1, snapshot.confirmedFalls);
+        assertTrue(snapshot.toString().contains("candidates=2"));
+    }
+}
@@ -0,0 +1,125 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class DetectorCheckpointTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L; // 50 Hz
+    private static final long MS = 1_000_000L;
+
+    private final List<FallEvent> events = new ArrayList<>();
+
+    private FallDetector newDetector() {
+        return new FallDetector(new FallDetectorConfig(), new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                events.add(event);
+            }
+        });
+    }
+
+    private static void feed(FallDetector detector, long[] timestamps, float[] magnitudes, int from, int to) {
+        for (int i = from; i < to; i++) {
+            detector.onSample(timestamps[i], 0f, 0f, magnitudes[i]);
+        }
+    }
+
+    @Test
+    public void restartedDetectorFinishesTheCandidateItWasEvaluating() {
+        TraceBuilder trace = new TraceBuilder(1_000_000_000L, PERIOD_NANOS).rest(1000 * MS);
+        int impactEnd = trace.size() + 15 + 3 + 10; // free fall, impact spike, part of the settling
+        trace.fall(300 * MS, 30f, 5000 * MS);
+        long[] timestamps = trace.timestamps();
+        float[] magnitudes = trace.magnitudes();
+
+        FallDetector reference = newDetector();
+        feed(reference, timestamps, magnitudes, 0, timestamps.length);
+        assertEquals(1, events.size());
+        FallEvent expected = events.remove(0);
+
+        FallDetector first = newDetector();
+        ByteBuffer mapping = ByteBuffer.allocateDirect(DetectorCheckpoint.bytesFor(first));
+        DetectorCheckpoint checkpoint = DetectorCheckpoint.attach(mapping, first);
+        feed(first, timestamps, magnitudes, 0, impactEnd);
+        assertTrue(first.hasCandidate());
+        checkpoint.save();
+        checkpoint.heartbeat(timestamps[impactEnd - 1]);
+
+        // The process dies here; a new one attaches to the same mapping
+        FallDetector second = newDetector();
+        DetectorCheckpoint resumed = DetectorCheckpoint.attach(mapping, second);
+        assertEquals(timestamps[impactEnd - 1], resumed.previousHeartbeatNanos());
+        assertTrue(resumed.restore());
+        assertEquals(first.phase(), second.phase());
+        feed(second, timestamps, magnitudes, impactEnd, timestamps.length);
+
+        assertEquals(1, events.size());
+        FallEvent event = events.get(0);
+        assertEquals(expected.onsetNanos, event.onsetNanos);
+        assertEquals(expected.impactNanos, event.impactNanos);
+        assertEquals(expected.detectedNanos, event.detectedNanos);
+        assertEquals(expected.peakAcceleration, event.peakAcceleration, 0f);
+        assertEquals(1, second.confirmedFalls());
+        assertEquals(1, second.freeFallCandidates());
+    }
+
+    @Test
+    public void candidateIsDroppedWhenTheGapIsTooLong() {
+        TraceBuilder trace = new TraceBuilder(1_000_000_000L, PERIOD_NANOS).rest(1000 * MS);
+        trace.hold(300 * MS, 0.4f).hold(3 * PERIOD_NANOS, 30f);
+        FallDetector first = newDetector();
+        trace.feed(first);
+        assertTrue(first.hasCandidate());
+        ByteBuffer mapping = ByteBuffer.allocateDirect(DetectorCheckpoint.bytesFor(first));
+        DetectorCheckpoint.attach(mapping, first).save();
+
+        FallDetector second = newDetector();
+        assertTrue(DetectorCheckpoint.attach(mapping, second).restore());
+        // Down for longer than maxSampleGapNanos, then lying still
+        new TraceBuilder(trace.now() + 3000 * MS, PERIOD_NANOS).rest(5000 * MS).feed(second);
+
+        assertTrue(events.isEmpty());
+        assertFalse(second.hasCandidate());
+        assertEquals(1, second.freeFallCandidates());
+    }
+
+    @Test
+    public void tornWriteFallsBackToThePreviousSave() {
+        FallDetector first = newDetector();
+        ByteBuffer mapping = ByteBuffer.allocateDirect(DetectorCheckpoint.bytesFor(first));
+        DetectorCheckpoint checkpoint = DetectorCheckpoint.attach(mapping, first);
+        TraceBuilder trace = new TraceBuilder(1_000_000_000L, PERIOD_NANOS).rest(1000 * MS).hold(300 * MS, 0.4f);
+        trace.feed(first);
+        assertEquals(FallDetector.Phase.FREE_FALL, first.phase());
+        checkpoint.save();
+        new TraceBuilder(trace.now(), PERIOD_NANOS).rest(100 * MS).feed(first);
+        checkpoint.save();
+        assertEquals(2, checkpoint.generation());
+
+        // Generation 2 went to slot 0; flip a byte of its state, as if the process died mid-write
+        int newestSlotState = 24 + 16;
+        mapping.put(newestSlotState, (byte) (mapping.get(newestSlotState) ^ 0x7f));
+
+        FallDetector second = newDetector();
+        DetectorCheckpoint resumed = DetectorCheckpoint.attach(mapping, second);
+        assertTrue(resumed.restore());
+        assertEquals(FallDetector.Phase.FREE_FALL, second.phase());
+    }
+
+    @Test
+    public void freshMappingHasNothingToRestore() {
+        FallDetector detector = newDetector();
+        ByteBuffer mapping = ByteBuffer.allocateDirect(DetectorCheckpoint.bytesFor(detector));
+        DetectorCheckpoint checkpoint = DetectorCheckpoint.attach(mapping, detector);
+        assertEquals(Long.MIN_VALUE, checkpoint.previousHeartbeatNanos());
+        assertFalse(checkpoint.restore());
+        assertEquals(FallDetector.Phase.IDLE, detector.phase());
+    }
+}
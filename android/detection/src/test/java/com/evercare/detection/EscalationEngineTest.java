@@ -0,0 +1,228 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class EscalationEngineTest {
+
+    private static final long MINUTE = 60_000L;
+
+    /** Virtual time plus the single alarm the engine may have armed. */
+    private static final class VirtualDevice implements EscalationEngine.Clock, EscalationEngine.AlarmScheduler {
+        long now = 1_700_000_000_000L;
+        long alarmAt = -1;
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void schedule(long atMillis) {
+            alarmAt = atMillis;
+        }
+
+        @Override
+        public void cancel() {
+            alarmAt = -1;
+        }
+    }
+
+    private static final class MemoryStore implements EscalationEngine.Store {
+        byte[] record;
+
+        @Override
+        public byte[] load() {
+            return record;
+        }
+
+        @Override
+        public void save(byte[] record) {
+            this.record = record.clone();
+        }
+    }
+
+    private final VirtualDevice device = new VirtualDevice();
+    private final MemoryStore store = new MemoryStore();
+    private final List<String> calls = new ArrayList<>();
+    private final List<EscalationEngine.Status> finished = new ArrayList<>();
+    private EscalationEngine engine;
+
+    private final List<EscalationEngine.Step> ladder = List.of(
+            new EscalationEngine.Step("caretaker 1", "+15550101", 2 * MINUTE),
+            new EscalationEngine.Step("caretaker 2", "+15550102", 3 * MINUTE),
+            new EscalationEngine.Step("emergency services", "101", 5 * MINUTE));
+
+    private EscalationEngine newEngine() {
+        return new EscalationEngine(device, device, store, new EscalationEngine.Listener() {
+            @Override
+            public void onStep(EscalationEngine.Escalation escalation, EscalationEngine.Step step, int index) {
+                calls.add(index + ":" + step.target + "@" + (device.now - escalation.startedMillis) / MINUTE);
+            }
+
+            @Override
+            public void onFinished(EscalationEngine.Escalation escalation) {
+                finished.add(escalation.status());
+            }
+        });
+    }
+
+    /** Advances virtual time to the armed alarm and delivers it, like AlarmManager would. */
+    private void fireAlarm(EscalationEngine target) throws IOException {
+        assertTrue("no alarm armed", device.alarmAt >= 0);
+        device.now = Math.max(device.now, device.alarmAt);
+        device.alarmAt = -1;
+        target.onAlarm();
+    }
+
+    @Before
+    public void setUp() {
+        engine = newEngine();
+    }
+
+    @Test
+    public void fullLadderRunsEachStepAfterItsOwnDelay() throws IOException {
+        assertTrue(engine.start("incident-1", ladder));
+        fireAlarm(engine);
+        fireAlarm(engine);
+        fireAlarm(engine);
+
+        assertEquals(List.of("0:+15550101@2", "1:+15550102@5", "2:101@10"), calls);
+        assertEquals(List.of(EscalationEngine.Status.COMPLETED), finished);
+        assertEquals(-1, device.alarmAt);
+        assertFalse(engine.isActive());
+    }
+
+    @Test
+    public void acknowledgeStopsTheLadder() throws IOException {
+        engine.start("incident-1", ladder);
+        fireAlarm(engine);
+        engine.acknowledge();
+
+        assertEquals(List.of("0:+15550101@2"), calls);
+        assertEquals(List.of(EscalationEngine.Status.ACKNOWLEDGED), finished);
+        assertEquals(-1, device.alarmAt);
+        // A stale alarm delivered afterwards does nothing
+        device.now += 10 * MINUTE;
+        engine.onAlarm();
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    public void cancelBeforeTheFirstStepCallsNobody() throws IOException {
+        engine.start("incident-1", ladder);
+        device.now += MINUTE;
+        engine.cancel();
+
+        assertTrue(calls.isEmpty());
+        assertEquals(List.of(EscalationEngine.Status.CANCELLED), finished);
+        assertEquals(EscalationEngine.Status.CANCELLED, newEngine().restore().status());
+    }
+
+    @Test
+    public void processDeathResumesWithOneStepPerWakeUp() throws IOException {
+        engine.start("incident-1", ladder);
+        fireAlarm(engine);
+
+        // The process dies and only comes back long after the second step was due
+        engine = null;
+        device.now += 30 * MINUTE;
+        EscalationEngine restarted = newEngine();
+        EscalationEngine.Escalation escalation = restarted.restore();
+
+        assertEquals("incident-1", escalation.incidentId);
+        assertEquals(List.of("0:+15550101@2", "1:+15550102@32"), calls);
+        // Emergency services get their full delay after caretaker 2, not a call at the same time
+        assertEquals(device.now + 5 * MINUTE, device.alarmAt);
+        fireAlarm(restarted);
+        assertEquals("2:101@37", calls.get(2));
+        assertEquals(List.of(EscalationEngine.Status.COMPLETED), finished);
+    }
+
+    @Test
+    public void restoreRearmsAnEscalationThatIsNotDueYet() throws IOException {
+        engine.start("incident-1", ladder);
+        long due = device.alarmAt;
+        device.alarmAt = -1;
+        device.now += MINUTE;
+
+        EscalationEngine restarted = newEngine();
+        restarted.restore();
+        assertTrue(restarted.isActive());
+        assertEquals(due, device.alarmAt);
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void secondIncidentDoesNotRestartARunningLadder() throws IOException {
+        engine.start("incident-1", ladder);
+        fireAlarm(engine);
+        assertFalse(engine.start("incident-2", ladder));
+        assertEquals("incident-1", engine.current().incidentId);
+
+        engine.acknowledge();
+        assertTrue(engine.start("incident-2", ladder));
+    }
+
+    @Test
+    public void expediteFiresTheNextStepNowAndDeferPushesItBack() throws IOException {
+        engine.start("incident-1", ladder);
+        device.now += MINUTE;
+        engine.expedite();
+        assertEquals(List.of("0:+15550101@1"), calls);
+        // The step after still waits its own delay
+        assertEquals(device.now + 3 * MINUTE, device.alarmAt);
+
+        engine.defer(5 * MINUTE);
+        assertEquals(device.now + 5 * MINUTE, device.alarmAt);
+        // Deferring never brings a step forward
+        engine.defer(MINUTE);
+        assertEquals(device.now + 5 * MINUTE, device.alarmAt);
+        // The new due time is persisted with the rest
+        assertEquals(device.now + 5 * MINUTE, EscalationEngine.decode(store.record).nextDueMillis());
+
+        fireAlarm(engine);
+        assertEquals(List.of("0:+15550101@1", "1:+15550102@6"), calls);
+    }
+
+    @Test
+    public void prolongedStillnessNeverReachesEmergencyServices() throws IOException {
+        List<Caretaker> caretakers = List.of(new Caretaker("Ann", "+15550101"), new Caretaker("Bob", "+15550102"));
+        String checkIn = EscalationLadders.CHECK_IN_PREFIX + "1";
+        assertTrue(EscalationLadders.isCheckIn(checkIn));
+        assertTrue(engine.start(checkIn, EscalationLadders.checkIn(caretakers, 2 * MINUTE, MINUTE)));
+        while (device.alarmAt >= 0) {
+            fireAlarm(engine);
+        }
+        assertEquals(List.of("0:+15550101@2", "1:+15550102@3"), calls);
+        assertEquals(List.of(EscalationEngine.Status.COMPLETED), finished);
+
+        // Nobody to call, nothing to escalate; a fall still ends with emergency services
+        assertTrue(EscalationLadders.checkIn(List.<Caretaker>of(), 2 * MINUTE, MINUTE).isEmpty());
+        List<EscalationEngine.Step> fall = EscalationLadders.fall(caretakers, 2 * MINUTE, MINUTE, "101", 3 * MINUTE);
+        assertEquals("101", fall.get(fall.size() - 1).target);
+        assertFalse(EscalationLadders.isCheckIn("incident-1"));
+    }
+
+    @Test
+    public void corruptRecordIsRejected() throws IOException {
+        engine.start("incident-1", ladder);
+        store.record[10] ^= 0x55;
+        try {
+            newEngine().restore();
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+        store.record = null;
+        assertNull(newEngine().restore());
+    }
+}
@@ -0,0 +1,171 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class EventBusTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    /** Runs tasks only when asked, so tests control when subscribers catch up. */
+    private static final class ManualExecutor implements Executor {
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable command) {
+            tasks.add(command);
+        }
+
+        void runAll() {
+            while (!tasks.isEmpty()) {
+                tasks.remove(0).run();
+            }
+        }
+    }
+
+    @Test
+    public void deliversInOrderWithSequenceNumbers() {
+        EventBus<String> bus = new EventBus<>(8);
+        final List<String> received = new ArrayList<>();
+        bus.subscribe(new EventBus.Subscriber<String>() {
+            @Override
+            public void onEvent(long sequence, String event) {
+                received.add(sequence + ":" + event);
+            }
+        }, DIRECT, 0);
+
+        bus.publish("a");
+        bus.publish("b");
+        assertEquals(2, bus.lastSequence());
+        assertEquals(List.of("1:a", "2:b"), received);
+    }
+
+    @Test
+    public void lateSubscriberGetsReplayOfRecentEvents() {
+        EventBus<String> bus = new EventBus<>(4);
+        for (String event : new String[] {"a", "b", "c", "d", "e", "f"}) {
+            bus.publish(event);
+        }
+        final List<String> received = new ArrayList<>();
+        bus.subscribe(new EventBus.Subscriber<String>() {
+            @Override
+            public void onEvent(long sequence, String event) {
+                received.add(event);
+            }
+        }, DIRECT, 2);
+        bus.publish("g");
+        assertEquals(List.of("e", "f", "g"), received);
+    }
+
+    @Test
+    public void replayIsCappedAtCapacity() {
+        EventBus<Integer> bus = new EventBus<>(4);
+        for (int i = 1; i <= 10; i++) {
+            bus.publish(i);
+        }
+        final List<Integer> received = new ArrayList<>();
+        bus.subscribe(new EventBus.Subscriber<Integer>() {
+            @Override
+            public void onEvent(long sequence, Integer event) {
+                received.add(event);
+            }
+        }, DIRECT, 100);
+        assertEquals(List.of(7, 8, 9, 10), received);
+    }
+
+    @Test
+    public void slowSubscriberSkipsOverwrittenEventsAndCountsThem() {
+        EventBus<Integer> bus = new EventBus<>(4);
+        ManualExecutor executor = new ManualExecutor();
+        final List<Integer> received = new ArrayList<>();
+        EventBus.Subscription<Integer> subscription = bus.subscribe(new EventBus.Subscriber<Integer>() {
+            @Override
+            public void onEvent(long sequence, Integer event) {
+                received.add(event);
+            }
+        }, executor, 0);
+        for (int i = 1; i <= 10; i++) {
+            bus.publish(i);
+        }
+        // Only one drain was scheduled however many events were published
+        assertEquals(1, executor.tasks.size());
+        executor.runAll();
+        assertEquals(List.of(7, 8, 9, 10), received);
+        assertEquals(6, subscription.missedEvents());
+    }
+
+    @Test
+    public void closedSubscriptionStopsReceiving() {
+        EventBus<String> bus = new EventBus<>(8);
+        final AtomicInteger count = new AtomicInteger();
+        EventBus.Subscription<String> subscription = bus.subscribe(new EventBus.Subscriber<String>() {
+            @Override
+            public void onEvent(long sequence, String event) {
+                count.incrementAndGet();
+            }
+        }, DIRECT, 0);
+        bus.publish("a");
+        subscription.close();
+        bus.publish("b");
+        assertEquals(1, count.get());
+        assertEquals(0, bus.subscriberCount());
+    }
+
+    @Test
+    public void concurrentPublishersDeliverEachEventExactlyOncePerSubscriber() throws Exception {
+        final int publishers = 4;
+        final int perPublisher = 5_000;
+        final int total = publishers * perPublisher;
+        EventBus<Integer> bus = new EventBus<>(total);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        final ConcurrentHashMap<Long, Integer> deliveries = new ConcurrentHashMap<>();
+        final CountDownLatch done = new CountDownLatch(total);
+        bus.subscribe(new EventBus.Subscriber<Integer>() {
+            @Override
+            public void onEvent(long sequence, Integer event) {
+                deliveries.merge(sequence, 1, Integer::sum);
+                done.countDown();
+            }
+        }, pool, 0);
+
+        Thread[] threads = new Thread[publishers];
+        for (int p = 0; p < publishers; p++) {
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < perPublisher; i++) {
+                        bus.publish(i);
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(total, deliveries.size());
+        for (int count : deliveries.values()) {
+            assertEquals(1, count);
+        }
+    }
+}
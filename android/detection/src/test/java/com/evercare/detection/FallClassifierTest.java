@@ -0,0 +1,96 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class FallClassifierTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+    private static final long MS = 1_000_000L;
+
+    private final List<FallEvent> ruleFalls = new ArrayList<>();
+    private final List<FallEvent> modelFalls = new ArrayList<>();
+
+    /** The service's pipeline: resampler, then detector and extractor; the classifier gates falls. */
+    private FixedRateResampler pipeline(FallModel model) {
+        FallDetectorConfig config = new FallDetectorConfig();
+        final FallClassifier classifier = new FallClassifier(model, 32);
+        final WindowFeatureExtractor extractor = new WindowFeatureExtractor(100, 25, config.samplePeriodNanos,
+                0.5, 3.0, classifier);
+        final FallDetector detector = new FallDetector(config, new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                ruleFalls.add(event);
+                if (classifier.confirms(event)) {
+                    modelFalls.add(event);
+                }
+            }
+        });
+        return new FixedRateResampler(config, new SampleSink() {
+            @Override
+            public void onSample(long timestampNanos, float x, float y, float z) {
+                detector.onSample(timestampNanos, x, y, z);
+                extractor.onSample(timestampNanos, x, y, z);
+            }
+        }, null);
+    }
+
+    private static void feed(SampleSink sink, TraceBuilder trace) {
+        long[] timestamps = trace.timestamps();
+        float[] magnitudes = trace.magnitudes();
+        for (int i = 0; i < timestamps.length; i++) {
+            sink.onSample(timestamps[i], 0f, 0f, magnitudes[i]);
+        }
+    }
+
+    @Test
+    public void modelConfirmsAHardFallAndRejectsASoftDrop() {
+        // Only an impact above 25 m/s² scores above the threshold
+        FallModel model = new TreeEnsembleFallModel(WindowFeatures.COUNT, -2f, new int[] {0},
+                new short[] {WindowFeatures.MAX_MAGNITUDE, -1, -1},
+                new float[] {25f, 0f, 3f}, new int[] {1, -1, -1}, new int[] {2, -1, -1}, 0.5f);
+        TraceBuilder trace = new TraceBuilder(1_000_000_000L, PERIOD_NANOS)
+                .rest(3000 * MS).fall(300 * MS, 35f, 6000 * MS)
+                // Dropped onto a sofa: just past the rule's impact threshold
+                .rest(3000 * MS).fall(300 * MS, 21f, 6000 * MS);
+        feed(pipeline(model), trace);
+
+        assertEquals(2, ruleFalls.size());
+        assertEquals(1, modelFalls.size());
+        assertEquals(ruleFalls.get(0).onsetNanos, modelFalls.get(0).onsetNanos);
+    }
+
+    @Test
+    public void fallWithNoScoredWindowIsConfirmed() {
+        FallClassifier classifier = new FallClassifier(FallModelCodecTest.trees(), 4);
+        FallEvent event = new FallEvent(1000 * MS, 300 * MS, 0.4f, 1300 * MS, 30f, 0.1f, 4000 * MS);
+        assertTrue(Float.isNaN(classifier.maxProbability(event.onsetNanos, event.impactNanos)));
+        assertTrue(classifier.confirms(event));
+        assertEquals(1, classifier.confirmedFalls());
+    }
+
+    @Test
+    public void scoringAllocatesNothing() {
+        FallClassifier classifier = new FallClassifier(FallModelCodecTest.logistic(), 32);
+        final WindowFeatureExtractor extractor = new WindowFeatureExtractor(100, 25, PERIOD_NANOS, 0.5, 3.0, classifier);
+        final long[] t = {0};
+        Runnable feed = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20_000; i++, t[0] += PERIOD_NANOS) {
+                    extractor.onSample(t[0], 0f, 0f, 9.81f + (i % 11) * 0.5f);
+                }
+            }
+        };
+        feed.run();
+
+        assertEquals(0L, Allocations.fewestBytes(5, feed));
+        assertFalse(Float.isNaN(classifier.lastProbability()));
+        assertTrue(classifier.windowsScored() > 4000);
+    }
+}
@@ -0,0 +1,95 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FallDetectorTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L; // 50 Hz
+    private static final long MS = 1_000_000L;
+
+    private final List<FallEvent> events = new ArrayList<>();
+    private FallDetector detector;
+    private TraceBuilder trace;
+
+    @Before
+    public void setUp() {
+        detector = new FallDetector(new FallDetectorConfig(), new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                events.add(event);
+            }
+        });
+        trace = new TraceBuilder(1_000_000_000L, PERIOD_NANOS);
+    }
+
+    @Test
+    public void restingDeviceNeverFires() {
+        trace.rest(60_000 * MS).feed(detector);
+        assertTrue(events.isEmpty());
+        assertFalse(detector.hasCandidate());
+    }
+
+    @Test
+    public void shortDipBelowThresholdIsIgnored() {
+        trace.rest(1000 * MS).hold(20 * MS, 0.5f).hold(40 * MS, 30f).rest(5000 * MS).feed(detector);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void freeFallImpactAndStillnessIsReportedOnce() {
+        trace.rest(1000 * MS);
+        long onset = trace.now();
+        trace.fall(300 * MS, 30f, 5000 * MS).feed(detector);
+
+        assertEquals(1, events.size());
+        FallEvent event = events.get(0);
+        assertEquals(onset, event.onsetNanos);
+        assertEquals(300 * MS, event.freeFallDurationNanos);
+        assertEquals(0.4f, event.minAcceleration, 1e-6f);
+        assertEquals(30f, event.peakAcceleration, 1e-6f);
+        assertTrue(event.stillnessVariance <= 1.0f);
+        assertFalse(detector.hasCandidate());
+    }
+
+    @Test
+    public void fallIsNotReportedBeforeStillnessIsConfirmed() {
+        trace.rest(1000 * MS).fall(300 * MS, 30f, 1000 * MS).feed(detector);
+        assertTrue(events.isEmpty());
+        assertEquals(FallDetector.Phase.AWAIT_STILLNESS, detector.phase());
+    }
+
+    @Test
+    public void softLandingWithoutImpactIsIgnored() {
+        // Phone dropped onto a sofa: free fall, then a gentle landing
+        trace.rest(1000 * MS).hold(300 * MS, 0.4f).hold(100 * MS, 13f).rest(5000 * MS).feed(detector);
+        assertTrue(events.isEmpty());
+        assertFalse(detector.hasCandidate());
+    }
+
+    @Test
+    public void movementAfterImpactIsIgnored() {
+        // Phone dropped and immediately picked up again
+        trace.rest(1000 * MS).fall(300 * MS, 30f, 100 * MS).shake(6000 * MS, 6f, 14f).feed(detector);
+        assertTrue(events.isEmpty());
+        assertFalse(detector.hasCandidate());
+    }
+
+    @Test
+    public void lateImpactIsIgnored() {
+        trace.rest(1000 * MS).hold(300 * MS, 0.4f).rest(800 * MS).hold(40 * MS, 30f).rest(5000 * MS).feed(detector);
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void detectorRearmsAfterConfirmedFall() {
+        trace.rest(1000 * MS).fall(300 * MS, 30f, 5000 * MS).fall(200 * MS, 25f, 5000 * MS).feed(detector);
+        assertEquals(2, events.size());
+    }
+}
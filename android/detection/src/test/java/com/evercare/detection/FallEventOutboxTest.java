@@ -0,0 +1,310 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FallEventOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File journal;
+
+    @Before
+    public void setUp() {
+        journal = new File(folder.getRoot(), "outbox.journal");
+    }
+
+    @Test
+    public void pendingEntriesSurviveReopen() throws IOException {
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            outbox.append(entry("a"));
+            outbox.append(entry("b"));
+            outbox.append(entry("c"));
+            outbox.acknowledge(Collections.singletonList("b"));
+        }
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            List<OutboxEntry> pending = outbox.pending(10);
+            assertEquals(2, pending.size());
+            assertEquals(entry("a"), pending.get(0));
+            assertEquals(entry("c"), pending.get(1));
+            assertEquals(0, outbox.recoveredBytesDropped());
+        }
+    }
+
+    @Test
+    public void appendingSameIdTwiceKeepsOneEntry() throws IOException {
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            outbox.append(entry("a"));
+            outbox.append(entry("a"));
+            assertEquals(1, outbox.pendingCount());
+        }
+    }
+
+    @Test
+    public void recoversFromCrashAtEveryByteOfATornRecord() throws IOException {
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            outbox.append(entry("a"));
+            outbox.append(entry("b"));
+        }
+        long intact = journal.length();
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            outbox.append(entry("c"));
+        }
+        long full = journal.length();
+        byte[] complete = readAll(journal);
+
+        // Simulate the process dying after each possible prefix of the third record
+        for (long cut = intact; cut < full; cut++) {
+            writePrefix(journal, complete, cut);
+            try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+                assertEquals("cut at " + cut, 2, outbox.pendingCount());
+                assertEquals(cut - intact, outbox.recoveredBytesDropped());
+                assertEquals(intact, journal.length());
+
+                // The recovered journal is usable again
+                outbox.append(entry("d"));
+            }
+            try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+                List<OutboxEntry> pending = outbox.pending(10);
+                assertEquals(Arrays.asList(entry("a"), entry("b"), entry("d")), pending);
+            }
+        }
+    }
+
+    @Test
+    public void corruptedRecordAndEverythingAfterItIsDropped() throws IOException {
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            outbox.append(entry("a"));
+            outbox.append(entry("b"));
+            outbox.append(entry("c"));
+        }
+        byte[] bytes = readAll(journal);
+        // Flip a byte inside the last record's payload
+        bytes[bytes.length - 3] ^= 0x55;
+        writePrefix(journal, bytes, bytes.length);
+
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            assertEquals(2, outbox.pendingCount());
+            assertTrue(outbox.recoveredBytesDropped() > 0);
+        }
+    }
+
+    @Test
+    public void failedWriteIsCutOffSoLaterRecordsSurviveReopen() throws IOException {
+        final TearingChannel[] tearing = new TearingChannel[1];
+        FallEventOutbox.ChannelOpener opener = new FallEventOutbox.ChannelOpener() {
+            @Override
+            public FileChannel open(RandomAccessFile raf) {
+                tearing[0] = new TearingChannel(raf.getChannel());
+                return tearing[0];
+            }
+        };
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal, opener)) {
+            outbox.append(entry("a"));
+            tearing[0].tearNextWriteAfter = 5;
+            try {
+                outbox.append(entry("b"));
+                fail("expected IOException");
+            } catch (IOException expected) {
+            }
+            assertEquals(1, outbox.pendingCount());
+            outbox.append(entry("c"));
+
+            tearing[0].tearNextWriteAfter = 3;
+            try {
+                outbox.acknowledge(Collections.singletonList("a"));
+                fail("expected IOException");
+            } catch (IOException expected) {
+            }
+            assertEquals(2, outbox.pendingCount());
+            outbox.append(entry("d"));
+        }
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            assertEquals(Arrays.asList(entry("a"), entry("c"), entry("d")), outbox.pending(10));
+            assertEquals(0, outbox.recoveredBytesDropped());
+        }
+    }
+
+    @Test
+    public void compactsOnceEverythingIsAcknowledged() throws IOException {
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            for (int i = 0; i < 10; i++) {
+                outbox.append(entry("e" + i));
+            }
+            long grown = outbox.sizeBytes();
+            for (int i = 0; i < 10; i++) {
+                outbox.acknowledge(Collections.singletonList("e" + i));
+            }
+            assertTrue(outbox.sizeBytes() < grown);
+            assertEquals(0, outbox.pendingCount());
+            outbox.append(entry("next"));
+        }
+        try (FallEventOutbox outbox = FallEventOutbox.open(journal)) {
+            assertEquals(Collections.singletonList(entry("next")), outbox.pending(10));
+        }
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyUpToTheCap() {
+        RetryBackoff backoff = new RetryBackoff(1000, 60_000, new Random(1));
+        long[] ceilings = {1000, 2000, 4000, 8000, 16_000, 32_000, 60_000, 60_000};
+        for (long ceiling : ceilings) {
+            long delay = backoff.nextDelayMillis();
+            assertTrue(delay + " outside (" + ceiling / 2 + ", " + ceiling + "]", delay >= ceiling / 2 && delay <= ceiling);
+        }
+        backoff.reset();
+        assertTrue(backoff.nextDelayMillis() <= 1000);
+    }
+
+    private static OutboxEntry entry(String id) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("acceleration", 0.42);
+        fields.put("duration", 300L);
+        fields.put("provider", "gps");
+        fields.put("manual", Boolean.FALSE);
+        return new OutboxEntry(id, 1_700_000_000_000L, fields);
+    }
+
+    private static byte[] readAll(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    /** Writes only the first bytes of one write, as a full disk or I/O error would, then fails it. */
+    private static final class TearingChannel extends FileChannel {
+        private final FileChannel delegate;
+        int tearNextWriteAfter = -1;
+
+        TearingChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (tearNextWriteAfter < 0) {
+                return delegate.write(src);
+            }
+            ByteBuffer head = src.duplicate();
+            head.limit(head.position() + Math.min(tearNextWriteAfter, head.remaining()));
+            tearNextWriteAfter = -1;
+            while (head.hasRemaining()) {
+                delegate.write(head);
+            }
+            throw new IOException("No space left on device");
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+
+    private static void writePrefix(File file, byte[] bytes, long length) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            raf.write(bytes, 0, (int) length);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FallIncidentCoalescerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long WINDOW = 30 * SECOND;
+
+    private final List<String> calls = new ArrayList<>();
+    private final List<FallIncidentCoalescer.Incident> closed = new ArrayList<>();
+    private FallIncidentCoalescer coalescer;
+
+    @Before
+    public void setUp() {
+        coalescer = new FallIncidentCoalescer(WINDOW, new FallIncidentCoalescer.Listener() {
+            @Override
+            public void onIncidentStarted(FallIncidentCoalescer.Incident incident) {
+                calls.add("started");
+            }
+
+            @Override
+            public void onIncidentExtended(FallIncidentCoalescer.Incident incident, FallEvent event) {
+                calls.add("extended " + incident.count());
+            }
+
+            @Override
+            public void onIncidentClosed(FallIncidentCoalescer.Incident incident) {
+                calls.add("closed " + incident.count());
+                closed.add(incident);
+            }
+        });
+    }
+
+    /** A fall with its onset at {@code onset} seconds, confirmed 3 s later. */
+    private static FallEvent fall(long onset, long freeFallMillis, float min, float peak) {
+        long onsetNanos = onset * SECOND;
+        return new FallEvent(onsetNanos, freeFallMillis * 1_000_000L, min, onsetNanos + freeFallMillis * 1_000_000L,
+                peak, 0.2f, onsetNanos + 3 * SECOND);
+    }
+
+    @Test
+    public void tumbleDownTheStairsIsOneIncident() {
+        FallEvent first = fall(100, 300, 0.5f, 25f);
+        coalescer.offer(first);
+        coalescer.offer(fall(106, 200, 0.3f, 40f));
+        coalescer.offer(fall(112, 150, 0.8f, 22f));
+        coalescer.advance(115 * SECOND + WINDOW + 1);
+
+        assertEquals(List.of("started", "extended 2", "extended 3", "closed 3"), calls);
+        FallIncidentCoalescer.Incident incident = closed.get(0);
+        assertSame(first, incident.first);
+        assertEquals(40f, incident.peakAcceleration(), 0f);
+        assertEquals(0.3f, incident.minAcceleration(), 0f);
+        assertEquals(650 * 1_000_000L, incident.totalFreeFallNanos());
+        assertEquals(15 * SECOND, incident.spanNanos());
+    }
+
+    @Test
+    public void incidentStaysOpenUntilAWholeWindowIsQuiet() {
+        coalescer.offer(fall(100, 300, 0.5f, 25f));
+        coalescer.advance(103 * SECOND + WINDOW);
+        assertEquals(List.of("started"), calls);
+
+        coalescer.advance(103 * SECOND + WINDOW + 1);
+        assertEquals(List.of("started", "closed 1"), calls);
+        assertNull(coalescer.openIncident());
+    }
+
+    @Test
+    public void detectionAfterTheWindowStartsANewIncident() {
+        coalescer.offer(fall(100, 300, 0.5f, 25f));
+        coalescer.offer(fall(200, 300, 0.5f, 25f));
+
+        assertEquals(List.of("started", "closed 1", "started"), calls);
+    }
+
+    @Test
+    public void closedIncidentIsNotExtended() {
+        coalescer.offer(fall(100, 300, 0.5f, 25f));
+        // The user answered the alert
+        coalescer.close();
+        coalescer.offer(fall(105, 300, 0.5f, 25f));
+
+        assertEquals(List.of("started", "closed 1", "started"), calls);
+    }
+}
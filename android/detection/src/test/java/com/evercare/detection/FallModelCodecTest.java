@@ -0,0 +1,88 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import org.junit.Test;
+
+public class FallModelCodecTest {
+
+    static LogisticFallModel logistic() {
+        float[] means = new float[WindowFeatures.COUNT];
+        float[] scales = new float[WindowFeatures.COUNT];
+        float[] weights = new float[WindowFeatures.COUNT];
+        java.util.Arrays.fill(scales, 1f);
+        means[WindowFeatures.PEAK_TO_PEAK] = 10f;
+        scales[WindowFeatures.PEAK_TO_PEAK] = 5f;
+        weights[WindowFeatures.PEAK_TO_PEAK] = 2f;
+        weights[WindowFeatures.MIN_MAGNITUDE] = -1f;
+        return new LogisticFallModel(means, scales, weights, -0.5f, 0.5f);
+    }
+
+    /** Two stumps: a hard impact adds 3, lying flat afterwards adds 1. */
+    static TreeEnsembleFallModel trees() {
+        return new TreeEnsembleFallModel(WindowFeatures.COUNT, -2f, new int[] {0, 3},
+                new short[] {WindowFeatures.MAX_MAGNITUDE, -1, -1, WindowFeatures.TILT_CHANGE, -1, -1},
+                new float[] {20f, 0f, 3f, 45f, 0f, 1f},
+                new int[] {1, -1, -1, 4, -1, -1},
+                new int[] {2, -1, -1, 5, -1, -1},
+                0.5f);
+    }
+
+    private static float[] window(float min, float max, float tilt) {
+        float[] features = new float[WindowFeatures.COUNT];
+        features[WindowFeatures.MIN_MAGNITUDE] = min;
+        features[WindowFeatures.MAX_MAGNITUDE] = max;
+        features[WindowFeatures.PEAK_TO_PEAK] = max - min;
+        features[WindowFeatures.TILT_CHANGE] = tilt;
+        return features;
+    }
+
+    private static double sigmoid(double z) {
+        return 1 / (1 + Math.exp(-z));
+    }
+
+    @Test
+    public void logisticModelRoundTrips() throws IOException {
+        LogisticFallModel model = logistic();
+        FallModel loaded = FallModelCodec.read(new ByteArrayInputStream(FallModelCodec.encode(model)));
+
+        float[] features = window(0.4f, 30f, 80f);
+        double expected = sigmoid(-0.5 + 2 * (29.6 - 10) / 5 - 0.4);
+        assertEquals(expected, model.probability(features, 0), 1e-6);
+        assertEquals(expected, loaded.probability(features, 0), 1e-6);
+        assertEquals(0.5f, loaded.threshold(), 0f);
+    }
+
+    @Test
+    public void treeEnsembleRoundTripsAndWalksEveryTree() throws IOException {
+        FallModel loaded = FallModelCodec.decode(FallModelCodec.encode(trees()));
+
+        assertEquals(sigmoid(-2 + 3 + 1), loaded.probability(window(0.4f, 30f, 80f), 0), 1e-6);
+        assertEquals(sigmoid(-2 + 3), loaded.probability(window(0.4f, 30f, 10f), 0), 1e-6);
+        assertEquals(sigmoid(-2), loaded.probability(window(8f, 12f, 10f), 0), 1e-6);
+        // Features can sit anywhere in a larger array
+        float[] padded = new float[WindowFeatures.COUNT + 5];
+        System.arraycopy(window(0.4f, 30f, 80f), 0, padded, 5, WindowFeatures.COUNT);
+        assertEquals(sigmoid(2), loaded.probability(padded, 5), 1e-6);
+    }
+
+    @Test
+    public void damagedModelIsRejected() throws IOException {
+        byte[] encoded = FallModelCodec.encode(trees());
+        encoded[20] ^= 0x10;
+        try {
+            FallModelCodec.decode(encoded);
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void treeThatLoopsBackIsRejected() {
+        new TreeEnsembleFallModel(WindowFeatures.COUNT, 0f, new int[] {0},
+                new short[] {0, 0}, new float[] {1f, 1f}, new int[] {1, 0}, new int[] {1, 0}, 0.5f);
+    }
+}
@@ -0,0 +1,169 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class FixedRateResamplerTest {
+
+    private static final long MS = 1_000_000L;
+    private static final long PERIOD_NANOS = 20 * MS;
+    private static final long START_NANOS = 5_000_000_000L;
+
+    /** Records what the resampler emits, optionally passing it on. */
+    private static final class Recorder implements SampleSink {
+        final List<Long> timestamps = new ArrayList<>();
+        final List<Float> zs = new ArrayList<>();
+        final SampleSink next;
+
+        Recorder(SampleSink next) {
+            this.next = next;
+        }
+
+        @Override
+        public void onSample(long timestampNanos, float x, float y, float z) {
+            timestamps.add(timestampNanos);
+            zs.add(z);
+            if (next != null) {
+                next.onSample(timestampNanos, x, y, z);
+            }
+        }
+    }
+
+    /** Moves every timestamp by up to {@code maxJitterNanos} either way, keeping them in order. */
+    private static long[] jitter(long[] timestamps, long maxJitterNanos, long seed) {
+        Random random = new Random(seed);
+        long[] out = new long[timestamps.length];
+        for (int i = 0; i < timestamps.length; i++) {
+            out[i] = timestamps[i] + (long) ((random.nextDouble() * 2 - 1) * maxJitterNanos);
+            if (i > 0 && out[i] <= out[i - 1]) {
+                out[i] = out[i - 1] + 1;
+            }
+        }
+        return out;
+    }
+
+    @Test
+    public void jitteryInputComesOutOnAFixedGrid() {
+        Recorder recorder = new Recorder(null);
+        FixedRateResampler resampler = new FixedRateResampler(PERIOD_NANOS, 100 * MS, recorder, null);
+        long[] nominal = new TraceBuilder(START_NANOS, PERIOD_NANOS).rest(10_000 * MS).timestamps();
+        long[] delivered = jitter(nominal, 9 * MS, 42);
+        for (long t : delivered) {
+            // A ramp, so interpolation has an exact answer at every grid point
+            resampler.onSample(t, 0f, 0f, (t - START_NANOS) / (float) MS * 0.001f);
+        }
+
+        long first = recorder.timestamps.get(0);
+        assertEquals(delivered[0], first);
+        for (int i = 0; i < recorder.timestamps.size(); i++) {
+            long t = recorder.timestamps.get(i);
+            assertEquals(first + i * PERIOD_NANOS, t);
+            assertEquals((t - START_NANOS) / (float) MS * 0.001f, recorder.zs.get(i), 1e-4f);
+        }
+        // One output per period of input, less the part after the last grid point
+        long expected = (delivered[delivered.length - 1] - first) / PERIOD_NANOS + 1;
+        assertEquals(expected, resampler.outputSamples());
+        assertEquals(0, resampler.gaps());
+    }
+
+    @Test
+    public void fallIsTimedOnTheGridWhateverTheDeliveryJitter() {
+        // Nominally 50 Hz, but every sample up to 8 ms early or late
+        TraceBuilder trace = new TraceBuilder(START_NANOS, PERIOD_NANOS).rest(2000 * MS).fall(300 * MS, 30f, 5000 * MS);
+        long[] timestamps = jitter(trace.timestamps(), 8 * MS, 7);
+        float[] magnitudes = trace.magnitudes();
+        final List<FallEvent> events = new ArrayList<>();
+        FallDetector detector = new FallDetector(new FallDetectorConfig(), new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                events.add(event);
+            }
+        });
+        Recorder recorder = new Recorder(detector);
+        FixedRateResampler resampler = new FixedRateResampler(new FallDetectorConfig(), recorder, null);
+        for (int i = 0; i < timestamps.length; i++) {
+            resampler.onSample(timestamps[i], 0f, 0f, magnitudes[i]);
+        }
+
+        for (int i = 1; i < recorder.timestamps.size(); i++) {
+            assertEquals(PERIOD_NANOS, recorder.timestamps.get(i) - recorder.timestamps.get(i - 1));
+        }
+        assertEquals(1, events.size());
+        long freeFallMillis = events.get(0).freeFallDurationMillis();
+        assertTrue("free fall " + freeFallMillis + "ms", Math.abs(freeFallMillis - 300) <= 40);
+    }
+
+    @Test
+    public void gapIsReportedAndNotBridged() {
+        final List<long[]> gaps = new ArrayList<>();
+        Recorder recorder = new Recorder(null);
+        FixedRateResampler resampler = new FixedRateResampler(PERIOD_NANOS, 100 * MS, recorder,
+                new FixedRateResampler.GapListener() {
+                    @Override
+                    public void onGap(long fromNanos, long toNanos) {
+                        gaps.add(new long[] {fromNanos, toNanos});
+                    }
+                });
+        resampler.onSample(START_NANOS, 0f, 0f, 9.81f);
+        resampler.onSample(START_NANOS + 20 * MS, 0f, 0f, 9.81f);
+        // The sensor stalls for 400 ms
+        resampler.onSample(START_NANOS + 420 * MS + 3 * MS, 0f, 0f, 1f);
+        resampler.onSample(START_NANOS + 440 * MS + 3 * MS, 0f, 0f, 1f);
+
+        assertEquals(1, gaps.size());
+        assertEquals(START_NANOS + 20 * MS, gaps.get(0)[0]);
+        assertEquals(START_NANOS + 423 * MS, gaps.get(0)[1]);
+        // Nothing made up inside the gap; the grid restarts at the first sample after it
+        assertEquals(List.of(START_NANOS, START_NANOS + 20 * MS, START_NANOS + 423 * MS, START_NANOS + 443 * MS),
+                recorder.timestamps);
+        assertEquals(1f, recorder.zs.get(2), 0f);
+    }
+
+    @Test
+    public void samplesThatDoNotMoveForwardAreDropped() {
+        Recorder recorder = new Recorder(null);
+        FixedRateResampler resampler = new FixedRateResampler(PERIOD_NANOS, 100 * MS, recorder, null);
+        resampler.onSample(START_NANOS, 0f, 0f, 1f);
+        resampler.onSample(START_NANOS, 0f, 0f, 2f);
+        resampler.onSample(START_NANOS - 5 * MS, 0f, 0f, 3f);
+        resampler.onSample(START_NANOS + 30 * MS, 0f, 0f, 4f);
+
+        assertEquals(2, resampler.droppedSamples());
+        assertEquals(List.of(START_NANOS, START_NANOS + 20 * MS), recorder.timestamps);
+        assertEquals(3f, recorder.zs.get(1), 1e-6f);
+    }
+
+    @Test
+    public void resamplingAllocatesNothing() {
+        final long[] sink = new long[1];
+        final FixedRateResampler resampler = new FixedRateResampler(PERIOD_NANOS, 100 * MS, new SampleSink() {
+            @Override
+            public void onSample(long timestampNanos, float x, float y, float z) {
+                sink[0] += timestampNanos;
+            }
+        }, null);
+        Random random = new Random(3);
+        final long[] t = {START_NANOS};
+        for (int i = 0; i < 20_000; i++) {
+            t[0] += 5 * MS + random.nextInt(30) * MS;
+            resampler.onSample(t[0], 0f, 0f, 9.81f);
+        }
+
+        long allocated = Allocations.fewestBytes(5, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20_000; i++) {
+                    t[0] += 5 * MS + (i * 7919L % 30) * MS;
+                    resampler.onSample(t[0], 0f, 0f, 9.81f);
+                }
+            }
+        });
+        assertEquals(0L, allocated);
+        assertTrue(resampler.outputSamples() > 0);
+    }
+}
@@ -0,0 +1,145 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class InactivityMonitorTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+    private static final long MS = 1_000_000L;
+    private static final long SECOND = 1000 * MS;
+    private static final long MINUTE = 60 * SECOND;
+
+    private final List<String> reports = new ArrayList<>();
+    private final List<Long> reportNanos = new ArrayList<>();
+
+    private final InactivityMonitor.Listener listener = new InactivityMonitor.Listener() {
+        @Override
+        public void onLongLie(long fallNanos, long lyingNanos) {
+            reports.add("longLie");
+            reportNanos.add(lyingNanos);
+        }
+
+        @Override
+        public void onRecovered(long fallNanos, long afterNanos) {
+            reports.add("recovered");
+            reportNanos.add(afterNanos);
+        }
+
+        @Override
+        public void onProlongedStillness(long stillSinceNanos, long stillNanos) {
+            reports.add("stillness");
+            reportNanos.add(stillNanos);
+        }
+    };
+
+    /** The service's wiring: detector and extractor side by side, falls start a watch. */
+    private SampleSink pipeline(final InactivityMonitor monitor) {
+        FallDetectorConfig config = new FallDetectorConfig();
+        final FallDetector detector = new FallDetector(config, new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                monitor.onFall(event);
+            }
+        });
+        final WindowFeatureExtractor extractor = new WindowFeatureExtractor(100, 25, PERIOD_NANOS, 0.5, 3.0, monitor);
+        return new SampleSink() {
+            @Override
+            public void onSample(long timestampNanos, float x, float y, float z) {
+                detector.onSample(timestampNanos, x, y, z);
+                extractor.onSample(timestampNanos, x, y, z);
+            }
+        };
+    }
+
+    private static void feed(SampleSink sink, TraceBuilder trace) {
+        long[] timestamps = trace.timestamps();
+        float[] magnitudes = trace.magnitudes();
+        for (int i = 0; i < timestamps.length; i++) {
+            sink.onSample(timestamps[i], 0f, 0f, magnitudes[i]);
+        }
+    }
+
+    private static final InactivityMonitor.Daytime ALWAYS = new InactivityMonitor.Daytime() {
+        @Override
+        public boolean isDaytime(long sensorNanos) {
+            return true;
+        }
+    };
+
+    @Test
+    public void gettingUpAfterAFallIsARecovery() {
+        InactivityMonitor monitor = new InactivityMonitor(new FallDetectorConfig(), ALWAYS, listener);
+        TraceBuilder trace = new TraceBuilder(0, PERIOD_NANOS)
+                .rest(5 * SECOND).fall(300 * MS, 35f, 5 * SECOND)
+                // Getting up and walking off
+                .shake(20 * SECOND, 8f, 12f)
+                .rest(2 * MINUTE);
+        feed(pipeline(monitor), trace);
+
+        assertEquals(List.of("recovered"), reports);
+        // Ten seconds of movement, counted from when it started
+        assertTrue(reportNanos.get(0) > 10 * SECOND && reportNanos.get(0) < 20 * SECOND);
+        assertFalse(monitor.watching());
+    }
+
+    @Test
+    public void stayingOnTheFloorIsALongLieUntilThePersonGetsUp() {
+        InactivityMonitor monitor = new InactivityMonitor(new FallDetectorConfig(), ALWAYS, listener);
+        TraceBuilder trace = new TraceBuilder(0, PERIOD_NANOS)
+                .rest(5 * SECOND).fall(300 * MS, 35f, 90 * SECOND)
+                // A few seconds of struggling is not getting up
+                .shake(4 * SECOND, 8f, 12f)
+                .rest(30 * SECOND)
+                .shake(20 * SECOND, 8f, 12f);
+        feed(pipeline(monitor), trace);
+
+        assertEquals(List.of("longLie", "recovered"), reports);
+        assertEquals(60 * SECOND, reportNanos.get(0), SECOND);
+        assertEquals(1, monitor.longLies());
+        assertEquals(1, monitor.recoveries());
+    }
+
+    @Test
+    public void prolongedStillnessCountsOnlyDaytimeAndIsReportedOncePerStillPeriod() {
+        // Daytime starts 5 minutes in; alert after 10 minutes of daytime stillness
+        InactivityMonitor monitor = new InactivityMonitor(0.25f, 10 * SECOND, MINUTE, 10 * MINUTE,
+                new InactivityMonitor.Daytime() {
+                    @Override
+                    public boolean isDaytime(long sensorNanos) {
+                        return sensorNanos >= 5 * MINUTE;
+                    }
+                }, listener);
+        SampleSink sink = pipeline(monitor);
+        feed(sink, new TraceBuilder(0, PERIOD_NANOS).rest(14 * MINUTE));
+        assertTrue(reports.isEmpty());
+
+        feed(sink, new TraceBuilder(14 * MINUTE, PERIOD_NANOS).rest(10 * MINUTE));
+        assertEquals(List.of("stillness"), reports);
+        // Still since the start, reported once 10 daytime minutes had passed
+        assertEquals(15 * MINUTE, reportNanos.get(0), SECOND);
+
+        // Moving resets it; the next still period can raise it again
+        feed(sink, new TraceBuilder(24 * MINUTE, PERIOD_NANOS).shake(10 * SECOND, 8f, 12f).rest(11 * MINUTE));
+        assertEquals(List.of("stillness", "stillness"), reports);
+        assertEquals(10 * MINUTE, reportNanos.get(1), 2 * SECOND);
+    }
+
+    @Test
+    public void answeredAlertEndsTheWatch() {
+        InactivityMonitor monitor = new InactivityMonitor(new FallDetectorConfig(), ALWAYS, listener);
+        SampleSink sink = pipeline(monitor);
+        TraceBuilder trace = new TraceBuilder(0, PERIOD_NANOS).rest(5 * SECOND).fall(300 * MS, 35f, 10 * SECOND);
+        feed(sink, trace);
+        assertTrue(monitor.watching());
+
+        monitor.endWatch();
+        feed(sink, new TraceBuilder(trace.now(), PERIOD_NANOS).rest(2 * MINUTE));
+        assertTrue(reports.isEmpty());
+    }
+}
@@ -0,0 +1,59 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.mean());
+    }
+
+    @Test
+    public void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++) {
+            histogram.record(i * 1_000L); // 1 µs .. 10 ms
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000_000L, histogram.max());
+        assertWithin(5_000_000L, histogram.percentile(0.5));
+        assertWithin(9_900_000L, histogram.percentile(0.99));
+        assertEquals(10_000_000L, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void bucketBoundsCoverEveryValue() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789L, Long.MAX_VALUE / 3};
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(value + " above bound", value <= LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(value + " below bound", value > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void addMergesCounts() {
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(100);
+        b.record(5_000);
+        b.record(7);
+        a.add(b);
+        assertEquals(3, a.count());
+        assertEquals(5_000, a.max());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 16);
+    }
+}
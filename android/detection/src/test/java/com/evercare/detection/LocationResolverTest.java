@@ -0,0 +1,238 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LocationResolverTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long DEADLINE = 10 * SECOND;
+    private static final float GOOD_ACCURACY = 50f;
+
+    /** Virtual clock; scheduled tasks run when the test advances time past them. */
+    private static final class FakeScheduler implements LocationResolver.Scheduler {
+        long now = 1000 * SECOND;
+        final List<long[]> dueTimes = new ArrayList<>();
+        final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public long elapsedNanos() {
+            return now;
+        }
+
+        @Override
+        public LocationSource.Request schedule(final Runnable task, long delayNanos) {
+            final long[] due = {now + delayNanos};
+            dueTimes.add(due);
+            tasks.add(task);
+            return new LocationSource.Request() {
+                @Override
+                public void cancel() {
+                    int index = tasks.indexOf(task);
+                    if (index >= 0) {
+                        tasks.remove(index);
+                        dueTimes.remove(index);
+                    }
+                }
+            };
+        }
+
+        void advance(long nanos) {
+            now += nanos;
+            Iterator<long[]> due = dueTimes.iterator();
+            Iterator<Runnable> task = tasks.iterator();
+            List<Runnable> ready = new ArrayList<>();
+            while (due.hasNext()) {
+                long[] d = due.next();
+                Runnable t = task.next();
+                if (d[0] <= now) {
+                    due.remove();
+                    task.remove();
+                    ready.add(t);
+                }
+            }
+            for (Runnable t : ready) {
+                t.run();
+            }
+        }
+    }
+
+    private static final class FakeSource implements LocationSource {
+        final String name;
+        boolean enabled = true;
+        LocationFix lastKnown;
+        FixCallback pending;
+        int requests = 0;
+        int cancels = 0;
+
+        FakeSource(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+
+        @Override
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        @Override
+        public LocationFix lastKnown() {
+            return lastKnown;
+        }
+
+        @Override
+        public Request requestFix(FixCallback callback) {
+            requests++;
+            pending = callback;
+            return new Request() {
+                @Override
+                public void cancel() {
+                    cancels++;
+                    pending = null;
+                }
+            };
+        }
+
+        void deliver(LocationFix fix) {
+            if (pending != null) {
+                pending.onFix(fix);
+            }
+        }
+    }
+
+    private FakeScheduler scheduler;
+    private FakeSource gps;
+    private FakeSource network;
+    private LocationResolver resolver;
+    private final List<LocationResolver.Resolution> results = new ArrayList<>();
+    private final LocationResolver.Callback collect = new LocationResolver.Callback() {
+        @Override
+        public void onResolved(LocationResolver.Resolution resolution) {
+            results.add(resolution);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        scheduler = new FakeScheduler();
+        gps = new FakeSource("gps");
+        network = new FakeSource("network");
+        resolver = new LocationResolver(Arrays.<LocationSource>asList(gps, network), scheduler, GOOD_ACCURACY);
+    }
+
+    private LocationFix fix(String provider, float accuracy, long ageNanos) {
+        return new LocationFix(provider, 52.0, 13.0, accuracy, 0, scheduler.now - ageNanos);
+    }
+
+    @Test
+    public void accurateFixEndsTheRaceEarly() {
+        resolver.resolve(DEADLINE, collect);
+        assertEquals(1, gps.requests);
+        assertEquals(1, network.requests);
+
+        scheduler.advance(SECOND);
+        network.deliver(fix("network", 120f, 0));
+        assertTrue(results.isEmpty());
+
+        scheduler.advance(2 * SECOND);
+        LocationFix gpsFix = fix("gps", 8f, 0);
+        gps.deliver(gpsFix);
+
+        assertEquals(1, results.size());
+        assertSame(gpsFix, results.get(0).fix);
+        assertTrue(results.get(0).fresh);
+        assertEquals(3 * SECOND, results.get(0).waitedNanos);
+        assertEquals(1, network.cancels);
+        assertEquals(0, resolver.outstanding());
+        assertTrue("deadline task cancelled", scheduler.tasks.isEmpty());
+    }
+
+    @Test
+    public void deadlineSettlesForTheBestFreshFix() {
+        resolver.resolve(DEADLINE, collect);
+        scheduler.advance(2 * SECOND);
+        LocationFix networkFix = fix("network", 120f, 0);
+        network.deliver(networkFix);
+
+        scheduler.advance(DEADLINE - 2 * SECOND);
+        assertEquals(1, results.size());
+        assertSame(networkFix, results.get(0).fix);
+        assertTrue(results.get(0).fresh);
+        assertEquals(8 * SECOND, results.get(0).ageNanos);
+        assertEquals(1, gps.cancels);
+    }
+
+    @Test
+    public void noFreshFixFallsBackToTheCache() {
+        LocationFix passive = fix("passive", 30f, 60 * SECOND);
+        resolver.onPassiveFix(passive);
+        gps.lastKnown = fix("gps", 10f, 3600 * SECOND);
+
+        resolver.resolve(DEADLINE, collect);
+        scheduler.advance(DEADLINE);
+
+        assertEquals(1, results.size());
+        LocationResolver.Resolution resolution = results.get(0);
+        assertSame("an hour-old fix loses to a minute-old one", passive, resolution.fix);
+        assertFalse(resolution.fresh);
+        assertEquals(70 * SECOND, resolution.ageNanos);
+    }
+
+    @Test
+    public void disabledSourcesAreSkippedAndNothingKnownGivesNoFix() {
+        gps.enabled = false;
+        network.enabled = false;
+        resolver.resolve(DEADLINE, collect);
+
+        assertEquals(0, gps.requests);
+        assertEquals(0, network.requests);
+        assertEquals(1, results.size());
+        assertNull(results.get(0).fix);
+        assertEquals(0, results.get(0).waitedNanos);
+    }
+
+    @Test
+    public void lateFixesAfterFinishAreIgnored() {
+        resolver.resolve(DEADLINE, collect);
+        final LocationSource.FixCallback late = gps.pending;
+        scheduler.advance(DEADLINE);
+        late.onFix(fix("gps", 5f, 0));
+        assertEquals(1, results.size());
+        assertNull(results.get(0).fix);
+    }
+
+    @Test
+    public void finishAllDeliversWhatEachRaceHas() {
+        resolver.resolve(DEADLINE, collect);
+        resolver.resolve(DEADLINE, collect);
+        network.deliver(fix("network", 200f, 0));
+        resolver.finishAll();
+        assertEquals(2, results.size());
+        assertEquals(0, resolver.outstanding());
+        assertTrue(scheduler.tasks.isEmpty());
+    }
+
+    @Test
+    public void significantlyNewerBeatsMoreAccurate() {
+        LocationFix old = fix("gps", 5f, 10 * 60 * SECOND);
+        LocationFix recent = fix("network", 300f, 0);
+        assertTrue(LocationResolver.isBetter(recent, old));
+        assertFalse(LocationResolver.isBetter(old, recent));
+        assertTrue(LocationResolver.isBetter(fix("gps", 5f, 0), fix("network", 50f, 0)));
+        assertFalse(LocationResolver.isBetter(fix("network", 400f, 0), fix("gps", 20f, SECOND)));
+    }
+}
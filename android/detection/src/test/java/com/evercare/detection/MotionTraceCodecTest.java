@@ -0,0 +1,170 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class MotionTraceCodecTest {
+
+    private static final long MILLIS = 1_000_000L;
+    private static final long SECOND = 1_000_000_000L;
+    private static final long PERIOD = 20 * MILLIS;
+
+    /** A noisy 50 Hz stream with timestamp jitter, a fall at {@code onset}. */
+    private static void feedNoisyFall(SampleSink sink, long start, long onset, long end, Random random) {
+        long t = start;
+        while (t < end) {
+            float noise = (float) random.nextGaussian() * 0.05f;
+            float z;
+            if (t >= onset && t < onset + 300 * MILLIS) {
+                z = 0.4f + noise;
+            } else if (t >= onset + 300 * MILLIS && t < onset + 360 * MILLIS) {
+                z = 35f + noise * 40;
+            } else {
+                z = 9.81f + noise;
+            }
+            sink.onSample(t, noise * 3, (float) random.nextGaussian() * 0.05f, z);
+            t += PERIOD + (random.nextInt(401) - 200) * 1000L;
+        }
+    }
+
+    @Test
+    public void roundTripWithinQuantization() throws IOException {
+        Random random = new Random(42);
+        int n = 1000;
+        long[] timestamps = new long[n];
+        float[] x = new float[n];
+        float[] y = new float[n];
+        float[] z = new float[n];
+        long t = 123_456_789_012L;
+        for (int i = 0; i < n; i++) {
+            timestamps[i] = t;
+            t += PERIOD + random.nextInt(2_000_000) - 1_000_000;
+            x[i] = (float) random.nextGaussian() * 20f;
+            y[i] = -78.4f + random.nextFloat();
+            z[i] = 9.81f;
+        }
+        MotionTrace trace = new MotionTrace(timestamps[n / 2], timestamps, x, y, z);
+
+        MotionTrace decoded = MotionTraceCodec.decode(MotionTraceCodec.encode(trace));
+
+        assertEquals(trace.anchorNanos, decoded.anchorNanos);
+        assertEquals(n, decoded.size());
+        for (int i = 0; i < n; i++) {
+            assertTrue(Math.abs(timestamps[i] - decoded.timestampsNanos[i]) <= 500);
+            assertEquals(x[i], decoded.x[i], MotionTraceCodec.RESOLUTION / 2 + 1e-4);
+            assertEquals(y[i], decoded.y[i], MotionTraceCodec.RESOLUTION / 2 + 1e-4);
+            assertEquals(z[i], decoded.z[i], MotionTraceCodec.RESOLUTION / 2 + 1e-4);
+        }
+    }
+
+    @Test
+    public void emptyTraceRoundTrips() throws IOException {
+        MotionTrace empty = new MotionTrace(7L, new long[0], new float[0], new float[0], new float[0]);
+        MotionTrace decoded = MotionTraceCodec.decode(MotionTraceCodec.encode(empty));
+        assertEquals(7L, decoded.anchorNanos);
+        assertEquals(0, decoded.size());
+    }
+
+    @Test
+    public void capturedFallIsAFewKilobytes() throws IOException {
+        MotionContextCapture capture = new MotionContextCapture(2048, 10 * SECOND, 3 * SECOND);
+        final List<MotionTrace> traces = new ArrayList<>();
+        long start = 1_000 * SECOND;
+        long onset = start + 30 * SECOND;
+        long detected = onset + 2 * SECOND;
+
+        Random random = new Random(7);
+        feedNoisyFall(capture, start, onset, detected, random);
+        capture.capture(onset, detected, new MotionContextCapture.Callback() {
+            @Override
+            public void onCaptured(MotionTrace trace) {
+                traces.add(trace);
+            }
+        });
+        assertEquals(1, capture.pendingCaptures());
+        feedNoisyFall(capture, detected, onset, detected + 5 * SECOND, random);
+
+        assertEquals(1, traces.size());
+        MotionTrace trace = traces.get(0);
+        assertTrue(trace.timestampsNanos[0] >= onset - 10 * SECOND);
+        assertTrue(trace.timestampsNanos[0] < onset - 10 * SECOND + PERIOD + MILLIS);
+        assertTrue(trace.timestampsNanos[trace.size() - 1] <= detected + 3 * SECOND);
+        assertEquals(15 * SECOND / PERIOD, trace.size(), 20);
+
+        byte[] encoded = MotionTraceCodec.encode(trace);
+        // Raw would be 20 bytes per sample (long + three floats)
+        assertTrue("encoded " + encoded.length + " bytes", encoded.length < 6 * trace.size());
+        assertTrue("encoded " + encoded.length + " bytes", encoded.length < 5 * 1024);
+
+        MotionTrace decoded = MotionTraceCodec.decode(encoded);
+        assertEquals(trace.size(), decoded.size());
+        for (int i = 0; i < trace.size(); i++) {
+            assertTrue(Math.abs(trace.timestampsNanos[i] - decoded.timestampsNanos[i]) <= 500);
+            assertEquals(trace.z[i], decoded.z[i], MotionTraceCodec.RESOLUTION / 2 + 1e-4);
+        }
+    }
+
+    @Test
+    public void captureCompletesImmediatelyWhenTheWindowIsAlreadyBuffered() {
+        MotionContextCapture capture = new MotionContextCapture(2048, SECOND, SECOND);
+        long start = 0;
+        feedNoisyFall(capture, start, 5 * SECOND, 10 * SECOND, new Random(1));
+        final List<MotionTrace> traces = new ArrayList<>();
+        // A batched sensor delivers the samples after detection before the detector runs
+        capture.capture(5 * SECOND, 6 * SECOND, new MotionContextCapture.Callback() {
+            @Override
+            public void onCaptured(MotionTrace trace) {
+                traces.add(trace);
+            }
+        });
+        assertEquals(1, traces.size());
+        assertEquals(0, capture.pendingCaptures());
+    }
+
+    @Test
+    public void flushCompletesWithPartialWindow() {
+        MotionContextCapture capture = new MotionContextCapture(64, 10 * SECOND, 3 * SECOND);
+        feedNoisyFall(capture, 0, 5 * SECOND, 6 * SECOND, new Random(3));
+        final List<MotionTrace> traces = new ArrayList<>();
+        capture.capture(5 * SECOND, 6 * SECOND, new MotionContextCapture.Callback() {
+            @Override
+            public void onCaptured(MotionTrace trace) {
+                traces.add(trace);
+            }
+        });
+        assertTrue(traces.isEmpty());
+        capture.flush();
+        assertEquals(1, traces.size());
+        // Only what the small ring still held
+        assertEquals(64, traces.get(0).size());
+    }
+
+    @Test
+    public void truncatedDataIsRejected() {
+        MotionTrace trace = new MotionTrace(0, new long[] {0, PERIOD, 2 * PERIOD},
+                new float[] {1, 2, 3}, new float[] {1, 2, 3}, new float[] {1, 2, 3});
+        byte[] encoded = MotionTraceCodec.encode(trace);
+        try {
+            MotionTraceCodec.decode(Arrays.copyOf(encoded, encoded.length - 1));
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+        byte[] wrongVersion = encoded.clone();
+        wrongVersion[0] = 9;
+        try {
+            MotionTraceCodec.decode(wrongVersion);
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+        assertArrayEquals(encoded, MotionTraceCodec.encode(trace));
+    }
+}
@@ -0,0 +1,111 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SensorBatchProcessorTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+    private static final long FRESHNESS_NANOS = 10_000_000L;
+    private static final long HOLD_NANOS = 2_000_000_000L;
+    private static final float GRAVITY = 9.81f;
+
+    private final List<FallEvent> falls = new ArrayList<>();
+    private final List<Boolean> modeChanges = new ArrayList<>();
+    private SensorBatchProcessor processor;
+    private long sensorTime;
+
+    @Before
+    public void setUp() {
+        FallDetector detector = new FallDetector(new FallDetectorConfig(), new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                falls.add(event);
+            }
+        });
+        processor = new SensorBatchProcessor(new FixedRateResampler(new FallDetectorConfig(), detector, null), detector,
+                512, FRESHNESS_NANOS, HOLD_NANOS,
+                new SensorBatchProcessor.LatencyModeListener() {
+                    @Override
+                    public void onRealtimeModeChanged(boolean realtime) {
+                        modeChanges.add(realtime);
+                    }
+                });
+        sensorTime = 10_000_000_000L;
+    }
+
+    /**
+     * Delivers a FIFO burst the way the sensor HAL does: every sample arrives at once, just after
+     * the newest one was captured.
+     */
+    private void burst(float[] magnitudes) {
+        long deliveredAt = sensorTime + (magnitudes.length - 1) * PERIOD_NANOS + 1_000_000L;
+        for (float magnitude : magnitudes) {
+            processor.add(sensorTime, 0f, 0f, magnitude, deliveredAt);
+            sensorTime += PERIOD_NANOS;
+        }
+    }
+
+    private static float[] constant(int samples, float magnitude) {
+        float[] out = new float[samples];
+        java.util.Arrays.fill(out, magnitude);
+        return out;
+    }
+
+    @Test
+    public void restingBurstIsProcessedAsOneBatch() {
+        burst(constant(250, GRAVITY));
+        assertEquals(0, processor.pending());
+        assertEquals(1, processor.batchesProcessed());
+        assertTrue(falls.isEmpty());
+        assertFalse(processor.isRealtime());
+    }
+
+    @Test
+    public void fullBufferFlushesBeforeBurstEnds() {
+        burst(constant(1200, GRAVITY));
+        assertEquals(3, processor.batchesProcessed());
+        assertEquals(0, processor.pending());
+    }
+
+    @Test
+    public void fallInsideBurstIsDetectedAndSwitchesToRealtime() {
+        float[] samples = constant(400, GRAVITY);
+        for (int i = 200; i < 215; i++) {
+            samples[i] = 0.3f;
+        }
+        samples[215] = 30f;
+        burst(samples);
+
+        assertEquals(1, falls.size());
+        assertTrue(processor.isRealtime());
+        assertEquals(1, modeChanges.size());
+        assertTrue(modeChanges.get(0));
+    }
+
+    @Test
+    public void realtimeModeFlushesEverySampleThenFallsBackToBatching() {
+        burst(constant(20, 0.3f));
+        assertTrue(processor.isRealtime());
+
+        // Real-time delivery: each sample arrives one period late, well outside the freshness window
+        long batchesBefore = processor.batchesProcessed();
+        for (int i = 0; i < 10; i++) {
+            processor.add(sensorTime, 0f, 0f, GRAVITY, sensorTime + 5 * FRESHNESS_NANOS);
+            sensorTime += PERIOD_NANOS;
+        }
+        assertEquals(batchesBefore + 10, processor.batchesProcessed());
+
+        // The candidate lingers while the detector waits out its impact window
+        burst(constant((int) (HOLD_NANOS / PERIOD_NANOS) + 50, GRAVITY));
+        assertFalse(processor.isRealtime());
+        assertEquals(2, modeChanges.size());
+        assertFalse(modeChanges.get(1));
+    }
+}
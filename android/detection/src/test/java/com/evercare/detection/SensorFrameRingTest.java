@@ -0,0 +1,139 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+public class SensorFrameRingTest {
+
+    private static final int CAPACITY = 16;
+
+    private final long[] timestamps = new long[64];
+    private final float[] xs = new float[64];
+    private final float[] ys = new float[64];
+    private final float[] zs = new float[64];
+
+    private static void write(SensorFrameRing.Producer producer, long from, long to) {
+        for (long i = from; i < to; i++) {
+            producer.onSample(i, i, -i, 2 * i);
+        }
+    }
+
+    private int poll(SensorFrameRing.Consumer consumer, int max) {
+        return consumer.poll(timestamps, xs, ys, zs, max);
+    }
+
+    @Test
+    public void consumerStartsAtTheLiveEdgeAndReadsInOrder() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SensorFrameRing.bytesFor(CAPACITY));
+        SensorFrameRing.Producer producer = SensorFrameRing.producer(buffer, CAPACITY);
+        write(producer, 0, 5);
+
+        SensorFrameRing.Consumer consumer = SensorFrameRing.consumer(buffer);
+        assertEquals(0, poll(consumer, 64));
+
+        write(producer, 5, 12);
+        assertEquals(7, consumer.backlog());
+        assertEquals(7, poll(consumer, 64));
+        for (int i = 0; i < 7; i++) {
+            assertEquals(5 + i, timestamps[i]);
+            assertEquals(5 + i, xs[i], 0);
+            assertEquals(-(5 + i), ys[i], 0);
+            assertEquals(2 * (5 + i), zs[i], 0);
+        }
+        assertEquals(0, consumer.dropped());
+    }
+
+    @Test
+    public void batchesAreCappedAndTheRestIsKept() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SensorFrameRing.bytesFor(CAPACITY));
+        SensorFrameRing.Producer producer = SensorFrameRing.producer(buffer, CAPACITY);
+        SensorFrameRing.Consumer consumer = SensorFrameRing.consumer(buffer);
+
+        write(producer, 0, 10);
+        assertEquals(4, poll(consumer, 4));
+        assertEquals(3, timestamps[3]);
+        assertEquals(6, poll(consumer, 64));
+        assertEquals(4, timestamps[0]);
+        assertEquals(0, consumer.dropped());
+    }
+
+    @Test
+    public void producerOverrunIsCountedAsDropped() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SensorFrameRing.bytesFor(CAPACITY));
+        SensorFrameRing.Producer producer = SensorFrameRing.producer(buffer, CAPACITY);
+        SensorFrameRing.Consumer consumer = SensorFrameRing.consumer(buffer);
+
+        write(producer, 0, 50);
+        assertEquals(CAPACITY, poll(consumer, 64));
+        assertEquals(50 - CAPACITY, timestamps[0]);
+        assertEquals(49, timestamps[CAPACITY - 1]);
+        assertEquals(50 - CAPACITY, consumer.dropped());
+    }
+
+    @Test
+    public void consumerFollowsAProducerThatStartedOver() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(SensorFrameRing.bytesFor(CAPACITY));
+        SensorFrameRing.Producer producer = SensorFrameRing.producer(buffer, CAPACITY);
+        SensorFrameRing.Consumer consumer = SensorFrameRing.consumer(buffer);
+        write(producer, 0, 10);
+        assertEquals(10, poll(consumer, 64));
+
+        // Detection process restarted and formatted the same mapping again
+        producer = SensorFrameRing.producer(buffer, CAPACITY);
+        write(producer, 0, 3);
+        assertEquals(0, poll(consumer, 64));
+        write(producer, 3, 6);
+        assertEquals(3, poll(consumer, 64));
+        assertEquals(3, timestamps[0]);
+    }
+
+    @Test
+    public void rejectsUnformattedBuffers() {
+        try {
+            SensorFrameRing.consumer(ByteBuffer.allocateDirect(SensorFrameRing.bytesFor(CAPACITY)));
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+    }
+
+    @Test
+    public void concurrentReaderNeverSeesTornFrames() throws Exception {
+        final int total = 2_000_000;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(SensorFrameRing.bytesFor(256));
+        final SensorFrameRing.Producer producer = SensorFrameRing.producer(buffer, 256);
+        SensorFrameRing.Consumer consumer = SensorFrameRing.consumer(buffer);
+
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < total; i++) {
+                    producer.onSample(i, i, -i, 2 * i);
+                }
+            }
+        });
+        writer.start();
+
+        long received = 0;
+        long last = -1;
+        while (writer.isAlive() || consumer.backlog() > 0) {
+            int count = poll(consumer, 64);
+            for (int i = 0; i < count; i++) {
+                long t = timestamps[i];
+                assertTrue("out of order: " + t + " after " + last, t > last);
+                assertEquals((float) t, xs[i], 0);
+                assertEquals((float) -t, ys[i], 0);
+                assertEquals((float) (2 * t), zs[i], 0);
+                last = t;
+            }
+            received += count;
+        }
+        writer.join();
+
+        assertEquals(total, received + consumer.dropped());
+    }
+}
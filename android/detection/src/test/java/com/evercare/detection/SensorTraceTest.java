@@ -0,0 +1,109 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SensorTraceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripsSamples() throws IOException {
+        File file = folder.newFile("a.ectr");
+        try (SensorTraceWriter writer = new SensorTraceWriter(file, 1234L)) {
+            for (int i = 0; i < 10_000; i++) {
+                writer.append(i * 20_000_000L, i, -i, i * 0.5f);
+            }
+        }
+        assertEquals(SensorTraceFormat.HEADER_BYTES + 10_000L * SensorTraceFormat.RECORD_BYTES, file.length());
+
+        final List<float[]> samples = new ArrayList<>();
+        try (SensorTraceReader reader = new SensorTraceReader(file)) {
+            assertEquals(1234L, reader.startEpochMillis());
+            assertEquals(10_000, reader.sampleCount());
+            reader.replay(new SampleSink() {
+                @Override
+                public void onSample(long timestampNanos, float x, float y, float z) {
+                    assertEquals(samples.size() * 20_000_000L, timestampNanos);
+                    samples.add(new float[] {x, y, z});
+                }
+            });
+        }
+        assertEquals(10_000, samples.size());
+        assertEquals(9_999f, samples.get(9_999)[0], 0f);
+        assertEquals(-9_999f, samples.get(9_999)[1], 0f);
+        assertEquals(4_999.5f, samples.get(9_999)[2], 0f);
+    }
+
+    @Test
+    public void ignoresTrailingPartialRecord() throws IOException {
+        File file = folder.newFile("b.ectr");
+        try (SensorTraceWriter writer = new SensorTraceWriter(file, 0L)) {
+            writer.append(1L, 1f, 2f, 3f);
+            writer.append(2L, 4f, 5f, 6f);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 7);
+        }
+        try (SensorTraceReader reader = new SensorTraceReader(file)) {
+            assertEquals(1, reader.sampleCount());
+        }
+    }
+
+    @Test
+    public void rejectsFilesThatAreNotTraces() throws IOException {
+        File file = folder.newFile("c.ectr");
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[64]);
+        }
+        try {
+            new SensorTraceReader(file).close();
+            fail("expected IOException");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("magic"));
+        }
+    }
+
+    @Test
+    public void recorderRollsAndPrunesFiles() throws IOException {
+        File directory = new File(folder.getRoot(), "traces");
+        final long[] now = {1_700_000_000_000L};
+        SensorTraceRecorder recorder = new SensorTraceRecorder(directory,
+                SensorTraceFormat.HEADER_BYTES + 100L * SensorTraceFormat.RECORD_BYTES, 3,
+                new SensorTraceRecorder.Clock() {
+                    @Override
+                    public long currentTimeMillis() {
+                        return now[0]++;
+                    }
+                });
+        for (int i = 0; i < 550; i++) {
+            recorder.onSample(i, 0f, 0f, 9.81f);
+        }
+        recorder.close();
+
+        assertNull(recorder.lastError());
+        File[] traces = directory.listFiles();
+        assertEquals(3, traces.length);
+        long total = 0;
+        for (File trace : traces) {
+            try (SensorTraceReader reader = new SensorTraceReader(trace)) {
+                total += reader.sampleCount();
+            }
+        }
+        // Six files were written (5 x 100 + 50); only the newest three remain
+        assertEquals(250, total);
+    }
+}
@@ -0,0 +1,102 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SettingsStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "settings.bin");
+    }
+
+    @Test
+    public void missingFileLoadsEmpty() {
+        SettingsStore store = SettingsStore.open(file);
+        assertTrue(store.snapshot().isEmpty());
+        assertFalse(store.recoveredFromCorruption());
+    }
+
+    @Test
+    public void valuesSurviveReopen() throws IOException {
+        SettingsStore store = SettingsStore.open(file);
+        Map<String, String> changes = new HashMap<>();
+        changes.put("caretakerPhone", "+15550100");
+        changes.put("caretakerName", "Dana Müller");
+        store.putAll(changes);
+        assertEquals("+15550100", store.get("caretakerPhone"));
+
+        SettingsStore reopened = SettingsStore.open(file);
+        assertEquals("+15550100", reopened.get("caretakerPhone"));
+        assertEquals("Dana Müller", reopened.get("caretakerName"));
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+
+    @Test
+    public void nullRemovesKey() throws IOException {
+        SettingsStore store = SettingsStore.open(file);
+        store.put("caretakerPhone", "+15550100");
+        store.put("caretakerPhone", null);
+        assertNull(store.get("caretakerPhone"));
+        assertNull(SettingsStore.open(file).get("caretakerPhone"));
+    }
+
+    @Test
+    public void corruptFileLoadsEmptyAndCanBeRewritten() throws IOException {
+        SettingsStore store = SettingsStore.open(file);
+        store.put("caretakerPhone", "+15550100");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(raf.length() - 2);
+            raf.write(0x5A);
+        }
+
+        SettingsStore recovered = SettingsStore.open(file);
+        assertTrue(recovered.recoveredFromCorruption());
+        assertNull(recovered.get("caretakerPhone"));
+
+        recovered.put("caretakerPhone", "+15550199");
+        assertEquals("+15550199", SettingsStore.open(file).get("caretakerPhone"));
+    }
+
+    @Test
+    public void truncatedFileLoadsEmpty() throws IOException {
+        SettingsStore.open(file).put("caretakerPhone", "+15550100");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(10);
+        }
+        assertTrue(SettingsStore.open(file).snapshot().isEmpty());
+    }
+
+    @Test
+    public void failedWriteKeepsPreviousValues() throws IOException {
+        SettingsStore store = SettingsStore.open(file);
+        store.put("caretakerPhone", "+15550100");
+        // A directory where the temporary file should go makes the write fail
+        assertTrue(new File(file.getPath() + ".tmp").mkdir());
+        try {
+            store.put("caretakerPhone", "+15550199");
+            fail("expected IOException");
+        } catch (IOException expected) {
+        }
+        assertEquals("+15550100", store.get("caretakerPhone"));
+        assertEquals("+15550100", SettingsStore.open(file).get("caretakerPhone"));
+    }
+}
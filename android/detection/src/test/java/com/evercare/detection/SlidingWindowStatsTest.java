@@ -0,0 +1,49 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SlidingWindowStatsTest {
+
+    @Test
+    public void evictsSamplesOlderThanWindow() {
+        SlidingWindowStats stats = new SlidingWindowStats(100, 64);
+        for (long t = 0; t < 1000; t += 10) {
+            stats.add(t, t < 500 ? 0f : 10f);
+        }
+        assertEquals(10, stats.size());
+        assertEquals(10f, stats.mean(), 1e-6f);
+        assertEquals(0f, stats.variance(), 1e-6f);
+    }
+
+    @Test
+    public void varianceMatchesDirectComputation() {
+        SlidingWindowStats stats = new SlidingWindowStats(1_000_000L, 8);
+        float[] values = {9.5f, 9.9f, 10.2f, 9.7f, 9.8f, 10.1f, 9.6f, 10.0f, 9.9f, 9.4f};
+        for (int i = 0; i < values.length; i++) {
+            stats.add(i, values[i]);
+        }
+        // Capacity 8 keeps only the last eight values
+        double sum = 0;
+        double sumOfSquares = 0;
+        for (int i = 2; i < values.length; i++) {
+            sum += values[i];
+            sumOfSquares += values[i] * values[i];
+        }
+        double mean = sum / 8;
+        assertEquals(8, stats.size());
+        assertEquals(mean, stats.mean(), 1e-5);
+        assertEquals(sumOfSquares / 8 - mean * mean, stats.variance(), 1e-4);
+    }
+
+    @Test
+    public void staysAccurateOverLongRuns() {
+        SlidingWindowStats stats = new SlidingWindowStats(1000, 128);
+        for (long t = 0; t < 2_000_000; t++) {
+            stats.add(t, 9.81f + (t % 2 == 0 ? 0.1f : -0.1f));
+        }
+        assertEquals(9.81f, stats.mean(), 1e-4f);
+        assertEquals(0.01f, stats.variance(), 1e-4f);
+    }
+}
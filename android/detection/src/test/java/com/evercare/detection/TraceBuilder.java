@@ -0,0 +1,83 @@
+package com.evercare.detection;
+
+import java.util.Arrays;
+
+/** Builds synthetic accelerometer traces at a fixed sample rate, all acceleration on the z axis. */
+final class TraceBuilder {
+
+    static final float GRAVITY = 9.81f;
+
+    private final long periodNanos;
+    private long nextTimestamp;
+    private long[] timestamps = new long[1024];
+    private float[] magnitudes = new float[1024];
+    private int size = 0;
+
+    TraceBuilder(long startNanos, long periodNanos) {
+        this.nextTimestamp = startNanos;
+        this.periodNanos = periodNanos;
+    }
+
+    TraceBuilder hold(long durationNanos, float magnitude) {
+        long samples = Math.max(1, durationNanos / periodNanos);
+        for (long i = 0; i < samples; i++) {
+            append(magnitude);
+        }
+        return this;
+    }
+
+    TraceBuilder rest(long durationNanos) {
+        return hold(durationNanos, GRAVITY);
+    }
+
+    /** Alternates between two magnitudes, like a phone being carried or handled. */
+    TraceBuilder shake(long durationNanos, float low, float high) {
+        long samples = Math.max(1, durationNanos / periodNanos);
+        for (long i = 0; i < samples; i++) {
+            append(i % 2 == 0 ? low : high);
+        }
+        return this;
+    }
+
+    /** Free fall, an impact spike and the person lying still afterwards. */
+    TraceBuilder fall(long freeFallNanos, float impactPeak, long lieNanos) {
+        hold(freeFallNanos, 0.4f);
+        append(impactPeak * 0.6f);
+        append(impactPeak);
+        append(impactPeak * 0.5f);
+        return rest(lieNanos);
+    }
+
+    long now() {
+        return nextTimestamp;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long[] timestamps() {
+        return Arrays.copyOf(timestamps, size);
+    }
+
+    float[] magnitudes() {
+        return Arrays.copyOf(magnitudes, size);
+    }
+
+    void feed(FallDetector detector) {
+        for (int i = 0; i < size; i++) {
+            detector.onSample(timestamps[i], 0f, 0f, magnitudes[i]);
+        }
+    }
+
+    private void append(float magnitude) {
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, size * 2);
+            magnitudes = Arrays.copyOf(magnitudes, size * 2);
+        }
+        timestamps[size] = nextTimestamp;
+        magnitudes[size] = magnitude;
+        size++;
+        nextTimestamp += periodNanos;
+    }
+}
@@ -0,0 +1,181 @@
+package com.evercare.detection;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+
+public class WindowFeatureExtractorTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L; // 50 Hz
+    private static final int WINDOW = 100; // 2 s
+    private static final int HOP = 25;
+
+    private final List<float[]> windows = new ArrayList<>();
+    private final List<Long> ends = new ArrayList<>();
+
+    private WindowFeatureExtractor newExtractor() {
+        return new WindowFeatureExtractor(WINDOW, HOP, PERIOD_NANOS, 0.5, 3.0, new WindowFeatureExtractor.Listener() {
+            @Override
+            public void onWindow(WindowFeatures features) {
+                float[] copy = new float[WindowFeatures.COUNT];
+                features.copyTo(copy);
+                windows.add(copy);
+                ends.add(features.endNanos());
+            }
+        });
+    }
+
+    /** Every feature computed the slow way from the last {@code WINDOW} samples ending at {@code end}. */
+    private static double[] bruteForce(float[][] samples, int end) {
+        int start = end - WINDOW + 1;
+        double[] m = new double[WINDOW];
+        double sum = 0;
+        double absolute = 0;
+        double steps = 0;
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0; i < WINDOW; i++) {
+            float[] s = samples[start + i];
+            m[i] = Math.sqrt((double) s[0] * s[0] + (double) s[1] * s[1] + (double) s[2] * s[2]);
+            sum += m[i];
+            absolute += Math.abs(s[0]) + Math.abs(s[1]) + Math.abs(s[2]);
+            min = Math.min(min, m[i]);
+            max = Math.max(max, m[i]);
+            if (start + i > 0) {
+                float[] p = samples[start + i - 1];
+                steps += Math.abs(m[i] - Math.sqrt((double) p[0] * p[0] + (double) p[1] * p[1] + (double) p[2] * p[2]));
+            }
+        }
+        double mean = sum / WINDOW;
+        double variance = 0;
+        for (double v : m) {
+            variance += (v - mean) * (v - mean);
+        }
+        double power = 0;
+        // 0.5 to 3 Hz over a 2 s window: bins 1 to 6
+        for (int k = 1; k <= 6; k++) {
+            double re = 0;
+            double im = 0;
+            for (int n = 0; n < WINDOW; n++) {
+                re += m[n] * Math.cos(2 * Math.PI * k * n / WINDOW);
+                im -= m[n] * Math.sin(2 * Math.PI * k * n / WINDOW);
+            }
+            power += re * re + im * im;
+        }
+        double[] first = blockMean(samples, start);
+        double[] last = blockMean(samples, end - HOP + 1);
+        double cos = (first[0] * last[0] + first[1] * last[1] + first[2] * last[2])
+                / (Math.sqrt(first[0] * first[0] + first[1] * first[1] + first[2] * first[2])
+                * Math.sqrt(last[0] * last[0] + last[1] * last[1] + last[2] * last[2]));
+        return new double[] {
+                mean, variance / WINDOW, min, max, max - min, absolute / WINDOW,
+                steps / WINDOW / (PERIOD_NANOS / 1e9),
+                Math.toDegrees(Math.acos(Math.max(-1, Math.min(1, cos)))),
+                2 * power / ((double) WINDOW * WINDOW)
+        };
+    }
+
+    private static double[] blockMean(float[][] samples, int from) {
+        double[] mean = new double[3];
+        for (int i = from; i < from + HOP; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                mean[axis] += samples[i][axis] / (double) HOP;
+            }
+        }
+        return mean;
+    }
+
+    @Test
+    public void incrementalFeaturesMatchABruteForceRecomputation() {
+        WindowFeatureExtractor extractor = newExtractor();
+        Random random = new Random(11);
+        float[][] samples = new float[1000][];
+        for (int i = 0; i < samples.length; i++) {
+            // Walking, then the phone rolls over onto its side
+            double tilt = i < 600 ? 0 : Math.min(Math.PI / 2, (i - 600) * 0.02);
+            float bounce = (float) (2 * Math.sin(2 * Math.PI * 1.8 * i * PERIOD_NANOS / 1e9));
+            samples[i] = new float[] {
+                    (float) (9.81 * Math.sin(tilt)) + random.nextFloat() - 0.5f,
+                    random.nextFloat() - 0.5f,
+                    (float) (9.81 * Math.cos(tilt)) + bounce + random.nextFloat() - 0.5f
+            };
+            extractor.onSample(1_000_000_000L + i * PERIOD_NANOS, samples[i][0], samples[i][1], samples[i][2]);
+        }
+
+        // Full at sample 100, then every 25 samples
+        assertEquals((1000 - WINDOW) / HOP + 1, windows.size());
+        for (int w = 0; w < windows.size(); w++) {
+            int end = WINDOW - 1 + w * HOP;
+            assertEquals(1_000_000_000L + end * PERIOD_NANOS, (long) ends.get(w));
+            double[] expected = bruteForce(samples, end);
+            for (int f = 0; f < WindowFeatures.COUNT; f++) {
+                assertEquals("window " + w + " " + WindowFeatures.name(f), expected[f], windows.get(w)[f],
+                        1e-3 * Math.max(1, Math.abs(expected[f])));
+            }
+        }
+    }
+
+    @Test
+    public void bandPowerOfASineInTheBandIsHalfItsSquaredAmplitude() {
+        WindowFeatureExtractor extractor = newExtractor();
+        for (int i = 0; i < 400; i++) {
+            // 2 Hz lands exactly on bin 4
+            float z = (float) (9.81 + 3 * Math.sin(2 * Math.PI * 2.0 * i * PERIOD_NANOS / 1e9));
+            extractor.onSample(i * PERIOD_NANOS, 0f, 0f, z);
+        }
+        float[] last = windows.get(windows.size() - 1);
+        assertEquals(4.5f, last[WindowFeatures.BAND_POWER], 1e-3f);
+        assertEquals(9.81f, last[WindowFeatures.MEAN_MAGNITUDE], 1e-3f);
+        assertEquals(4.5f, last[WindowFeatures.MAGNITUDE_VARIANCE], 1e-2f);
+        assertEquals(0f, last[WindowFeatures.TILT_CHANGE], 1e-2f);
+    }
+
+    @Test
+    public void sampleOffTheGridStartsTheWindowOver() {
+        WindowFeatureExtractor extractor = newExtractor();
+        long t = 0;
+        for (int i = 0; i < 150; i++) {
+            extractor.onSample(t, 0f, 0f, 9.81f);
+            t += PERIOD_NANOS;
+        }
+        assertEquals(3, windows.size());
+        // The resampler reported a gap; nothing bridges it
+        t += 500_000_000L;
+        for (int i = 0; i < 99; i++) {
+            extractor.onSample(t, 0f, 0f, 1f);
+            t += PERIOD_NANOS;
+        }
+        assertEquals(3, windows.size());
+        extractor.onSample(t, 0f, 0f, 1f);
+        assertEquals(4, windows.size());
+        assertEquals(1f, windows.get(3)[WindowFeatures.MAX_MAGNITUDE], 0f);
+    }
+
+    @Test
+    public void extractionAllocatesNothing() {
+        final double[] sink = new double[1];
+        final WindowFeatureExtractor extractor = new WindowFeatureExtractor(WINDOW, HOP, PERIOD_NANOS, 0.5, 3.0,
+                new WindowFeatureExtractor.Listener() {
+                    @Override
+                    public void onWindow(WindowFeatures features) {
+                        sink[0] += features.get(WindowFeatures.BAND_POWER);
+                    }
+                });
+        final long[] t = {0};
+        Runnable feed = new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 20_000; i++) {
+                    extractor.onSample(t[0], (i % 7) * 0.1f, 0f, 9.81f + (i % 13) * 0.3f);
+                    t[0] += PERIOD_NANOS;
+                }
+            }
+        };
+        feed.run();
+
+        assertEquals(0L, Allocations.fewestBytes(5, feed));
+    }
+}
@@ -0,0 +1,119 @@
+package com.evercare.detection.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallModel;
+import com.evercare.detection.FallModelCodec;
+import com.evercare.detection.LogisticFallModel;
+import com.evercare.detection.SensorTraceWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FallModelToolTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+    private static final long ONSET_NANOS = 4_000_000_000L;
+    private static final long TOLERANCE_NANOS = 10_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void trainedModelRejectsSoftDropsTheRulesAccept() throws IOException {
+        List<File> traces = hardAndSoftTraces();
+        FallModelTool.Windows windows = FallModelTool.collectWindows(traces);
+        assertTrue(windows.positives() > 0 && windows.positives() < windows.size());
+        LogisticFallModel trained = FallModelTool.train(windows, 2000, 1f, 1e-3f);
+        FallModel model = FallModelCodec.decode(FallModelCodec.encode(trained));
+
+        ParameterSweep.Score[] scores = FallModelTool.evaluate(model, traces, TOLERANCE_NANOS);
+        assertEquals(4, scores[0].truePositives);
+        assertEquals(4, scores[0].falsePositives);
+        assertEquals(4, scores[1].truePositives);
+        assertEquals(0, scores[1].falsePositives);
+        assertEquals(1.0, scores[1].precision(), 0);
+        assertEquals(1.0, scores[1].recall(), 0);
+    }
+
+    @Test
+    public void replayAndSweepCanGateWithTheModel() throws IOException {
+        List<File> traces = hardAndSoftTraces();
+        FallModel model = FallModelTool.train(FallModelTool.collectWindows(traces), 2000, 1f, 1e-3f);
+
+        long[][] labels = new long[traces.size()][];
+        for (int i = 0; i < traces.size(); i++) {
+            File trace = traces.get(i);
+            labels[i] = ParameterSweep.readLabels(ParameterSweep.labelsFileFor(trace));
+            assertEquals(trace.getName(), 1, TraceReplay.replay(trace, new FallDetectorConfig()).events.size());
+            assertEquals(trace.getName(), labels[i].length,
+                    TraceReplay.replay(trace, new FallDetectorConfig(), model).events.size());
+        }
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            ParameterSweep.Score gated = ParameterSweep.evaluate(Collections.singletonList(new FallDetectorConfig()),
+                    model, traces, labels, TOLERANCE_NANOS, pool)[0];
+            assertEquals(4, gated.truePositives);
+            assertEquals(0, gated.falsePositives);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void trainingWithoutFallsIsRejected() throws IOException {
+        List<File> traces = new ArrayList<>();
+        traces.add(writeTrace("soft", 21f));
+        FallModelTool.train(FallModelTool.collectWindows(traces), 10, 1f, 0f);
+    }
+
+    /** Hard falls are labelled; drops onto a sofa pass the rule detector but are not falls. */
+    private List<File> hardAndSoftTraces() throws IOException {
+        List<File> traces = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            traces.add(writeTrace("hard" + i, 32f + 2 * i));
+            writeLabels("hard" + i, ONSET_NANOS);
+            traces.add(writeTrace("soft" + i, 21f + 0.5f * i));
+        }
+        return traces;
+    }
+
+    private File writeTrace(String name, float impact) throws IOException {
+        File file = new File(folder.getRoot(), name + ".ectr");
+        try (SensorTraceWriter writer = new SensorTraceWriter(file, 0L)) {
+            long t = 0;
+            for (int i = 0; i < 600; i++, t += PERIOD_NANOS) {
+                int fromOnset = i - (int) (ONSET_NANOS / PERIOD_NANOS);
+                float z;
+                if (fromOnset >= 0 && fromOnset < 15) {
+                    z = 0.4f;
+                } else if (fromOnset == 15) {
+                    z = impact * 0.6f;
+                } else if (fromOnset == 16) {
+                    z = impact;
+                } else if (fromOnset == 17) {
+                    z = impact * 0.5f;
+                } else {
+                    z = 9.81f;
+                }
+                writer.append(t, 0f, 0f, z);
+            }
+        }
+        return file;
+    }
+
+    private void writeLabels(String name, long onsetNanos) throws IOException {
+        try (FileWriter writer = new FileWriter(new File(folder.getRoot(), name + ParameterSweep.LABELS_EXTENSION))) {
+            writer.write(onsetNanos + "\n");
+        }
+    }
+}
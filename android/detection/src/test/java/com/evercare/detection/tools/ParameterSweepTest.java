@@ -0,0 +1,125 @@
+package com.evercare.detection.tools;
+
+import static org.junit.Assert.assertEquals;
+
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallEvent;
+import com.evercare.detection.SensorTraceWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ParameterSweepTest {
+
+    private static final long PERIOD_NANOS = 20_000_000L;
+    private static final long TOLERANCE_NANOS = 10_000_000_000L;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void gridExpandsEveryCombination() {
+        ParameterSweep.Grid grid = ParameterSweep.Grid.parse(
+                Arrays.asList("freeFallThreshold=1.5,2.5", "impactThreshold=15,20,25"));
+        assertEquals(6, grid.configs.size());
+        assertEquals("freeFallThreshold,impactThreshold", grid.csvHeader());
+        assertEquals("2.5,25", grid.csvValues(5));
+        assertEquals(2.5f, grid.configs.get(5).freeFallThreshold, 0f);
+        assertEquals(25f, grid.configs.get(5).impactThreshold, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownParameterIsRejected() {
+        ParameterSweep.Grid.parse(Collections.singletonList("noSuchField=1"));
+    }
+
+    @Test
+    public void scoreMatchesEachLabelOnce() {
+        long[] labels = {10_000_000_000L, 100_000_000_000L};
+        List<FallEvent> events = Arrays.asList(
+                event(12_000_000_000L), // hit, 2 s late
+                event(13_000_000_000L), // same fall again: false positive
+                event(50_000_000_000L)); // nothing there: false positive
+        ParameterSweep.Score score = ParameterSweep.score(labels, events, TOLERANCE_NANOS);
+        assertEquals(1, score.truePositives);
+        assertEquals(2, score.falsePositives);
+        assertEquals(1, score.falseNegatives);
+        assertEquals(2000.0, score.meanLatencyMillis(), 1e-9);
+    }
+
+    @Test
+    public void sweepScoresLabelledTraces() throws IOException {
+        // One trace with a hard fall, one with a soft drop onto a sofa (not a fall)
+        File hard = writeTrace("hard", 30f);
+        File soft = writeTrace("soft", 16f);
+        writeLabels("hard", 2_000_000_000L);
+
+        List<File> traces = Arrays.asList(hard, soft);
+        long[][] labels = {
+                ParameterSweep.readLabels(ParameterSweep.labelsFileFor(hard)),
+                ParameterSweep.readLabels(ParameterSweep.labelsFileFor(soft))
+        };
+        List<FallDetectorConfig> configs = new ArrayList<>();
+        for (float impact : new float[] {12f, 20f, 40f}) {
+            FallDetectorConfig config = new FallDetectorConfig();
+            config.impactThreshold = impact;
+            configs.add(config);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            ParameterSweep.Score[] scores = ParameterSweep.evaluate(configs, traces, labels, TOLERANCE_NANOS, pool);
+            // Too sensitive: the sofa drop counts as a fall
+            assertEquals(1, scores[0].truePositives);
+            assertEquals(1, scores[0].falsePositives);
+            // Default: only the real fall
+            assertEquals(1, scores[1].truePositives);
+            assertEquals(0, scores[1].falsePositives);
+            assertEquals(1.0, scores[1].precision(), 0);
+            assertEquals(1.0, scores[1].recall(), 0);
+            // Too strict: misses it
+            assertEquals(0, scores[2].truePositives);
+            assertEquals(1, scores[2].falseNegatives);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private File writeTrace(String name, float impact) throws IOException {
+        File file = new File(folder.getRoot(), name + ".ectr");
+        try (SensorTraceWriter writer = new SensorTraceWriter(file, 0L)) {
+            long t = 0;
+            for (int i = 0; i < 500; i++, t += PERIOD_NANOS) {
+                float z;
+                if (i >= 100 && i < 115) {
+                    z = 0.4f;
+                } else if (i == 115) {
+                    z = impact;
+                } else {
+                    z = 9.81f;
+                }
+                writer.append(t, 0f, 0f, z);
+            }
+        }
+        return file;
+    }
+
+    private void writeLabels(String name, long onsetNanos) throws IOException {
+        try (FileWriter writer = new FileWriter(new File(folder.getRoot(), name + ParameterSweep.LABELS_EXTENSION))) {
+            writer.write("# fall onsets\n" + onsetNanos + "\n");
+        }
+    }
+
+    private static FallEvent event(long detectedNanos) {
+        return new FallEvent(detectedNanos - 3_000_000_000L, 300_000_000L, 0.4f, detectedNanos - 2_500_000_000L,
+                30f, 0.1f, detectedNanos);
+    }
+}
@@ -0,0 +1,230 @@
+package com.evercare.detection.tools;
+
+import com.evercare.detection.FallClassifier;
+import com.evercare.detection.FallDetector;
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallEvent;
+import com.evercare.detection.FallModel;
+import com.evercare.detection.FallModelCodec;
+import com.evercare.detection.LogisticFallModel;
+import com.evercare.detection.WindowFeatureExtractor;
+import com.evercare.detection.WindowFeatures;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Trains and evaluates the {@link FallModel} that gates the detector's falls on the device.
+ *
+ * <pre>
+ * Usage: FallModelTool train &lt;trace directory&gt; &lt;out.ecfm&gt;
+ *        FallModelTool evaluate &lt;model.ecfm&gt; &lt;trace directory&gt;
+ * </pre>
+ *
+ * Traces and labels are the ones {@link ParameterSweep} reads, replayed through
+ * {@link TraceReplay}'s copy of the service's pipeline. {@code train} extracts feature windows and
+ * fits a logistic regression: a window is a fall if it overlaps the first
+ * {@link #POSITIVE_SPAN_NANOS} after a labelled onset. {@code evaluate}
+ * replays every trace through the detector with and without the model and prints both scores as
+ * CSV, so a new model can be checked against the rule detector before it ships.
+ */
+public final class FallModelTool {
+
+    /** Free fall and impact both land within this long after a labelled onset. */
+    static final long POSITIVE_SPAN_NANOS = 1_500_000_000L;
+    private static final long TOLERANCE_NANOS = 10_000_000_000L;
+
+    private FallModelTool() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 3 && "train".equals(args[0])) {
+            Windows windows = collectWindows(traces(new File(args[1])));
+            LogisticFallModel model = train(windows, 2000, 1f, 1e-3f);
+            try (OutputStream out = new FileOutputStream(args[2])) {
+                out.write(FallModelCodec.encode(model));
+            }
+            System.err.printf(Locale.US, "Trained on %d windows (%d falls), training accuracy %.4f%n",
+                    windows.size(), windows.positives(), accuracy(model, windows));
+        } else if (args.length == 3 && "evaluate".equals(args[0])) {
+            FallModel model;
+            try (InputStream in = new FileInputStream(args[1])) {
+                model = FallModelCodec.read(in);
+            }
+            ParameterSweep.Score[] scores = evaluate(model, traces(new File(args[2])), TOLERANCE_NANOS);
+            PrintStream out = System.out;
+            out.println("pipeline,truePositives,falsePositives,falseNegatives,precision,recall,meanLatencyMillis,maxLatencyMillis");
+            out.println("rules," + scores[0].toCsv());
+            out.println("rules+model," + scores[1].toCsv());
+        } else {
+            System.err.println("Usage: FallModelTool train <trace directory> <out.ecfm>");
+            System.err.println("       FallModelTool evaluate <model.ecfm> <trace directory>");
+            System.exit(2);
+        }
+    }
+
+    private static List<File> traces(File directory) {
+        List<File> traces = new ArrayList<>();
+        TraceReplay.collectTraces(directory, traces);
+        return traces;
+    }
+
+    /** Feature windows of every trace, labelled from the trace's labels file. */
+    static Windows collectWindows(List<File> traces) throws IOException {
+        final Windows windows = new Windows();
+        for (File trace : traces) {
+            final long[] onsets = ParameterSweep.readLabels(ParameterSweep.labelsFileFor(trace));
+            TraceReplay.replay(trace, new FallDetectorConfig(), null, new WindowFeatureExtractor.Listener() {
+                @Override
+                public void onWindow(WindowFeatures features) {
+                    boolean fall = false;
+                    for (long onset : onsets) {
+                        if (features.endNanos() >= onset && features.startNanos() <= onset + POSITIVE_SPAN_NANOS) {
+                            fall = true;
+                            break;
+                        }
+                    }
+                    windows.add(features, fall);
+                }
+            });
+        }
+        return windows;
+    }
+
+    /**
+     * Fits a logistic regression by full-batch gradient descent on standardised features. Falls
+     * are rare next to everyday windows, so each class carries half the loss.
+     */
+    static LogisticFallModel train(Windows windows, int epochs, float learningRate, float l2) {
+        int n = windows.size();
+        int positives = windows.positives();
+        if (positives == 0 || positives == n) {
+            throw new IllegalArgumentException("Training needs both falls and non-falls: " + positives + "/" + n);
+        }
+        int d = WindowFeatures.COUNT;
+        float[] means = new float[d];
+        float[] scales = new float[d];
+        for (int j = 0; j < d; j++) {
+            double sum = 0;
+            for (int i = 0; i < n; i++) {
+                sum += windows.features.get(i)[j];
+            }
+            double mean = sum / n;
+            double squares = 0;
+            for (int i = 0; i < n; i++) {
+                double delta = windows.features.get(i)[j] - mean;
+                squares += delta * delta;
+            }
+            means[j] = (float) mean;
+            // A constant feature gets no weight anyway; keep its scale valid
+            scales[j] = (float) Math.max(Math.sqrt(squares / n), 1e-3);
+        }
+
+        double[][] x = new double[n][d];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < d; j++) {
+                x[i][j] = (windows.features.get(i)[j] - means[j]) / scales[j];
+            }
+        }
+        double positiveWeight = 0.5 / positives;
+        double negativeWeight = 0.5 / (n - positives);
+        double[] weights = new double[d];
+        double bias = 0;
+        double[] gradient = new double[d];
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Arrays.fill(gradient, 0);
+            double biasGradient = 0;
+            for (int i = 0; i < n; i++) {
+                double z = bias;
+                for (int j = 0; j < d; j++) {
+                    z += weights[j] * x[i][j];
+                }
+                boolean fall = windows.labels.get(i);
+                double error = (1 / (1 + Math.exp(-z)) - (fall ? 1 : 0)) * (fall ? positiveWeight : negativeWeight);
+                biasGradient += error;
+                for (int j = 0; j < d; j++) {
+                    gradient[j] += error * x[i][j];
+                }
+            }
+            bias -= learningRate * biasGradient;
+            for (int j = 0; j < d; j++) {
+                weights[j] -= learningRate * (gradient[j] + l2 * weights[j]);
+            }
+        }
+
+        float[] fitted = new float[d];
+        for (int j = 0; j < d; j++) {
+            fitted[j] = (float) weights[j];
+        }
+        return new LogisticFallModel(means, scales, fitted, (float) bias, 0.5f);
+    }
+
+    static double accuracy(FallModel model, Windows windows) {
+        int correct = 0;
+        for (int i = 0; i < windows.size(); i++) {
+            boolean fall = model.probability(windows.features.get(i), 0) >= model.threshold();
+            if (fall == windows.labels.get(i)) {
+                correct++;
+            }
+        }
+        return correct / (double) windows.size();
+    }
+
+    /** Scores the rule detector alone (index 0) and gated by {@code model} (index 1). */
+    static ParameterSweep.Score[] evaluate(FallModel model, List<File> traces, long toleranceNanos)
+            throws IOException {
+        ParameterSweep.Score rules = new ParameterSweep.Score();
+        ParameterSweep.Score gated = new ParameterSweep.Score();
+        for (File trace : traces) {
+            final FallClassifier classifier = new FallClassifier(model, TraceReplay.HISTORY_WINDOWS);
+            final List<FallEvent> ruleEvents = new ArrayList<>();
+            final List<FallEvent> gatedEvents = new ArrayList<>();
+            TraceReplay.replay(trace, new FallDetectorConfig(), new FallDetector.Listener() {
+                @Override
+                public void onFallDetected(FallEvent event) {
+                    ruleEvents.add(event);
+                    if (classifier.confirms(event)) {
+                        gatedEvents.add(event);
+                    }
+                }
+            }, classifier);
+            long[] onsets = ParameterSweep.readLabels(ParameterSweep.labelsFileFor(trace));
+            rules.add(ParameterSweep.score(onsets, ruleEvents, toleranceNanos));
+            gated.add(ParameterSweep.score(onsets, gatedEvents, toleranceNanos));
+        }
+        return new ParameterSweep.Score[] {rules, gated};
+    }
+
+    /** Labelled feature vectors collected for training. */
+    static final class Windows {
+        final List<float[]> features = new ArrayList<>();
+        final List<Boolean> labels = new ArrayList<>();
+        private int positives;
+
+        void add(WindowFeatures window, boolean fall) {
+            float[] copy = new float[WindowFeatures.COUNT];
+            window.copyTo(copy);
+            features.add(copy);
+            labels.add(fall);
+            if (fall) {
+                positives++;
+            }
+        }
+
+        int size() {
+            return features.size();
+        }
+
+        int positives() {
+            return positives;
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.evercare.detection.tools;
+
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallEvent;
+import com.evercare.detection.FallModel;
+import com.evercare.detection.FallModelCodec;
+import com.evercare.detection.SensorTraceFormat;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates a grid of {@link FallDetectorConfig} values against labelled sensor traces and
+ * prints precision, recall and detection latency for every combination as CSV.
+ *
+ * <pre>
+ * Usage: ParameterSweep [--tolerance-ms N] [--model model.ecfm] &lt;trace directory&gt; field=v1,v2,... [field=...]
+ *   e.g. ParameterSweep traces/ freeFallThreshold=1.5,2,2.5 impactThreshold=15,20,25
+ * </pre>
+ *
+ * Field names are the public fields of {@link FallDetectorConfig}; values use the field's own
+ * units. Each {@code name.ectr} trace may have a {@code name.labels} file next to it listing the
+ * sensor timestamp (nanoseconds) of every real fall onset, one per line; traces without one are
+ * treated as containing no falls. A detection counts as a hit when it is confirmed within
+ * {@code --tolerance-ms} (default 10000) after a labelled onset, or up to 1 s before it.
+ * {@code --model} scores only the falls that model confirms, as the device does when it ships one.
+ *
+ * Every (combination, trace) pair runs as its own fork-join task through {@link TraceReplay}'s
+ * copy of the service's pipeline, so the sweep uses all cores.
+ */
+public final class ParameterSweep {
+
+    static final String LABELS_EXTENSION = ".labels";
+    private static final long EARLY_TOLERANCE_NANOS = 1_000_000_000L;
+
+    private ParameterSweep() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        long toleranceNanos = 10_000_000_000L;
+        FallModel model = null;
+        File directory = null;
+        List<String> gridSpecs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--tolerance-ms".equals(args[i]) && i + 1 < args.length) {
+                toleranceNanos = Long.parseLong(args[++i]) * 1_000_000L;
+            } else if ("--model".equals(args[i]) && i + 1 < args.length) {
+                try (InputStream in = new FileInputStream(args[++i])) {
+                    model = FallModelCodec.read(in);
+                }
+            } else if (args[i].contains("=")) {
+                gridSpecs.add(args[i]);
+            } else {
+                directory = new File(args[i]);
+            }
+        }
+        if (directory == null || gridSpecs.isEmpty()) {
+            System.err.println("Usage: ParameterSweep [--tolerance-ms N] [--model model.ecfm] <trace directory> field=v1,v2,...");
+            System.exit(2);
+        }
+
+        List<File> traces = new ArrayList<>();
+        TraceReplay.collectTraces(directory, traces);
+        long[][] labels = new long[traces.size()][];
+        for (int i = 0; i < traces.size(); i++) {
+            labels[i] = readLabels(labelsFileFor(traces.get(i)));
+        }
+
+        Grid grid = Grid.parse(gridSpecs);
+        long startNanos = System.nanoTime();
+        Score[] scores = evaluate(grid.configs, model, traces, labels, toleranceNanos, ForkJoinPool.commonPool());
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        PrintStream out = System.out;
+        out.println(grid.csvHeader() + ",truePositives,falsePositives,falseNegatives,precision,recall,meanLatencyMillis,maxLatencyMillis");
+        for (int i = 0; i < scores.length; i++) {
+            out.println(grid.csvValues(i) + "," + scores[i].toCsv());
+        }
+        System.err.printf(Locale.US, "Evaluated %d combinations x %d traces on %d threads in %.2f s%n",
+                grid.configs.size(), traces.size(), ForkJoinPool.commonPool().getParallelism(), elapsedNanos / 1e9);
+    }
+
+    /** Scores every config against every trace in parallel; result i belongs to config i. */
+    static Score[] evaluate(List<FallDetectorConfig> configs, List<File> traces, long[][] labels,
+                            long toleranceNanos, ForkJoinPool pool) {
+        return evaluate(configs, null, traces, labels, toleranceNanos, pool);
+    }
+
+    /** As above, keeping only the falls {@code model} confirms; a null model gates nothing. */
+    static Score[] evaluate(List<FallDetectorConfig> configs, FallModel model, List<File> traces, long[][] labels,
+                            long toleranceNanos, ForkJoinPool pool) {
+        Score[] perUnit = new Score[configs.size() * traces.size()];
+        pool.invoke(new EvaluateTask(configs, model, traces, labels, toleranceNanos, perUnit, 0, perUnit.length));
+
+        Score[] scores = new Score[configs.size()];
+        for (int c = 0; c < configs.size(); c++) {
+            Score total = new Score();
+            for (int t = 0; t < traces.size(); t++) {
+                total.add(perUnit[c * traces.size() + t]);
+            }
+            scores[c] = total;
+        }
+        return scores;
+    }
+
+    /**
+     * Matches detections against labelled onsets. Each label can be claimed by at most one
+     * detection; detections that match nothing are false positives.
+     */
+    static Score score(long[] labelOnsets, List<FallEvent> events, long toleranceNanos) {
+        Score score = new Score();
+        boolean[] matched = new boolean[labelOnsets.length];
+        for (FallEvent event : events) {
+            int hit = -1;
+            for (int i = 0; i < labelOnsets.length; i++) {
+                if (!matched[i]
+                        && event.detectedNanos >= labelOnsets[i] - EARLY_TOLERANCE_NANOS
+                        && event.detectedNanos <= labelOnsets[i] + toleranceNanos) {
+                    hit = i;
+                    break;
+                }
+            }
+            if (hit < 0) {
+                score.falsePositives++;
+            } else {
+                matched[hit] = true;
+                score.truePositives++;
+                long latency = Math.max(0, event.detectedNanos - labelOnsets[hit]);
+                score.latencySumNanos += latency;
+                score.latencyMaxNanos = Math.max(score.latencyMaxNanos, latency);
+            }
+        }
+        for (boolean m : matched) {
+            if (!m) {
+                score.falseNegatives++;
+            }
+        }
+        return score;
+    }
+
+    static File labelsFileFor(File trace) {
+        String name = trace.getName();
+        String base = name.substring(0, name.length() - SensorTraceFormat.FILE_EXTENSION.length());
+        return new File(trace.getParentFile(), base + LABELS_EXTENSION);
+    }
+
+    static long[] readLabels(File file) throws IOException {
+        if (!file.exists()) {
+            return new long[0];
+        }
+        List<Long> onsets = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    onsets.add(Long.parseLong(line));
+                }
+            }
+        }
+        long[] result = new long[onsets.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = onsets.get(i);
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    private static final class EvaluateTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final List<FallDetectorConfig> configs;
+        private final FallModel model;
+        private final List<File> traces;
+        private final long[][] labels;
+        private final long toleranceNanos;
+        private final Score[] out;
+        private final int from;
+        private final int to;
+
+        EvaluateTask(List<FallDetectorConfig> configs, FallModel model, List<File> traces, long[][] labels,
+                     long toleranceNanos, Score[] out, int from, int to) {
+            this.configs = configs;
+            this.model = model;
+            this.traces = traces;
+            this.labels = labels;
+            this.toleranceNanos = toleranceNanos;
+            this.out = out;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluateTask(configs, model, traces, labels, toleranceNanos, out, from, mid),
+                        new EvaluateTask(configs, model, traces, labels, toleranceNanos, out, mid, to));
+                return;
+            }
+            int config = from / traces.size();
+            int trace = from % traces.size();
+            try {
+                TraceReplay.Replay replay = TraceReplay.replay(traces.get(trace), configs.get(config), model);
+                out[from] = score(labels[trace], replay.events, toleranceNanos);
+            } catch (IOException e) {
+                throw new UncheckedIOException(traces.get(trace).getPath(), e);
+            }
+        }
+    }
+
+    /** Detection counts and latency, for one trace or summed over many. */
+    static final class Score {
+        int truePositives;
+        int falsePositives;
+        int falseNegatives;
+        long latencySumNanos;
+        long latencyMaxNanos;
+
+        void add(Score other) {
+            truePositives += other.truePositives;
+            falsePositives += other.falsePositives;
+            falseNegatives += other.falseNegatives;
+            latencySumNanos += other.latencySumNanos;
+            latencyMaxNanos = Math.max(latencyMaxNanos, other.latencyMaxNanos);
+        }
+
+        double precision() {
+            int detected = truePositives + falsePositives;
+            return detected == 0 ? 1.0 : truePositives / (double) detected;
+        }
+
+        double recall() {
+            int actual = truePositives + falseNegatives;
+            return actual == 0 ? 1.0 : truePositives / (double) actual;
+        }
+
+        double meanLatencyMillis() {
+            return truePositives == 0 ? 0 : latencySumNanos / 1e6 / truePositives;
+        }
+
+        String toCsv() {
+            return String.format(Locale.US, "%d,%d,%d,%.4f,%.4f,%.1f,%.1f", truePositives, falsePositives,
+                    falseNegatives, precision(), recall(), meanLatencyMillis(), latencyMaxNanos / 1e6);
+        }
+    }
+
+    /** Cartesian product of per-field value lists, expanded into detector configs. */
+    static final class Grid {
+        final List<Field> fields = new ArrayList<>();
+        final List<String[]> values = new ArrayList<>();
+        final List<FallDetectorConfig> configs = new ArrayList<>();
+        private final List<String[]> combinations = new ArrayList<>();
+
+        static Grid parse(List<String> specs) {
+            Grid grid = new Grid();
+            for (String spec : specs) {
+                int eq = spec.indexOf('=');
+                String name = spec.substring(0, eq).trim();
+                Field field;
+                try {
+                    field = FallDetectorConfig.class.getField(name);
+                } catch (NoSuchFieldException e) {
+                    throw new IllegalArgumentException("Unknown detector parameter: " + name);
+                }
+                if (Modifier.isStatic(field.getModifiers())) {
+                    throw new IllegalArgumentException("Not a detector parameter: " + name);
+                }
+                grid.fields.add(field);
+                grid.values.add(spec.substring(eq + 1).split(","));
+            }
+            grid.expand(0, new String[grid.fields.size()]);
+            return grid;
+        }
+
+        private void expand(int depth, String[] current) {
+            if (depth == fields.size()) {
+                FallDetectorConfig config = new FallDetectorConfig();
+                for (int i = 0; i < fields.size(); i++) {
+                    set(config, fields.get(i), current[i].trim());
+                }
+                configs.add(config);
+                combinations.add(current.clone());
+                return;
+            }
+            for (String value : values.get(depth)) {
+                current[depth] = value;
+                expand(depth + 1, current);
+            }
+        }
+
+        String csvHeader() {
+            StringBuilder header = new StringBuilder();
+            for (Field field : fields) {
+                if (header.length() > 0) {
+                    header.append(',');
+                }
+                header.append(field.getName());
+            }
+            return header.toString();
+        }
+
+        String csvValues(int combination) {
+            return String.join(",", combinations.get(combination)).replace(" ", "");
+        }
+
+        private static void set(FallDetectorConfig config, Field field, String value) {
+            try {
+                Class<?> type = field.getType();
+                if (type == float.class) {
+                    field.setFloat(config, Float.parseFloat(value));
+                } else if (type == long.class) {
+                    field.setLong(config, Long.parseLong(value));
+                } else if (type == int.class) {
+                    field.setInt(config, Integer.parseInt(value));
+                } else {
+                    throw new IllegalArgumentException("Unsupported parameter type for " + field.getName());
+                }
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
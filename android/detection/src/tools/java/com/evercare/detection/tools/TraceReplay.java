@@ -0,0 +1,192 @@
+package com.evercare.detection.tools;
+
+import com.evercare.detection.AccelerometerCalibrator;
+import com.evercare.detection.FallClassifier;
+import com.evercare.detection.FallDetector;
+import com.evercare.detection.FallDetectorConfig;
+import com.evercare.detection.FallEvent;
+import com.evercare.detection.FallModel;
+import com.evercare.detection.FallModelCodec;
+import com.evercare.detection.FixedRateResampler;
+import com.evercare.detection.SampleSink;
+import com.evercare.detection.SensorTraceFormat;
+import com.evercare.detection.SensorTraceReader;
+import com.evercare.detection.WindowFeatureExtractor;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays recorded sensor traces through the production {@link FallDetector} as fast as the
+ * JVM allows and prints every detected fall as CSV, followed by throughput on stderr.
+ *
+ * <pre>
+ * Usage: TraceReplay [--repeat N] [--model model.ecfm] &lt;trace file or directory&gt;...
+ * </pre>
+ *
+ * Directories are searched recursively for {@code .ectr} files. {@code --repeat} replays each
+ * trace N times with a fresh pipeline, which is handy for profiling. {@code --model} gates the
+ * detector's falls with a {@link FallModel}, as the service does when it ships one.
+ *
+ * The pipeline is the service's: resampler, calibrator, then the detector and the feature
+ * extractor side by side. Each replay starts uncalibrated, as a newly installed app does.
+ * {@link ParameterSweep} and {@link FallModelTool} replay through it too.
+ */
+public final class TraceReplay {
+
+    // Feature extraction and model history; must match BackgroundService
+    static final int WINDOW_SAMPLES = 100;
+    static final int HOP_SAMPLES = 25;
+    static final double BAND_LOW_HZ = 0.5;
+    static final double BAND_HIGH_HZ = 3.0;
+    static final int HISTORY_WINDOWS = 32;
+
+    private TraceReplay() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int repeat = 1;
+        FallModel model = null;
+        List<File> traces = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if ("--repeat".equals(args[i]) && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            } else if ("--model".equals(args[i]) && i + 1 < args.length) {
+                try (InputStream in = new FileInputStream(args[++i])) {
+                    model = FallModelCodec.read(in);
+                }
+            } else {
+                collectTraces(new File(args[i]), traces);
+            }
+        }
+        if (traces.isEmpty()) {
+            System.err.println("Usage: TraceReplay [--repeat N] [--model model.ecfm] <trace file or directory>...");
+            System.exit(2);
+        }
+
+        PrintStream out = System.out;
+        out.println("file,onsetNanos,freeFallMillis,minAcceleration,peakAcceleration,stillnessVariance,detectionDelayMillis");
+
+        long totalSamples = 0;
+        long totalSensorNanos = 0;
+        long startNanos = System.nanoTime();
+        for (File trace : traces) {
+            for (int run = 0; run < repeat; run++) {
+                Replay replay = replay(trace, new FallDetectorConfig(), model);
+                totalSamples += replay.samples;
+                totalSensorNanos += replay.sensorSpanNanos();
+                if (run == 0) {
+                    for (FallEvent event : replay.events) {
+                        out.println(toCsv(trace.getName(), event));
+                    }
+                }
+            }
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        double seconds = elapsedNanos / 1e9;
+        System.err.printf(Locale.US, "Replayed %d samples from %d trace(s) x%d in %.3f s (%.1f M samples/s, %.0fx real time)%n",
+                totalSamples, traces.size(), repeat, seconds, totalSamples / seconds / 1e6,
+                totalSensorNanos / (double) elapsedNanos);
+    }
+
+    /** Runs one trace through a fresh pipeline built from {@code config}, without a model gate. */
+    public static Replay replay(File trace, FallDetectorConfig config) throws IOException {
+        return replay(trace, config, null);
+    }
+
+    /**
+     * Runs one trace through a fresh pipeline built from {@code config}. With a {@code model},
+     * only the falls it confirms are kept, as on the device.
+     */
+    public static Replay replay(File trace, FallDetectorConfig config, FallModel model) throws IOException {
+        final List<FallEvent> events = new ArrayList<>();
+        final FallClassifier classifier = model == null ? null : new FallClassifier(model, HISTORY_WINDOWS);
+        Replay replay = replay(trace, config, new FallDetector.Listener() {
+            @Override
+            public void onFallDetected(FallEvent event) {
+                if (classifier == null || classifier.confirms(event)) {
+                    events.add(event);
+                }
+            }
+        }, classifier);
+        replay.events.addAll(events);
+        return replay;
+    }
+
+    /**
+     * Runs one trace through the service's pipeline, handing falls and feature windows to the
+     * given listeners. A null listener leaves its branch out; the returned replay has no events.
+     */
+    static Replay replay(File trace, FallDetectorConfig config, FallDetector.Listener falls,
+                         WindowFeatureExtractor.Listener windows) throws IOException {
+        final Replay replay = new Replay();
+        final FallDetector detector = falls == null ? null : new FallDetector(config, falls);
+        final WindowFeatureExtractor extractor = windows == null ? null : new WindowFeatureExtractor(
+                WINDOW_SAMPLES, HOP_SAMPLES, config.samplePeriodNanos, BAND_LOW_HZ, BAND_HIGH_HZ, windows);
+        AccelerometerCalibrator calibrator = new AccelerometerCalibrator(config, new SampleSink() {
+            @Override
+            public void onSample(long timestampNanos, float x, float y, float z) {
+                if (detector != null) {
+                    detector.onSample(timestampNanos, x, y, z);
+                }
+                if (extractor != null) {
+                    extractor.onSample(timestampNanos, x, y, z);
+                }
+            }
+        }, null);
+        final FixedRateResampler resampler = new FixedRateResampler(config, calibrator, null);
+        try (SensorTraceReader reader = new SensorTraceReader(trace)) {
+            reader.replay(new SampleSink() {
+                @Override
+                public void onSample(long timestampNanos, float x, float y, float z) {
+                    if (replay.samples == 0) {
+                        replay.firstTimestampNanos = timestampNanos;
+                    }
+                    replay.lastTimestampNanos = timestampNanos;
+                    replay.samples++;
+                    resampler.onSample(timestampNanos, x, y, z);
+                }
+            });
+        }
+        return replay;
+    }
+
+    static void collectTraces(File file, List<File> out) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                Arrays.sort(children);
+                for (File child : children) {
+                    collectTraces(child, out);
+                }
+            }
+        } else if (file.getName().endsWith(SensorTraceFormat.FILE_EXTENSION)) {
+            out.add(file);
+        }
+    }
+
+    private static String toCsv(String file, FallEvent event) {
+        return String.format(Locale.US, "%s,%d,%d,%.3f,%.3f,%.4f,%d", file, event.onsetNanos,
+                event.freeFallDurationMillis(), event.minAcceleration, event.peakAcceleration,
+                event.stillnessVariance, event.detectionDelayNanos() / 1_000_000L);
+    }
+
+    /** Result of replaying one trace. */
+    public static final class Replay {
+        public final List<FallEvent> events = new ArrayList<>();
+        public long samples;
+        public long firstTimestampNanos;
+        public long lastTimestampNanos;
+
+        public long sensorSpanNanos() {
+            return samples == 0 ? 0 : lastTimestampNanos - firstTimestampNanos;
+        }
+    }
+}
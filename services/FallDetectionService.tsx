@@ -1,9 +1,10 @@
 import { useEffect } from 'react';
 import { DeviceEventEmitter, NativeModules, Platform } from 'react-native';
-import { collection, addDoc } from 'firebase/firestore';
+import { collection, addDoc, doc, setDoc } from 'firebase/firestore';
 import { auth, db } from '../firebase';
 
 interface FallEventData {
+  eventId?: string;
   acceleration: number;
   duration: number;
   timestamp: number;
@@ -12,6 +13,7 @@ interface FallEventData {
   accuracy?: number;
   provider?: string;
   locationTimestamp?: number;
+  locationAge?: number;
 }
 
 export const useFallDetectionService = () => {
@@ -68,15 +70,25 @@ export const useFallDetectionService = () => {
               provider: eventData.provider,
               locationTimestamp: new Date(eventData.locationTimestamp || eventData.timestamp),
             };
+            if (eventData.locationAge !== undefined) {
+              fallEvent.location.locationAge = eventData.locationAge;
+            }
           } else {
             fallEvent.location = null;
           }
 
-          // Save to Firestore
+          // Save to Firestore. The native outbox writes the same event under the same
+          // document id, and both sides merge: fields only one side writes (e.g. the native
+          // motion trace and incident aggregates) are kept, and shared fields take the later value.
           const fallsCollection = collection(db, 'users', currentUser.uid, 'falls');
-          const docRef = await addDoc(fallsCollection, fallEvent);
-          
-          console.log('Fall event saved to Firebase with ID:', docRef.id);
+          if (eventData.eventId) {
+            fallEvent.eventId = eventData.eventId;
+            await setDoc(doc(fallsCollection, eventData.eventId), fallEvent, { merge: true });
+            console.log('Fall event saved to Firebase with ID:', eventData.eventId);
+          } else {
+            const docRef = await addDoc(fallsCollection, fallEvent);
+            console.log('Fall event saved to Firebase with ID:', docRef.id);
+          }
           
         } catch (error) {
           console.error('Error saving fall event to Firebase:', error);